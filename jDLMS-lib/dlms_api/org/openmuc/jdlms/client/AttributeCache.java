@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded cache of attribute values read from smart meters, used by {@link CachingClientConnection}.
+ * 
+ * Values are only cached for attributes that have a time to live configured. Times to live are set per class id and
+ * attribute id, per class id or per attribute id of any class. If the cache is full, the least recently used value is
+ * evicted. One cache may be shared by the connections to several smart meters.
+ * 
+ * This class is thread safe.
+ */
+public class AttributeCache {
+
+	/**
+	 * Wildcard for {@link #setTimeToLive(int, int, long)} matching any class id or any attribute id
+	 */
+	public static final int ANY = -1;
+
+	private final Map<Key, CacheEntry> entries;
+	private final Map<Long, Long> timesToLive = new HashMap<Long, Long>();
+
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * @param maxEntries
+	 *            Maximal number of values held by this cache
+	 */
+	public AttributeCache(final int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Cache must hold at least one entry");
+		}
+		entries = new LinkedHashMap<Key, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Sets how long values of an attribute are kept. E.g. {@code setTimeToLive(3, 3, 86400000)} keeps the scaler_unit
+	 * of register objects for a day, {@code setTimeToLive(ANY, 1, Long.MAX_VALUE)} keeps all logical names forever.
+	 * 
+	 * The most specific setting applies: class and attribute, then class only, then attribute only.
+	 * 
+	 * @param classId
+	 *            Class id of the attribute or {@link #ANY}
+	 * @param attributeId
+	 *            Attribute id or {@link #ANY}
+	 * @param timeToLive
+	 *            Amount of milliseconds a value is kept. 0 disables caching
+	 */
+	public void setTimeToLive(int classId, int attributeId, long timeToLive) {
+		if (timeToLive < 0) {
+			throw new IllegalArgumentException("Time to live must not be negative");
+		}
+		synchronized (timesToLive) {
+			timesToLive.put(policyKey(classId, attributeId), timeToLive);
+		}
+	}
+
+	/**
+	 * @return Amount of milliseconds values of the given attribute are kept. 0 if they are not cached
+	 */
+	public long getTimeToLive(int classId, int attributeId) {
+		synchronized (timesToLive) {
+			Long result = timesToLive.get(policyKey(classId, attributeId));
+			if (result == null) {
+				result = timesToLive.get(policyKey(classId, ANY));
+			}
+			if (result == null) {
+				result = timesToLive.get(policyKey(ANY, attributeId));
+			}
+			return result == null ? 0 : result;
+		}
+	}
+
+	/**
+	 * @return The cached value or null if the value is not cached or expired
+	 */
+	public GetResult get(String meter, IAttributeRequest attribute) {
+		Key key = new Key(meter, attribute);
+		synchronized (entries) {
+			CacheEntry entry = entries.get(key);
+			if (entry != null && entry.expires < System.currentTimeMillis()) {
+				entries.remove(key);
+				entry = null;
+			}
+			if (entry == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+			return entry.value;
+		}
+	}
+
+	/**
+	 * Stores a value read from the smart meter, if a time to live is configured for its attribute
+	 */
+	public void put(String meter, IAttributeRequest attribute, GetResult value) {
+		long timeToLive = getTimeToLive(attribute.getClassId(), attribute.getAttributeId());
+		if (timeToLive == 0) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		long expires = Long.MAX_VALUE - now < timeToLive ? Long.MAX_VALUE : now + timeToLive;
+
+		synchronized (entries) {
+			entries.put(new Key(meter, attribute), new CacheEntry(value, expires));
+		}
+	}
+
+	/**
+	 * Removes the value of an attribute from the cache
+	 */
+	public void invalidate(String meter, int classId, String obisCode, int attributeId) {
+		synchronized (entries) {
+			entries.remove(new Key(meter, classId, obisCode, attributeId));
+		}
+	}
+
+	/**
+	 * Removes all values of the given smart meter from the cache
+	 */
+	public void invalidate(String meter) {
+		synchronized (entries) {
+			for (Iterator<Key> iter = entries.keySet().iterator(); iter.hasNext();) {
+				if (iter.next().meter.equals(meter)) {
+					iter.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Number of values currently held
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return Number of lookups answered from the cache
+	 */
+	public long getHits() {
+		synchronized (entries) {
+			return hits;
+		}
+	}
+
+	/**
+	 * @return Number of lookups that had to be read from the smart meter
+	 */
+	public long getMisses() {
+		synchronized (entries) {
+			return misses;
+		}
+	}
+
+	private static Long policyKey(int classId, int attributeId) {
+		return ((long) classId << 32) | (attributeId & 0xFFFFFFFFL);
+	}
+
+	private static class Key {
+		private final String meter;
+		private final int classId;
+		private final String obisCode;
+		private final int attributeId;
+
+		public Key(String meter, IAttributeRequest attribute) {
+			this(meter, attribute.getClassId(), attribute.getObisCode(), attribute.getAttributeId());
+		}
+
+		public Key(String meter, int classId, String obisCode, int attributeId) {
+			this.meter = meter;
+			this.classId = classId;
+			this.obisCode = obisCode.toLowerCase();
+			this.attributeId = attributeId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof Key) {
+				Key other = (Key) o;
+				return classId == other.classId && attributeId == other.attributeId
+						&& obisCode.equals(other.obisCode) && meter.equals(other.meter);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((meter.hashCode() * 31 + obisCode.hashCode()) * 31 + classId) * 31 + attributeId;
+		}
+	}
+
+	private static class CacheEntry {
+		private final GetResult value;
+		private final long expires;
+
+		public CacheEntry(GetResult value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-through cache in front of an {@link IClientConnection}.
+ * 
+ * GET requests without selective access are answered from an {@link AttributeCache} if a value that has not yet
+ * expired is available. All other requests are read from the smart meter and their successful results are stored in
+ * the cache. A SET on an attribute and an {@link EventNotification} for an attribute remove its value from the cache.
+ * 
+ * The cache registers itself as event listener of the wrapped connection, so the wrapped connection must not have
+ * another event listener. Register event listeners on this object instead of the wrapped connection. The registration
+ * is removed on {@link #disconnect()} and {@link #close()}, so a connection can be wrapped again afterwards. Cached
+ * {@link GetResult} objects are shared between all callers and must not be modified.
+ */
+public class CachingClientConnection implements IClientConnection {
+
+	private final IClientConnection connection;
+	private final AttributeCache cache;
+	private final String meter;
+
+	private volatile IEventListener eventListener;
+
+	/**
+	 * Listener registered on the wrapped connection to invalidate the values changed by events
+	 */
+	private final IEventListener invalidator = new IEventListener() {
+		@Override
+		public void eventReceived(EventNotification event) {
+			cache.invalidate(meter, event.getClassId(), event.getObisCode(), event.getAttributeId());
+			IEventListener listener = eventListener;
+			if (listener != null) {
+				listener.eventReceived(event);
+			}
+		}
+	};
+
+	/**
+	 * @param connection
+	 *            Connection to the smart meter
+	 * @param cache
+	 *            Cache to store the values in. May be shared with other connections
+	 * @param meter
+	 *            Unique identifier of the smart meter, e.g. its address or serial number
+	 * @throws IllegalStateException
+	 *             If an event listener is already registered on the connection
+	 */
+	public CachingClientConnection(IClientConnection connection, AttributeCache cache, String meter) {
+		this.connection = connection;
+		this.cache = cache;
+		this.meter = meter;
+
+		connection.registerEventListener(invalidator);
+	}
+
+	/**
+	 * Removes the event listener of the cache from the wrapped connection without disconnecting it. Call this method
+	 * if the wrapped connection stays in use after this object is no longer needed, e.g. because it is pooled.
+	 */
+	public void close() {
+		connection.removeEventListener(invalidator);
+	}
+
+	@Override
+	public void connect(long timeout) throws IOException {
+		connection.registerEventListener(invalidator);
+		connection.connect(timeout);
+	}
+
+	@Override
+	public void connect(long timeout, byte[] secret) throws IOException {
+		connection.registerEventListener(invalidator);
+		connection.connect(timeout, secret);
+	}
+
+	@Override
+	public void connect(long timeout, byte[] secret, HlsSecretProcessor processor) throws IOException {
+		connection.registerEventListener(invalidator);
+		connection.connect(timeout, secret, processor);
+	}
+
+	@Override
+	public void disconnect() {
+		close();
+		connection.disconnect();
+	}
+
+	@Override
+	public void disconnect(boolean sendDisconnectMessage) {
+		close();
+		connection.disconnect(sendDisconnectMessage);
+	}
+
+	@Override
+	public List<GetResult> get(long timeout, GetRequest... params) throws IOException {
+		return get(timeout, false, params);
+	}
+
+	@Override
+	public List<GetResult> get(long timeout, boolean highPriority, GetRequest... params) throws IOException {
+		GetResult[] result = new GetResult[params.length];
+		List<GetRequest> missing = new ArrayList<GetRequest>(params.length);
+		List<Integer> missingIndex = new ArrayList<Integer>(params.length);
+
+		for (int i = 0; i < params.length; i++) {
+			if (params[i].getAccessSelection() == null) {
+				result[i] = cache.get(meter, params[i]);
+			}
+			if (result[i] == null) {
+				missing.add(params[i]);
+				missingIndex.add(i);
+			}
+		}
+
+		if (missing.isEmpty() == false) {
+			List<GetResult> read = connection.get(timeout, highPriority,
+					missing.toArray(new GetRequest[missing.size()]));
+			for (int i = 0; i < read.size() && i < missing.size(); i++) {
+				GetResult res = read.get(i);
+				result[missingIndex.get(i)] = res;
+				if (res.isSuccess() && missing.get(i).getAccessSelection() == null) {
+					cache.put(meter, missing.get(i), res);
+				}
+			}
+		}
+
+		List<GetResult> resultList = new ArrayList<GetResult>(params.length);
+		for (GetResult res : result) {
+			resultList.add(res);
+		}
+		return resultList;
+	}
+
+	@Override
+	public List<AccessResultCode> set(long timeout, SetRequest... params) throws IOException {
+		return set(timeout, false, params);
+	}
+
+	@Override
+	public List<AccessResultCode> set(long timeout, boolean highPriority, SetRequest... params) throws IOException {
+		invalidate(params);
+		try {
+			return connection.set(timeout, highPriority, params);
+		} finally {
+			// A GET running concurrently to the SET may have cached the old value again
+			invalidate(params);
+		}
+	}
+
+	private void invalidate(SetRequest... params) {
+		for (SetRequest param : params) {
+			cache.invalidate(meter, param.getClassId(), param.getObisCode(), param.getAttributeId());
+		}
+	}
+
+	@Override
+	public List<MethodResult> action(long timeout, MethodRequest... params) throws IOException {
+		return connection.action(timeout, params);
+	}
+
+	@Override
+	public List<MethodResult> action(long timeout, boolean highPriority, MethodRequest... params) throws IOException {
+		return connection.action(timeout, highPriority, params);
+	}
+
+	@Override
+	public void registerEventListener(IEventListener listener) {
+		if (eventListener != null && eventListener != listener) {
+			throw new IllegalStateException("Another event listener is already registered");
+		}
+		eventListener = listener;
+	}
+
+	@Override
+	public void removeEventListener(IEventListener listener) {
+		if (eventListener == listener) {
+			eventListener = null;
+		}
+	}
+
+	@Override
+	public boolean isConnected() {
+		return connection.isConnected();
+	}
+}
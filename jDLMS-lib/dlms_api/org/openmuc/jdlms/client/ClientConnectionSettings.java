@@ -32,6 +32,8 @@ import java.util.ServiceLoader;
  * <ul>
  * <li>{@link ConfirmedMode} = {@link ConfirmedMode#CONFIRMED Confirmed}</li>
  * <li>{@link Authentication} = {@link Authentication#LOWEST Lowest}</li>
+ * <li>Maximum pending requests = 1</li>
+ * <li>GET batch window = 0 (no batching)</li>
  * </ul>
  * </p>
  * 
@@ -121,8 +123,16 @@ public abstract class ClientConnectionSettings<E extends ClientConnectionSetting
 	private ConfirmedMode confirmedMode;
 	private ReferencingMethod referencingMethod;
 	private Authentication authentication;
+	private int maxPendingRequests;
+	private long getBatchWindow;
+	private int maxGetBatchSize;
+	private IShortNameMapStore shortNameMapStore;
+	private String meterIdentity;
 
 	protected ClientConnectionSettings(ReferencingMethod referencing) {
+		this.maxPendingRequests = 1;
+		this.getBatchWindow = 0;
+		this.maxGetBatchSize = 16;
 		this.confirmedMode = ConfirmedMode.CONFIRMED;
 		this.authentication = Authentication.LOWEST;
 		this.referencingMethod = referencing;
@@ -149,6 +159,42 @@ public abstract class ClientConnectionSettings<E extends ClientConnectionSetting
 		return authentication;
 	}
 
+	/**
+	 * @return Number of requests that may be sent to the smart meter before the first one has been answered
+	 */
+	public int getMaxPendingRequests() {
+		return maxPendingRequests;
+	}
+
+	/**
+	 * @return Amount of milliseconds a single attribute GET waits for concurrent GETs to be sent with. 0 if batching
+	 *         is disabled
+	 */
+	public long getGetBatchWindow() {
+		return getBatchWindow;
+	}
+
+	/**
+	 * @return Maximal number of single attribute GETs sent as one request
+	 */
+	public int getMaxGetBatchSize() {
+		return maxGetBatchSize;
+	}
+
+	/**
+	 * @return Store for the short name mappings of the smart meter or null if none is used
+	 */
+	public IShortNameMapStore getShortNameMapStore() {
+		return shortNameMapStore;
+	}
+
+	/**
+	 * @return Identity of the smart meter used as key in the {@link IShortNameMapStore}
+	 */
+	public String getMeterIdentity() {
+		return meterIdentity;
+	}
+
 	public E setConfirmedMode(ConfirmedMode value) {
 		confirmedMode = value;
 		return self();
@@ -164,6 +210,75 @@ public abstract class ClientConnectionSettings<E extends ClientConnectionSetting
 		return self();
 	}
 
+	/**
+	 * Sets how many confirmed requests may be in flight on this connection at the same time. Values above 1 allow
+	 * several threads to share one connection without waiting for each other's round trip. The responses are matched
+	 * to their requests by invoke id, so the smart meter may answer them in any order.
+	 * 
+	 * Only use values above 1 if the remote smart meter is able to queue incoming requests. Only supported on
+	 * connections using {@link ReferencingMethod#LN LN} referencing.
+	 * 
+	 * @param value
+	 *            Number of pending requests. Must be between 1 and 16, both inclusive
+	 */
+	public E setMaxPendingRequests(int value) {
+		if (value < 1 || value > 16) {
+			throw new IllegalArgumentException("Pending requests out of range [1, 16]");
+		}
+		maxPendingRequests = value;
+		return self();
+	}
+
+	/**
+	 * Enables combining single attribute GET requests that several threads issue at nearly the same time into one
+	 * request with list. The first request waits up to the given window for further requests, or until
+	 * {@link #setMaxGetBatchSize(int) maxGetBatchSize} requests have been collected.
+	 * 
+	 * Batching is only used if the smart meter supports multiple references. Only supported on connections using
+	 * {@link ReferencingMethod#LN LN} referencing.
+	 * 
+	 * @param value
+	 *            Amount of milliseconds to wait. 0 disables batching
+	 */
+	public E setGetBatchWindow(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Batch window must not be negative");
+		}
+		getBatchWindow = value;
+		return self();
+	}
+
+	/**
+	 * @param value
+	 *            Maximal number of single attribute GETs sent as one request. Must be at least 2
+	 */
+	public E setMaxGetBatchSize(int value) {
+		if (value < 2) {
+			throw new IllegalArgumentException("Batch size must be at least 2");
+		}
+		maxGetBatchSize = value;
+		return self();
+	}
+
+	/**
+	 * Persists the short name mappings read from the smart meter, so that following connections do not have to read
+	 * the association object list again. The stored mappings are only used as long as the firmware version of the
+	 * smart meter does not change. Only used on connections using {@link ReferencingMethod#SN SN} referencing.
+	 * 
+	 * @param store
+	 *            Store to use or null to always read the association object list
+	 * @param meterIdentity
+	 *            Unique identity of the smart meter, e.g. its serial number
+	 */
+	public E setShortNameMapStore(IShortNameMapStore store, String meterIdentity) {
+		if (store != null && meterIdentity == null) {
+			throw new IllegalArgumentException("Meter identity is needed to use a short name map store");
+		}
+		shortNameMapStore = store;
+		this.meterIdentity = meterIdentity;
+		return self();
+	}
+
 	/**
 	 * Helper method to check if all necessary parameters are set.
 	 * 
@@ -178,14 +293,28 @@ public abstract class ClientConnectionSettings<E extends ClientConnectionSetting
 		if (o instanceof ClientConnectionSettings) {
 			ClientConnectionSettings<?> other = (ClientConnectionSettings<?>) o;
 			return this.confirmedMode == other.confirmedMode && this.referencingMethod == other.referencingMethod
-					&& this.authentication == other.authentication;
+					&& this.authentication == other.authentication
+					&& this.maxPendingRequests == other.maxPendingRequests
+					&& this.getBatchWindow == other.getBatchWindow && this.maxGetBatchSize == other.maxGetBatchSize
+					&& isEqual(this.shortNameMapStore, other.shortNameMapStore)
+					&& isEqual(this.meterIdentity, other.meterIdentity);
 		}
 		return false;
 	}
 
 	@Override
 	public int hashCode() {
-		return this.confirmedMode.hashCode() + this.referencingMethod.hashCode() + this.authentication.hashCode();
+		int result = this.confirmedMode.hashCode() + this.referencingMethod.hashCode() + this.authentication.hashCode();
+		result = 31 * result + maxPendingRequests;
+		result = 31 * result + (int) (getBatchWindow ^ (getBatchWindow >>> 32));
+		result = 31 * result + maxGetBatchSize;
+		result = 31 * result + (shortNameMapStore == null ? 0 : shortNameMapStore.hashCode());
+		result = 31 * result + (meterIdentity == null ? 0 : meterIdentity.hashCode());
+		return result;
+	}
+
+	private static boolean isEqual(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
 	}
 
 	/**
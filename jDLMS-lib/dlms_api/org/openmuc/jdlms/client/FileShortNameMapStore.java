@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link IShortNameMapStore} keeping one text file per smart meter in a directory.
+ * 
+ * The first line of a file holds the firmware version, each following line one mapping in the form
+ * {@code obisCode;baseName;classId;version}. A map is written to a temporary file first, so a crash while writing never
+ * leaves a truncated map behind.
+ */
+public class FileShortNameMapStore implements IShortNameMapStore {
+
+	private static final String CHARSET = "UTF-8";
+
+	private final File directory;
+
+	/**
+	 * @param directory
+	 *            Directory to store the files in. Created if it does not exist
+	 */
+	public FileShortNameMapStore(File directory) {
+		this.directory = directory;
+	}
+
+	@Override
+	public StoredShortNameMap load(String meter) throws IOException {
+		File file = fileOf(meter);
+		if (file.exists() == false) {
+			return null;
+		}
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+		try {
+			String firmware = reader.readLine();
+			if (firmware == null) {
+				return null;
+			}
+
+			List<ShortNameMapping> mappings = new ArrayList<ShortNameMapping>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0) {
+					continue;
+				}
+				String[] fields = line.split(";");
+				if (fields.length != 4) {
+					throw new IOException("Malformed short name map " + file);
+				}
+				try {
+					mappings.add(new ShortNameMapping(fields[0], Integer.parseInt(fields[1]), Integer
+							.parseInt(fields[2]), Integer.parseInt(fields[3])));
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed short name map " + file);
+				}
+			}
+			return new StoredShortNameMap(firmware, mappings);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Override
+	public void store(String meter, StoredShortNameMap map) throws IOException {
+		if (directory.exists() == false && directory.mkdirs() == false) {
+			throw new IOException("Cannot create directory " + directory);
+		}
+
+		File file = fileOf(meter);
+		File tmpFile = new File(directory, file.getName() + ".tmp");
+
+		Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), CHARSET);
+		try {
+			writer.write(map.getFirmware());
+			writer.write('\n');
+			for (ShortNameMapping mapping : map.getMappings()) {
+				writer.write(mapping.getObisCode() + ";" + mapping.getBaseName() + ";" + mapping.getClassId() + ";"
+						+ mapping.getVersion() + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+
+		if (file.exists() && file.delete() == false) {
+			throw new IOException("Cannot replace " + file);
+		}
+		if (tmpFile.renameTo(file) == false) {
+			throw new IOException("Cannot replace " + file);
+		}
+	}
+
+	/**
+	 * Builds a file name that is valid on all platforms from the identity of the smart meter
+	 */
+	private File fileOf(String meter) {
+		StringBuilder sb = new StringBuilder(meter.length() + 4);
+		for (char c : meter.toCharArray()) {
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.') {
+				sb.append(c);
+			}
+			else {
+				sb.append('_').append(Integer.toHexString(c)).append('_');
+			}
+		}
+		sb.append(".snmap");
+		return new File(directory, sb.toString());
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Extension of {@link IClientConnection} that sends requests without blocking the calling thread.
+ * 
+ * Each method returns as soon as the request has been handed to the lower layer. The result is delivered through the
+ * returned {@link Future} and the optional {@link IResponseListener}, both completed by the thread that receives the
+ * response. This way a small number of threads can drive many connections at once.
+ * 
+ * Connections created for {@link ClientConnectionSettings.ReferencingMethod#LN LN} referencing implement this
+ * interface. Use {@link ClientConnectionSettings#setMaxPendingRequests(int)} to allow more than one request in flight.
+ * Requests exceeding that limit are queued and sent as soon as a previous request has been answered.
+ */
+public interface IAsyncClientConnection extends IClientConnection {
+
+	/**
+	 * Convenience method to call {@code getAsync(timeout, false, listener, params)}
+	 * 
+	 * @see #getAsync(long, boolean, IResponseListener, GetRequest...)
+	 */
+	public Future<List<GetResult>> getAsync(long timeout, IResponseListener<List<GetResult>> listener,
+			GetRequest... params) throws IOException;
+
+	/**
+	 * Requests the remote smart meter to send the values of one or several attributes
+	 * 
+	 * @param timeout
+	 *            Amount of milliseconds waited before the request is aborted
+	 * @param highPriority
+	 *            Sends this request with high priority, if supported
+	 * @param listener
+	 *            Callback notified on completion. May be null
+	 * @param params
+	 *            Varargs of specifiers which attributes to send (See {@link GetRequest})
+	 * @return Future holding the list of results from the smart meter in the same order as the requests
+	 * @throws IOException
+	 *             If the connection is not established
+	 */
+	public Future<List<GetResult>> getAsync(long timeout, boolean highPriority,
+			IResponseListener<List<GetResult>> listener, GetRequest... params) throws IOException;
+
+	/**
+	 * Convenience method to call {@code setAsync(timeout, false, listener, params)}
+	 * 
+	 * @see #setAsync(long, boolean, IResponseListener, SetRequest...)
+	 */
+	public Future<List<AccessResultCode>> setAsync(long timeout, IResponseListener<List<AccessResultCode>> listener,
+			SetRequest... params) throws IOException;
+
+	/**
+	 * Requests the remote smart meter to set one or several attributes to the committed values
+	 * 
+	 * @param timeout
+	 *            Amount of milliseconds waited before the request is aborted
+	 * @param highPriority
+	 *            Sends this request with high priority, if supported
+	 * @param listener
+	 *            Callback notified on completion. May be null
+	 * @param params
+	 *            Varargs of specifier which attributes to set to which values (See {@link SetRequest})
+	 * @return Future holding the list of results from the smart meter in the same order as the requests. Holds null if
+	 *         confirmed has been set to false on creation of this object
+	 * @throws IOException
+	 *             If the connection is not established
+	 */
+	public Future<List<AccessResultCode>> setAsync(long timeout, boolean highPriority,
+			IResponseListener<List<AccessResultCode>> listener, SetRequest... params) throws IOException;
+
+	/**
+	 * Convenience method to call {@code actionAsync(timeout, false, listener, params)}
+	 * 
+	 * @see #actionAsync(long, boolean, IResponseListener, MethodRequest...)
+	 */
+	public Future<List<MethodResult>> actionAsync(long timeout, IResponseListener<List<MethodResult>> listener,
+			MethodRequest... params) throws IOException;
+
+	/**
+	 * Requests the remote smart meter to call one or several methods with or without committed parameters
+	 * 
+	 * @param timeout
+	 *            Amount of milliseconds waited before the request is aborted
+	 * @param highPriority
+	 *            Sends this request with high priority, if supported
+	 * @param listener
+	 *            Callback notified on completion. May be null
+	 * @param params
+	 *            List of specifier which methods to be called and, if needed, what parameters to call (See
+	 *            {@link MethodRequest}
+	 * @return Future holding the list of results from the smart meter in the same order as the requests. Holds null if
+	 *         confirmed has been set to false on creation of this object
+	 * @throws IOException
+	 *             If the connection is not established
+	 */
+	public Future<List<MethodResult>> actionAsync(long timeout, boolean highPriority,
+			IResponseListener<List<MethodResult>> listener, MethodRequest... params) throws IOException;
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+/**
+ * Checks whether a pooled connection may still be used. Called by the connection pool every time a connection is
+ * requested from the factory.
+ */
+public interface IConnectionHealthCheck {
+	/**
+	 * @param connection
+	 *            Pooled connection about to be handed out
+	 * @return false if the connection is broken. It is then closed without sending a release request and replaced by
+	 *         a new connection
+	 */
+	boolean isHealthy(IClientConnection connection);
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+/**
+ * Callback receiving the elements of an attribute value while it is still being transferred from the smart meter.
+ * 
+ * @see IStreamingClientConnection
+ */
+public interface IDataStreamListener {
+	/**
+	 * Callback to notify that the next element of the requested value has been received and decoded
+	 * 
+	 * @param element
+	 *            The received element. Elements are passed in the order they are stored on the smart meter
+	 */
+	public void elementReceived(Data element);
+}
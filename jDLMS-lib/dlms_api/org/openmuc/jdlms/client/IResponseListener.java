@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+import java.io.IOException;
+
+/**
+ * Callback notified when an asynchronous request sent over an {@link IAsyncClientConnection} has been completed.
+ * 
+ * Both methods are called from the thread that received the last response of the smart meter (or from the timeout
+ * thread). Implementations must return quickly and must not wait for other responses of the same connection.
+ * 
+ * @param <T>
+ *            Type of the result of the request
+ */
+public interface IResponseListener<T> {
+	/**
+	 * Callback to notify that the remote station has answered the request
+	 * 
+	 * @param result
+	 *            Results of the request, in the same order as the request parameters
+	 */
+	public void responseReceived(T result);
+
+	/**
+	 * Callback to notify that the request has failed, either because the remote station did not answer in time or
+	 * because the connection has been closed
+	 * 
+	 * @param cause
+	 *            Reason of the failure
+	 */
+	public void requestFailed(IOException cause);
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Persistent storage for the short name mappings of smart meters using short name referencing.
+ * 
+ * Reading the association object list of a smart meter takes long on slow links. If a store is set with
+ * {@link ClientConnectionSettings#setShortNameMapStore(IShortNameMapStore, String)}, the list is only read once per
+ * meter and firmware version and loaded from the store on all following connections.
+ * 
+ * @see FileShortNameMapStore
+ */
+public interface IShortNameMapStore {
+
+	/**
+	 * Loads the mappings stored for a smart meter
+	 * 
+	 * @param meter
+	 *            Identity of the smart meter
+	 * @return The stored mappings or null if nothing has been stored for this smart meter
+	 * @throws IOException
+	 *             If the store could not be read
+	 */
+	public StoredShortNameMap load(String meter) throws IOException;
+
+	/**
+	 * Stores the mappings of a smart meter, replacing any mappings stored before
+	 * 
+	 * @param meter
+	 *            Identity of the smart meter
+	 * @param map
+	 *            Mappings and the firmware version they belong to
+	 * @throws IOException
+	 *             If the store could not be written
+	 */
+	public void store(String meter, StoredShortNameMap map) throws IOException;
+
+	/**
+	 * Short name mappings of a smart meter together with the firmware version they have been read from
+	 */
+	public static class StoredShortNameMap {
+		private final String firmware;
+		private final List<ShortNameMapping> mappings;
+
+		/**
+		 * @param firmware
+		 *            Firmware version of the smart meter. Empty if unknown
+		 * @param mappings
+		 *            All mappings of the smart meter
+		 */
+		public StoredShortNameMap(String firmware, List<ShortNameMapping> mappings) {
+			this.firmware = firmware;
+			this.mappings = mappings;
+		}
+
+		public String getFirmware() {
+			return firmware;
+		}
+
+		public List<ShortNameMapping> getMappings() {
+			return mappings;
+		}
+	}
+}
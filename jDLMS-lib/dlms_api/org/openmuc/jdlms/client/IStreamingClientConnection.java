@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+import java.io.IOException;
+
+/**
+ * Extension of {@link IClientConnection} that reads large attribute values, e.g. the buffer of a load profile, without
+ * holding the whole value in memory.
+ * 
+ * If the value is an array, each of its elements is decoded and passed to an {@link IDataStreamListener} as soon as it
+ * has been received, while the next datablock is still being requested from the smart meter. Any other value is passed
+ * to the listener as one element.
+ * 
+ * Connections created for {@link ClientConnectionSettings.ReferencingMethod#LN LN} referencing implement this
+ * interface.
+ */
+public interface IStreamingClientConnection extends IClientConnection {
+
+	/**
+	 * Convenience method to call {@code getStreamed(timeout, false, listener, param)}
+	 * 
+	 * @see #getStreamed(long, boolean, IDataStreamListener, GetRequest)
+	 */
+	public AccessResultCode getStreamed(long timeout, IDataStreamListener listener, GetRequest param)
+			throws IOException;
+
+	/**
+	 * Requests the remote smart meter to send the value of a single attribute and passes its elements to the listener
+	 * while they arrive. The method returns after the last element has been passed to the listener.
+	 * 
+	 * @param timeout
+	 *            Amount of milliseconds waited for each response of the smart meter. 0 for the default timeout
+	 * @param highPriority
+	 *            Sends this request with high priority, if supported
+	 * @param listener
+	 *            Callback receiving the elements of the value
+	 * @param param
+	 *            Specifier which attribute to send (See {@link GetRequest})
+	 * @return The result code of the get operation. Any other code than {@link AccessResultCode#SUCCESS} means that
+	 *         the smart meter refused or aborted the transfer
+	 * @throws IOException
+	 *             If the connection is not established, the smart meter is not responding or sends malformed data
+	 */
+	public AccessResultCode getStreamed(long timeout, boolean highPriority, IDataStreamListener listener,
+			GetRequest param) throws IOException;
+}
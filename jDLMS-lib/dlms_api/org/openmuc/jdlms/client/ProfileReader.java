@@ -0,0 +1,275 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Reads the buffer (attribute 2) of a profile generic object (class id 7) and passes its rows to an
+ * {@link IDataStreamListener} while they are received.
+ * 
+ * Rows can be selected by time, using a range descriptor (access selector 1), or by their position in the buffer,
+ * using an entry descriptor (access selector 2). Large windows are split into several requests, so a single transfer
+ * never covers more than {@link #setMaxEntriesPerRequest(long) maxEntriesPerRequest} entries or
+ * {@link #setMaxIntervalPerRequest(long) maxIntervalPerRequest} milliseconds.
+ * 
+ * Please refer IEC 62056-62 for a description of the profile generic interface class.
+ */
+public class ProfileReader {
+
+	public static final int PROFILE_GENERIC_CLASS_ID = 7;
+	public static final int BUFFER_ATTRIBUTE_ID = 2;
+
+	public static final int RANGE_DESCRIPTOR = 1;
+	public static final int ENTRY_DESCRIPTOR = 2;
+
+	private final IStreamingClientConnection connection;
+	private final ObisCode profile;
+
+	private int restrictingClassId = 8;
+	private ObisCode restrictingObject = new ObisCode(0, 0, 1, 0, 0, 255);
+	private int restrictingAttributeId = 2;
+
+	private long maxEntriesPerRequest = 0;
+	private long maxIntervalPerRequest = 0;
+	private long timeout = 0;
+
+	/**
+	 * @param connection
+	 *            Established connection to the smart meter
+	 * @param profile
+	 *            Address of the profile generic object to read
+	 */
+	public ProfileReader(IStreamingClientConnection connection, ObisCode profile) {
+		this.connection = connection;
+		this.profile = profile;
+	}
+
+	/**
+	 * Sets the capture object used to select rows by time. Defaults to the time attribute (2) of the clock object
+	 * 0-0:1.0.0.255
+	 */
+	public void setRestrictingObject(int classId, ObisCode obisCode, int attributeId) {
+		restrictingClassId = classId;
+		restrictingObject = obisCode;
+		restrictingAttributeId = attributeId;
+	}
+
+	/**
+	 * @param maxEntries
+	 *            Maximal number of entries read with a single request. 0 reads any number of entries at once (default)
+	 */
+	public void setMaxEntriesPerRequest(long maxEntries) {
+		if (maxEntries < 0) {
+			throw new IllegalArgumentException("Number of entries must not be negative");
+		}
+		maxEntriesPerRequest = maxEntries;
+	}
+
+	/**
+	 * @param maxInterval
+	 *            Maximal time span in milliseconds read with a single request. 0 reads any time span at once
+	 *            (default). The span is rounded down to whole seconds
+	 */
+	public void setMaxIntervalPerRequest(long maxInterval) {
+		if (maxInterval < 0) {
+			throw new IllegalArgumentException("Interval must not be negative");
+		}
+		maxIntervalPerRequest = maxInterval;
+	}
+
+	/**
+	 * @param timeout
+	 *            Amount of milliseconds waited for each response of the smart meter. 0 for the default timeout of the
+	 *            connection
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Reads all rows captured between from and to, both inclusive
+	 * 
+	 * @param from
+	 *            Oldest capture time to read
+	 * @param to
+	 *            Newest capture time to read
+	 * @param listener
+	 *            Callback receiving each row as structure of the captured values
+	 * @return The result code of the first request that failed or {@link AccessResultCode#SUCCESS}
+	 * @throws IOException
+	 *             If the smart meter is not responding or the connection is lost
+	 */
+	public AccessResultCode readRange(Calendar from, Calendar to, IDataStreamListener listener) throws IOException {
+		long step = maxIntervalPerRequest / 1000 * 1000;
+		long start = from.getTimeInMillis();
+		long end = to.getTimeInMillis();
+
+		while (start <= end) {
+			long windowEnd = end;
+			if (step > 0 && end - start >= step) {
+				// The window boundaries are inclusive. End the window one second before the next one starts
+				windowEnd = start + step - 1000;
+			}
+
+			Calendar windowFrom = (Calendar) from.clone();
+			windowFrom.setTimeInMillis(start);
+			Calendar windowTo = (Calendar) to.clone();
+			windowTo.setTimeInMillis(windowEnd);
+
+			AccessResultCode result = read(rangeDescriptor(windowFrom, windowTo), listener);
+			if (result != AccessResultCode.SUCCESS) {
+				return result;
+			}
+			if (windowEnd == end) {
+				break;
+			}
+			start = windowEnd + 1000;
+		}
+		return AccessResultCode.SUCCESS;
+	}
+
+	/**
+	 * Reads the rows at the given positions of the buffer, both inclusive. The first entry of the buffer has the
+	 * index 1.
+	 * 
+	 * @param fromEntry
+	 *            First entry to read
+	 * @param toEntry
+	 *            Last entry to read. 0 reads up to the newest entry, which is always done with a single request
+	 * @param listener
+	 *            Callback receiving each row as structure of the captured values
+	 * @return The result code of the first request that failed or {@link AccessResultCode#SUCCESS}
+	 * @throws IOException
+	 *             If the smart meter is not responding or the connection is lost
+	 */
+	public AccessResultCode readEntries(long fromEntry, long toEntry, IDataStreamListener listener)
+			throws IOException {
+		if (fromEntry < 1 || fromEntry > 0xFFFFFFFFL || toEntry < 0 || toEntry > 0xFFFFFFFFL) {
+			throw new IllegalArgumentException("Entry out of range [1, 4294967295]");
+		}
+		if (toEntry != 0 && toEntry < fromEntry) {
+			throw new IllegalArgumentException("toEntry must not be smaller than fromEntry");
+		}
+
+		long start = fromEntry;
+		while (true) {
+			long windowEnd = toEntry;
+			if (maxEntriesPerRequest > 0 && toEntry != 0 && toEntry - start >= maxEntriesPerRequest) {
+				windowEnd = start + maxEntriesPerRequest - 1;
+			}
+
+			AccessResultCode result = read(entryDescriptor(start, windowEnd), listener);
+			if (result != AccessResultCode.SUCCESS) {
+				return result;
+			}
+			if (windowEnd == toEntry) {
+				return AccessResultCode.SUCCESS;
+			}
+			start = windowEnd + 1;
+		}
+	}
+
+	private AccessResultCode read(SelectiveAccessDescription access, IDataStreamListener listener)
+			throws IOException {
+		GetRequest request = new GetRequest(PROFILE_GENERIC_CLASS_ID, profile, BUFFER_ATTRIBUTE_ID);
+		request.setAccessSelection(access);
+		return connection.getStreamed(timeout, listener, request);
+	}
+
+	private SelectiveAccessDescription rangeDescriptor(Calendar from, Calendar to) {
+		List<Data> restricting = new ArrayList<Data>(4);
+		restricting.add(unsigned16(restrictingClassId));
+		restricting.add(octetString(toBytes(restrictingObject)));
+		restricting.add(integer8(restrictingAttributeId));
+		restricting.add(unsigned16(0));
+		Data restrictingData = new Data();
+		restrictingData.setStructure(restricting);
+
+		Data fromData = new Data();
+		fromData.setDateTime(from, false);
+		Data toData = new Data();
+		toData.setDateTime(to, false);
+
+		// An empty list of selected values requests all columns
+		Data selectedValues = new Data();
+		selectedValues.setArray(new ArrayList<Data>(0));
+
+		List<Data> parameter = new ArrayList<Data>(4);
+		parameter.add(restrictingData);
+		parameter.add(fromData);
+		parameter.add(toData);
+		parameter.add(selectedValues);
+		Data parameterData = new Data();
+		parameterData.setStructure(parameter);
+
+		return new SelectiveAccessDescription(RANGE_DESCRIPTOR, parameterData);
+	}
+
+	private SelectiveAccessDescription entryDescriptor(long fromEntry, long toEntry) {
+		List<Data> parameter = new ArrayList<Data>(4);
+		parameter.add(unsigned32(fromEntry));
+		parameter.add(unsigned32(toEntry));
+		// Column 1 up to the last column
+		parameter.add(unsigned16(1));
+		parameter.add(unsigned16(0));
+		Data parameterData = new Data();
+		parameterData.setStructure(parameter);
+
+		return new SelectiveAccessDescription(ENTRY_DESCRIPTOR, parameterData);
+	}
+
+	private static Data unsigned16(int value) {
+		Data result = new Data();
+		result.setUnsigned16(value);
+		return result;
+	}
+
+	private static Data unsigned32(long value) {
+		Data result = new Data();
+		result.setUnsigned32(value);
+		return result;
+	}
+
+	private static Data integer8(int value) {
+		Data result = new Data();
+		result.setInteger8(value);
+		return result;
+	}
+
+	private static Data octetString(byte[] value) {
+		Data result = new Data();
+		result.setOctetString(value);
+		return result;
+	}
+
+	private static byte[] toBytes(ObisCode obisCode) {
+		String hex = obisCode.getHexCode();
+		byte[] result = new byte[hex.length() / 2];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		return result;
+	}
+}
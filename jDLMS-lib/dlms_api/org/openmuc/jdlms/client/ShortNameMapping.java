@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client;
+
+/**
+ * Mapping of a COSEM object to its short name, as read from the association object list of a smart meter using short
+ * name referencing. An instance of ShortNameMapping is immutable.
+ */
+public class ShortNameMapping {
+
+	private final String obisCode;
+	private final int baseName;
+	private final int classId;
+	private final int version;
+
+	/**
+	 * @param obisCode
+	 *            Logical name of the object as hex string, see {@link ObisCode#getHexCode()}
+	 * @param baseName
+	 *            Short name of the first attribute of the object
+	 * @param classId
+	 *            Interface class of the object
+	 * @param version
+	 *            Version of the interface class
+	 */
+	public ShortNameMapping(String obisCode, int baseName, int classId, int version) {
+		this.obisCode = obisCode;
+		this.baseName = baseName;
+		this.classId = classId;
+		this.version = version;
+	}
+
+	public String getObisCode() {
+		return obisCode;
+	}
+
+	public int getBaseName() {
+		return baseName;
+	}
+
+	public int getClassId() {
+		return classId;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+}
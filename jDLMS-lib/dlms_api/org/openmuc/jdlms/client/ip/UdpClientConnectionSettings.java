@@ -36,6 +36,8 @@ public class UdpClientConnectionSettings extends ClientConnectionSettings<UdpCli
 	private int serverWPort;
 	private InetSocketAddress serverAddress;
 	private int localPort = 4059;
+	private int maxRetransmissions = 0;
+	private long retransmissionTimeout = 3000;
 
 	/**
 	 * @param serverAddress
@@ -130,9 +132,51 @@ public class UdpClientConnectionSettings extends ClientConnectionSettings<UdpCli
 		return this;
 	}
 
+	public int getMaxRetransmissions() {
+		return maxRetransmissions;
+	}
+
+	/**
+	 * Enables resending confirmed requests that have not been answered within the retransmission timeout. The timeout
+	 * adapts to the measured round trip time and doubles with every retry. Duplicated responses are dropped.
+	 * 
+	 * Note that a SET or ACTION request is executed twice if only its response got lost
+	 * 
+	 * @param retransmissions
+	 *            Number of times a request is resent. 0 (default) disables retransmission
+	 */
+	public UdpClientConnectionSettings setMaxRetransmissions(int retransmissions) {
+		if (retransmissions < 0) {
+			throw new IllegalArgumentException("Number of retransmissions must not be negative");
+		}
+		maxRetransmissions = retransmissions;
+
+		return this;
+	}
+
+	public long getRetransmissionTimeout() {
+		return retransmissionTimeout;
+	}
+
+	/**
+	 * Sets the retransmission timeout used until the first round trip time to the smart meter has been measured
+	 * 
+	 * @param timeout
+	 *            Timeout in milliseconds. Default is 3000
+	 */
+	public UdpClientConnectionSettings setRetransmissionTimeout(long timeout) {
+		if (timeout <= 0) {
+			throw new IllegalArgumentException("Retransmission timeout must be positive");
+		}
+		retransmissionTimeout = timeout;
+
+		return this;
+	}
+
 	@Override
 	public int hashCode() {
-		return (clientWPort << 16 | serverWPort) ^ serverAddress.hashCode();
+		return (clientWPort << 16 | serverWPort) ^ serverAddress.hashCode() ^ maxRetransmissions
+				^ (int) retransmissionTimeout;
 	}
 
 	@Override
@@ -141,7 +185,8 @@ public class UdpClientConnectionSettings extends ClientConnectionSettings<UdpCli
 			UdpClientConnectionSettings other = (UdpClientConnectionSettings) o;
 
 			return super.equals(o) && clientWPort == other.clientWPort && serverWPort == other.serverWPort
-					&& serverAddress.equals(other.serverAddress);
+					&& serverAddress.equals(other.serverAddress) && maxRetransmissions == other.maxRetransmissions
+					&& retransmissionTimeout == other.retransmissionTimeout;
 		}
 
 		return false;
@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
 
@@ -105,6 +107,91 @@ public class ACTION_Response implements AxdrType {
 		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		if (code != null) {
+			axdrOStream.write(code);
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.ACTION_RESPONSE_NEXT_PBLOCK) {
+			AxdrEnum c = new AxdrEnum(4);
+			codeLength += c.encode(axdrOStream);
+			codeLength += action_response_next_pblock.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE_WITH_LIST) {
+			AxdrEnum c = new AxdrEnum(3);
+			codeLength += c.encode(axdrOStream);
+			codeLength += action_response_with_list.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE_WITH_PBLOCK) {
+			AxdrEnum c = new AxdrEnum(2);
+			codeLength += c.encode(axdrOStream);
+			codeLength += action_response_with_pblock.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE_NORMAL) {
+			AxdrEnum c = new AxdrEnum(1);
+			codeLength += c.encode(axdrOStream);
+			codeLength += action_response_normal.encode(axdrOStream);
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+		if (code != null) {
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.ACTION_RESPONSE_NEXT_PBLOCK) {
+			codeLength += 1;
+			codeLength += action_response_next_pblock.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE_WITH_LIST) {
+			codeLength += 1;
+			codeLength += action_response_with_list.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE_WITH_PBLOCK) {
+			codeLength += 1;
+			codeLength += action_response_with_pblock.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE_NORMAL) {
+			codeLength += 1;
+			codeLength += action_response_normal.sizeOf();
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -141,6 +228,45 @@ public class ACTION_Response implements AxdrType {
 		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		if (buffer.hasRemaining() == false) {
+			throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+		}
+
+		resetChoices();
+		choice = Choices.valueOf(buffer.get() & 0xff);
+		codeLength++;
+
+		if (choice == Choices.ACTION_RESPONSE_NORMAL) {
+			action_response_normal = new Action_Response_Normal();
+			codeLength += action_response_normal.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE_WITH_PBLOCK) {
+			action_response_with_pblock = new Action_Response_With_Pblock();
+			codeLength += action_response_with_pblock.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE_WITH_LIST) {
+			action_response_with_list = new Action_Response_With_List();
+			codeLength += action_response_with_list.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE_NEXT_PBLOCK) {
+			action_response_next_pblock = new Action_Response_Next_Pblock();
+			codeLength += action_response_next_pblock.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
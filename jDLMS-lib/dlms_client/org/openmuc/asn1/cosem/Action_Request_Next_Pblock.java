@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 
 public class Action_Request_Next_Pblock implements AxdrType {
@@ -52,6 +54,47 @@ public class Action_Request_Next_Pblock implements AxdrType {
 
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+			axdrOStream.write(code);
+		}
+		else {
+			codeLength = 0;
+			codeLength += invoke_id_and_priority.encode(axdrOStream);
+
+			codeLength += block_number.encode(axdrOStream);
+
+		}
+
+		return codeLength;
+
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+		}
+		else {
+			codeLength = 0;
+			codeLength += invoke_id_and_priority.sizeOf();
+
+			codeLength += block_number.sizeOf();
+
+		}
+
+		return codeLength;
+
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -65,6 +108,19 @@ public class Action_Request_Next_Pblock implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		invoke_id_and_priority = new Invoke_Id_And_Priority();
+		codeLength += invoke_id_and_priority.decode(buffer, shareBuffer);
+
+		block_number = new Unsigned32();
+		codeLength += block_number.decode(buffer, shareBuffer);
+
+		return codeLength;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrSequenceOf;
 
@@ -92,6 +94,51 @@ public class Action_Request_With_List implements AxdrType {
 
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+			axdrOStream.write(code);
+		}
+		else {
+			codeLength = 0;
+			codeLength += invoke_id_and_priority.encode(axdrOStream);
+
+			codeLength += cosem_method_descriptor_list.encode(axdrOStream);
+
+			codeLength += method_invocation_parameters.encode(axdrOStream);
+
+		}
+
+		return codeLength;
+
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+		}
+		else {
+			codeLength = 0;
+			codeLength += invoke_id_and_priority.sizeOf();
+
+			codeLength += cosem_method_descriptor_list.sizeOf();
+
+			codeLength += method_invocation_parameters.sizeOf();
+
+		}
+
+		return codeLength;
+
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -108,6 +155,22 @@ public class Action_Request_With_List implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		invoke_id_and_priority = new Invoke_Id_And_Priority();
+		codeLength += invoke_id_and_priority.decode(buffer, shareBuffer);
+
+		cosem_method_descriptor_list = new SubSeqOf_cosem_method_descriptor_list();
+		codeLength += cosem_method_descriptor_list.decode(buffer, shareBuffer);
+
+		method_invocation_parameters = new SubSeqOf_method_invocation_parameters();
+		codeLength += method_invocation_parameters.decode(buffer, shareBuffer);
+
+		return codeLength;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
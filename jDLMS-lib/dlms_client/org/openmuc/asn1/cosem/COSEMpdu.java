@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
 import org.openmuc.jasn1.axdr.types.AxdrOctetString;
@@ -354,6 +356,442 @@ public class COSEMpdu implements AxdrType {
 		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		if (code != null) {
+			axdrOStream.write(code);
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.EXCEPTION_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(216);
+			codeLength += c.encode(axdrOStream);
+			codeLength += exception_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_ACTION_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(215);
+			codeLength += c.encode(axdrOStream);
+			codeLength += ded_action_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_SET_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(213);
+			codeLength += c.encode(axdrOStream);
+			codeLength += ded_set_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_GET_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(212);
+			codeLength += c.encode(axdrOStream);
+			codeLength += ded_get_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_ACTIONREQUEST) {
+			AxdrEnum c = new AxdrEnum(211);
+			codeLength += c.encode(axdrOStream);
+			codeLength += ded_actionRequest.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_EVENT_NOTIFICATION_REQUEST) {
+			AxdrEnum c = new AxdrEnum(210);
+			codeLength += c.encode(axdrOStream);
+			codeLength += ded_event_notification_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_SET_REQUEST) {
+			AxdrEnum c = new AxdrEnum(209);
+			codeLength += c.encode(axdrOStream);
+			codeLength += ded_set_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_GET_REQUEST) {
+			AxdrEnum c = new AxdrEnum(208);
+			codeLength += c.encode(axdrOStream);
+			codeLength += ded_get_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_ACTION_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(207);
+			codeLength += c.encode(axdrOStream);
+			codeLength += glo_action_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_SET_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(205);
+			codeLength += c.encode(axdrOStream);
+			codeLength += glo_set_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_GET_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(204);
+			codeLength += c.encode(axdrOStream);
+			codeLength += glo_get_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_ACTION_REQUEST) {
+			AxdrEnum c = new AxdrEnum(203);
+			codeLength += c.encode(axdrOStream);
+			codeLength += glo_action_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_EVENT_NOTIFICATION_REQUEST) {
+			AxdrEnum c = new AxdrEnum(202);
+			codeLength += c.encode(axdrOStream);
+			codeLength += glo_event_notification_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_SET_REQUEST) {
+			AxdrEnum c = new AxdrEnum(201);
+			codeLength += c.encode(axdrOStream);
+			codeLength += glo_set_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_GET_REQUEST) {
+			AxdrEnum c = new AxdrEnum(200);
+			codeLength += c.encode(axdrOStream);
+			codeLength += glo_get_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(199);
+			codeLength += c.encode(axdrOStream);
+			codeLength += action_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(197);
+			codeLength += c.encode(axdrOStream);
+			codeLength += set_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_RESPONSE) {
+			AxdrEnum c = new AxdrEnum(196);
+			codeLength += c.encode(axdrOStream);
+			codeLength += get_response.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_REQUEST) {
+			AxdrEnum c = new AxdrEnum(195);
+			codeLength += c.encode(axdrOStream);
+			codeLength += action_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.EVENT_NOTIFICATION_REQUEST) {
+			AxdrEnum c = new AxdrEnum(194);
+			codeLength += c.encode(axdrOStream);
+			codeLength += event_notification_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST) {
+			AxdrEnum c = new AxdrEnum(193);
+			codeLength += c.encode(axdrOStream);
+			codeLength += set_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_REQUEST) {
+			AxdrEnum c = new AxdrEnum(192);
+			codeLength += c.encode(axdrOStream);
+			codeLength += get_request.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.INFORMATIONREPORTREQUEST) {
+			AxdrEnum c = new AxdrEnum(24);
+			codeLength += c.encode(axdrOStream);
+			codeLength += informationReportRequest.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.UNCONFIRMEDWRITEREQUEST) {
+			AxdrEnum c = new AxdrEnum(22);
+			codeLength += c.encode(axdrOStream);
+			codeLength += unconfirmedWriteRequest.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.CONFIRMEDSERVICEERROR) {
+			AxdrEnum c = new AxdrEnum(14);
+			codeLength += c.encode(axdrOStream);
+			codeLength += confirmedServiceError.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.WRITERESPONSE) {
+			AxdrEnum c = new AxdrEnum(13);
+			codeLength += c.encode(axdrOStream);
+			codeLength += writeResponse.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.READRESPONSE) {
+			AxdrEnum c = new AxdrEnum(12);
+			codeLength += c.encode(axdrOStream);
+			codeLength += readResponse.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATERESPONSE) {
+			AxdrEnum c = new AxdrEnum(8);
+			codeLength += c.encode(axdrOStream);
+			codeLength += initiateResponse.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.WRITEREQUEST) {
+			AxdrEnum c = new AxdrEnum(6);
+			codeLength += c.encode(axdrOStream);
+			codeLength += writeRequest.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.READREQUEST) {
+			AxdrEnum c = new AxdrEnum(5);
+			codeLength += c.encode(axdrOStream);
+			codeLength += readRequest.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATEREQUEST) {
+			AxdrEnum c = new AxdrEnum(1);
+			codeLength += c.encode(axdrOStream);
+			codeLength += initiateRequest.encode(axdrOStream);
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+		if (code != null) {
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.EXCEPTION_RESPONSE) {
+			codeLength += 1;
+			codeLength += exception_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_ACTION_RESPONSE) {
+			codeLength += 1;
+			codeLength += ded_action_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_SET_RESPONSE) {
+			codeLength += 1;
+			codeLength += ded_set_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_GET_RESPONSE) {
+			codeLength += 1;
+			codeLength += ded_get_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_ACTIONREQUEST) {
+			codeLength += 1;
+			codeLength += ded_actionRequest.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_EVENT_NOTIFICATION_REQUEST) {
+			codeLength += 1;
+			codeLength += ded_event_notification_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_SET_REQUEST) {
+			codeLength += 1;
+			codeLength += ded_set_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_GET_REQUEST) {
+			codeLength += 1;
+			codeLength += ded_get_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_ACTION_RESPONSE) {
+			codeLength += 1;
+			codeLength += glo_action_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_SET_RESPONSE) {
+			codeLength += 1;
+			codeLength += glo_set_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_GET_RESPONSE) {
+			codeLength += 1;
+			codeLength += glo_get_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_ACTION_REQUEST) {
+			codeLength += 1;
+			codeLength += glo_action_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_EVENT_NOTIFICATION_REQUEST) {
+			codeLength += 1;
+			codeLength += glo_event_notification_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_SET_REQUEST) {
+			codeLength += 1;
+			codeLength += glo_set_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_GET_REQUEST) {
+			codeLength += 1;
+			codeLength += glo_get_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE) {
+			codeLength += 1;
+			codeLength += action_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_RESPONSE) {
+			codeLength += 1;
+			codeLength += set_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_RESPONSE) {
+			codeLength += 1;
+			codeLength += get_response.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_REQUEST) {
+			codeLength += 1;
+			codeLength += action_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.EVENT_NOTIFICATION_REQUEST) {
+			codeLength += 1;
+			codeLength += event_notification_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST) {
+			codeLength += 1;
+			codeLength += set_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_REQUEST) {
+			codeLength += 1;
+			codeLength += get_request.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.INFORMATIONREPORTREQUEST) {
+			codeLength += 1;
+			codeLength += informationReportRequest.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.UNCONFIRMEDWRITEREQUEST) {
+			codeLength += 1;
+			codeLength += unconfirmedWriteRequest.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.CONFIRMEDSERVICEERROR) {
+			codeLength += 1;
+			codeLength += confirmedServiceError.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.WRITERESPONSE) {
+			codeLength += 1;
+			codeLength += writeResponse.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.READRESPONSE) {
+			codeLength += 1;
+			codeLength += readResponse.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATERESPONSE) {
+			codeLength += 1;
+			codeLength += initiateResponse.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.WRITEREQUEST) {
+			codeLength += 1;
+			codeLength += writeRequest.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.READREQUEST) {
+			codeLength += 1;
+			codeLength += readRequest.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATEREQUEST) {
+			codeLength += 1;
+			codeLength += initiateRequest.sizeOf();
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -552,6 +990,207 @@ public class COSEMpdu implements AxdrType {
 		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		if (buffer.hasRemaining() == false) {
+			throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+		}
+
+		resetChoices();
+		choice = Choices.valueOf(buffer.get() & 0xff);
+		codeLength++;
+
+		if (choice == Choices.INITIATEREQUEST) {
+			initiateRequest = new InitiateRequest();
+			codeLength += initiateRequest.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.READREQUEST) {
+			readRequest = new ReadRequest();
+			codeLength += readRequest.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.WRITEREQUEST) {
+			writeRequest = new WriteRequest();
+			codeLength += writeRequest.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATERESPONSE) {
+			initiateResponse = new InitiateResponse();
+			codeLength += initiateResponse.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.READRESPONSE) {
+			readResponse = new ReadResponse();
+			codeLength += readResponse.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.WRITERESPONSE) {
+			writeResponse = new WriteResponse();
+			codeLength += writeResponse.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.CONFIRMEDSERVICEERROR) {
+			confirmedServiceError = new ConfirmedServiceError();
+			codeLength += confirmedServiceError.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.UNCONFIRMEDWRITEREQUEST) {
+			unconfirmedWriteRequest = new UnconfirmedWriteRequest();
+			codeLength += unconfirmedWriteRequest.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.INFORMATIONREPORTREQUEST) {
+			informationReportRequest = new InformationReportRequest();
+			codeLength += informationReportRequest.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_REQUEST) {
+			get_request = new GET_Request();
+			codeLength += get_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST) {
+			set_request = new SET_Request();
+			codeLength += set_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.EVENT_NOTIFICATION_REQUEST) {
+			event_notification_request = new EVENT_NOTIFICATION_Request();
+			codeLength += event_notification_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_REQUEST) {
+			action_request = new ACTION_Request();
+			codeLength += action_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_RESPONSE) {
+			get_response = new GET_Response();
+			codeLength += get_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_RESPONSE) {
+			set_response = new SET_Response();
+			codeLength += set_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACTION_RESPONSE) {
+			action_response = new ACTION_Response();
+			codeLength += action_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_GET_REQUEST) {
+			glo_get_request = new AxdrOctetString();
+			codeLength += glo_get_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_SET_REQUEST) {
+			glo_set_request = new AxdrOctetString();
+			codeLength += glo_set_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_EVENT_NOTIFICATION_REQUEST) {
+			glo_event_notification_request = new AxdrOctetString();
+			codeLength += glo_event_notification_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_ACTION_REQUEST) {
+			glo_action_request = new AxdrOctetString();
+			codeLength += glo_action_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_GET_RESPONSE) {
+			glo_get_response = new AxdrOctetString();
+			codeLength += glo_get_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_SET_RESPONSE) {
+			glo_set_response = new AxdrOctetString();
+			codeLength += glo_set_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GLO_ACTION_RESPONSE) {
+			glo_action_response = new AxdrOctetString();
+			codeLength += glo_action_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_GET_REQUEST) {
+			ded_get_request = new AxdrOctetString();
+			codeLength += ded_get_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_SET_REQUEST) {
+			ded_set_request = new AxdrOctetString();
+			codeLength += ded_set_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_EVENT_NOTIFICATION_REQUEST) {
+			ded_event_notification_request = new AxdrOctetString();
+			codeLength += ded_event_notification_request.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_ACTIONREQUEST) {
+			ded_actionRequest = new AxdrOctetString();
+			codeLength += ded_actionRequest.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_GET_RESPONSE) {
+			ded_get_response = new AxdrOctetString();
+			codeLength += ded_get_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_SET_RESPONSE) {
+			ded_set_response = new AxdrOctetString();
+			codeLength += ded_set_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DED_ACTION_RESPONSE) {
+			ded_action_response = new AxdrOctetString();
+			codeLength += ded_action_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.EXCEPTION_RESPONSE) {
+			exception_response = new EXCEPTION_Response();
+			codeLength += exception_response.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
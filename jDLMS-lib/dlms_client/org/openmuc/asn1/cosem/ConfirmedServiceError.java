@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
 
@@ -242,6 +244,286 @@ public class ConfirmedServiceError implements AxdrType {
 		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		if (code != null) {
+			axdrOStream.write(code);
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.TERMINATEUPLOAD) {
+			AxdrEnum c = new AxdrEnum(19);
+			codeLength += c.encode(axdrOStream);
+			codeLength += terminateUpLoad.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.UPLOADSEGMENT) {
+			AxdrEnum c = new AxdrEnum(18);
+			codeLength += c.encode(axdrOStream);
+			codeLength += upLoadSegment.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATEUPLOAD) {
+			AxdrEnum c = new AxdrEnum(17);
+			codeLength += c.encode(axdrOStream);
+			codeLength += initiateUpLoad.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.TERMINATELOAD) {
+			AxdrEnum c = new AxdrEnum(16);
+			codeLength += c.encode(axdrOStream);
+			codeLength += terminateLoad.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.LOADSEGMENT) {
+			AxdrEnum c = new AxdrEnum(15);
+			codeLength += c.encode(axdrOStream);
+			codeLength += loadSegment.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATELOAD) {
+			AxdrEnum c = new AxdrEnum(14);
+			codeLength += c.encode(axdrOStream);
+			codeLength += initiateLoad.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.MAKEUSABLE) {
+			AxdrEnum c = new AxdrEnum(13);
+			codeLength += c.encode(axdrOStream);
+			codeLength += makeUsable.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.RESUME) {
+			AxdrEnum c = new AxdrEnum(12);
+			codeLength += c.encode(axdrOStream);
+			codeLength += resume.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.STOP) {
+			AxdrEnum c = new AxdrEnum(11);
+			codeLength += c.encode(axdrOStream);
+			codeLength += stop.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.START) {
+			AxdrEnum c = new AxdrEnum(10);
+			codeLength += c.encode(axdrOStream);
+			codeLength += start.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.CHANGESCOPE) {
+			AxdrEnum c = new AxdrEnum(9);
+			codeLength += c.encode(axdrOStream);
+			codeLength += changeScope.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETTIATTRIBUTE) {
+			AxdrEnum c = new AxdrEnum(8);
+			codeLength += c.encode(axdrOStream);
+			codeLength += getTIAttribute.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETDATASETATTRIBUTE) {
+			AxdrEnum c = new AxdrEnum(7);
+			codeLength += c.encode(axdrOStream);
+			codeLength += getDataSetAttribute.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.WRITE) {
+			AxdrEnum c = new AxdrEnum(6);
+			codeLength += c.encode(axdrOStream);
+			codeLength += write.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.READ) {
+			AxdrEnum c = new AxdrEnum(5);
+			codeLength += c.encode(axdrOStream);
+			codeLength += read.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETVARIABLEATTRIBUTE) {
+			AxdrEnum c = new AxdrEnum(4);
+			codeLength += c.encode(axdrOStream);
+			codeLength += getVariableAttribute.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETNAMELIST) {
+			AxdrEnum c = new AxdrEnum(3);
+			codeLength += c.encode(axdrOStream);
+			codeLength += getNameList.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETSTATUS) {
+			AxdrEnum c = new AxdrEnum(2);
+			codeLength += c.encode(axdrOStream);
+			codeLength += getStatus.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATEERROR) {
+			AxdrEnum c = new AxdrEnum(1);
+			codeLength += c.encode(axdrOStream);
+			codeLength += initiateError.encode(axdrOStream);
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+		if (code != null) {
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.TERMINATEUPLOAD) {
+			codeLength += 1;
+			codeLength += terminateUpLoad.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.UPLOADSEGMENT) {
+			codeLength += 1;
+			codeLength += upLoadSegment.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATEUPLOAD) {
+			codeLength += 1;
+			codeLength += initiateUpLoad.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.TERMINATELOAD) {
+			codeLength += 1;
+			codeLength += terminateLoad.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.LOADSEGMENT) {
+			codeLength += 1;
+			codeLength += loadSegment.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATELOAD) {
+			codeLength += 1;
+			codeLength += initiateLoad.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.MAKEUSABLE) {
+			codeLength += 1;
+			codeLength += makeUsable.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.RESUME) {
+			codeLength += 1;
+			codeLength += resume.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.STOP) {
+			codeLength += 1;
+			codeLength += stop.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.START) {
+			codeLength += 1;
+			codeLength += start.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.CHANGESCOPE) {
+			codeLength += 1;
+			codeLength += changeScope.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GETTIATTRIBUTE) {
+			codeLength += 1;
+			codeLength += getTIAttribute.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GETDATASETATTRIBUTE) {
+			codeLength += 1;
+			codeLength += getDataSetAttribute.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.WRITE) {
+			codeLength += 1;
+			codeLength += write.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.READ) {
+			codeLength += 1;
+			codeLength += read.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GETVARIABLEATTRIBUTE) {
+			codeLength += 1;
+			codeLength += getVariableAttribute.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GETNAMELIST) {
+			codeLength += 1;
+			codeLength += getNameList.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GETSTATUS) {
+			codeLength += 1;
+			codeLength += getStatus.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATEERROR) {
+			codeLength += 1;
+			codeLength += initiateError.sizeOf();
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -368,6 +650,135 @@ public class ConfirmedServiceError implements AxdrType {
 		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		if (buffer.hasRemaining() == false) {
+			throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+		}
+
+		resetChoices();
+		choice = Choices.valueOf(buffer.get() & 0xff);
+		codeLength++;
+
+		if (choice == Choices.INITIATEERROR) {
+			initiateError = new ServiceError();
+			codeLength += initiateError.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETSTATUS) {
+			getStatus = new ServiceError();
+			codeLength += getStatus.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETNAMELIST) {
+			getNameList = new ServiceError();
+			codeLength += getNameList.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETVARIABLEATTRIBUTE) {
+			getVariableAttribute = new ServiceError();
+			codeLength += getVariableAttribute.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.READ) {
+			read = new ServiceError();
+			codeLength += read.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.WRITE) {
+			write = new ServiceError();
+			codeLength += write.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETDATASETATTRIBUTE) {
+			getDataSetAttribute = new ServiceError();
+			codeLength += getDataSetAttribute.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GETTIATTRIBUTE) {
+			getTIAttribute = new ServiceError();
+			codeLength += getTIAttribute.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.CHANGESCOPE) {
+			changeScope = new ServiceError();
+			codeLength += changeScope.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.START) {
+			start = new ServiceError();
+			codeLength += start.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.STOP) {
+			stop = new ServiceError();
+			codeLength += stop.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.RESUME) {
+			resume = new ServiceError();
+			codeLength += resume.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.MAKEUSABLE) {
+			makeUsable = new ServiceError();
+			codeLength += makeUsable.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATELOAD) {
+			initiateLoad = new ServiceError();
+			codeLength += initiateLoad.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.LOADSEGMENT) {
+			loadSegment = new ServiceError();
+			codeLength += loadSegment.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.TERMINATELOAD) {
+			terminateLoad = new ServiceError();
+			codeLength += terminateLoad.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATEUPLOAD) {
+			initiateUpLoad = new ServiceError();
+			codeLength += initiateUpLoad.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.UPLOADSEGMENT) {
+			upLoadSegment = new ServiceError();
+			codeLength += upLoadSegment.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.TERMINATEUPLOAD) {
+			terminateUpLoad = new ServiceError();
+			codeLength += terminateUpLoad.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
@@ -4,9 +4,12 @@
 
 package org.openmuc.asn1.cosem;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.ber.BerByteArrayOutputStream;
 import org.openmuc.jasn1.ber.BerIdentifier;
 import org.openmuc.jasn1.ber.types.BerBitString;
@@ -34,8 +37,32 @@ public class Conformance extends BerBitString {
 		return encode(berOStream, true);
 	}
 
+	/**
+	 * Writes the BER code of this bit string into a forward A-XDR stream. The code is only a few bytes long, so it is
+	 * encoded backwards first and then copied
+	 */
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		BerByteArrayOutputStream berOStream = new BerByteArrayOutputStream(16, true);
+		int codeLength = encode(berOStream, true);
+		axdrOStream.write(berOStream.buffer, berOStream.index + 1, codeLength);
+		return codeLength;
+	}
+
+	public int sizeOf() throws IOException {
+		return encode(new BerByteArrayOutputStream(16, true), true);
+	}
+
 	public int decode(InputStream iStream) throws IOException {
 		return decode(iStream, true);
 	}
 
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		// The conformance block is BER encoded and at most 7 byte long
+		byte[] code = new byte[Math.min(buffer.remaining(), 7)];
+		buffer.duplicate().get(code);
+		int codeLength = decode(new ByteArrayInputStream(code), true);
+		buffer.position(buffer.position() + codeLength);
+		return codeLength;
+	}
+
 }
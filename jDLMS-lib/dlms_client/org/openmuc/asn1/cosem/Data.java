@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrBitString;
 import org.openmuc.jasn1.axdr.types.AxdrBoolean;
@@ -125,6 +127,47 @@ public class Data implements AxdrType {
 
 		}
 
+		@Override
+		public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+			int codeLength;
+
+			if (code != null) {
+				codeLength = code.length;
+				axdrOStream.write(code);
+			}
+			else {
+				codeLength = 0;
+				codeLength += contents_description.encode(axdrOStream);
+
+				codeLength += array_contents.encode(axdrOStream);
+
+			}
+
+			return codeLength;
+
+		}
+
+		@Override
+		public int sizeOf() throws IOException {
+
+			int codeLength;
+
+			if (code != null) {
+				codeLength = code.length;
+			}
+			else {
+				codeLength = 0;
+				codeLength += contents_description.sizeOf();
+
+				codeLength += array_contents.sizeOf();
+
+			}
+
+			return codeLength;
+
+		}
+
 		@Override
 		public int decode(InputStream iStream) throws IOException {
 			int codeLength = 0;
@@ -138,6 +181,19 @@ public class Data implements AxdrType {
 			return codeLength;
 		}
 
+		@Override
+		public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+			int codeLength = 0;
+
+			contents_description = new TypeDescription();
+			codeLength += contents_description.decode(buffer, shareBuffer);
+
+			array_contents = new AxdrOctetString();
+			codeLength += array_contents.decode(buffer, shareBuffer);
+
+			return codeLength;
+		}
+
 		public void encodeAndSave(int encodingSizeGuess) throws IOException {
 			AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 			encode(axdrOStream);
@@ -387,6 +443,351 @@ public class Data implements AxdrType {
 		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		if (code != null) {
+			axdrOStream.write(code);
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.DONT_CARE) {
+			AxdrEnum c = new AxdrEnum(255);
+			codeLength += c.encode(axdrOStream);
+			codeLength += dont_care.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.TIME) {
+			AxdrEnum c = new AxdrEnum(27);
+			codeLength += c.encode(axdrOStream);
+			codeLength += time.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DATE) {
+			AxdrEnum c = new AxdrEnum(26);
+			codeLength += c.encode(axdrOStream);
+			codeLength += date.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DATE_TIME) {
+			AxdrEnum c = new AxdrEnum(25);
+			codeLength += c.encode(axdrOStream);
+			codeLength += date_time.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.FLOAT64) {
+			AxdrEnum c = new AxdrEnum(24);
+			codeLength += c.encode(axdrOStream);
+			codeLength += float64.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.FLOAT32) {
+			AxdrEnum c = new AxdrEnum(23);
+			codeLength += c.encode(axdrOStream);
+			codeLength += float32.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.ENUMERATE) {
+			AxdrEnum c = new AxdrEnum(22);
+			codeLength += c.encode(axdrOStream);
+			codeLength += enumerate.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG64_UNSIGNED) {
+			AxdrEnum c = new AxdrEnum(21);
+			codeLength += c.encode(axdrOStream);
+			codeLength += long64_unsigned.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG64) {
+			AxdrEnum c = new AxdrEnum(20);
+			codeLength += c.encode(axdrOStream);
+			codeLength += long64.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.COMPACT_ARRAY) {
+			AxdrEnum c = new AxdrEnum(19);
+			codeLength += c.encode(axdrOStream);
+			codeLength += compact_array.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG_UNSIGNED) {
+			AxdrEnum c = new AxdrEnum(18);
+			codeLength += c.encode(axdrOStream);
+			codeLength += long_unsigned.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.UNSIGNED) {
+			AxdrEnum c = new AxdrEnum(17);
+			codeLength += c.encode(axdrOStream);
+			codeLength += unsigned.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG_INTEGER) {
+			AxdrEnum c = new AxdrEnum(16);
+			codeLength += c.encode(axdrOStream);
+			codeLength += long_integer.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.INTEGER) {
+			AxdrEnum c = new AxdrEnum(15);
+			codeLength += c.encode(axdrOStream);
+			codeLength += integer.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.BCD) {
+			AxdrEnum c = new AxdrEnum(13);
+			codeLength += c.encode(axdrOStream);
+			codeLength += bcd.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.VISIBLE_STRING) {
+			AxdrEnum c = new AxdrEnum(10);
+			codeLength += c.encode(axdrOStream);
+			codeLength += visible_string.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.OCTET_STRING) {
+			AxdrEnum c = new AxdrEnum(9);
+			codeLength += c.encode(axdrOStream);
+			codeLength += octet_string.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DOUBLE_LONG_UNSIGNED) {
+			AxdrEnum c = new AxdrEnum(6);
+			codeLength += c.encode(axdrOStream);
+			codeLength += double_long_unsigned.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DOUBLE_LONG) {
+			AxdrEnum c = new AxdrEnum(5);
+			codeLength += c.encode(axdrOStream);
+			codeLength += double_long.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.BIT_STRING) {
+			AxdrEnum c = new AxdrEnum(4);
+			codeLength += c.encode(axdrOStream);
+			codeLength += bit_string.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.BOOL) {
+			AxdrEnum c = new AxdrEnum(3);
+			codeLength += c.encode(axdrOStream);
+			codeLength += bool.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.STRUCTURE) {
+			AxdrEnum c = new AxdrEnum(2);
+			codeLength += c.encode(axdrOStream);
+			codeLength += structure.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.ARRAY) {
+			AxdrEnum c = new AxdrEnum(1);
+			codeLength += c.encode(axdrOStream);
+			codeLength += array.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.NULL_DATA) {
+			AxdrEnum c = new AxdrEnum(0);
+			codeLength += c.encode(axdrOStream);
+			codeLength += null_data.encode(axdrOStream);
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+		if (code != null) {
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.DONT_CARE) {
+			codeLength += 1;
+			codeLength += dont_care.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.TIME) {
+			codeLength += 1;
+			codeLength += time.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DATE) {
+			codeLength += 1;
+			codeLength += date.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DATE_TIME) {
+			codeLength += 1;
+			codeLength += date_time.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.FLOAT64) {
+			codeLength += 1;
+			codeLength += float64.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.FLOAT32) {
+			codeLength += 1;
+			codeLength += float32.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.ENUMERATE) {
+			codeLength += 1;
+			codeLength += enumerate.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG64_UNSIGNED) {
+			codeLength += 1;
+			codeLength += long64_unsigned.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG64) {
+			codeLength += 1;
+			codeLength += long64.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.COMPACT_ARRAY) {
+			codeLength += 1;
+			codeLength += compact_array.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG_UNSIGNED) {
+			codeLength += 1;
+			codeLength += long_unsigned.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.UNSIGNED) {
+			codeLength += 1;
+			codeLength += unsigned.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG_INTEGER) {
+			codeLength += 1;
+			codeLength += long_integer.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.INTEGER) {
+			codeLength += 1;
+			codeLength += integer.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.BCD) {
+			codeLength += 1;
+			codeLength += bcd.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.VISIBLE_STRING) {
+			codeLength += 1;
+			codeLength += visible_string.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.OCTET_STRING) {
+			codeLength += 1;
+			codeLength += octet_string.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DOUBLE_LONG_UNSIGNED) {
+			codeLength += 1;
+			codeLength += double_long_unsigned.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DOUBLE_LONG) {
+			codeLength += 1;
+			codeLength += double_long.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.BIT_STRING) {
+			codeLength += 1;
+			codeLength += bit_string.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.BOOL) {
+			codeLength += 1;
+			codeLength += bool.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.STRUCTURE) {
+			codeLength += 1;
+			codeLength += structure.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.ARRAY) {
+			codeLength += 1;
+			codeLength += array.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.NULL_DATA) {
+			codeLength += 1;
+			codeLength += null_data.sizeOf();
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -543,6 +944,165 @@ public class Data implements AxdrType {
 		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		if (buffer.hasRemaining() == false) {
+			throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+		}
+
+		resetChoices();
+		choice = Choices.valueOf(buffer.get() & 0xff);
+		codeLength++;
+
+		if (choice == Choices.NULL_DATA) {
+			null_data = new AxdrNull();
+			codeLength += null_data.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.ARRAY) {
+			array = new SubSeqOf_array();
+			codeLength += array.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.STRUCTURE) {
+			structure = new SubSeqOf_structure();
+			codeLength += structure.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.BOOL) {
+			bool = new AxdrBoolean();
+			codeLength += bool.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.BIT_STRING) {
+			bit_string = new AxdrBitString();
+			codeLength += bit_string.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DOUBLE_LONG) {
+			double_long = new Integer32();
+			codeLength += double_long.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DOUBLE_LONG_UNSIGNED) {
+			double_long_unsigned = new Unsigned32();
+			codeLength += double_long_unsigned.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.OCTET_STRING) {
+			octet_string = new AxdrOctetString();
+			codeLength += octet_string.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.VISIBLE_STRING) {
+			visible_string = new AxdrVisibleString();
+			codeLength += visible_string.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.BCD) {
+			bcd = new Integer8();
+			codeLength += bcd.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.INTEGER) {
+			integer = new Integer8();
+			codeLength += integer.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG_INTEGER) {
+			long_integer = new Integer16();
+			codeLength += long_integer.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.UNSIGNED) {
+			unsigned = new Unsigned8();
+			codeLength += unsigned.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG_UNSIGNED) {
+			long_unsigned = new Unsigned16();
+			codeLength += long_unsigned.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.COMPACT_ARRAY) {
+			compact_array = new SubSeq_compact_array();
+			codeLength += compact_array.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG64) {
+			long64 = new Integer64();
+			codeLength += long64.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.LONG64_UNSIGNED) {
+			long64_unsigned = new Unsigned64();
+			codeLength += long64_unsigned.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.ENUMERATE) {
+			enumerate = new Enum();
+			codeLength += enumerate.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.FLOAT32) {
+			float32 = new AxdrOctetString();
+			codeLength += float32.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.FLOAT64) {
+			float64 = new AxdrOctetString();
+			codeLength += float64.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DATE_TIME) {
+			date_time = new AxdrOctetString();
+			codeLength += date_time.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DATE) {
+			date = new AxdrOctetString();
+			codeLength += date.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.TIME) {
+			time = new AxdrOctetString();
+			codeLength += time.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DONT_CARE) {
+			dont_care = new AxdrNull();
+			codeLength += dont_care.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
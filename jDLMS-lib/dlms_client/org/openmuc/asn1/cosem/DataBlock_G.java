@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrBoolean;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
@@ -90,6 +92,65 @@ public class DataBlock_G implements AxdrType {
 			throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 		}
 
+		@Override
+		public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+			if (code != null) {
+				axdrOStream.write(code);
+				return code.length;
+
+			}
+			if (choice == Choices._ERR_NONE_SELECTED) {
+				throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+			}
+
+			int codeLength = 0;
+
+			if (choice == Choices.DATA_ACCESS_RESULT) {
+				AxdrEnum c = new AxdrEnum(1);
+				codeLength += c.encode(axdrOStream);
+				codeLength += data_access_result.encode(axdrOStream);
+				return codeLength;
+			}
+
+			if (choice == Choices.RAW_DATA) {
+				AxdrEnum c = new AxdrEnum(0);
+				codeLength += c.encode(axdrOStream);
+				codeLength += raw_data.encode(axdrOStream);
+				return codeLength;
+			}
+
+			// This block should be unreachable
+			throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+		}
+
+		@Override
+		public int sizeOf() throws IOException {
+			if (code != null) {
+				return code.length;
+
+			}
+			if (choice == Choices._ERR_NONE_SELECTED) {
+				throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+			}
+
+			int codeLength = 0;
+
+			if (choice == Choices.DATA_ACCESS_RESULT) {
+				codeLength += 1;
+				codeLength += data_access_result.sizeOf();
+				return codeLength;
+			}
+
+			if (choice == Choices.RAW_DATA) {
+				codeLength += 1;
+				codeLength += raw_data.sizeOf();
+				return codeLength;
+			}
+
+			// This block should be unreachable
+			throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+		}
+
 		@Override
 		public int decode(InputStream iStream) throws IOException {
 			int codeLength = 0;
@@ -114,6 +175,33 @@ public class DataBlock_G implements AxdrType {
 			throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 		}
 
+		@Override
+		public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+			int codeLength = 0;
+
+			if (buffer.hasRemaining() == false) {
+				throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+			}
+
+			resetChoices();
+			choice = Choices.valueOf(buffer.get() & 0xff);
+			codeLength++;
+
+			if (choice == Choices.RAW_DATA) {
+				raw_data = new AxdrOctetString();
+				codeLength += raw_data.decode(buffer, shareBuffer);
+				return codeLength;
+			}
+
+			if (choice == Choices.DATA_ACCESS_RESULT) {
+				data_access_result = new AxdrEnum();
+				codeLength += data_access_result.decode(buffer, shareBuffer);
+				return codeLength;
+			}
+
+			throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+		}
+
 		public void encodeAndSave(int encodingSizeGuess) throws IOException {
 			AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 			encode(axdrOStream);
@@ -189,6 +277,51 @@ public class DataBlock_G implements AxdrType {
 
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+			axdrOStream.write(code);
+		}
+		else {
+			codeLength = 0;
+			codeLength += last_block.encode(axdrOStream);
+
+			codeLength += block_number.encode(axdrOStream);
+
+			codeLength += result.encode(axdrOStream);
+
+		}
+
+		return codeLength;
+
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+		}
+		else {
+			codeLength = 0;
+			codeLength += last_block.sizeOf();
+
+			codeLength += block_number.sizeOf();
+
+			codeLength += result.sizeOf();
+
+		}
+
+		return codeLength;
+
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -205,6 +338,22 @@ public class DataBlock_G implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		last_block = new AxdrBoolean();
+		codeLength += last_block.decode(buffer, shareBuffer);
+
+		block_number = new Unsigned32();
+		codeLength += block_number.decode(buffer, shareBuffer);
+
+		result = new SubChoice_result();
+		codeLength += result.decode(buffer, shareBuffer);
+
+		return codeLength;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrOptional;
 
@@ -59,6 +61,51 @@ public class EVENT_NOTIFICATION_Request implements AxdrType {
 
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+			axdrOStream.write(code);
+		}
+		else {
+			codeLength = 0;
+			codeLength += time.encode(axdrOStream);
+
+			codeLength += cosem_attribute_descriptor.encode(axdrOStream);
+
+			codeLength += attribute_value.encode(axdrOStream);
+
+		}
+
+		return codeLength;
+
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+		}
+		else {
+			codeLength = 0;
+			codeLength += time.sizeOf();
+
+			codeLength += cosem_attribute_descriptor.sizeOf();
+
+			codeLength += attribute_value.sizeOf();
+
+		}
+
+		return codeLength;
+
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -75,6 +122,22 @@ public class EVENT_NOTIFICATION_Request implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		time = new AxdrOptional<Cosem_Date_Time>(new Cosem_Date_Time(), false);
+		codeLength += time.decode(buffer, shareBuffer);
+
+		cosem_attribute_descriptor = new Cosem_Attribute_Descriptor();
+		codeLength += cosem_attribute_descriptor.decode(buffer, shareBuffer);
+
+		attribute_value = new Data();
+		codeLength += attribute_value.decode(buffer, shareBuffer);
+
+		return codeLength;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
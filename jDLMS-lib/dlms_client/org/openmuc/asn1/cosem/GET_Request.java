@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
 
@@ -95,6 +97,78 @@ public class GET_Request implements AxdrType {
 		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		if (code != null) {
+			axdrOStream.write(code);
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.GET_REQUEST_WITH_LIST) {
+			AxdrEnum c = new AxdrEnum(3);
+			codeLength += c.encode(axdrOStream);
+			codeLength += get_request_with_list.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_REQUEST_NEXT) {
+			AxdrEnum c = new AxdrEnum(2);
+			codeLength += c.encode(axdrOStream);
+			codeLength += get_request_next.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_REQUEST_NORMAL) {
+			AxdrEnum c = new AxdrEnum(1);
+			codeLength += c.encode(axdrOStream);
+			codeLength += get_request_normal.encode(axdrOStream);
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+		if (code != null) {
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.GET_REQUEST_WITH_LIST) {
+			codeLength += 1;
+			codeLength += get_request_with_list.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_REQUEST_NEXT) {
+			codeLength += 1;
+			codeLength += get_request_next.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_REQUEST_NORMAL) {
+			codeLength += 1;
+			codeLength += get_request_normal.sizeOf();
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -125,6 +199,39 @@ public class GET_Request implements AxdrType {
 		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		if (buffer.hasRemaining() == false) {
+			throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+		}
+
+		resetChoices();
+		choice = Choices.valueOf(buffer.get() & 0xff);
+		codeLength++;
+
+		if (choice == Choices.GET_REQUEST_NORMAL) {
+			get_request_normal = new Get_Request_Normal();
+			codeLength += get_request_normal.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_REQUEST_NEXT) {
+			get_request_next = new Get_Request_Next();
+			codeLength += get_request_next.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.GET_REQUEST_WITH_LIST) {
+			get_request_with_list = new Get_Request_With_List();
+			codeLength += get_request_with_list.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
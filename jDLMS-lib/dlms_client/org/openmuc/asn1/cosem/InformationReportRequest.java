@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrGeneralizedTime;
 import org.openmuc.jasn1.axdr.types.AxdrOptional;
@@ -94,6 +96,51 @@ public class InformationReportRequest implements AxdrType {
 
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+			axdrOStream.write(code);
+		}
+		else {
+			codeLength = 0;
+			codeLength += current_time.encode(axdrOStream);
+
+			codeLength += variable_access_specification.encode(axdrOStream);
+
+			codeLength += list_of_data.encode(axdrOStream);
+
+		}
+
+		return codeLength;
+
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+		}
+		else {
+			codeLength = 0;
+			codeLength += current_time.sizeOf();
+
+			codeLength += variable_access_specification.sizeOf();
+
+			codeLength += list_of_data.sizeOf();
+
+		}
+
+		return codeLength;
+
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -110,6 +157,22 @@ public class InformationReportRequest implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		current_time = new AxdrOptional<AxdrGeneralizedTime>(new AxdrGeneralizedTime(), false);
+		codeLength += current_time.decode(buffer, shareBuffer);
+
+		variable_access_specification = new SubSeqOf_variable_access_specification();
+		codeLength += variable_access_specification.decode(buffer, shareBuffer);
+
+		list_of_data = new SubSeqOf_list_of_data();
+		codeLength += list_of_data.decode(buffer, shareBuffer);
+
+		return codeLength;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrBoolean;
 import org.openmuc.jasn1.axdr.types.AxdrDefault;
@@ -79,6 +81,63 @@ public class InitiateRequest implements AxdrType {
 
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+			axdrOStream.write(code);
+		}
+		else {
+			codeLength = 0;
+			codeLength += dedicated_key.encode(axdrOStream);
+
+			codeLength += response_allowed.encode(axdrOStream);
+
+			codeLength += proposed_quality_of_service.encode(axdrOStream);
+
+			codeLength += proposed_dlms_version_number.encode(axdrOStream);
+
+			codeLength += proposed_conformance.encode(axdrOStream);
+
+			codeLength += client_max_receive_pdu_size.encode(axdrOStream);
+
+		}
+
+		return codeLength;
+
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+		}
+		else {
+			codeLength = 0;
+			codeLength += dedicated_key.sizeOf();
+
+			codeLength += response_allowed.sizeOf();
+
+			codeLength += proposed_quality_of_service.sizeOf();
+
+			codeLength += proposed_dlms_version_number.sizeOf();
+
+			codeLength += proposed_conformance.sizeOf();
+
+			codeLength += client_max_receive_pdu_size.sizeOf();
+
+		}
+
+		return codeLength;
+
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -104,6 +163,31 @@ public class InitiateRequest implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		dedicated_key = new AxdrOptional<AxdrOctetString>(new AxdrOctetString(), false);
+		codeLength += dedicated_key.decode(buffer, shareBuffer);
+
+		response_allowed = new AxdrDefault<AxdrBoolean>(new AxdrBoolean(), new AxdrBoolean());
+		codeLength += response_allowed.decode(buffer, shareBuffer);
+
+		proposed_quality_of_service = new AxdrOptional<Integer8>(new Integer8(), false);
+		codeLength += proposed_quality_of_service.decode(buffer, shareBuffer);
+
+		proposed_dlms_version_number = new Unsigned8();
+		codeLength += proposed_dlms_version_number.decode(buffer, shareBuffer);
+
+		proposed_conformance = new Conformance();
+		codeLength += proposed_conformance.decode(buffer, shareBuffer);
+
+		client_max_receive_pdu_size = new Unsigned16();
+		codeLength += client_max_receive_pdu_size.decode(buffer, shareBuffer);
+
+		return codeLength;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
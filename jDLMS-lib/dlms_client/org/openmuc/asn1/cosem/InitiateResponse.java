@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrOptional;
 
@@ -69,6 +71,59 @@ public class InitiateResponse implements AxdrType {
 
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+			axdrOStream.write(code);
+		}
+		else {
+			codeLength = 0;
+			codeLength += negotiated_quality_of_service.encode(axdrOStream);
+
+			codeLength += negotiated_dlms_version_number.encode(axdrOStream);
+
+			codeLength += negotiated_conformance.encode(axdrOStream);
+
+			codeLength += server_max_receive_pdu_size.encode(axdrOStream);
+
+			codeLength += vaa_name.encode(axdrOStream);
+
+		}
+
+		return codeLength;
+
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+		}
+		else {
+			codeLength = 0;
+			codeLength += negotiated_quality_of_service.sizeOf();
+
+			codeLength += negotiated_dlms_version_number.sizeOf();
+
+			codeLength += negotiated_conformance.sizeOf();
+
+			codeLength += server_max_receive_pdu_size.sizeOf();
+
+			codeLength += vaa_name.sizeOf();
+
+		}
+
+		return codeLength;
+
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -91,6 +146,28 @@ public class InitiateResponse implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		negotiated_quality_of_service = new AxdrOptional<Integer8>(new Integer8(), false);
+		codeLength += negotiated_quality_of_service.decode(buffer, shareBuffer);
+
+		negotiated_dlms_version_number = new Unsigned8();
+		codeLength += negotiated_dlms_version_number.decode(buffer, shareBuffer);
+
+		negotiated_conformance = new Conformance();
+		codeLength += negotiated_conformance.decode(buffer, shareBuffer);
+
+		server_max_receive_pdu_size = new Unsigned16();
+		codeLength += server_max_receive_pdu_size.decode(buffer, shareBuffer);
+
+		vaa_name = new Integer16();
+		codeLength += vaa_name.decode(buffer, shareBuffer);
+
+		return codeLength;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
 import org.openmuc.jasn1.axdr.types.AxdrSequenceOf;
@@ -101,6 +103,65 @@ public class ReadResponse extends AxdrSequenceOf<ReadResponse.SubChoice> {
 			throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 		}
 
+		@Override
+		public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+			if (code != null) {
+				axdrOStream.write(code);
+				return code.length;
+
+			}
+			if (choice == Choices._ERR_NONE_SELECTED) {
+				throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+			}
+
+			int codeLength = 0;
+
+			if (choice == Choices.DATA_ACCESS_ERROR) {
+				AxdrEnum c = new AxdrEnum(1);
+				codeLength += c.encode(axdrOStream);
+				codeLength += data_access_error.encode(axdrOStream);
+				return codeLength;
+			}
+
+			if (choice == Choices.DATA) {
+				AxdrEnum c = new AxdrEnum(0);
+				codeLength += c.encode(axdrOStream);
+				codeLength += data.encode(axdrOStream);
+				return codeLength;
+			}
+
+			// This block should be unreachable
+			throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+		}
+
+		@Override
+		public int sizeOf() throws IOException {
+			if (code != null) {
+				return code.length;
+
+			}
+			if (choice == Choices._ERR_NONE_SELECTED) {
+				throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+			}
+
+			int codeLength = 0;
+
+			if (choice == Choices.DATA_ACCESS_ERROR) {
+				codeLength += 1;
+				codeLength += data_access_error.sizeOf();
+				return codeLength;
+			}
+
+			if (choice == Choices.DATA) {
+				codeLength += 1;
+				codeLength += data.sizeOf();
+				return codeLength;
+			}
+
+			// This block should be unreachable
+			throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+		}
+
 		@Override
 		public int decode(InputStream iStream) throws IOException {
 			int codeLength = 0;
@@ -125,6 +186,33 @@ public class ReadResponse extends AxdrSequenceOf<ReadResponse.SubChoice> {
 			throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 		}
 
+		@Override
+		public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+			int codeLength = 0;
+
+			if (buffer.hasRemaining() == false) {
+				throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+			}
+
+			resetChoices();
+			choice = Choices.valueOf(buffer.get() & 0xff);
+			codeLength++;
+
+			if (choice == Choices.DATA) {
+				data = new Data();
+				codeLength += data.decode(buffer, shareBuffer);
+				return codeLength;
+			}
+
+			if (choice == Choices.DATA_ACCESS_ERROR) {
+				data_access_error = new AxdrEnum();
+				codeLength += data_access_error.decode(buffer, shareBuffer);
+				return codeLength;
+			}
+
+			throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+		}
+
 		public void encodeAndSave(int encodingSizeGuess) throws IOException {
 			AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 			encode(axdrOStream);
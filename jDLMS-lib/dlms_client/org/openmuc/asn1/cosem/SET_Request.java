@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
 
@@ -114,6 +116,104 @@ public class SET_Request implements AxdrType {
 		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		if (code != null) {
+			axdrOStream.write(code);
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.SET_REQUEST_WITH_LIST_AND_FIRST_DATABLOCK) {
+			AxdrEnum c = new AxdrEnum(5);
+			codeLength += c.encode(axdrOStream);
+			codeLength += set_request_with_list_and_first_datablock.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_LIST) {
+			AxdrEnum c = new AxdrEnum(4);
+			codeLength += c.encode(axdrOStream);
+			codeLength += set_request_with_list.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_DATABLOCK) {
+			AxdrEnum c = new AxdrEnum(3);
+			codeLength += c.encode(axdrOStream);
+			codeLength += set_request_with_datablock.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_FIRST_DATABLOCK) {
+			AxdrEnum c = new AxdrEnum(2);
+			codeLength += c.encode(axdrOStream);
+			codeLength += set_request_with_first_datablock.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_NORMAL) {
+			AxdrEnum c = new AxdrEnum(1);
+			codeLength += c.encode(axdrOStream);
+			codeLength += set_request_normal.encode(axdrOStream);
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+		if (code != null) {
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.SET_REQUEST_WITH_LIST_AND_FIRST_DATABLOCK) {
+			codeLength += 1;
+			codeLength += set_request_with_list_and_first_datablock.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_LIST) {
+			codeLength += 1;
+			codeLength += set_request_with_list.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_DATABLOCK) {
+			codeLength += 1;
+			codeLength += set_request_with_datablock.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_FIRST_DATABLOCK) {
+			codeLength += 1;
+			codeLength += set_request_with_first_datablock.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_NORMAL) {
+			codeLength += 1;
+			codeLength += set_request_normal.sizeOf();
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -156,6 +256,51 @@ public class SET_Request implements AxdrType {
 		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		if (buffer.hasRemaining() == false) {
+			throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+		}
+
+		resetChoices();
+		choice = Choices.valueOf(buffer.get() & 0xff);
+		codeLength++;
+
+		if (choice == Choices.SET_REQUEST_NORMAL) {
+			set_request_normal = new Set_Request_Normal();
+			codeLength += set_request_normal.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_FIRST_DATABLOCK) {
+			set_request_with_first_datablock = new Set_Request_With_First_Datablock();
+			codeLength += set_request_with_first_datablock.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_DATABLOCK) {
+			set_request_with_datablock = new Set_Request_With_Datablock();
+			codeLength += set_request_with_datablock.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_LIST) {
+			set_request_with_list = new Set_Request_With_List();
+			codeLength += set_request_with_list.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.SET_REQUEST_WITH_LIST_AND_FIRST_DATABLOCK) {
+			set_request_with_list_and_first_datablock = new Set_Request_With_List_And_First_Datablock();
+			codeLength += set_request_with_list_and_first_datablock.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
 
@@ -150,6 +152,156 @@ public class ServiceError implements AxdrType {
 		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		if (code != null) {
+			axdrOStream.write(code);
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.TASK) {
+			AxdrEnum c = new AxdrEnum(9);
+			codeLength += c.encode(axdrOStream);
+			codeLength += task.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.LOAD_DATA_SET) {
+			AxdrEnum c = new AxdrEnum(7);
+			codeLength += c.encode(axdrOStream);
+			codeLength += load_data_set.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATE) {
+			AxdrEnum c = new AxdrEnum(6);
+			codeLength += c.encode(axdrOStream);
+			codeLength += initiate.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACCESS) {
+			AxdrEnum c = new AxdrEnum(5);
+			codeLength += c.encode(axdrOStream);
+			codeLength += access.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.DEFINITION) {
+			AxdrEnum c = new AxdrEnum(4);
+			codeLength += c.encode(axdrOStream);
+			codeLength += definition.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.SERVICE) {
+			AxdrEnum c = new AxdrEnum(3);
+			codeLength += c.encode(axdrOStream);
+			codeLength += service.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.VDE_STATE_ERROR) {
+			AxdrEnum c = new AxdrEnum(2);
+			codeLength += c.encode(axdrOStream);
+			codeLength += vde_state_error.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.HARDWARE_RESOURCE) {
+			AxdrEnum c = new AxdrEnum(1);
+			codeLength += c.encode(axdrOStream);
+			codeLength += hardware_resource.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.APPLICATION_REFERENCE) {
+			AxdrEnum c = new AxdrEnum(0);
+			codeLength += c.encode(axdrOStream);
+			codeLength += application_reference.encode(axdrOStream);
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+		if (code != null) {
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.TASK) {
+			codeLength += 1;
+			codeLength += task.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.LOAD_DATA_SET) {
+			codeLength += 1;
+			codeLength += load_data_set.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATE) {
+			codeLength += 1;
+			codeLength += initiate.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.ACCESS) {
+			codeLength += 1;
+			codeLength += access.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.DEFINITION) {
+			codeLength += 1;
+			codeLength += definition.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.SERVICE) {
+			codeLength += 1;
+			codeLength += service.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.VDE_STATE_ERROR) {
+			codeLength += 1;
+			codeLength += vde_state_error.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.HARDWARE_RESOURCE) {
+			codeLength += 1;
+			codeLength += hardware_resource.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.APPLICATION_REFERENCE) {
+			codeLength += 1;
+			codeLength += application_reference.sizeOf();
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -216,6 +368,75 @@ public class ServiceError implements AxdrType {
 		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		if (buffer.hasRemaining() == false) {
+			throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+		}
+
+		resetChoices();
+		choice = Choices.valueOf(buffer.get() & 0xff);
+		codeLength++;
+
+		if (choice == Choices.APPLICATION_REFERENCE) {
+			application_reference = new AxdrEnum();
+			codeLength += application_reference.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.HARDWARE_RESOURCE) {
+			hardware_resource = new AxdrEnum();
+			codeLength += hardware_resource.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.VDE_STATE_ERROR) {
+			vde_state_error = new AxdrEnum();
+			codeLength += vde_state_error.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.SERVICE) {
+			service = new AxdrEnum();
+			codeLength += service.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.DEFINITION) {
+			definition = new AxdrEnum();
+			codeLength += definition.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.ACCESS) {
+			access = new AxdrEnum();
+			codeLength += access.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.INITIATE) {
+			initiate = new AxdrEnum();
+			codeLength += initiate.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.LOAD_DATA_SET) {
+			load_data_set = new AxdrEnum();
+			codeLength += load_data_set.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.TASK) {
+			task = new AxdrEnum();
+			codeLength += task.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
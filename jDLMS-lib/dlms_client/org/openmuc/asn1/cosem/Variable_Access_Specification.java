@@ -6,8 +6,10 @@ package org.openmuc.asn1.cosem;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
 
@@ -89,6 +91,51 @@ public class Variable_Access_Specification implements AxdrType {
 
 		}
 
+		@Override
+		public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+			int codeLength;
+
+			if (code != null) {
+				codeLength = code.length;
+				axdrOStream.write(code);
+			}
+			else {
+				codeLength = 0;
+				codeLength += variable_name.encode(axdrOStream);
+
+				codeLength += selector.encode(axdrOStream);
+
+				codeLength += parameter.encode(axdrOStream);
+
+			}
+
+			return codeLength;
+
+		}
+
+		@Override
+		public int sizeOf() throws IOException {
+
+			int codeLength;
+
+			if (code != null) {
+				codeLength = code.length;
+			}
+			else {
+				codeLength = 0;
+				codeLength += variable_name.sizeOf();
+
+				codeLength += selector.sizeOf();
+
+				codeLength += parameter.sizeOf();
+
+			}
+
+			return codeLength;
+
+		}
+
 		@Override
 		public int decode(InputStream iStream) throws IOException {
 			int codeLength = 0;
@@ -105,6 +152,22 @@ public class Variable_Access_Specification implements AxdrType {
 			return codeLength;
 		}
 
+		@Override
+		public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+			int codeLength = 0;
+
+			variable_name = new Integer16();
+			codeLength += variable_name.decode(buffer, shareBuffer);
+
+			selector = new Integer8();
+			codeLength += selector.decode(buffer, shareBuffer);
+
+			parameter = new Data();
+			codeLength += parameter.decode(buffer, shareBuffer);
+
+			return codeLength;
+		}
+
 		public void encodeAndSave(int encodingSizeGuess) throws IOException {
 			AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 			encode(axdrOStream);
@@ -156,6 +219,65 @@ public class Variable_Access_Specification implements AxdrType {
 		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		if (code != null) {
+			axdrOStream.write(code);
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.PARAMETERIZED_ACCESS) {
+			AxdrEnum c = new AxdrEnum(4);
+			codeLength += c.encode(axdrOStream);
+			codeLength += parameterized_access.encode(axdrOStream);
+			return codeLength;
+		}
+
+		if (choice == Choices.VARIABLE_NAME) {
+			AxdrEnum c = new AxdrEnum(2);
+			codeLength += c.encode(axdrOStream);
+			codeLength += variable_name.encode(axdrOStream);
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+		if (code != null) {
+			return code.length;
+
+		}
+		if (choice == Choices._ERR_NONE_SELECTED) {
+			throw new IOException("Error encoding AxdrChoice: No item in choice was selected.");
+		}
+
+		int codeLength = 0;
+
+		if (choice == Choices.PARAMETERIZED_ACCESS) {
+			codeLength += 1;
+			codeLength += parameterized_access.sizeOf();
+			return codeLength;
+		}
+
+		if (choice == Choices.VARIABLE_NAME) {
+			codeLength += 1;
+			codeLength += variable_name.sizeOf();
+			return codeLength;
+		}
+
+		// This block should be unreachable
+		throw new IOException("Error encoding AxdrChoice: No item in choice was encoded.");
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -180,6 +302,33 @@ public class Variable_Access_Specification implements AxdrType {
 		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		if (buffer.hasRemaining() == false) {
+			throw new IOException("Error decoding AxdrChoice: Missing identifier.");
+		}
+
+		resetChoices();
+		choice = Choices.valueOf(buffer.get() & 0xff);
+		codeLength++;
+
+		if (choice == Choices.VARIABLE_NAME) {
+			variable_name = new Integer16();
+			codeLength += variable_name.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		if (choice == Choices.PARAMETERIZED_ACCESS) {
+			parameterized_access = new SubSeq_parameterized_access();
+			codeLength += parameterized_access.decode(buffer, shareBuffer);
+			return codeLength;
+		}
+
+		throw new IOException("Error decoding AxdrChoice: Identifier matched to no item.");
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
@@ -0,0 +1,160 @@
+/*
+ * Copyright Fraunhofer ISE, 2012
+ *    
+ * This file is part of jASN1.
+ * For more information visit http://www.openmuc.org
+ * 
+ * jASN1 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * jASN1 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jASN1.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.openmuc.jasn1.axdr;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Output stream writing A-XDR code from front to back into a growable direct buffer. Unlike
+ * {@link AxdrByteArrayOutputStream}, the encoded bytes are already in the right order and can be handed on as
+ * {@link ByteBuffer} without copying them.
+ * 
+ * Streams are pooled. Take one with {@link #obtain()} and return it with {@link #release()} once the encoded bytes are
+ * no longer needed.
+ */
+public class AxdrByteBufferOutputStream extends OutputStream {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Streams that grew larger than this are not returned to the pool
+	 */
+	private static final int MAX_POOLED_CAPACITY = 0x20000;
+
+	private static final int MAX_IDLE = 32;
+
+	private static final Queue<AxdrByteBufferOutputStream> pool = new ConcurrentLinkedQueue<AxdrByteBufferOutputStream>();
+	private static final AtomicInteger idle = new AtomicInteger(0);
+
+	private ByteBuffer buffer;
+
+	public AxdrByteBufferOutputStream(int bufferSize) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("bufferSize may not be <= 0");
+		}
+		buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Takes a stream out of the pool, or creates a new one if the pool is empty
+	 * 
+	 * @return An empty stream
+	 */
+	public static AxdrByteBufferOutputStream obtain() {
+		AxdrByteBufferOutputStream result = pool.poll();
+		if (result == null) {
+			return new AxdrByteBufferOutputStream(INITIAL_CAPACITY);
+		}
+		idle.decrementAndGet();
+		return result;
+	}
+
+	/**
+	 * Returns this stream to the pool. Neither the stream nor a buffer returned by {@link #getByteBuffer()} must be
+	 * used by the caller afterwards
+	 */
+	public void release() {
+		buffer.clear();
+		if (buffer.capacity() > MAX_POOLED_CAPACITY) {
+			return;
+		}
+		if (idle.incrementAndGet() <= MAX_IDLE) {
+			pool.add(this);
+		}
+		else {
+			idle.decrementAndGet();
+		}
+	}
+
+	@Override
+	public void write(int arg0) throws IOException {
+		write((byte) arg0);
+	}
+
+	public void write(byte arg0) throws IOException {
+		ensureRemaining(1);
+		buffer.put(arg0);
+	}
+
+	@Override
+	public void write(byte[] byteArray) throws IOException {
+		write(byteArray, 0, byteArray.length);
+	}
+
+	@Override
+	public void write(byte[] byteArray, int offset, int length) throws IOException {
+		ensureRemaining(length);
+		buffer.put(byteArray, offset, length);
+	}
+
+	private void ensureRemaining(int length) {
+		if (buffer.remaining() >= length) {
+			return;
+		}
+		int capacity = buffer.capacity() * 2;
+		while (capacity - buffer.position() < length) {
+			capacity *= 2;
+		}
+		ByteBuffer newBuffer = ByteBuffer.allocateDirect(capacity);
+		buffer.flip();
+		newBuffer.put(buffer);
+		buffer = newBuffer;
+	}
+
+	/**
+	 * @return Number of bytes written so far
+	 */
+	public int size() {
+		return buffer.position();
+	}
+
+	/**
+	 * Discards all bytes written so far
+	 */
+	public void reset() {
+		buffer.clear();
+	}
+
+	/**
+	 * Returns a read only view of the coded content. The view is only valid until the stream is written to, reset or
+	 * released.
+	 */
+	public ByteBuffer getByteBuffer() {
+		ByteBuffer result = buffer.asReadOnlyBuffer();
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * Returns a new array containing the coded content
+	 */
+	public byte[] getArray() {
+		byte[] result = new byte[buffer.position()];
+		ByteBuffer view = getByteBuffer();
+		view.get(result);
+		return result;
+	}
+}
@@ -2,6 +2,7 @@ package org.openmuc.jasn1.axdr;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public class AxdrLength {
 
@@ -38,6 +39,49 @@ public class AxdrLength {
 		return codeLength;
 	}
 
+	public static int encodeLength(AxdrByteBufferOutputStream axdrOStream, int length) throws IOException {
+		if (length == 0) {
+			axdrOStream.write(0);
+			return 1;
+		}
+
+		int lengthOfLength = 1;
+		while (lengthOfLength < 4 && (length >> 8 * lengthOfLength) != 0) {
+			lengthOfLength++;
+		}
+
+		int codeLength = lengthOfLength;
+		if (length >= 128) {
+			axdrOStream.write((byte) ((lengthOfLength & 0xff) | 0x80));
+			codeLength++;
+		}
+		for (int i = lengthOfLength - 1; i >= 0; i--) {
+			axdrOStream.write((length >> 8 * (i)) & 0xff);
+		}
+
+		return codeLength;
+	}
+
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		return encodeLength(axdrOStream, length);
+	}
+
+	/**
+	 * @return Number of bytes {@link #encodeLength(AxdrByteBufferOutputStream, int)} writes for the given length
+	 */
+	public static int sizeOf(int length) {
+		if (length == 0) {
+			return 1;
+		}
+
+		int lengthOfLength = 1;
+		while (lengthOfLength < 4 && (length >> 8 * lengthOfLength) != 0) {
+			lengthOfLength++;
+		}
+
+		return length >= 128 ? lengthOfLength + 1 : lengthOfLength;
+	}
+
 	public int encode(AxdrByteArrayOutputStream axdrOStream) throws IOException {
 		int codeLength = 0;
 
@@ -62,6 +106,43 @@ public class AxdrLength {
 		return codeLength;
 	}
 
+	/**
+	 * Decodes a length from the buffer and advances its position behind the code
+	 * 
+	 * @return The decoded length
+	 */
+	public static int decodeLength(ByteBuffer buffer) throws IOException {
+		int position = buffer.position();
+		if (position == buffer.limit()) {
+			throw new IOException("Error Decoding AxdrLength");
+		}
+
+		int length = buffer.get(position++) & 0xff;
+
+		if ((length & 0x80) == 0x80) {
+			int encodedLength = length ^ 0x80;
+			if (encodedLength > 4 || buffer.limit() - position < encodedLength) {
+				throw new IOException("Error Decoding AxdrLength");
+			}
+			length = 0;
+			for (int i = 0; i < encodedLength; i++) {
+				length = (length << 8) | (buffer.get(position++) & 0xff);
+			}
+			if (length < 0) {
+				throw new IOException("Error Decoding AxdrLength");
+			}
+		}
+
+		buffer.position(position);
+		return length;
+	}
+
+	public int decode(ByteBuffer buffer) throws IOException {
+		int position = buffer.position();
+		length = decodeLength(buffer);
+		return buffer.position() - position;
+	}
+
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
 
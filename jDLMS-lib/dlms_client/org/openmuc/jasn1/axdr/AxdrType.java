@@ -23,9 +23,36 @@ package org.openmuc.jasn1.axdr;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface AxdrType extends Cloneable {
 	int encode(AxdrByteArrayOutputStream axdrOStream) throws IOException;
 
+	/**
+	 * Encodes this object from front to back. Produces the same code as {@link #encode(AxdrByteArrayOutputStream)}.
+	 * 
+	 * @return Number of bytes written
+	 */
+	int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException;
+
+	/**
+	 * Computes the number of bytes {@link #encode(AxdrByteBufferOutputStream)} would write without encoding anything.
+	 * 
+	 * @return Length of the code of this object
+	 */
+	int sizeOf() throws IOException;
+
 	int decode(InputStream iStream) throws IOException;
+
+	/**
+	 * Decodes this object from the remaining bytes of the buffer and advances its position behind the code.
+	 * 
+	 * @param buffer
+	 *            Buffer holding the code
+	 * @param shareBuffer
+	 *            If true, decoded octet strings are views on the buffer instead of copies. The content of the buffer
+	 *            must not change as long as the decoded object is in use
+	 * @return Number of bytes read
+	 */
+	int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException;
 }
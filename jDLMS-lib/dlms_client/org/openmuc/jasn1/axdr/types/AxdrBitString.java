@@ -23,9 +23,11 @@ package org.openmuc.jasn1.axdr.types;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrLength;
 import org.openmuc.jasn1.axdr.AxdrType;
 
@@ -63,6 +65,31 @@ public class AxdrBitString implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+		int codeLength = bitString.length;
+
+		if (maxBits == 0) {
+			codeLength += AxdrLength.encodeLength(axdrOStream, codeLength * 8);
+		}
+
+		axdrOStream.write(bitString);
+
+		return codeLength;
+	}
+
+	@Override
+	public int sizeOf() {
+		int codeLength = bitString.length;
+
+		if (maxBits == 0) {
+			codeLength += AxdrLength.sizeOf(codeLength * 8);
+		}
+
+		return codeLength;
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = maxBits / 8;
@@ -86,6 +113,26 @@ public class AxdrBitString implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int position = buffer.position();
+		int length = maxBits;
+
+		if (length == 0) {
+			length = AxdrLength.decodeLength(buffer);
+		}
+
+		length = length % 8 == 0 ? length / 8 : length / 8 + 1;
+
+		if (buffer.remaining() < length) {
+			throw new IOException("Error Decoding AxdrBitString");
+		}
+		bitString = new byte[length];
+		buffer.get(bitString);
+
+		return buffer.position() - position;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (o != null && o instanceof AxdrBitString) {
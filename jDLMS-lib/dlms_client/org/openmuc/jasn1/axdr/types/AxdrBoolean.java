@@ -23,8 +23,10 @@ package org.openmuc.jasn1.axdr.types;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 
 public class AxdrBoolean implements AxdrType {
@@ -60,6 +62,27 @@ public class AxdrBoolean implements AxdrType {
 		return 1;
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+
+		if (code != null) {
+			axdrOStream.write(code);
+		}
+		else if (val == true) {
+			axdrOStream.write((byte) 0x01);
+		}
+		else {
+			axdrOStream.write((byte) 0x00);
+		}
+
+		return 1;
+	}
+
+	@Override
+	public int sizeOf() {
+		return 1;
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		if (iStream.available() == 0) {
@@ -78,6 +101,17 @@ public class AxdrBoolean implements AxdrType {
 		return 1;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		if (buffer.hasRemaining() == false) {
+			return 0;
+		}
+
+		val = buffer.get() != 0x00;
+
+		return 1;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream berOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(berOStream);
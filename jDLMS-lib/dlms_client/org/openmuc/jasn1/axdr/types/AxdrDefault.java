@@ -24,8 +24,10 @@ package org.openmuc.jasn1.axdr.types;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 
 public class AxdrDefault<T extends AxdrType> {
@@ -58,6 +60,27 @@ public class AxdrDefault<T extends AxdrType> {
 		return codeLength;
 	}
 
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		int codeLength = 0;
+
+		boolean usage = !value.equals(defaultValue);
+
+		codeLength += new AxdrBoolean(usage).encode(axdrOStream);
+
+		if (usage) {
+			codeLength += value.encode(axdrOStream);
+		}
+
+		return codeLength;
+	}
+
+	public int sizeOf() throws IOException {
+		if (value.equals(defaultValue) == false) {
+			return 1 + value.sizeOf();
+		}
+		return 1;
+	}
+
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
 
@@ -74,6 +97,22 @@ public class AxdrDefault<T extends AxdrType> {
 		return codeLength;
 	}
 
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		AxdrBoolean axdrUsage = new AxdrBoolean();
+		codeLength += axdrUsage.decode(buffer, shareBuffer);
+
+		if (axdrUsage.getValue()) {
+			codeLength += value.decode(buffer, shareBuffer);
+		}
+		else {
+			setValueToDefault();
+		}
+
+		return codeLength;
+	}
+
 	public T getValue() {
 		return value;
 	}
@@ -23,8 +23,10 @@ package org.openmuc.jasn1.axdr.types;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 
 public class AxdrInteger implements AxdrType {
@@ -95,6 +97,56 @@ public class AxdrInteger implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		int codeLength = 0;
+
+		if (code != null) {
+			codeLength = code.length;
+			axdrOStream.write(code);
+		}
+		else {
+			if (isFixedLength) {
+				codeLength = Math.max(getByteLength(minVal), getByteLength(maxVal));
+
+				for (int i = codeLength - 1; i >= 0; i--) {
+					axdrOStream.write(((int) (val >> 8 * (i))) & 0xff);
+				}
+			}
+			else {
+				if (val >= 0 && val <= 127) {
+					codeLength = 1;
+				}
+				else {
+					codeLength = getByteLength(val);
+				}
+
+				axdrOStream.write((byte) ((codeLength & 0xff) | 0x80));
+
+				for (int i = codeLength - 1; i >= 0; i--) {
+					axdrOStream.write(((int) (val >> 8 * (i))) & 0xff);
+				}
+
+				codeLength++;
+			}
+		}
+		return codeLength;
+	}
+
+	@Override
+	public int sizeOf() {
+		if (code != null) {
+			return code.length;
+		}
+		if (isFixedLength) {
+			return Math.max(getByteLength(minVal), getByteLength(maxVal));
+		}
+		if (val >= 0 && val <= 127) {
+			return 2;
+		}
+		return getByteLength(val) + 1;
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -141,6 +193,52 @@ public class AxdrInteger implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int position = buffer.position();
+		int codeLength;
+		int length;
+
+		if (isFixedLength) {
+			length = Math.max(getByteLength(minVal), getByteLength(maxVal));
+			codeLength = length;
+		}
+		else {
+			if (position == buffer.limit()) {
+				throw new IOException("Error Decoding AxdrInteger");
+			}
+			byte first = buffer.get(position);
+
+			if ((first & 0x80) == 0x80) {
+				length = first & 0x7f;
+				codeLength = length + 1;
+				position++;
+			}
+			else {
+				val = first;
+				buffer.position(position + 1);
+				return 1;
+			}
+		}
+
+		if (length > 8 || buffer.limit() - position < length) {
+			throw new IOException("Error Decoding AxdrInteger");
+		}
+
+		// Sign extension by starting with all bits set
+		long value = 0;
+		if (isUnsigned == false && length > 0 && buffer.get(position) < 0) {
+			value = -1;
+		}
+		for (int i = 0; i < length; i++) {
+			value = (value << 8) | (buffer.get(position + i) & 0xff);
+		}
+
+		val = value;
+		buffer.position(position + length);
+		return codeLength;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream berOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(berOStream);
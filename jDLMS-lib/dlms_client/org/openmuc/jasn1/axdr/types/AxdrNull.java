@@ -23,8 +23,10 @@ package org.openmuc.jasn1.axdr.types;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 
 public class AxdrNull implements AxdrType {
@@ -37,11 +39,26 @@ public class AxdrNull implements AxdrType {
 		return 0;
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		return 0;
+	}
+
+	@Override
+	public int sizeOf() {
+		return 0;
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		return 0;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		return 0;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (o != null & o instanceof AxdrNull) {
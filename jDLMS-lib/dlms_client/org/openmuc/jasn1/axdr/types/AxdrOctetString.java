@@ -23,9 +23,11 @@ package org.openmuc.jasn1.axdr.types;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrLength;
 import org.openmuc.jasn1.axdr.AxdrType;
 
@@ -33,6 +35,11 @@ public class AxdrOctetString implements AxdrType {
 
 	private byte[] octetString = new byte[0];
 
+	/**
+	 * Content as part of the decoded buffer, null once the content has been copied to octetString
+	 */
+	private ByteBuffer view = null;
+
 	private int length = 0;
 
 	public AxdrOctetString() {
@@ -60,6 +67,7 @@ public class AxdrOctetString implements AxdrType {
 
 	@Override
 	public int encode(AxdrByteArrayOutputStream axdrOStream) throws IOException {
+		byte[] octetString = getValue();
 
 		int codeLength = 0;
 		axdrOStream.write(octetString);
@@ -73,6 +81,33 @@ public class AxdrOctetString implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		byte[] octetString = getValue();
+
+		int codeLength = 0;
+
+		if (length == 0) {
+			codeLength += AxdrLength.encodeLength(axdrOStream, octetString.length);
+		}
+
+		axdrOStream.write(octetString);
+		codeLength += octetString.length;
+
+		return codeLength;
+	}
+
+	@Override
+	public int sizeOf() {
+		int codeLength = view == null ? octetString.length : view.remaining();
+
+		if (length == 0) {
+			codeLength += AxdrLength.sizeOf(codeLength);
+		}
+
+		return codeLength;
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 
@@ -86,6 +121,7 @@ public class AxdrOctetString implements AxdrType {
 			length = l.getValue();
 			octetString = new byte[length];
 		}
+		view = null;
 
 		if (length != 0) {
 			if (iStream.read(octetString, 0, length) < length) {
@@ -98,11 +134,38 @@ public class AxdrOctetString implements AxdrType {
 
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int position = buffer.position();
+		int length = this.length;
+
+		if (length == 0) {
+			length = AxdrLength.decodeLength(buffer);
+		}
+
+		if (buffer.remaining() < length) {
+			throw new IOException("Error Decoding AxdrOctetString");
+		}
+
+		if (shareBuffer) {
+			view = buffer.slice();
+			view.limit(length);
+			buffer.position(buffer.position() + length);
+		}
+		else {
+			octetString = new byte[length];
+			buffer.get(octetString);
+			view = null;
+		}
+
+		return buffer.position() - position;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (o != null && o instanceof AxdrOctetString) {
 			AxdrOctetString other = (AxdrOctetString) o;
-			if (Arrays.equals(other.octetString, octetString) && other.length == length) {
+			if (Arrays.equals(other.getValue(), getValue()) && other.length == length) {
 				return true;
 			}
 		}
@@ -112,7 +175,7 @@ public class AxdrOctetString implements AxdrType {
 	@Override
 	public int hashCode() {
 		int hash = 0;
-		for (byte b : octetString) {
+		for (byte b : getValue()) {
 			hash += b;
 		}
 		return hash ^ length;
@@ -120,13 +183,31 @@ public class AxdrOctetString implements AxdrType {
 
 	@Override
 	public String toString() {
-		return new String(octetString);
+		return new String(getValue());
 	}
 
 	public byte[] getValue() {
+		if (view != null) {
+			octetString = new byte[view.remaining()];
+			view.duplicate().get(octetString);
+			view = null;
+		}
 		return octetString;
 	}
 
+	/**
+	 * Returns the content without copying it. If the octet string has been decoded with a shared buffer the result is
+	 * a view on that buffer.
+	 * 
+	 * @return Buffer positioned at the first byte of the content
+	 */
+	public ByteBuffer getBuffer() {
+		if (view != null) {
+			return view.duplicate();
+		}
+		return ByteBuffer.wrap(octetString);
+	}
+
 	/**
 	 * Converts a String representing a hexadecimal byte string into a byte array
 	 * 
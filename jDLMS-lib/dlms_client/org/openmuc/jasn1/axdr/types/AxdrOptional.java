@@ -23,8 +23,10 @@ package org.openmuc.jasn1.axdr.types;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrType;
 
 public class AxdrOptional<T extends AxdrType> {
@@ -52,6 +54,25 @@ public class AxdrOptional<T extends AxdrType> {
 		return codeLength;
 	}
 
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		int codeLength = 0;
+
+		codeLength += new AxdrBoolean(usage).encode(axdrOStream);
+
+		if (usage) {
+			codeLength += value.encode(axdrOStream);
+		}
+
+		return codeLength;
+	}
+
+	public int sizeOf() throws IOException {
+		if (usage) {
+			return 1 + value.sizeOf();
+		}
+		return 1;
+	}
+
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
 
@@ -67,6 +88,21 @@ public class AxdrOptional<T extends AxdrType> {
 		return codeLength;
 	}
 
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int codeLength = 0;
+
+		AxdrBoolean axdrUsage = new AxdrBoolean();
+		codeLength += axdrUsage.decode(buffer, shareBuffer);
+
+		usage = axdrUsage.getValue();
+
+		if (usage) {
+			codeLength += value.decode(buffer, shareBuffer);
+		}
+
+		return codeLength;
+	}
+
 	public void setUsed(boolean use) {
 		usage = use;
 	}
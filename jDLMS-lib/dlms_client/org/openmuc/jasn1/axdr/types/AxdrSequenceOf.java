@@ -23,6 +23,7 @@ package org.openmuc.jasn1.axdr.types;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -30,6 +31,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.AxdrLength;
 import org.openmuc.jasn1.axdr.AxdrType;
 
@@ -86,6 +88,51 @@ public abstract class AxdrSequenceOf<E extends AxdrType> implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int encode(AxdrByteBufferOutputStream axdrOStream) throws IOException {
+		int codeLength;
+
+		if (code != null) {
+			codeLength = code.length;
+			axdrOStream.write(code);
+		}
+		else {
+			if (length != null && length != seqOf.size()) {
+				throw new IOException("Error decoding AxdrSequenceOf: Size of elements does not match.");
+			}
+
+			codeLength = 0;
+			if (length == null) {
+				codeLength += AxdrLength.encodeLength(axdrOStream, seqOf.size());
+			}
+
+			for (E element : seqOf) {
+				codeLength += element.encode(axdrOStream);
+			}
+
+		}
+
+		return codeLength;
+	}
+
+	@Override
+	public int sizeOf() throws IOException {
+		if (code != null) {
+			return code.length;
+		}
+
+		int codeLength = 0;
+		if (length == null) {
+			codeLength += AxdrLength.sizeOf(seqOf.size());
+		}
+
+		for (E element : seqOf) {
+			codeLength += element.sizeOf();
+		}
+
+		return codeLength;
+	}
+
 	@Override
 	public int decode(InputStream iStream) throws IOException {
 		int codeLength = 0;
@@ -109,6 +156,27 @@ public abstract class AxdrSequenceOf<E extends AxdrType> implements AxdrType {
 		return codeLength;
 	}
 
+	@Override
+	public int decode(ByteBuffer buffer, boolean shareBuffer) throws IOException {
+		int position = buffer.position();
+		int numElements = this.length == null ? 0 : this.length;
+
+		if (numElements == 0) {
+			numElements = AxdrLength.decodeLength(buffer);
+		}
+
+		// Every element takes at least one byte except for nulls, the capacity is only a hint
+		seqOf = new ArrayList<E>(Math.min(numElements, buffer.remaining()));
+
+		for (int i = 0; i < numElements; i++) {
+			E subElem = createListElement();
+			subElem.decode(buffer, shareBuffer);
+			seqOf.add(subElem);
+		}
+
+		return buffer.position() - position;
+	}
+
 	public void encodeAndSave(int encodingSizeGuess) throws IOException {
 		AxdrByteArrayOutputStream axdrOStream = new AxdrByteArrayOutputStream(encodingSizeGuess);
 		encode(axdrOStream);
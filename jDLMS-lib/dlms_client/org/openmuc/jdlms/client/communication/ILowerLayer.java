@@ -21,6 +21,7 @@
 package org.openmuc.jdlms.client.communication;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * This interface is to be implemented by lower layer connection objects to provide a consistent calling API for its
@@ -52,6 +53,16 @@ public interface ILowerLayer<E> {
 	 */
 	void send(byte[] data) throws IOException;
 
+	/**
+	 * Sends the remaining bytes of the passed buffer to the remote client. The buffer is no longer referenced once this
+	 * method returns, so the caller may reuse it right away.
+	 * 
+	 * @param data
+	 *            Data to be sent
+	 * @throws IOException
+	 */
+	void send(ByteBuffer data) throws IOException;
+
 	/**
 	 * Gracefully close the connection to the remote end point. It is up to the lower layer connection implementing this
 	 * interface if the remote end point shall be sent a disconnection message or not
@@ -120,6 +120,13 @@ public class HdlcClientLayer implements IUpperLayer, ILowerLayer<Object> {
 		}
 	}
 
+	@Override
+	public void send(ByteBuffer data) throws IOException {
+		byte[] array = new byte[data.remaining()];
+		data.get(array);
+		send(array);
+	}
+
 	@Override
 	public void disconnect() throws IOException {
 		state.disconnect(this);
@@ -21,14 +21,13 @@
 package org.openmuc.jdlms.client.impl;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.ServiceLoader;
 
 import org.openmuc.jdlms.client.ClientConnectionSettings;
 import org.openmuc.jdlms.client.ClientConnectionSettings.ConfirmedMode;
 import org.openmuc.jdlms.client.IClientConnection;
 import org.openmuc.jdlms.client.IClientConnectionFactory;
+import org.openmuc.jdlms.client.IConnectionHealthCheck;
 import org.openmuc.jdlms.client.communication.ILowerLayer;
 import org.openmuc.jdlms.client.cosem.context.MechanismName;
 
@@ -41,13 +40,67 @@ import org.openmuc.jdlms.client.cosem.context.MechanismName;
 public class ClientConnectionFactory implements IClientConnectionFactory {
 
 	// Used to pool created connections
-	private final Map<ClientConnectionSettings, IClientConnection> connections = new HashMap<ClientConnectionSettings, IClientConnection>(
-			16);
+	private final ConnectionPool<ClientConnectionSettings, IClientConnection> connections = new ConnectionPool<ClientConnectionSettings, IClientConnection>(
+			new ConnectionHandler());
 
 	private final ConnectModule connectModule = new ConnectModule();
 
 	private ServiceLoader<ILowerLayerFactory> factoryService;
 
+	private volatile IConnectionHealthCheck healthCheck = null;
+
+	/**
+	 * Sets the number of connections that may be established at the same time. Further calls of connect wait until a
+	 * running connection attempt has finished. Defaults to {@link ConnectModule#DEFAULT_MAX_CONCURRENT_CONNECTS}
+	 * 
+	 * @param max
+	 *            Maximum number of parallel connection attempts
+	 */
+	public void setMaxConcurrentConnects(int max) {
+		connectModule.setMaxConcurrentConnects(max);
+	}
+
+	/**
+	 * Sets the maximum number of pooled connections. If more connections are created, the least recently requested
+	 * connections are removed from the pool and disconnected gracefully. Unbounded by default.
+	 * 
+	 * @param max
+	 *            Maximum number of pooled connections
+	 */
+	public void setMaxConnections(int max) {
+		connections.setMaxTotal(max);
+	}
+
+	/**
+	 * Sets the maximum number of pooled connections that have been disconnected. Connections that have not been
+	 * connected yet are not counted, as their users are still about to connect them. Surplus connections are removed
+	 * from the pool, least recently requested first. Unbounded by default.
+	 * 
+	 * @param max
+	 *            Maximum number of idle pooled connections
+	 */
+	public void setMaxIdleConnections(int max) {
+		connections.setMaxIdle(max);
+	}
+
+	/**
+	 * Sets the check every pooled connection has to pass before it is handed out again. Connections failing the check
+	 * are closed and replaced by a new connection.
+	 * 
+	 * @param healthCheck
+	 *            The check to use, or null to disable health checks
+	 */
+	public void setHealthCheck(IConnectionHealthCheck healthCheck) {
+		this.healthCheck = healthCheck;
+	}
+
+	/**
+	 * @return The pool of created connections, providing hit, miss and eviction counters
+	 */
+	public ConnectionPool<ClientConnectionSettings, IClientConnection> getConnectionPool() {
+		return connections;
+	}
+
 	@Override
 	public IClientConnection createClientConnection(ClientConnectionSettings settings) throws IOException {
 		// Guard conditions
@@ -55,65 +108,65 @@ public class ClientConnectionFactory implements IClientConnectionFactory {
 			throw new IllegalArgumentException("ConnectionSettings not fully parametrized");
 		}
 
-		IClientConnection result;
+		// A connection with this settings that has already been created is
+		// reused
+		return connections.checkout(settings);
+	}
 
-		if (connections.containsKey(settings)) {
-			// A connection with this settings has already been created
-			// reuse that
-			result = connections.get(settings);
+	private IClientConnection createConnection(ClientConnectionSettings settings) throws IOException {
+		IClientConnection result;
+		ILowerLayer<Object> lowerLayer = null;
+		ILowerLayerFactory factory = getLowerLayerFactory(settings.getClass());
+		if (factory == null) {
+			throw new IllegalArgumentException("No connection builder for " + settings.getClass() + " found");
 		}
-		else {
-			ILowerLayer<Object> lowerLayer = null;
-			if (factoryService == null) {
-				factoryService = ServiceLoader.load(ILowerLayerFactory.class);
-			}
-
-			ILowerLayerFactory factory = getLowerLayerFactory(settings.getClass());
-			if (factory == null) {
-				throw new IllegalArgumentException("No connection builder for " + settings.getClass() + " found");
-			}
 
-			lowerLayer = factory.build(settings);
-
-			MechanismName mechanism = null;
-
-			switch (settings.getAuthentication()) {
-			case LOWEST:
-				mechanism = MechanismName.LOWEST;
-				break;
-			case LOW:
-				mechanism = MechanismName.LOW;
-				break;
-			case HIGH_MD5:
-				mechanism = MechanismName.HIGH_MD5;
-				break;
-			case HIGH_SHA1:
-				mechanism = MechanismName.HIGH_SHA1;
-				break;
-			default:
-				throw new IllegalArgumentException("Unknown authentication method: " + settings.getAuthentication());
-			}
-
-			switch (settings.getReferencingMethod()) {
-			case LN:
-				result = new LNConnection(settings.getConfirmedMode() == ConfirmedMode.CONFIRMED, mechanism,
-						lowerLayer, connectModule);
-				break;
-			case SN:
-				result = new SNConnection(settings.getConfirmedMode() == ConfirmedMode.CONFIRMED, mechanism,
-						lowerLayer, connectModule);
-				break;
-			default:
-				throw new IllegalArgumentException("Unknown referencing method: " + settings.getReferencingMethod());
-			}
+		lowerLayer = factory.build(settings);
+
+		MechanismName mechanism = null;
+
+		switch (settings.getAuthentication()) {
+		case LOWEST:
+			mechanism = MechanismName.LOWEST;
+			break;
+		case LOW:
+			mechanism = MechanismName.LOW;
+			break;
+		case HIGH_MD5:
+			mechanism = MechanismName.HIGH_MD5;
+			break;
+		case HIGH_SHA1:
+			mechanism = MechanismName.HIGH_SHA1;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown authentication method: " + settings.getAuthentication());
+		}
 
-			connections.put(settings, result);
+		switch (settings.getReferencingMethod()) {
+		case LN:
+			LNConnection lnConnection = new LNConnection(settings.getConfirmedMode() == ConfirmedMode.CONFIRMED,
+					mechanism, lowerLayer, connectModule, settings.getMaxPendingRequests());
+			lnConnection.setGetBatching(settings.getGetBatchWindow(), settings.getMaxGetBatchSize());
+			result = lnConnection;
+			break;
+		case SN:
+			SNConnection snConnection = new SNConnection(settings.getConfirmedMode() == ConfirmedMode.CONFIRMED,
+					mechanism, lowerLayer, connectModule);
+			snConnection.setShortNameMapStore(settings.getShortNameMapStore(), settings.getMeterIdentity());
+			result = snConnection;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown referencing method: " + settings.getReferencingMethod());
 		}
 
 		return result;
 	}
 
-	protected ILowerLayerFactory getLowerLayerFactory(Class<? extends ClientConnectionSettings> settingsClass) {
+	protected synchronized ILowerLayerFactory getLowerLayerFactory(
+			Class<? extends ClientConnectionSettings> settingsClass) {
+		if (factoryService == null) {
+			factoryService = ServiceLoader.load(ILowerLayerFactory.class);
+		}
 		for (ILowerLayerFactory factory : factoryService) {
 			if (factory.accepts(settingsClass)) {
 				return factory;
@@ -121,4 +174,35 @@ public class ClientConnectionFactory implements IClientConnectionFactory {
 		}
 		return null;
 	}
+
+	private class ConnectionHandler implements
+			ConnectionPool.IResourceHandler<ClientConnectionSettings, IClientConnection> {
+		@Override
+		public IClientConnection create(ClientConnectionSettings key) throws IOException {
+			return createConnection(key);
+		}
+
+		@Override
+		public boolean isIdle(IClientConnection resource) {
+			if (resource instanceof Connection && ((Connection) resource).hasBeenConnected() == false) {
+				// Just handed out, the user has not had the chance to connect it yet
+				return false;
+			}
+			return resource.isConnected() == false;
+		}
+
+		@Override
+		public boolean isHealthy(IClientConnection resource) {
+			IConnectionHealthCheck check = healthCheck;
+			return check == null || check.isHealthy(resource);
+		}
+
+		@Override
+		public void evict(IClientConnection resource, boolean healthy) {
+			if (resource.isConnected()) {
+				// Release the association with a RLRQ, unless the connection is broken anyway
+				resource.disconnect(healthy);
+			}
+		}
+	}
 }
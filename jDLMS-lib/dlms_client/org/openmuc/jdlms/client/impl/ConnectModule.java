@@ -22,6 +22,7 @@ package org.openmuc.jdlms.client.impl;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.util.Arrays;
 
@@ -47,19 +48,79 @@ import org.openmuc.jdlms.client.cosem.context.MechanismName;
  * Small module shared by all ClientConnections that realizes the complete connection sequence between client and smart
  * meter, authentication included
  * 
- * Only a single connection can be tried to established (read as the act of connecting to the device) at a time. If
- * multiple connections are opened parallel (e.g. at start up) this could be a bottleneck. It is recommended, that the
- * connections are opened sequentially, as that will happen anyway.
+ * Every connection attempt keeps its own handshake state, so several connections can be established at the same time.
+ * The number of parallel attempts is limited by {@link #setMaxConcurrentConnects(int)}, further attempts wait until a
+ * running one has finished.
  * 
  * @author Karsten Mueller-Bier
  */
-public class ConnectModule implements IUpperLayer {
+public class ConnectModule {
+
+	public static final int DEFAULT_MAX_CONCURRENT_CONNECTS = 64;
 
 	private final SecureRandom rand = new SecureRandom();
 
-	private final Object waitForReceiveLock = new Object();
-	private AARE_apdu response = null;
-	private Thread waitingThread = null;
+	private final Object permitLock = new Object();
+	private int maxConcurrentConnects = DEFAULT_MAX_CONCURRENT_CONNECTS;
+	private int activeConnects = 0;
+
+	/**
+	 * Sets the number of connections that may be established at the same time
+	 * 
+	 * @param max
+	 *            Maximum number of parallel connection attempts. Must be at least 1
+	 */
+	public void setMaxConcurrentConnects(int max) {
+		if (max < 1) {
+			throw new IllegalArgumentException("At least one connection attempt has to be allowed");
+		}
+		synchronized (permitLock) {
+			maxConcurrentConnects = max;
+			permitLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until another connection attempt may be started. Every successful call has to be followed by a call of
+	 * {@link #endConnect()}
+	 * 
+	 * @param timeout
+	 *            Time in milliseconds to wait. 0 waits indefinitely
+	 * @throws IOException
+	 *             If no attempt finished within the timeout
+	 */
+	public void beginConnect(long timeout) throws IOException {
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (permitLock) {
+			try {
+				while (activeConnects >= maxConcurrentConnects) {
+					if (timeout > 0) {
+						long remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0) {
+							throw new IOException("Too many connections are being established at the same time");
+						}
+						permitLock.wait(remaining);
+					}
+					else {
+						permitLock.wait();
+					}
+				}
+			} catch (InterruptedException e) {
+				throw new IOException("Attempt to connect was interrupted");
+			}
+			activeConnects++;
+		}
+	}
+
+	/**
+	 * Finishes a connection attempt started with {@link #beginConnect(long)}
+	 */
+	public void endConnect() {
+		synchronized (permitLock) {
+			activeConnects--;
+			permitLock.notify();
+		}
+	}
 
 	/**
 	 * Tries to open a DLMS/Cosem connection to the remote host
@@ -72,15 +133,14 @@ public class ConnectModule implements IUpperLayer {
 	 * @throws IOException
 	 *             Attempting to connect failed
 	 */
-	public synchronized InitiateResponse establishConnection(IAssociation association, long timeout, byte[] secret,
+	public InitiateResponse establishConnection(IAssociation association, long timeout, byte[] secret,
 			HlsSecretProcessor processor) throws IOException {
-		response = null;
-		waitingThread = null;
+		Handshake handshake = new Handshake();
 
 		ILowerLayer<Object> lowerLayer = null;
 		try {
 			lowerLayer = association.moveLowerLayer();
-			lowerLayer.registerReceivingListener(null, this);
+			lowerLayer.registerReceivingListener(null, handshake);
 
 			MechanismName authName = association.getAuthName();
 
@@ -100,20 +160,7 @@ public class ConnectModule implements IUpperLayer {
 
 			COSEMpdu xdlmsResponse = new COSEMpdu();
 			if (association.isConfirmedMode()) {
-				synchronized (waitForReceiveLock) {
-					try {
-						if (response == null) {
-							waitingThread = Thread.currentThread();
-							waitForReceiveLock.wait(timeout);
-							if (response == null) {
-								throw new IOException("Device does not respond to DLMS connect");
-							}
-						}
-					} catch (InterruptedException e) {
-						throw new IOException("Attempt to connect was interrupted");
-					}
-				}
-				AARE_apdu aare = response;
+				AARE_apdu aare = handshake.waitForResponse(timeout);
 				if (aare.result.val != 0) {
 					lowerLayer.disconnect();
 					long errorCode;
@@ -126,7 +173,7 @@ public class ConnectModule implements IUpperLayer {
 					throw new IOException("Error on establishing connection. Error code: " + errorCode);
 				}
 
-				xdlmsResponse.decode(new ByteArrayInputStream(aare.user_information.axdr_frame.octetString));
+				xdlmsResponse.decode(ByteBuffer.wrap(aare.user_information.axdr_frame.octetString), false);
 
 				// Step 3 and 4 of HLS
 				if (usingHls(authName)) {
@@ -157,36 +204,12 @@ public class ConnectModule implements IUpperLayer {
 
 		} finally {
 			if (lowerLayer != null) {
-				lowerLayer.removeReceivingListener(this);
+				lowerLayer.removeReceivingListener(handshake);
 				association.setLowerLayer(lowerLayer);
 			}
 		}
 	}
 
-	@Override
-	public void dataReceived(byte[] data) {
-		AARE_apdu aare = new AARE_apdu();
-		COSEMpdu cpdu = new COSEMpdu();
-		synchronized (waitForReceiveLock) {
-			try {
-				aare.decode(new ByteArrayInputStream(data), true);
-				response = aare;
-				waitForReceiveLock.notify();
-			} catch (IOException e) {
-				try {
-					cpdu.decode(new ByteArrayInputStream(data));
-				} catch (IOException e1) {
-					//TODO Log LoggingHelper.logStackTrace(e1, logger);
-				}
-			}
-		}
-	}
-
-	@Override
-	public void remoteDisconnect() {
-		waitingThread.interrupt();
-	}
-
 	private byte[] generateRandomSequence() {
 		// Random challenge must have a range of 8 to 64 bytes
 		int resultLength = rand.nextInt(57) + 8;
@@ -259,4 +282,59 @@ public class ConnectModule implements IUpperLayer {
 		return authName == MechanismName.HIGH_MANUFACTURER || authName == MechanismName.HIGH_MD5
 				|| authName == MechanismName.HIGH_SHA1;
 	}
+
+	/**
+	 * State of one connection attempt, receiving the AARE of the smart meter
+	 */
+	private static class Handshake implements IUpperLayer {
+		private AARE_apdu response = null;
+		private boolean disconnected = false;
+
+		public synchronized AARE_apdu waitForResponse(long timeout) throws IOException {
+			long deadline = System.currentTimeMillis() + timeout;
+			try {
+				while (response == null && disconnected == false) {
+					if (timeout > 0) {
+						long remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0) {
+							break;
+						}
+						wait(remaining);
+					}
+					else {
+						wait();
+					}
+				}
+			} catch (InterruptedException e) {
+				throw new IOException("Attempt to connect was interrupted");
+			}
+			if (response == null) {
+				if (disconnected) {
+					throw new IOException("Connection closed by remote host while connecting");
+				}
+				throw new IOException("Device does not respond to DLMS connect");
+			}
+			return response;
+		}
+
+		@Override
+		public void dataReceived(byte[] data) {
+			AARE_apdu aare = new AARE_apdu();
+			try {
+				aare.decode(new ByteArrayInputStream(data), true);
+				synchronized (this) {
+					response = aare;
+					notifyAll();
+				}
+			} catch (IOException e) {
+				//TODO Log LoggingHelper.logStackTrace(e, logger);
+			}
+		}
+
+		@Override
+		public synchronized void remoteDisconnect() {
+			disconnected = true;
+			notifyAll();
+		}
+	}
 }
@@ -20,8 +20,8 @@
  */
 package org.openmuc.jdlms.client.impl;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.openmuc.asn1.cosem.COSEMpdu;
@@ -31,7 +31,7 @@ import org.openmuc.asn1.cosem.InitiateResponse;
 import org.openmuc.asn1.cosem.Invoke_Id_And_Priority;
 import org.openmuc.asn1.cosem.Unsigned16;
 import org.openmuc.asn1.cosem.Unsigned8;
-import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
 import org.openmuc.jasn1.axdr.types.AxdrBoolean;
 import org.openmuc.jdlms.client.AccessResultCode;
 import org.openmuc.jdlms.client.GetRequest;
@@ -68,17 +68,28 @@ public abstract class Connection implements IClientConnection, IUpperLayer, IAss
 
 	private int timeoutCounter = 0;
 
-	private int invokeId = 0;
+	private final InvokeIdPool invokeIds;
 
 	private boolean connected;
 
+	/**
+	 * Set once the first connection attempt has succeeded
+	 */
+	private volatile boolean hasBeenConnected = false;
+
 	protected Connection(boolean confirmedMode, MechanismName authName, ApplicationContext appContext,
 			ILowerLayer<Object> lowerLayer, ConnectModule connectModule) {
+		this(confirmedMode, authName, appContext, lowerLayer, connectModule, 1);
+	}
+
+	protected Connection(boolean confirmedMode, MechanismName authName, ApplicationContext appContext,
+			ILowerLayer<Object> lowerLayer, ConnectModule connectModule, int maxPendingRequests) {
 		this.confirmedMode = confirmedMode;
 		this.authName = authName;
 		this.appContext = appContext;
 		this.lowerLayer = lowerLayer;
 		this.connectModule = connectModule;
+		invokeIds = new InvokeIdPool(maxPendingRequests);
 		connected = false;
 	}
 
@@ -105,13 +116,53 @@ public abstract class Connection implements IClientConnection, IUpperLayer, IAss
 	}
 
 	/**
-	 * Creates a InvokeId and Priority Byte with an incrementing Id
+	 * Reserves an InvokeId for a new request. If the maximum number of pending requests is reached, this method waits
+	 * until one of them has been answered. Each reserved id must be given back using {@link #releaseInvokeId(int)}
+	 * 
+	 * @param timeout
+	 *            Amount of milliseconds waited for a free InvokeId. 0 waits indefinitely
+	 * @return The reserved InvokeId
+	 * @throws IOException
+	 *             No InvokeId got free in time
+	 */
+	protected int acquireInvokeId(long timeout) throws IOException {
+		try {
+			int result = invokeIds.acquire(timeout);
+			if (result == -1) {
+				throw new IOException("Too many pending requests on this connection");
+			}
+			return result;
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while waiting for a free invoke id");
+		}
+	}
+
+	/**
+	 * Reserves a free InvokeId without waiting
 	 * 
+	 * @return The reserved InvokeId or -1 if all InvokeIds are in use
+	 */
+	protected int tryAcquireInvokeId() {
+		return invokeIds.tryAcquire();
+	}
+
+	/**
+	 * Gives back an InvokeId reserved by {@link #acquireInvokeId(long)} after its request has been completed
+	 */
+	protected void releaseInvokeId(int invokeId) {
+		invokeIds.release(invokeId);
+	}
+
+	/**
+	 * Creates a InvokeId and Priority Byte for the given Id
+	 * 
+	 * @param invokeId
+	 *            InvokeId reserved by {@link #acquireInvokeId(long)}
 	 * @param highPriority
 	 *            true if this message shall have high priority
 	 * @return The generated InvokeId Byte
 	 */
-	protected Invoke_Id_And_Priority getInvokeIdAndPriority(boolean highPriority) {
+	protected Invoke_Id_And_Priority getInvokeIdAndPriority(int invokeId, boolean highPriority) {
 		Invoke_Id_And_Priority result = new Invoke_Id_And_Priority();
 
 		result.getValues()[0] = (byte) (invokeId << 4);
@@ -122,7 +173,6 @@ public abstract class Connection implements IClientConnection, IUpperLayer, IAss
 			result.getValues()[0] |= 0x01;
 		}
 
-		invokeId = (invokeId + 1) % 16;
 		return result;
 	}
 
@@ -138,9 +188,13 @@ public abstract class Connection implements IClientConnection, IUpperLayer, IAss
 	 * @throws IOException
 	 */
 	protected void send(COSEMpdu pdu) throws IOException {
-		AxdrByteArrayOutputStream oStream = new AxdrByteArrayOutputStream(1000);
-		pdu.encode(oStream);
-		lowerLayer.send(oStream.getArray());
+		AxdrByteBufferOutputStream oStream = AxdrByteBufferOutputStream.obtain();
+		try {
+			pdu.encode(oStream);
+			lowerLayer.send(oStream.getByteBuffer());
+		} finally {
+			oStream.release();
+		}
 	}
 
 	/**
@@ -154,33 +208,38 @@ public abstract class Connection implements IClientConnection, IUpperLayer, IAss
 	protected InitiateResponse establishConnection(long timeout, byte[] secret, HlsSecretProcessor processor)
 			throws IOException {
 		if (connected == false) {
-			lowerLayer.connect(timeout);
-
+			connectModule.beginConnect(timeout);
 			try {
+				lowerLayer.connect(timeout);
+
 				InitiateResponse xdlmsResponse = connectModule.establishConnection(this, timeout, secret, processor);
 				negotiatedFeatures = xdlmsResponse.negotiated_conformance;
 				maxSendPduSize = (int) xdlmsResponse.server_max_receive_pdu_size.getValue();
 
 				connected = true;
+				hasBeenConnected = true;
 				return xdlmsResponse;
 			} catch (IllegalArgumentException ex) {
 				// An IllegalArgumentException is thrown if authentication
 				// failed. Close connection and rethrow as IOException
 				disconnect(true);
 				throw new IOException("Authentication error", ex);
+			} finally {
+				connectModule.endConnect();
 			}
 		}
 		return null;
 	}
 
 	private void discardPDU(COSEMpdu pdu) {
-		AxdrByteArrayOutputStream oStream = new AxdrByteArrayOutputStream(1000);
+		AxdrByteBufferOutputStream oStream = AxdrByteBufferOutputStream.obtain();
 		try {
 			pdu.encode(oStream);
 		} catch (IOException e) {
 			// ignore
 		}
 		lowerLayer.discardMessage(oStream.getArray());
+		oStream.release();
 	}
 
 	protected void receiveTimedOut(COSEMpdu pdu) {
@@ -212,6 +271,13 @@ public abstract class Connection implements IClientConnection, IUpperLayer, IAss
 		return connected;
 	}
 
+	/**
+	 * @return true if this connection has been connected at least once, even if it is disconnected now
+	 */
+	boolean hasBeenConnected() {
+		return hasBeenConnected;
+	}
+
 	@Override
 	public List<GetResult> get(long timeout, GetRequest... params) throws IOException {
 		return get(timeout, false, params);
@@ -234,9 +300,8 @@ public abstract class Connection implements IClientConnection, IUpperLayer, IAss
 
 	@Override
 	public void dataReceived(byte[] data) {
-		COSEMpdu pdu = new COSEMpdu();
 		try {
-			pdu.decode(new ByteArrayInputStream(data));
+			COSEMpdu pdu = decodePdu(data);
 
 			processPdu(pdu);
 			timeoutCounter = 0;
@@ -245,6 +310,15 @@ public abstract class Connection implements IClientConnection, IUpperLayer, IAss
 		}
 	}
 
+	/**
+	 * Decodes a received APDU. The lower layers hand over a new array for every APDU, so the result may share it
+	 */
+	protected COSEMpdu decodePdu(byte[] data) throws IOException {
+		COSEMpdu pdu = new COSEMpdu();
+		pdu.decode(ByteBuffer.wrap(data), true);
+		return pdu;
+	}
+
 	@Override
 	public void remoteDisconnect() {
 		disconnect(false);
@@ -252,9 +326,10 @@ public abstract class Connection implements IClientConnection, IUpperLayer, IAss
 
 	@Override
 	public void registerEventListener(IEventListener listener) {
-		if (eventListener == null) {
-			eventListener = listener;
+		if (eventListener != null && eventListener != listener) {
+			throw new IllegalStateException("Another event listener is already registered");
 		}
+		eventListener = listener;
 	}
 
 	@Override
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe pool of connection objects, each created once per key.
+ * 
+ * Concurrent requests for the same key wait for a single creation, requests for different keys do not block each
+ * other. The pool can be bounded in the total number of entries and in the number of idle entries. If a bound is
+ * exceeded, the least recently requested entries are evicted.
+ * 
+ * @param <K>
+ *            Key the resources are created from
+ * @param <V>
+ *            Type of the pooled resources
+ */
+public class ConnectionPool<K, V> {
+
+	/**
+	 * Callbacks used by the pool to manage its resources
+	 */
+	public interface IResourceHandler<K, V> {
+		/**
+		 * Creates a new resource for the given key
+		 */
+		V create(K key) throws IOException;
+
+		/**
+		 * @return true if the resource is not in use and can be evicted without affecting a user
+		 */
+		boolean isIdle(V resource);
+
+		/**
+		 * @return false if the resource is broken and has to be replaced
+		 */
+		boolean isHealthy(V resource);
+
+		/**
+		 * Releases a resource that has been removed from the pool
+		 * 
+		 * @param resource
+		 *            The removed resource
+		 * @param healthy
+		 *            false if the resource has been removed because it failed the health check
+		 */
+		void evict(V resource, boolean healthy);
+	}
+
+	private final IResourceHandler<K, V> handler;
+
+	private final ConcurrentMap<K, Slot<V>> slots = new ConcurrentHashMap<K, Slot<V>>();
+
+	/**
+	 * All slots holding a resource, in order of their last request. Also guards itself
+	 */
+	private final LinkedHashMap<K, Slot<V>> lru = new LinkedHashMap<K, Slot<V>>(16, 0.75f, true);
+
+	private volatile int maxTotal = Integer.MAX_VALUE;
+	private volatile int maxIdle = Integer.MAX_VALUE;
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final AtomicLong evictions = new AtomicLong(0);
+
+	public ConnectionPool(IResourceHandler<K, V> handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Returns the pooled resource for the given key. If no resource exists yet or the pooled resource is not healthy,
+	 * a new one is created.
+	 * 
+	 * @param key
+	 *            Key of the resource
+	 * @return The pooled resource
+	 * @throws IOException
+	 *             Creation of the resource failed
+	 */
+	public V checkout(K key) throws IOException {
+		while (true) {
+			Slot<V> slot = slots.get(key);
+			if (slot == null) {
+				Slot<V> newSlot = new Slot<V>();
+				slot = slots.putIfAbsent(key, newSlot);
+				if (slot == null) {
+					slot = newSlot;
+				}
+			}
+
+			V result;
+			V broken = null;
+			boolean created = false;
+			synchronized (slot) {
+				if (slot.removed) {
+					// Slot has been evicted in the meantime, start over
+					continue;
+				}
+
+				if (slot.resource != null && handler.isHealthy(slot.resource) == false) {
+					broken = slot.resource;
+					slot.resource = null;
+				}
+
+				if (slot.resource == null) {
+					try {
+						slot.resource = handler.create(key);
+					} catch (IOException e) {
+						slot.removed = true;
+						slots.remove(key, slot);
+						removeFromLru(key, slot);
+						throw e;
+					}
+					created = true;
+				}
+				result = slot.resource;
+			}
+
+			boolean pooled;
+			synchronized (lru) {
+				// The slot may have been removed after its lock has been released. Adding it again would keep a slot in
+				// the pool that is no longer reachable through slots
+				pooled = slot.removed == false;
+				if (pooled) {
+					lru.put(key, slot);
+				}
+			}
+
+			if (broken != null) {
+				evictions.incrementAndGet();
+				handler.evict(broken, false);
+			}
+
+			if (pooled == false) {
+				continue;
+			}
+
+			if (created) {
+				misses.incrementAndGet();
+				trim();
+			}
+			else {
+				hits.incrementAndGet();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Removes the resource of the given key from the pool. The resource itself is not released
+	 * 
+	 * @param key
+	 *            Key of the resource
+	 */
+	public void remove(K key) {
+		Slot<V> slot = slots.remove(key);
+		if (slot != null) {
+			synchronized (slot) {
+				slot.removed = true;
+				slot.resource = null;
+			}
+			removeFromLru(key, slot);
+		}
+	}
+
+	/**
+	 * Sets the maximum number of pooled resources. If more resources are created, the least recently used resources
+	 * are evicted, even if they are still in use.
+	 */
+	public void setMaxTotal(int maxTotal) {
+		if (maxTotal < 1) {
+			throw new IllegalArgumentException("Pool must be able to hold at least one entry");
+		}
+		this.maxTotal = maxTotal;
+		trim();
+	}
+
+	/**
+	 * Sets the maximum number of idle resources kept in the pool. Surplus idle resources are evicted, least recently
+	 * used first.
+	 */
+	public void setMaxIdle(int maxIdle) {
+		if (maxIdle < 0) {
+			throw new IllegalArgumentException("Maximum number of idle entries must not be negative");
+		}
+		this.maxIdle = maxIdle;
+		trim();
+	}
+
+	public int getMaxTotal() {
+		return maxTotal;
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	/**
+	 * @return Number of pooled resources
+	 */
+	public int size() {
+		synchronized (lru) {
+			return lru.size();
+		}
+	}
+
+	/**
+	 * @return Number of requests served by an already pooled resource
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of requests that created a new resource
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return Number of resources removed due to the pool bounds or a failed health check
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Evicts the least recently used resources until the pool is within its bounds again
+	 */
+	private void trim() {
+		List<Map.Entry<K, Slot<V>>> candidates = new ArrayList<Map.Entry<K, Slot<V>>>();
+
+		synchronized (lru) {
+			int surplus = lru.size() - maxTotal;
+			int idleSurplus = 0;
+			if (lru.size() > maxIdle) {
+				for (Slot<V> slot : lru.values()) {
+					if (isIdle(slot)) {
+						idleSurplus++;
+					}
+				}
+				idleSurplus -= maxIdle;
+			}
+
+			Iterator<Map.Entry<K, Slot<V>>> iter = lru.entrySet().iterator();
+			while ((surplus > 0 || idleSurplus > 0) && iter.hasNext()) {
+				Map.Entry<K, Slot<V>> entry = iter.next();
+				boolean idle = isIdle(entry.getValue());
+				if (surplus > 0 || idle) {
+					candidates.add(entry);
+					surplus--;
+					if (idle) {
+						idleSurplus--;
+					}
+				}
+			}
+		}
+
+		for (Map.Entry<K, Slot<V>> candidate : candidates) {
+			evict(candidate.getKey(), candidate.getValue());
+		}
+	}
+
+	private boolean isIdle(Slot<V> slot) {
+		V resource = slot.resource;
+		return resource == null || handler.isIdle(resource);
+	}
+
+	private void evict(K key, Slot<V> slot) {
+		V resource;
+		synchronized (slot) {
+			if (slot.removed) {
+				return;
+			}
+			slot.removed = true;
+			resource = slot.resource;
+			slot.resource = null;
+		}
+		slots.remove(key, slot);
+		removeFromLru(key, slot);
+
+		if (resource != null) {
+			evictions.incrementAndGet();
+			handler.evict(resource, true);
+		}
+	}
+
+	private void removeFromLru(K key, Slot<V> slot) {
+		synchronized (lru) {
+			Slot<V> current = lru.remove(key);
+			if (current != null && current != slot) {
+				// Key has already been pooled again with a new slot
+				lru.put(key, current);
+			}
+		}
+	}
+
+	private static class Slot<V> {
+		private volatile V resource = null;
+		private volatile boolean removed = false;
+	}
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openmuc.jasn1.axdr.AxdrLength;
+import org.openmuc.jdlms.client.Data;
+import org.openmuc.jdlms.client.Data.Choices;
+
+/**
+ * Converts between A-XDR encoded Data values and {@link Data} without building the
+ * {@link org.openmuc.asn1.cosem.Data} tree in between.
+ * 
+ * Decoding yields the same result as decoding the tree and converting it with
+ * {@link DataConverter#toApi(org.openmuc.asn1.cosem.Data)}, encoding writes the same bytes as encoding the result of
+ * {@link DataConverter#toPdu(Data)}.
+ */
+class DataCodec {
+
+	private static final int OCTET_STRING_TAG = 9;
+
+	/**
+	 * Decodes an A-XDR encoded Data value including all of its elements
+	 * 
+	 * @param code
+	 *            Encoded data
+	 * @param offset
+	 *            Index of the first byte of the value
+	 * @param limit
+	 *            Index behind the last byte that may be read
+	 * @return The decoded value
+	 * @throws IOException
+	 *             If the value is malformed or incomplete
+	 */
+	static Data decode(byte[] code, int offset, int limit) throws IOException {
+		Data result = new Data();
+		decode(code, offset, limit, result);
+		return result;
+	}
+
+	/**
+	 * @return Index behind the last byte of the decoded value
+	 */
+	private static int decode(byte[] code, int offset, int limit, Data result) throws IOException {
+		int tag = code[checkedEnd(offset + 1, limit) - 1] & 0xff;
+		offset++;
+
+		switch (tag) {
+		case 0: // null-data
+		case 255: // dont-care
+			result.setNull();
+			return offset;
+		case 1: // array
+		case 2: { // structure
+			long length = readLength(code, offset, limit);
+			int size = (int) (length >>> 32);
+			offset = (int) length;
+
+			// Every element takes at least one byte, a malformed size must not allocate a huge list
+			List<Data> elements = new ArrayList<Data>(Math.min(size, limit - offset));
+			for (int i = 0; i < size; i++) {
+				Data element = new Data();
+				offset = decode(code, offset, limit, element);
+				elements.add(element);
+			}
+
+			if (tag == 1) {
+				result.setArray(elements);
+			}
+			else {
+				result.setStructure(elements);
+			}
+			return offset;
+		}
+		case 3: // boolean
+			result.setbool(code[checkedEnd(offset + 1, limit) - 1] != 0);
+			return offset + 1;
+		case 4: { // bit-string
+			long length = readLength(code, offset, limit);
+			int bits = (int) (length >>> 32);
+			offset = (int) length;
+			int end = checkedEnd(offset + (bits + 7) / 8, limit);
+			result.setBitString(Arrays.copyOfRange(code, offset, end), 0);
+			return end;
+		}
+		case 5: // double-long
+			result.setInteger32(readInteger(code, offset, 4, limit, true));
+			return offset + 4;
+		case 6: // double-long-unsigned
+			result.setUnsigned32(readInteger(code, offset, 4, limit, false));
+			return offset + 4;
+		case 9: // octet-string
+		case 10: { // visible-string
+			long length = readLength(code, offset, limit);
+			int start = (int) length;
+			int end = checkedEnd(start + (int) (length >>> 32), limit);
+			if (tag == 9) {
+				result.setOctetString(Arrays.copyOfRange(code, start, end));
+			}
+			else {
+				result.setVisibleString(Arrays.copyOfRange(code, start, end));
+			}
+			return end;
+		}
+		case 13: // bcd
+			result.setBcd(readInteger(code, offset, 1, limit, true));
+			return offset + 1;
+		case 15: // integer
+			result.setInteger8(readInteger(code, offset, 1, limit, true));
+			return offset + 1;
+		case 16: // long
+			result.setInteger16(readInteger(code, offset, 2, limit, true));
+			return offset + 2;
+		case 17: // unsigned
+			result.setUnsigned8(readInteger(code, offset, 1, limit, false));
+			return offset + 1;
+		case 18: // long-unsigned
+			result.setUnsigned16(readInteger(code, offset, 2, limit, false));
+			return offset + 2;
+		case 19: { // compact-array
+			// Compact arrays are not supported yet, the value is skipped and left empty
+			int end = StreamingDataDecoder.scanData(code, offset - 1, limit);
+			if (end == -1) {
+				throw new IOException("Error decoding Data: Code is incomplete");
+			}
+			return end;
+		}
+		case 20: // long64
+			result.setInteger64(readInteger(code, offset, 8, limit, true));
+			return offset + 8;
+		case 21: // long64-unsigned
+			result.setUnsigned64(readInteger(code, offset, 8, limit, false));
+			return offset + 8;
+		case 22: // enum
+			result.setEnumerate(readInteger(code, offset, 1, limit, false));
+			return offset + 1;
+		case 23: // float32
+		case 24: // float64
+		case 25: // date-time
+		case 26: // date
+		case 27: { // time
+			long length = readLength(code, offset, limit);
+			int start = (int) length;
+			int end = checkedEnd(start + (int) (length >>> 32), limit);
+			ByteBuffer value = ByteBuffer.wrap(code, start, end - start);
+			if (tag == 23) {
+				result.setFloat32(value.getFloat());
+			}
+			else if (tag == 24) {
+				result.setFloat64(value.getDouble());
+			}
+			else if (tag == 25) {
+				result.setDateTime(DataConverter.toDateTime(value), true);
+			}
+			else if (tag == 26) {
+				result.setDate(DataConverter.toDate(value));
+			}
+			else {
+				result.setTime(DataConverter.toTime(value), true);
+			}
+			return end;
+		}
+		default:
+			throw new IOException("Error decoding Data: Unknown tag " + tag);
+		}
+	}
+
+	private static long readInteger(byte[] code, int offset, int length, int limit, boolean signed)
+			throws IOException {
+		checkedEnd(offset + length, limit);
+
+		// Sign extension by starting with all bits set
+		long value = 0;
+		if (signed && code[offset] < 0) {
+			value = -1;
+		}
+		for (int i = 0; i < length; i++) {
+			value = (value << 8) | (code[offset + i] & 0xff);
+		}
+		return value;
+	}
+
+	/**
+	 * @return Length and index behind the length field as returned by
+	 *         {@link StreamingDataDecoder#readLength(byte[], int, int)}
+	 */
+	private static long readLength(byte[] code, int offset, int limit) throws IOException {
+		long length = StreamingDataDecoder.readLength(code, offset, limit);
+		if (length == -1) {
+			throw new IOException("Error decoding Data: Code is incomplete");
+		}
+		return length;
+	}
+
+	private static int checkedEnd(int end, int limit) throws IOException {
+		if (end > limit) {
+			throw new IOException("Error decoding Data: Code is incomplete");
+		}
+		return end;
+	}
+
+	/**
+	 * Encodes a value into a {@link org.openmuc.asn1.cosem.Data} that holds only the code. The value can be sent as
+	 * part of a PDU like the result of {@link DataConverter#toPdu(Data)}.
+	 * 
+	 * @param data
+	 *            The value to encode
+	 * @return The encoded value
+	 * @throws IOException
+	 *             If the value cannot be encoded
+	 */
+	static org.openmuc.asn1.cosem.Data toPdu(Data data) throws IOException {
+		byte[] code = new byte[sizeOf(data)];
+		encode(data, ByteBuffer.wrap(code));
+		return new org.openmuc.asn1.cosem.Data(code);
+	}
+
+	/**
+	 * @return Number of bytes {@link #encode(Data, ByteBuffer)} writes for the value
+	 */
+	static int sizeOf(Data data) throws IOException {
+		switch (data.getChoiceIndex()) {
+		case NULL_DATA:
+		case DONT_CARE:
+			return 1;
+		case ARRAY:
+		case STRUCTURE: {
+			List<Data> elements = data.getComplex();
+			int size = 1 + AxdrLength.sizeOf(elements.size());
+			for (Data element : elements) {
+				size += sizeOf(element);
+			}
+			return size;
+		}
+		case BOOL:
+		case BCD:
+		case INTEGER:
+		case UNSIGNED:
+		case ENUMERATE:
+			return 2;
+		case LONG_INTEGER:
+		case LONG_UNSIGNED:
+			return 3;
+		case DOUBLE_LONG:
+		case DOUBLE_LONG_UNSIGNED:
+		case FLOAT32:
+			return 5;
+		case LONG64:
+		case LONG64_UNSIGNED:
+		case FLOAT64:
+			return 9;
+		case OCTET_STRING:
+		case VISIBLE_STRING: {
+			int length = data.getByteArray().length;
+			return 1 + AxdrLength.sizeOf(length) + length;
+		}
+		case BIT_STRING: {
+			int length = data.getByteArray().length;
+			if (bitStringLength(data) == 0) {
+				return 1 + AxdrLength.sizeOf(length * 8) + length;
+			}
+			return 1 + length;
+		}
+		case DATE_TIME:
+		case DATE:
+		case TIME:
+			// Always sent with a 12 byte buffer, see DataConverter.toPdu
+			return 14;
+		default:
+			throw new IOException("Error encoding Data: " + data.getChoiceIndex() + " not supported");
+		}
+	}
+
+	/**
+	 * Writes the A-XDR code of the value. The buffer must have {@link #sizeOf(Data)} bytes remaining.
+	 */
+	static void encode(Data data, ByteBuffer buffer) throws IOException {
+		Choices choice = data.getChoiceIndex();
+		if (choice == Choices.DATE_TIME) {
+			// Like DataConverter.toPdu, date-time values are sent as octet-string
+			buffer.put((byte) OCTET_STRING_TAG);
+		}
+		else {
+			buffer.put((byte) choice.getValue());
+		}
+
+		switch (choice) {
+		case NULL_DATA:
+		case DONT_CARE:
+			break;
+		case ARRAY:
+		case STRUCTURE: {
+			List<Data> elements = data.getComplex();
+			putLength(buffer, elements.size());
+			for (Data element : elements) {
+				encode(element, buffer);
+			}
+			break;
+		}
+		case BOOL:
+			buffer.put(data.getBoolean() ? (byte) 0x01 : 0x00);
+			break;
+		case BCD:
+		case INTEGER:
+		case UNSIGNED:
+		case ENUMERATE:
+			buffer.put((byte) data.getNumber().longValue());
+			break;
+		case LONG_INTEGER:
+		case LONG_UNSIGNED:
+			buffer.putShort((short) data.getNumber().longValue());
+			break;
+		case DOUBLE_LONG:
+		case DOUBLE_LONG_UNSIGNED:
+			buffer.putInt((int) data.getNumber().longValue());
+			break;
+		case LONG64:
+		case LONG64_UNSIGNED:
+			buffer.putLong(data.getNumber().longValue());
+			break;
+		case FLOAT32:
+			buffer.putFloat(data.getNumber().floatValue());
+			break;
+		case FLOAT64:
+			buffer.putDouble(data.getNumber().doubleValue());
+			break;
+		case OCTET_STRING:
+		case VISIBLE_STRING: {
+			byte[] value = data.getByteArray();
+			putLength(buffer, value.length);
+			buffer.put(value);
+			break;
+		}
+		case BIT_STRING: {
+			byte[] value = data.getByteArray();
+			if (bitStringLength(data) == 0) {
+				putLength(buffer, value.length * 8);
+			}
+			buffer.put(value);
+			break;
+		}
+		case DATE_TIME:
+			putLength(buffer, 12);
+			buffer.put(DataConverter.toDateTimeCode(data));
+			break;
+		case DATE:
+			putLength(buffer, 12);
+			buffer.put(DataConverter.toDateCode(data));
+			break;
+		case TIME:
+			putLength(buffer, 12);
+			buffer.put(DataConverter.toTimeCode(data));
+			break;
+		default:
+			throw new IOException("Error encoding Data: " + choice + " not supported");
+		}
+	}
+
+	/**
+	 * Number of bits of a bit string that is sent without length field, 0 if the length is sent. Checked like
+	 * {@link org.openmuc.jasn1.axdr.types.AxdrBitString#setValues(byte[])}
+	 */
+	private static int bitStringLength(Data data) {
+		int bits = data.getNumber().intValue();
+		int length = data.getByteArray().length;
+		if (bits != 0 && ((bits <= (length - 1) * 8 + 1) || (bits > length * 8))) {
+			throw new IllegalArgumentException("BitString size out of bounds");
+		}
+		return bits;
+	}
+
+	private static void putLength(ByteBuffer buffer, int length) {
+		if (length < 128) {
+			buffer.put((byte) length);
+			return;
+		}
+
+		int lengthOfLength = 1;
+		while (lengthOfLength < 4 && (length >> 8 * lengthOfLength) != 0) {
+			lengthOfLength++;
+		}
+		buffer.put((byte) (0x80 | lengthOfLength));
+		for (int i = lengthOfLength - 1; i >= 0; i--) {
+			buffer.put((byte) (length >> 8 * i));
+		}
+	}
+}
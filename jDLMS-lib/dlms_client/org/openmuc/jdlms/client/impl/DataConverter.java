@@ -20,6 +20,7 @@
  */
 package org.openmuc.jdlms.client.impl;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Calendar;
 import java.util.LinkedList;
@@ -53,6 +54,15 @@ public class DataConverter {
 
 	public static Data toApi(org.openmuc.asn1.cosem.Data pdu) {
 
+		if (pdu.code != null) {
+			// Received values are kept encoded, they are converted without building the ASN.1 tree first
+			try {
+				return DataCodec.decode(pdu.code, 0, pdu.code.length);
+			} catch (IOException e) {
+				throw new IllegalStateException("Error decoding Data: " + e.getMessage());
+			}
+		}
+
 		Data result = new Data();
 
 		org.openmuc.asn1.cosem.Data.Choices choice = pdu.getChoiceIndex();
@@ -148,44 +158,15 @@ public class DataConverter {
 		}
 
 		else if (choice == org.openmuc.asn1.cosem.Data.Choices.DATE_TIME) {
-			ByteBuffer data = ByteBuffer.wrap(pdu.date_time.getValue());
-			Calendar cal = Calendar.getInstance();
-			int year = data.get() << 8;
-			year |= (data.get() & 0xFF);
-			cal.set(Calendar.YEAR, year);
-			cal.set(Calendar.MONTH, data.get());
-			cal.set(Calendar.DAY_OF_MONTH, data.get());
-			data.get(); // Day of week. Not needed because we have set day of
-			// month earlier
-			cal.set(Calendar.HOUR, data.get());
-			cal.set(Calendar.MINUTE, data.get());
-			cal.set(Calendar.SECOND, data.get());
-			cal.set(Calendar.MILLISECOND, data.get() * 10);
-			int timeZoneOffset = data.get() << 8;
-			timeZoneOffset |= (data.get() & 0xFF);
-			cal.set(Calendar.ZONE_OFFSET, timeZoneOffset * 60000);
-			result.setDateTime(cal, true);
+			result.setDateTime(toDateTime(ByteBuffer.wrap(pdu.date_time.getValue())), true);
 		}
 
 		else if (choice == org.openmuc.asn1.cosem.Data.Choices.DATE) {
-			ByteBuffer data = ByteBuffer.wrap(pdu.date.getValue());
-			Calendar cal = Calendar.getInstance();
-			int year = data.get() << 8;
-			year |= (data.get() & 0xFF);
-			cal.set(Calendar.YEAR, year);
-			cal.set(Calendar.MONTH, data.get());
-			cal.set(Calendar.DAY_OF_MONTH, data.get());
-			result.setDate(cal);
+			result.setDate(toDate(ByteBuffer.wrap(pdu.date.getValue())));
 		}
 
 		else if (choice == org.openmuc.asn1.cosem.Data.Choices.TIME) {
-			ByteBuffer data = ByteBuffer.wrap(pdu.time.getValue());
-			Calendar cal = Calendar.getInstance();
-			cal.set(Calendar.HOUR, data.get());
-			cal.set(Calendar.MINUTE, data.get());
-			cal.set(Calendar.SECOND, data.get());
-			cal.set(Calendar.MILLISECOND, data.get() * 10);
-			result.setTime(cal, true);
+			result.setTime(toTime(ByteBuffer.wrap(pdu.time.getValue())), true);
 		}
 
 		else if (choice == org.openmuc.asn1.cosem.Data.Choices.DONT_CARE) {
@@ -195,6 +176,42 @@ public class DataConverter {
 		return result;
 	}
 
+	static Calendar toDateTime(ByteBuffer data) {
+		Calendar cal = toDate(data);
+		data.get(); // Day of week. Not needed because we have set day of
+		// month earlier
+		setTime(cal, data);
+		short timeZoneOffset = data.getShort();
+		// 0x8000 marks the deviation as not specified
+		if (timeZoneOffset != (short) 0x8000) {
+			cal.set(Calendar.ZONE_OFFSET, timeZoneOffset * 60000);
+		}
+		return cal;
+	}
+
+	static Calendar toDate(ByteBuffer data) {
+		Calendar cal = Calendar.getInstance();
+		cal.set(Calendar.YEAR, data.getShort() & 0xFFFF);
+		// DLMS counts months from 1, Calendar from 0
+		cal.set(Calendar.MONTH, data.get() - 1);
+		cal.set(Calendar.DAY_OF_MONTH, data.get());
+		return cal;
+	}
+
+	static Calendar toTime(ByteBuffer data) {
+		Calendar cal = Calendar.getInstance();
+		setTime(cal, data);
+		return cal;
+	}
+
+	private static void setTime(Calendar cal, ByteBuffer data) {
+		cal.set(Calendar.HOUR_OF_DAY, data.get());
+		cal.set(Calendar.MINUTE, data.get());
+		cal.set(Calendar.SECOND, data.get());
+		int hundredths = data.get() & 0xFF;
+		cal.set(Calendar.MILLISECOND, hundredths == 0xFF ? 0 : hundredths * 10);
+	}
+
 	public static org.openmuc.asn1.cosem.Data toPdu(Data data) {
 		org.openmuc.asn1.cosem.Data result = new org.openmuc.asn1.cosem.Data();
 
@@ -206,61 +223,15 @@ public class DataConverter {
 		}
 
 		if (choice == Choices.TIME) {
-			Calendar cal = data.getCalendar();
-			buffer = ByteBuffer.allocate(12);
-			buffer.put((byte) cal.get(Calendar.HOUR));
-			buffer.put((byte) cal.get(Calendar.MINUTE));
-			buffer.put((byte) cal.get(Calendar.SECOND));
-			buffer.put((byte) (data.useMilliseconds() ? cal.get(Calendar.MILLISECOND / 10) : 0xFF));
-
-			result.settime(new AxdrOctetString(buffer.array()));
+			result.settime(new AxdrOctetString(toTimeCode(data)));
 		}
 
 		if (choice == Choices.DATE) {
-			Calendar cal = data.getCalendar();
-
-			// Convert between Calendar.Day_OF_WEEK (defining Sunday as 1) and
-			// DLMS
-			// DayOfWeek (defining Monday as 1 and Sunday as 7)
-			int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK) - 1;
-			if (dayOfWeek == 0) {
-				dayOfWeek = 7;
-			}
-
-			buffer = ByteBuffer.allocate(12);
-			buffer.putShort((short) cal.get(Calendar.YEAR));
-			buffer.put((byte) (cal.get(Calendar.MONTH) + 1));
-			buffer.put((byte) cal.get(Calendar.DAY_OF_MONTH));
-			buffer.put((byte) dayOfWeek);
-
-			result.setdate(new AxdrOctetString(buffer.array()));
+			result.setdate(new AxdrOctetString(toDateCode(data)));
 		}
 
 		if (choice == Choices.DATE_TIME) {
-			Calendar cal = data.getCalendar();
-
-			// Convert between Calendar.Day_OF_WEEK (defining Sunday as 1) and
-			// DLMS DayOfWeek (defining Monday as 1 and Sunday as 7)
-			int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK) - 1;
-			if (dayOfWeek == 0) {
-				dayOfWeek = 7;
-			}
-			// Calculate the offset of this time zone in minutes
-			int timeZoneOffset = cal.get(Calendar.ZONE_OFFSET) / 60000;
-
-			buffer = ByteBuffer.allocate(12);
-			buffer.putShort((short) cal.get(Calendar.YEAR));
-			buffer.put((byte) (cal.get(Calendar.MONTH) + 1));
-			buffer.put((byte) cal.get(Calendar.DAY_OF_MONTH));
-			buffer.put((byte) dayOfWeek);
-			buffer.put((byte) cal.get(Calendar.HOUR));
-			buffer.put((byte) cal.get(Calendar.MINUTE));
-			buffer.put((byte) cal.get(Calendar.SECOND));
-			buffer.put((byte) (data.useMilliseconds() ? cal.get(Calendar.MILLISECOND) / 10 : 0xFF));
-			buffer.putShort((short) timeZoneOffset);
-			buffer.put(cal.getTimeZone().inDaylightTime(cal.getTime()) ? (byte) 0x80 : 0x00);
-
-			result.setoctet_string(new AxdrOctetString(buffer.array()));
+			result.setoctet_string(new AxdrOctetString(toDateTimeCode(data)));
 		}
 
 		if (choice == Choices.FLOAT64) {
@@ -273,7 +244,7 @@ public class DataConverter {
 
 		if (choice == Choices.FLOAT32) {
 			buffer = ByteBuffer.allocate(4);
-			buffer.putDouble(data.getNumber().floatValue());
+			buffer.putFloat(data.getNumber().floatValue());
 			buffer.flip();
 
 			result.setfloat32(new AxdrOctetString(4, buffer.array()));
@@ -360,6 +331,61 @@ public class DataConverter {
 		return result;
 	}
 
+	static byte[] toTimeCode(Data data) {
+		Calendar cal = data.getCalendar();
+		ByteBuffer buffer = ByteBuffer.allocate(12);
+		buffer.put((byte) cal.get(Calendar.HOUR_OF_DAY));
+		buffer.put((byte) cal.get(Calendar.MINUTE));
+		buffer.put((byte) cal.get(Calendar.SECOND));
+		buffer.put((byte) (data.useMilliseconds() ? cal.get(Calendar.MILLISECOND) / 10 : 0xFF));
+		return buffer.array();
+	}
+
+	static byte[] toDateCode(Data data) {
+		Calendar cal = data.getCalendar();
+
+		// Convert between Calendar.Day_OF_WEEK (defining Sunday as 1) and
+		// DLMS
+		// DayOfWeek (defining Monday as 1 and Sunday as 7)
+		int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK) - 1;
+		if (dayOfWeek == 0) {
+			dayOfWeek = 7;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(12);
+		buffer.putShort((short) cal.get(Calendar.YEAR));
+		buffer.put((byte) (cal.get(Calendar.MONTH) + 1));
+		buffer.put((byte) cal.get(Calendar.DAY_OF_MONTH));
+		buffer.put((byte) dayOfWeek);
+		return buffer.array();
+	}
+
+	static byte[] toDateTimeCode(Data data) {
+		Calendar cal = data.getCalendar();
+
+		// Convert between Calendar.Day_OF_WEEK (defining Sunday as 1) and
+		// DLMS DayOfWeek (defining Monday as 1 and Sunday as 7)
+		int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK) - 1;
+		if (dayOfWeek == 0) {
+			dayOfWeek = 7;
+		}
+		// Calculate the offset of this time zone in minutes
+		int timeZoneOffset = cal.get(Calendar.ZONE_OFFSET) / 60000;
+
+		ByteBuffer buffer = ByteBuffer.allocate(12);
+		buffer.putShort((short) cal.get(Calendar.YEAR));
+		buffer.put((byte) (cal.get(Calendar.MONTH) + 1));
+		buffer.put((byte) cal.get(Calendar.DAY_OF_MONTH));
+		buffer.put((byte) dayOfWeek);
+		buffer.put((byte) cal.get(Calendar.HOUR_OF_DAY));
+		buffer.put((byte) cal.get(Calendar.MINUTE));
+		buffer.put((byte) cal.get(Calendar.SECOND));
+		buffer.put((byte) (data.useMilliseconds() ? cal.get(Calendar.MILLISECOND) / 10 : 0xFF));
+		buffer.putShort((short) timeZoneOffset);
+		buffer.put(cal.getTimeZone().inDaylightTime(cal.getTime()) ? (byte) 0x80 : 0x00);
+		return buffer.array();
+	}
+
 	public static GetResult toApi(Get_Data_Result pdu) {
 		GetResult result = null;
 
@@ -379,30 +405,13 @@ public class DataConverter {
 
 		StringBuilder sb = new StringBuilder();
 		for (Byte b : pdu.cosem_attribute_descriptor.instance_id.getValue()) {
-			sb.append(Integer.toHexString((int) b & 0xFF));
+			sb.append(String.format("%02x", b & 0xFF));
 		}
 		String obisCode = sb.toString();
 
 		Long timestamp = null;
 		if (pdu.time.isUsed()) {
-			ByteBuffer data = ByteBuffer.wrap(pdu.time.getValue().getValue());
-			Calendar cal = Calendar.getInstance();
-			int year = data.get() << 8;
-			year |= (data.get() & 0xFF);
-			cal.set(Calendar.YEAR, year);
-			cal.set(Calendar.MONTH, data.get());
-			cal.set(Calendar.DAY_OF_MONTH, data.get());
-			data.get(); // Day of week. Not needed because we have set day of
-			// month earlier
-			cal.set(Calendar.HOUR, data.get());
-			cal.set(Calendar.MINUTE, data.get());
-			cal.set(Calendar.SECOND, data.get());
-			cal.set(Calendar.MILLISECOND, data.get() * 10);
-			int timeZoneOffset = data.get() << 8;
-			timeZoneOffset |= (data.get() & 0xFF);
-			cal.set(Calendar.ZONE_OFFSET, timeZoneOffset * 60000);
-
-			timestamp = cal.getTimeInMillis();
+			timestamp = toTimestamp(pdu.time.getValue().getValue());
 		}
 
 		Data newValue = null;
@@ -413,4 +422,15 @@ public class DataConverter {
 		EventNotification result = new EventNotification(classId, obisCode, attributeId, newValue, timestamp);
 		return result;
 	}
+
+	/**
+	 * Converts a date-time octet string as defined in IEC 62056-62 into a point in time
+	 * 
+	 * @param dateTime
+	 *            The 12 bytes of the date-time
+	 * @return Milliseconds since 1970-01-01 UTC
+	 */
+	public static long toTimestamp(byte[] dateTime) {
+		return toDateTime(ByteBuffer.wrap(dateTime)).getTimeInMillis();
+	}
 }
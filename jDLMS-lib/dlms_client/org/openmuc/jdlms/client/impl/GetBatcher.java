@@ -0,0 +1,160 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.openmuc.jdlms.client.GetRequest;
+import org.openmuc.jdlms.client.GetResult;
+
+/**
+ * Combines single attribute GET requests issued by several threads at nearly the same time into one
+ * Get_Request_With_List.
+ * 
+ * The first thread of a batch waits at most {@code window} milliseconds for other requests to join, or until
+ * {@code maxSize} requests have been collected. It then sends all collected requests at once and hands each caller the
+ * result at its position of the Get_Response_With_List. No additional thread is needed.
+ */
+public class GetBatcher {
+
+	private final LNConnection connection;
+	private final long window;
+	private final int maxSize;
+
+	private Batch current = null;
+
+	/**
+	 * @param window
+	 *            Amount of milliseconds the first request of a batch waits for other requests. Must be positive
+	 * @param maxSize
+	 *            Maximal number of requests in one batch. Must be at least 2
+	 */
+	public GetBatcher(LNConnection connection, long window, int maxSize) {
+		if (window <= 0) {
+			throw new IllegalArgumentException("Batch window must be positive");
+		}
+		if (maxSize < 2) {
+			throw new IllegalArgumentException("Batch size must be at least 2");
+		}
+		this.connection = connection;
+		this.window = window;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Reads a single attribute as part of the next batch
+	 * 
+	 * @param timeout
+	 *            Amount of milliseconds to wait for the response, not counting the time waited for the batch to fill
+	 */
+	public GetResult get(long timeout, GetRequest param) throws IOException {
+		Batch batch;
+		int index;
+		boolean leader = false;
+
+		synchronized (this) {
+			if (current == null) {
+				current = new Batch();
+				leader = true;
+			}
+			batch = current;
+			index = batch.params.size();
+			batch.params.add(param);
+			if (batch.params.size() >= maxSize) {
+				current = null;
+				notifyAll();
+			}
+		}
+
+		if (leader) {
+			send(batch, timeout);
+		}
+
+		List<GetResult> results;
+		try {
+			results = batch.get(window + timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while waiting for incoming response");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException("Error on receiving response: " + cause.getMessage(), cause);
+		} catch (TimeoutException e) {
+			throw new IOException("Device is not responding to GET");
+		}
+		return results.get(index);
+	}
+
+	private void send(Batch batch, long timeout) {
+		GetRequest[] params;
+		synchronized (this) {
+			long deadline = System.currentTimeMillis() + window;
+			long remaining = window;
+			while (current == batch && remaining > 0) {
+				try {
+					wait(remaining);
+				} catch (InterruptedException e) {
+					// Send what has been collected so far
+					Thread.currentThread().interrupt();
+					break;
+				}
+				remaining = deadline - System.currentTimeMillis();
+			}
+			if (current == batch) {
+				current = null;
+			}
+			params = batch.params.toArray(new GetRequest[batch.params.size()]);
+		}
+
+		try {
+			List<GetResult> results = connection.getUnbatched(timeout, false, params);
+			if (results.size() != params.length) {
+				batch.fail(new IOException("Smart meter sent " + results.size() + " results for " + params.length
+						+ " requests"));
+			}
+			else {
+				batch.complete(results);
+			}
+		} catch (IOException e) {
+			batch.fail(e);
+		} catch (RuntimeException e) {
+			batch.fail(new IOException("Error on processing response", e));
+		}
+	}
+
+	private static class Batch extends ResponseFuture<List<GetResult>> {
+		/**
+		 * Guarded by the enclosing GetBatcher
+		 */
+		private final List<GetRequest> params = new ArrayList<GetRequest>();
+
+		public Batch() {
+			super(null);
+		}
+	}
+}
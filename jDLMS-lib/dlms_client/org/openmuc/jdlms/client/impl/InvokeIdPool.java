@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out the 4 bit invoke ids of one association and keeps track of which of them are still waiting for a
+ * response. At most {@code maxPending} ids are in use at the same time, further requests wait until a previous request
+ * has been completed.
+ *
+ * Ids are handed out round robin, so a late response to an aborted request is unlikely to be matched to the next
+ * request.
+ */
+public class InvokeIdPool {
+
+	public static final int NUMBER_OF_IDS = 16;
+
+	private final Semaphore window;
+	private final boolean[] inUse = new boolean[NUMBER_OF_IDS];
+	private int nextId = 0;
+
+	/**
+	 * @param maxPending
+	 *            Number of requests that may be in flight at the same time. Must be between 1 and 16
+	 */
+	public InvokeIdPool(int maxPending) {
+		if (maxPending < 1 || maxPending > NUMBER_OF_IDS) {
+			throw new IllegalArgumentException("Number of pending requests out of range [1, " + NUMBER_OF_IDS + "]");
+		}
+		window = new Semaphore(maxPending, true);
+	}
+
+	/**
+	 * Reserves a free invoke id
+	 *
+	 * @param timeout
+	 *            Amount of milliseconds waited for a free id. 0 waits indefinitely
+	 * @return The reserved invoke id or -1 if no id got free within the timeout
+	 * @throws InterruptedException
+	 */
+	public int acquire(long timeout) throws InterruptedException {
+		if (timeout > 0) {
+			if (window.tryAcquire(timeout, TimeUnit.MILLISECONDS) == false) {
+				return -1;
+			}
+		}
+		else {
+			window.acquire();
+		}
+
+		return takeFreeId();
+	}
+
+	/**
+	 * Reserves a free invoke id without waiting
+	 *
+	 * @return The reserved invoke id or -1 if all ids are in use
+	 */
+	public int tryAcquire() {
+		if (window.tryAcquire() == false) {
+			return -1;
+		}
+		return takeFreeId();
+	}
+
+	private int takeFreeId() {
+		synchronized (inUse) {
+			// The semaphore guarantees that at least one id is free
+			while (inUse[nextId]) {
+				nextId = (nextId + 1) % NUMBER_OF_IDS;
+			}
+			int result = nextId;
+			inUse[result] = true;
+			nextId = (nextId + 1) % NUMBER_OF_IDS;
+			return result;
+		}
+	}
+
+	/**
+	 * Returns a formerly reserved invoke id to the pool
+	 *
+	 * @param invokeId
+	 *            The id returned by {@link #acquire(long)}
+	 */
+	public void release(int invokeId) {
+		synchronized (inUse) {
+			if (inUse[invokeId] == false) {
+				return;
+			}
+			inUse[invokeId] = false;
+		}
+		window.release();
+	}
+
+	/**
+	 * @return Number of invoke ids currently in use
+	 */
+	public int pending() {
+		int result = 0;
+		synchronized (inUse) {
+			for (boolean used : inUse) {
+				if (used) {
+					result++;
+				}
+			}
+		}
+		return result;
+	}
+}
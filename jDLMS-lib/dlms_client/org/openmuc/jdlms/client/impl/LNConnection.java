@@ -20,14 +20,25 @@
  */
 package org.openmuc.jdlms.client.impl;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.openmuc.asn1.cosem.ACTION_Request;
 import org.openmuc.asn1.cosem.ACTION_Response;
@@ -38,12 +49,14 @@ import org.openmuc.asn1.cosem.Action_Request_With_List;
 import org.openmuc.asn1.cosem.Action_Request_With_List_And_First_Pblock;
 import org.openmuc.asn1.cosem.Action_Request_With_Pblock;
 import org.openmuc.asn1.cosem.Action_Response_With_Optional_Data;
+import org.openmuc.asn1.cosem.Action_Response_With_Pblock;
 import org.openmuc.asn1.cosem.COSEMpdu;
 import org.openmuc.asn1.cosem.Conformance;
 import org.openmuc.asn1.cosem.Cosem_Attribute_Descriptor;
 import org.openmuc.asn1.cosem.Cosem_Attribute_Descriptor_With_Selection;
 import org.openmuc.asn1.cosem.Cosem_Method_Descriptor;
 import org.openmuc.asn1.cosem.Cosem_Object_Instance_Id;
+import org.openmuc.asn1.cosem.DataBlock_G;
 import org.openmuc.asn1.cosem.DataBlock_SA;
 import org.openmuc.asn1.cosem.GET_Request;
 import org.openmuc.asn1.cosem.GET_Response;
@@ -51,6 +64,9 @@ import org.openmuc.asn1.cosem.Get_Data_Result;
 import org.openmuc.asn1.cosem.Get_Request_Next;
 import org.openmuc.asn1.cosem.Get_Request_Normal;
 import org.openmuc.asn1.cosem.Get_Request_With_List;
+import org.openmuc.asn1.cosem.Get_Response_Normal;
+import org.openmuc.asn1.cosem.Get_Response_With_Datablock;
+import org.openmuc.asn1.cosem.Get_Response_With_List;
 import org.openmuc.asn1.cosem.Integer8;
 import org.openmuc.asn1.cosem.Invoke_Id_And_Priority;
 import org.openmuc.asn1.cosem.SET_Request;
@@ -64,9 +80,9 @@ import org.openmuc.asn1.cosem.Set_Request_With_List_And_First_Datablock;
 import org.openmuc.asn1.cosem.Unsigned16;
 import org.openmuc.asn1.cosem.Unsigned32;
 import org.openmuc.asn1.cosem.Unsigned8;
-import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrByteBufferOutputStream;
+import org.openmuc.jasn1.axdr.AxdrLength;
 import org.openmuc.jasn1.axdr.AxdrType;
-import org.openmuc.jasn1.axdr.NullOutputStream;
 import org.openmuc.jasn1.axdr.types.AxdrBoolean;
 import org.openmuc.jasn1.axdr.types.AxdrEnum;
 import org.openmuc.jasn1.axdr.types.AxdrOctetString;
@@ -76,6 +92,10 @@ import org.openmuc.jdlms.client.EventNotification;
 import org.openmuc.jdlms.client.GetRequest;
 import org.openmuc.jdlms.client.GetResult;
 import org.openmuc.jdlms.client.HlsSecretProcessor;
+import org.openmuc.jdlms.client.IAsyncClientConnection;
+import org.openmuc.jdlms.client.IDataStreamListener;
+import org.openmuc.jdlms.client.IResponseListener;
+import org.openmuc.jdlms.client.IStreamingClientConnection;
 import org.openmuc.jdlms.client.MethodRequest;
 import org.openmuc.jdlms.client.MethodResult;
 import org.openmuc.jdlms.client.MethodResultCode;
@@ -94,7 +114,7 @@ import org.openmuc.jdlms.util.ConformanceHelper;
  * 
  * @author Karsten Mueller-Bier
  */
-public class LNConnection extends Connection {
+public class LNConnection extends Connection implements IAsyncClientConnection, IStreamingClientConnection {
 
 	private static long DEFAULT_TIMEOUT = 30000;
 
@@ -110,13 +130,72 @@ public class LNConnection extends Connection {
 	private static Conformance PROPOSED_CONFORMANCE = new Conformance(new byte[] { (byte) 0x00, (byte) 0xBC,
 			(byte) 0x3F }, 24);
 
-	private final ResponseQueue<GET_Response> getResponseQueue = new ResponseQueue<GET_Response>();
-	private final ResponseQueue<SET_Response> setResponseQueue = new ResponseQueue<SET_Response>();
-	private final ResponseQueue<ACTION_Response> actionResponseQueue = new ResponseQueue<ACTION_Response>();
+	private volatile GetBatcher getBatcher = null;
+	/**
+	 * Number of list elements this smart meter accepts in a single request, learned from rejected requests. 0 if no
+	 * limit is known
+	 */
+	private volatile int maxListLength = 0;
+
+	private final ResponseTable<GET_Response> getResponses = new ResponseTable<GET_Response>();
+	private final ResponseTable<SET_Response> setResponses = new ResponseTable<SET_Response>();
+	private final ResponseTable<ACTION_Response> actionResponses = new ResponseTable<ACTION_Response>();
+
+	/**
+	 * Watches the timeouts of all asynchronous requests
+	 */
+	private static final ScheduledExecutorService timeoutTimer = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread result = new Thread(r, "DLMS request timeout Thread");
+					result.setDaemon(true);
+					return result;
+				}
+			});
+
+	/**
+	 * Asynchronous requests waiting for a response, indexed by their invoke id
+	 */
+	private final AtomicReferenceArray<AsyncRequest<?>> asyncRequests = new AtomicReferenceArray<AsyncRequest<?>>(
+			InvokeIdPool.NUMBER_OF_IDS);
+	/**
+	 * Asynchronous requests waiting for a free invoke id
+	 */
+	private final Queue<AsyncRequest<?>> asyncBacklog = new ConcurrentLinkedQueue<AsyncRequest<?>>();
 
 	public LNConnection(boolean confirmedMode, MechanismName authName, ILowerLayer<Object> lowerLayer,
 			ConnectModule connectModule) {
-		super(confirmedMode, authName, ApplicationContext.LOGICAL_NAME_NO_CIPHERING, lowerLayer, connectModule);
+		this(confirmedMode, authName, lowerLayer, connectModule, 1);
+	}
+
+	/**
+	 * @param maxPendingRequests
+	 *            Number of confirmed requests that may be sent to the smart meter before the first one has been
+	 *            answered. Must be between 1 and 16
+	 */
+	public LNConnection(boolean confirmedMode, MechanismName authName, ILowerLayer<Object> lowerLayer,
+			ConnectModule connectModule, int maxPendingRequests) {
+		super(confirmedMode, authName, ApplicationContext.LOGICAL_NAME_NO_CIPHERING, lowerLayer, connectModule,
+				maxPendingRequests);
+	}
+
+	/**
+	 * Enables combining single attribute GET requests of different threads into one request with list. Only used if
+	 * the smart meter supports multiple references.
+	 * 
+	 * @param window
+	 *            Amount of milliseconds the first request waits for further requests. 0 disables batching
+	 * @param maxSize
+	 *            Maximal number of requests sent at once
+	 */
+	public void setGetBatching(long window, int maxSize) {
+		if (window == 0) {
+			getBatcher = null;
+		}
+		else {
+			getBatcher = new GetBatcher(this, window, maxSize);
+		}
 	}
 
 	@Override
@@ -158,14 +237,174 @@ public class LNConnection extends Connection {
 			timeout = DEFAULT_TIMEOUT;
 		}
 
-		Invoke_Id_And_Priority id = getInvokeIdAndPriority(highPriority);
-		final int invokeId = (id.getValues()[0] & 0xF0) >>> 4;
+		GetBatcher batcher = getBatcher;
+		if (batcher != null && params.length == 1 && highPriority == false
+				&& ConformanceHelper.isMultipleReferenceAllowed(getNegotiatedFeatures())) {
+			List<GetResult> result = new ArrayList<GetResult>(1);
+			result.add(batcher.get(timeout, params[0]));
+			return result;
+		}
+
+		return getUnbatched(timeout, highPriority, params);
+	}
+
+	/**
+	 * Sends the given requests, bypassing the batching of single requests. Lists too large for a single PDU are split
+	 * into several requests
+	 */
+	List<GetResult> getUnbatched(long timeout, boolean highPriority, GetRequest... params) throws IOException {
+		if (params.length == 1) {
+			return getPlanned(timeout, highPriority, params);
+		}
+
+		int[] itemSizes = new int[params.length];
+		for (int i = 0; i < params.length; i++) {
+			itemSizes[i] = getPduSize(createListElement(params[i]));
+		}
+		int[] plan = RequestPlanner.plan(itemSizes, getMaxSendPduSize(), maxListLength);
+		if (plan.length == 2) {
+			return getPlanned(timeout, highPriority, params);
+		}
+
+		// Send all parts at once. They are sent back to back or, if several pending requests are allowed, pipelined
+		List<GetRequest[]> parts = new ArrayList<GetRequest[]>(plan.length - 1);
+		List<Future<List<GetResult>>> futures = new ArrayList<Future<List<GetResult>>>(plan.length - 1);
+		for (int i = 0; i < plan.length - 1; i++) {
+			GetRequest[] part = new GetRequest[plan[i + 1] - plan[i]];
+			System.arraycopy(params, plan[i], part, 0, part.length);
+			parts.add(part);
+			futures.add(getAsync(timeout, highPriority, null, part));
+		}
+
+		List<GetResult> result = new ArrayList<GetResult>(params.length);
+		for (int i = 0; i < futures.size(); i++) {
+			List<GetResult> partResult;
+			try {
+				partResult = futures.get(i).get();
+			} catch (InterruptedException e) {
+				cancelAll(futures);
+				throw new IOException("Interrupted while waiting for incoming response");
+			} catch (ExecutionException e) {
+				cancelAll(futures);
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				// e.g. malformed data in the response
+				throw new IOException("Error on receiving response: " + cause.getMessage(), cause);
+			} catch (CancellationException e) {
+				cancelAll(futures);
+				throw new IOException("Request has been cancelled", e);
+			}
+
+			result.addAll(checkListResult(timeout, highPriority, parts.get(i), partResult, false));
+		}
+		return result;
+	}
+
+	/**
+	 * Sends a request that has already been checked against the size limits of the smart meter
+	 */
+	private List<GetResult> getPlanned(long timeout, boolean highPriority, GetRequest... params) throws IOException {
+		List<GetResult> result = getSingle(timeout, highPriority, params);
+		return checkListResult(timeout, highPriority, params, result, false);
+	}
+
+	/**
+	 * Checks if the smart meter refused to process a list because it contained too many elements and resends the list
+	 * in two halves if it might have. This is assumed if it returned the wrong number of results or rejected every
+	 * element with TEMPORARY_FAILURE. The limit is only lowered if a half is refused with the wrong number of results
+	 * again, so a single answer of a busy smart meter does not slow down all later requests.
+	 * 
+	 * @param halved
+	 *            true if the list is one half of a list that has already been refused
+	 */
+	private List<GetResult> checkListResult(long timeout, boolean highPriority, GetRequest[] params,
+			List<GetResult> result, boolean halved) throws IOException {
+		if (params.length <= 1) {
+			return result;
+		}
+
+		boolean wrongCount = result.size() != params.length;
+		if (halved) {
+			if (wrongCount) {
+				// Refused again after halving, so the length of the list is the likely cause
+				learnMaxListLength(params.length);
+				return getUnbatched(timeout, highPriority, params);
+			}
+			return result;
+		}
+		if (wrongCount == false && isTemporaryListFailure(result) == false) {
+			return result;
+		}
+
+		int half = params.length / 2;
+		List<GetResult> retried = new ArrayList<GetResult>(params.length);
+		retried.addAll(getHalf(timeout, highPriority, Arrays.copyOfRange(params, 0, half)));
+		retried.addAll(getHalf(timeout, highPriority, Arrays.copyOfRange(params, half, params.length)));
+		return retried;
+	}
+
+	private List<GetResult> getHalf(long timeout, boolean highPriority, GetRequest[] params) throws IOException {
+		List<GetResult> result = getSingle(timeout, highPriority, params);
+		return checkListResult(timeout, highPriority, params, result, true);
+	}
+
+	/**
+	 * Checks if the smart meter rejected every element of a list with TEMPORARY_FAILURE. Other errors, like
+	 * OTHER_REASON, are reported for single attributes and say nothing about the length of the list
+	 */
+	private boolean isTemporaryListFailure(List<GetResult> result) {
+		for (GetResult res : result) {
+			if (res.getResultCode() != AccessResultCode.TEMPORARY_FAILURE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Lowers the maximal number of list elements sent to this smart meter after a list of the given length has been
+	 * rejected
+	 */
+	private void learnMaxListLength(int rejectedLength) {
+		if (rejectedLength <= 2) {
+			// Use single requests from now on
+			maxListLength = 1;
+			return;
+		}
+		int newLength = rejectedLength / 2;
+		if (maxListLength == 0 || newLength < maxListLength) {
+			maxListLength = newLength;
+		}
+	}
+
+	private static void cancelAll(List<? extends Future<?>> futures) {
+		for (Future<?> future : futures) {
+			future.cancel(false);
+		}
+	}
+
+	private List<GetResult> getSingle(long timeout, boolean highPriority, GetRequest... params) throws IOException {
+		int invokeId = acquireInvokeId(timeout);
+		getResponses.register(invokeId);
+		try {
+			return get(invokeId, timeout, highPriority, params);
+		} finally {
+			getResponses.unregister(invokeId);
+			releaseInvokeId(invokeId);
+		}
+	}
+
+	private List<GetResult> get(int invokeId, long timeout, boolean highPriority, GetRequest... params)
+			throws IOException {
+		Invoke_Id_And_Priority id = getInvokeIdAndPriority(invokeId, highPriority);
 		COSEMpdu pdu = createGetPdu(id, params);
 		send(pdu);
 
 		GET_Response response;
 		try {
-			response = getResponseQueue.poll(invokeId, timeout);
+			response = getResponses.poll(invokeId, timeout);
 			if (response == null) {
 				receiveTimedOut(pdu);
 				throw new IOException("Device is not responding to GET");
@@ -176,63 +415,128 @@ public class LNConnection extends Connection {
 			throw new IOException("Interrupted while waiting for incoming response");
 		}
 
-		List<GetResult> result = new ArrayList<GetResult>(params.length);
-		if (response.getChoiceIndex() == GET_Response.Choices.GET_RESPONSE_NORMAL) {
-			GetResult res = DataConverter.toApi(response.get_response_normal.result);
-			result.add(res);
+		if (response.getChoiceIndex() != GET_Response.Choices.GET_RESPONSE_WITH_DATABLOCK) {
+			return toGetResults(response, params.length);
 		}
-		else if (response.getChoiceIndex() == GET_Response.Choices.GET_RESPONSE_WITH_DATABLOCK) {
-			GET_Request getRequest = new GET_Request();
-			ByteArrayOutputStream datablocks = new ByteArrayOutputStream();
-			Get_Request_Next nextBlock = new Get_Request_Next();
-			nextBlock.invoke_id_and_priority = response.get_response_with_datablock.invoke_id_and_priority;
-			while (response.get_response_with_datablock.result.last_block.getValue() == false) {
-				datablocks.write(response.get_response_with_datablock.result.result.raw_data.getValue());
-
-				nextBlock.block_number = response.get_response_with_datablock.result.block_number;
-				getRequest.setget_request_next(nextBlock);
-				pdu.setget_request(getRequest);
-				send(pdu);
-
-				try {
-					response = getResponseQueue.poll(invokeId, timeout);
-					if (response == null) {
-						// Send PDU with wrong block number to indicate the device that the block transfer is
-						// aborted.
-						// This is the well defined behavior to abort a block transfer as in IEC 62056-53 section
-						// 7.4.1.8.2
-						receiveTimedOut(pdu);
-						send(pdu);
-						throw new IOException("Device not responding");
-					}
-				} catch (InterruptedException e) {
+
+		ByteArrayOutputStream datablocks = new ByteArrayOutputStream();
+		while (response.get_response_with_datablock.result.last_block.getValue() == false) {
+			appendRawData(datablocks, response.get_response_with_datablock.result.result.raw_data);
+
+			pdu = createGetNextPdu(response.get_response_with_datablock);
+			send(pdu);
+
+			try {
+				response = getResponses.poll(invokeId, timeout);
+				if (response == null) {
+					// Send PDU with wrong block number to indicate the device that the block transfer is
+					// aborted.
+					// This is the well defined behavior to abort a block transfer as in IEC 62056-53 section
+					// 7.4.1.8.2
 					receiveTimedOut(pdu);
-					//TODO LoggingHelper.logStackTrace(e, logger);
-					throw new IOException("Interrupted while waiting for incoming response");
+					send(pdu);
+					throw new IOException("Device not responding");
 				}
-			}
-			datablocks.write(response.get_response_with_datablock.result.result.raw_data.getValue());
-			InputStream dataByteStream = new ByteArrayInputStream(datablocks.toByteArray());
-			while (dataByteStream.available() > 0) {
-				org.openmuc.asn1.cosem.Data resultPduData = new org.openmuc.asn1.cosem.Data();
-				resultPduData.decode(dataByteStream);
-				Get_Data_Result getResult = new Get_Data_Result();
-				getResult.setdata(resultPduData);
-				GetResult res = DataConverter.toApi(getResult);
-				result.add(res);
+			} catch (InterruptedException e) {
+				receiveTimedOut(pdu);
+				//TODO LoggingHelper.logStackTrace(e, logger);
+				throw new IOException("Interrupted while waiting for incoming response");
 			}
 		}
-		else if (response.getChoiceIndex() == GET_Response.Choices.GET_RESPONSE_WITH_LIST) {
-			for (Get_Data_Result resultPdu : response.get_response_with_list.result.list()) {
-				GetResult res = DataConverter.toApi(resultPdu);
-				result.add(res);
+		appendRawData(datablocks, response.get_response_with_datablock.result.result.raw_data);
+
+		return toGetResults(datablocks.toByteArray(), params.length);
+	}
+
+	@Override
+	public AccessResultCode getStreamed(long timeout, IDataStreamListener listener, GetRequest param)
+			throws IOException {
+		return getStreamed(timeout, false, listener, param);
+	}
+
+	@Override
+	public AccessResultCode getStreamed(long timeout, boolean highPriority, IDataStreamListener listener,
+			GetRequest param) throws IOException {
+		if (isConnected() == false) {
+			throw new IOException("Connection closed. Call connect first");
+		}
+		if (timeout == 0) {
+			timeout = DEFAULT_TIMEOUT;
+		}
+
+		int invokeId = acquireInvokeId(timeout);
+		getResponses.register(invokeId);
+		try {
+			return getStreamed(invokeId, timeout, highPriority, listener, param);
+		} finally {
+			getResponses.unregister(invokeId);
+			releaseInvokeId(invokeId);
+		}
+	}
+
+	private AccessResultCode getStreamed(int invokeId, long timeout, boolean highPriority,
+			IDataStreamListener listener, GetRequest param) throws IOException {
+		Invoke_Id_And_Priority id = getInvokeIdAndPriority(invokeId, highPriority);
+		COSEMpdu pdu = createGetPdu(id, param);
+		send(pdu);
+		GET_Response response = waitForGetResponse(invokeId, timeout, pdu);
+
+		if (response.getChoiceIndex() == GET_Response.Choices.GET_RESPONSE_NORMAL) {
+			Get_Data_Result result = response.get_response_normal.result;
+			if (result.getChoiceIndex() != Get_Data_Result.Choices.DATA) {
+				return AccessResultCode.fromValue((int) result.data_access_result.getValue());
 			}
+			// The value has been kept encoded by decodePdu and is passed on like the raw data of a block transfer
+			StreamingDataDecoder decoder = new StreamingDataDecoder(listener);
+			decoder.write(result.data.code);
+			decoder.finish();
+			return AccessResultCode.SUCCESS;
 		}
-		else {
-			throw new UnsupportedOperationException("Unknown response type");
+		if (response.getChoiceIndex() != GET_Response.Choices.GET_RESPONSE_WITH_DATABLOCK) {
+			throw new IOException("Unexpected response to GET");
 		}
 
-		return result;
+		StreamingDataDecoder decoder = new StreamingDataDecoder(listener);
+		while (true) {
+			DataBlock_G block = response.get_response_with_datablock.result;
+			if (block.result.getChoiceIndex() == DataBlock_G.SubChoice_result.Choices.DATA_ACCESS_RESULT) {
+				return AccessResultCode.fromValue((int) block.result.data_access_result.getValue());
+			}
+			if (block.last_block.getValue()) {
+				decoder.write(block.result.raw_data.getBuffer());
+				decoder.finish();
+				return AccessResultCode.SUCCESS;
+			}
+
+			// Request the next block before decoding this one, so decoding overlaps with the transfer
+			pdu = createGetNextPdu(response.get_response_with_datablock);
+			send(pdu);
+			decoder.write(block.result.raw_data.getBuffer());
+
+			response = waitForGetResponse(invokeId, timeout, pdu);
+			if (response.getChoiceIndex() != GET_Response.Choices.GET_RESPONSE_WITH_DATABLOCK) {
+				throw new IOException("Unexpected response during block transfer");
+			}
+		}
+	}
+
+	/**
+	 * Waits for the response to a GET request. Aborts a running block transfer if the device does not respond in time
+	 */
+	private GET_Response waitForGetResponse(int invokeId, long timeout, COSEMpdu lastPdu) throws IOException {
+		GET_Response response;
+		try {
+			response = getResponses.poll(invokeId, timeout);
+		} catch (InterruptedException e) {
+			receiveTimedOut(lastPdu);
+			//TODO LoggingHelper.logStackTrace(e, logger);
+			throw new IOException("Interrupted while waiting for incoming response");
+		}
+		if (response == null) {
+			receiveTimedOut(lastPdu);
+			throw new IOException("Device is not responding to GET");
+		}
+		return response;
 	}
 
 	@Override
@@ -241,51 +545,32 @@ public class LNConnection extends Connection {
 			throw new IOException("Connection closed. Call connect first");
 		}
 
-		Invoke_Id_And_Priority id = getInvokeIdAndPriority(highPriority);
-		int invokeId = getInvokeId(id);
+		int invokeId = acquireInvokeId(timeout);
+		setResponses.register(invokeId);
+		try {
+			return set(invokeId, timeout, highPriority, params);
+		} finally {
+			setResponses.unregister(invokeId);
+			releaseInvokeId(invokeId);
+		}
+	}
+
+	private List<AccessResultCode> set(int invokeId, long timeout, boolean highPriority, SetRequest... params)
+			throws IOException {
+		Invoke_Id_And_Priority id = getInvokeIdAndPriority(invokeId, highPriority);
 		List<COSEMpdu> pdus = createSetPdu(id, params);
 		send(pdus.remove(0));
 
 		List<AccessResultCode> result = null;
 		if (isConfirmedMode()) {
-			SET_Response response = new SET_Response();
-			try {
-				response = setResponseQueue.poll(invokeId, timeout);
-			} catch (InterruptedException e) {
-				//TODO LoggingHelper.logStackTrace(e, logger);
-				throw new IOException("Interrupted while waiting for incoming response");
-			}
+			SET_Response response = waitForResponse(setResponses, invokeId, timeout);
 
 			while (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_DATABLOCK) {
 				send(pdus.remove(0));
-				try {
-					response = setResponseQueue.poll(invokeId, timeout);
-				} catch (InterruptedException e) {
-					//TODO LoggingHelper.logStackTrace(e, logger);
-					throw new IOException("Interrupted while waiting for incoming response");
-				}
+				response = waitForResponse(setResponses, invokeId, timeout);
 			}
 
-			result = new ArrayList<AccessResultCode>(params.length);
-			if (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_NORMAL) {
-				result.add(AccessResultCode.fromValue((int) response.set_response_normal.result.getValue()));
-			}
-			else if (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_WITH_LIST) {
-				for (AxdrEnum res : response.set_response_with_list.result.list()) {
-					result.add(AccessResultCode.fromValue((int) res.getValue()));
-				}
-			}
-			else if (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_LAST_DATABLOCK) {
-				result.add(AccessResultCode.fromValue((int) response.set_response_normal.result.getValue()));
-			}
-			else if (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_LAST_DATABLOCK_WITH_LIST) {
-				for (AxdrEnum res : response.set_response_last_datablock_with_list.result.list()) {
-					result.add(AccessResultCode.fromValue((int) res.getValue()));
-				}
-			}
-			else {
-				throw new UnsupportedOperationException("Unknown response type");
-			}
+			result = toSetResults(response, params.length);
 		}
 
 		return result;
@@ -297,112 +582,709 @@ public class LNConnection extends Connection {
 			throw new IOException("Connection closed. Call connect first");
 		}
 
-		Invoke_Id_And_Priority id = getInvokeIdAndPriority(highPriority);
-		int invokeId = getInvokeId(id);
+		int invokeId = acquireInvokeId(timeout);
+		actionResponses.register(invokeId);
+		try {
+			return action(invokeId, timeout, highPriority, params);
+		} finally {
+			actionResponses.unregister(invokeId);
+			releaseInvokeId(invokeId);
+		}
+	}
+
+	private List<MethodResult> action(int invokeId, long timeout, boolean highPriority, MethodRequest... params)
+			throws IOException {
+		Invoke_Id_And_Priority id = getInvokeIdAndPriority(invokeId, highPriority);
 		List<COSEMpdu> pdus = createActionPdu(id, params);
 		send(pdus.remove(0));
 
 		List<MethodResult> result = null;
 		if (isConfirmedMode()) {
-			ACTION_Response response = new ACTION_Response();
-			try {
-				response = actionResponseQueue.poll(invokeId, timeout);
-			} catch (InterruptedException e) {
-				//TODO LoggingHelper.logStackTrace(e, logger);
-				throw new IOException("Interrupted while waiting for incoming response");
-			}
+			ACTION_Response response = waitForResponse(actionResponses, invokeId, timeout);
 
 			while (response.getChoiceIndex() == ACTION_Response.Choices.ACTION_RESPONSE_NEXT_PBLOCK) {
 				send(pdus.remove(0));
+				response = waitForResponse(actionResponses, invokeId, timeout);
+			}
+
+			if (response.getChoiceIndex() != ACTION_Response.Choices.ACTION_RESPONSE_WITH_PBLOCK) {
+				return toActionResults(response, params.length);
+			}
+
+			ByteArrayOutputStream datablocks = new ByteArrayOutputStream();
+			while (response.action_response_with_pblock.pblock.last_block.getValue() == false) {
+				appendRawData(datablocks, response.action_response_with_pblock.pblock.raw_data);
+
+				send(createActionNextPdu(response.action_response_with_pblock));
+				response = waitForResponse(actionResponses, invokeId, timeout);
+			}
+			appendRawData(datablocks, response.action_response_with_pblock.pblock.raw_data);
+
+			result = toActionResults(datablocks.toByteArray(), params.length);
+		}
+
+		return result;
+	}
+
+	@Override
+	public Future<List<GetResult>> getAsync(long timeout, IResponseListener<List<GetResult>> listener,
+			GetRequest... params) throws IOException {
+		return getAsync(timeout, false, listener, params);
+	}
+
+	@Override
+	public Future<List<GetResult>> getAsync(long timeout, boolean highPriority,
+			IResponseListener<List<GetResult>> listener, GetRequest... params) throws IOException {
+		if (isConnected() == false) {
+			throw new IOException("Connection closed. Call connect first");
+		}
+
+		AsyncGet request = new AsyncGet(timeout, highPriority, listener, params);
+		request.submit();
+		return request;
+	}
+
+	@Override
+	public Future<List<AccessResultCode>> setAsync(long timeout, IResponseListener<List<AccessResultCode>> listener,
+			SetRequest... params) throws IOException {
+		return setAsync(timeout, false, listener, params);
+	}
+
+	@Override
+	public Future<List<AccessResultCode>> setAsync(long timeout, boolean highPriority,
+			IResponseListener<List<AccessResultCode>> listener, SetRequest... params) throws IOException {
+		if (isConnected() == false) {
+			throw new IOException("Connection closed. Call connect first");
+		}
+
+		AsyncSet request = new AsyncSet(timeout, highPriority, listener, params);
+		request.submit();
+		return request;
+	}
+
+	@Override
+	public Future<List<MethodResult>> actionAsync(long timeout, IResponseListener<List<MethodResult>> listener,
+			MethodRequest... params) throws IOException {
+		return actionAsync(timeout, false, listener, params);
+	}
+
+	@Override
+	public Future<List<MethodResult>> actionAsync(long timeout, boolean highPriority,
+			IResponseListener<List<MethodResult>> listener, MethodRequest... params) throws IOException {
+		if (isConnected() == false) {
+			throw new IOException("Connection closed. Call connect first");
+		}
+
+		AsyncAction request = new AsyncAction(timeout, highPriority, listener, params);
+		request.submit();
+		return request;
+	}
+
+	/**
+	 * GET responses carry the bulk of all received data. The values of normal responses and responses with list are
+	 * kept encoded, {@link DataConverter#toApi(org.openmuc.asn1.cosem.Data)} converts them straight to {@link Data}
+	 * without building their ASN.1 tree first.
+	 */
+	@Override
+	protected COSEMpdu decodePdu(byte[] data) throws IOException {
+		if (data.length < 3 || (data[0] & 0xff) != COSEMpdu.Choices.GET_RESPONSE.getValue()) {
+			return super.decodePdu(data);
+		}
+		int responseType = data[1];
+		if (responseType != GET_Response.Choices.GET_RESPONSE_NORMAL.getValue()
+				&& responseType != GET_Response.Choices.GET_RESPONSE_WITH_LIST.getValue()) {
+			return super.decodePdu(data);
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(data, 2, data.length - 2);
+		Invoke_Id_And_Priority id = new Invoke_Id_And_Priority();
+		id.decode(buffer, true);
+
+		GET_Response response = new GET_Response();
+		if (responseType == GET_Response.Choices.GET_RESPONSE_NORMAL.getValue()) {
+			response.setget_response_normal(new Get_Response_Normal(id, decodeGetDataResult(buffer)));
+		}
+		else {
+			int length = AxdrLength.decodeLength(buffer);
+			Get_Response_With_List.SubSeqOf_result results = new Get_Response_With_List.SubSeqOf_result();
+			for (int i = 0; i < length; i++) {
+				results.add(decodeGetDataResult(buffer));
+			}
+			response.setget_response_with_list(new Get_Response_With_List(id, results));
+		}
+
+		COSEMpdu pdu = new COSEMpdu();
+		pdu.setget_response(response);
+		return pdu;
+	}
+
+	private static Get_Data_Result decodeGetDataResult(ByteBuffer buffer) throws IOException {
+		Get_Data_Result result = new Get_Data_Result();
+		int position = buffer.position();
+		if (buffer.hasRemaining() && buffer.get(position) == Get_Data_Result.Choices.DATA.getValue()) {
+			byte[] code = buffer.array();
+			int end = scanData(code, position + 1);
+			result.setdata(new org.openmuc.asn1.cosem.Data(Arrays.copyOfRange(code, position + 1, end)));
+			buffer.position(end);
+		}
+		else {
+			result.decode(buffer, true);
+		}
+		return result;
+	}
+
+	@Override
+	public void processPdu(COSEMpdu pdu) {
+		if (pdu.getChoiceIndex() == COSEMpdu.Choices.GET_RESPONSE) {
+			int invokeId = PduHelper.getInvokeId(pdu.get_response);
+			if (dispatchAsync(invokeId, pdu) == false) {
+				getResponses.put(invokeId, pdu.get_response);
+			}
+		}
+		else if (pdu.getChoiceIndex() == COSEMpdu.Choices.SET_RESPONSE) {
+			int invokeId = PduHelper.getInvokeId(pdu.set_response);
+			if (dispatchAsync(invokeId, pdu) == false) {
+				setResponses.put(invokeId, pdu.set_response);
+			}
+		}
+		else if (pdu.getChoiceIndex() == COSEMpdu.Choices.ACTION_RESPONSE) {
+			int invokeId = PduHelper.getInvokeId(pdu.action_response);
+			if (dispatchAsync(invokeId, pdu) == false) {
+				actionResponses.put(invokeId, pdu.action_response);
+			}
+		}
+		else if (pdu.getChoiceIndex() == COSEMpdu.Choices.EVENT_NOTIFICATION_REQUEST) {
+			if (getEventListener() != null) {
+				EventNotification notification = DataConverter.toApi(pdu.event_notification_request);
+				getEventListener().eventReceived(notification);
+			}
+		}
+	}
+
+	/**
+	 * @return Number of responses that have been dropped because no request was waiting for them, e.g. late answers
+	 *         to requests that already timed out
+	 */
+	public long getDroppedResponses() {
+		return getResponses.droppedResponses() + setResponses.droppedResponses()
+				+ actionResponses.droppedResponses();
+	}
+
+	/**
+	 * Waits for the response to a SET or ACTION request
+	 */
+	private <E> E waitForResponse(ResponseTable<E> responses, int invokeId, long timeout) throws IOException {
+		E response;
+		try {
+			response = responses.poll(invokeId, timeout);
+		} catch (InterruptedException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+			throw new IOException("Interrupted while waiting for incoming response");
+		}
+		if (response == null) {
+			throw new IOException("Device is not responding");
+		}
+		return response;
+	}
+
+	/**
+	 * Hands a received response to the asynchronous request waiting for it
+	 * 
+	 * @return false if no asynchronous request is using this invoke id
+	 */
+	private boolean dispatchAsync(int invokeId, COSEMpdu pdu) {
+		if (invokeId == -1) {
+			return false;
+		}
+		AsyncRequest<?> request = asyncRequests.get(invokeId);
+		if (request == null) {
+			return false;
+		}
+		request.responseReceived(pdu);
+		return true;
+	}
+
+	/**
+	 * Gives back an invoke id and hands it to a queued asynchronous request first, so synchronous requests waiting for
+	 * an id do not overtake the backlog
+	 */
+	@Override
+	protected void releaseInvokeId(int invokeId) {
+		super.releaseInvokeId(invokeId);
+		startAsyncBacklog();
+	}
 
-				try {
-					response = actionResponseQueue.poll(invokeId, timeout);
-				} catch (InterruptedException e) {
-					//TODO LoggingHelper.logStackTrace(e, logger);
-					throw new IOException("Interrupted while waiting for incoming response");
+	/**
+	 * Sends as many queued asynchronous requests as there are free invoke ids
+	 */
+	private void startAsyncBacklog() {
+		while (asyncBacklog.isEmpty() == false) {
+			int invokeId = tryAcquireInvokeId();
+			if (invokeId == -1) {
+				return;
+			}
+			AsyncRequest<?> request = asyncBacklog.poll();
+			if (request == null) {
+				super.releaseInvokeId(invokeId);
+				return;
+			}
+			request.start(invokeId);
+		}
+	}
+
+	@Override
+	public void disconnect(boolean sendDisconnectMessage) {
+		super.disconnect(sendDisconnectMessage);
+
+		IOException closed = new IOException("Connection closed");
+		AsyncRequest<?> request;
+		while ((request = asyncBacklog.poll()) != null) {
+			request.fail(closed);
+		}
+		for (int i = 0; i < asyncRequests.length(); i++) {
+			request = asyncRequests.get(i);
+			if (request != null) {
+				request.fail(closed);
+			}
+		}
+	}
+
+	private static List<GetResult> toGetResults(GET_Response response, int expectedResults) {
+		List<GetResult> result = new ArrayList<GetResult>(expectedResults);
+		if (response.getChoiceIndex() == GET_Response.Choices.GET_RESPONSE_NORMAL) {
+			GetResult res = DataConverter.toApi(response.get_response_normal.result);
+			result.add(res);
+		}
+		else if (response.getChoiceIndex() == GET_Response.Choices.GET_RESPONSE_WITH_LIST) {
+			for (Get_Data_Result resultPdu : response.get_response_with_list.result.list()) {
+				GetResult res = DataConverter.toApi(resultPdu);
+				result.add(res);
+			}
+		}
+		else {
+			throw new UnsupportedOperationException("Unknown response type");
+		}
+		return result;
+	}
+
+	/**
+	 * Appends the raw data of a received block without copying it to an intermediate array
+	 */
+	private static void appendRawData(ByteArrayOutputStream datablocks, AxdrOctetString rawData) {
+		ByteBuffer data = rawData.getBuffer();
+		if (data.hasArray()) {
+			datablocks.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+		}
+		else {
+			byte[] value = rawData.getValue();
+			datablocks.write(value, 0, value.length);
+		}
+	}
+
+	/**
+	 * Decodes the reassembled raw data of a GET block transfer. Arrays and structures are decoded lazily, as block
+	 * transfers usually carry large profile buffers of which only some columns are used.
+	 */
+	private static List<GetResult> toGetResults(byte[] datablocks, int expectedResults) throws IOException {
+		List<GetResult> result = new ArrayList<GetResult>(expectedResults);
+		int position = 0;
+
+		if (expectedResults > 1) {
+			// Raw data of a response with list is the encoded list of Get_Data_Result
+			ByteBuffer data = ByteBuffer.wrap(datablocks);
+			int length = AxdrLength.decodeLength(data);
+			position = data.position();
+			for (int i = 0; i < length; i++) {
+				if (position >= datablocks.length) {
+					throw new IOException("Error decoding Get_Data_Result: Code is incomplete");
 				}
+				if (datablocks[position] != 0) {
+					// data-access-result
+					Get_Data_Result getResult = new Get_Data_Result();
+					data.position(position);
+					getResult.decode(data, false);
+					result.add(DataConverter.toApi(getResult));
+					position = data.position();
+				}
+				else {
+					int end = scanData(datablocks, position + 1);
+					result.add(new GetResult(LazyDataList.toApi(datablocks, position + 1, end)));
+					position = end;
+				}
+			}
+			return result;
+		}
+
+		while (position < datablocks.length) {
+			int end = scanData(datablocks, position);
+			result.add(new GetResult(LazyDataList.toApi(datablocks, position, end)));
+			position = end;
+		}
+		return result;
+	}
+
+	/**
+	 * @return Index behind the complete Data value starting at position
+	 */
+	private static int scanData(byte[] code, int position) throws IOException {
+		int end = StreamingDataDecoder.scanData(code, position, code.length);
+		if (end == -1) {
+			throw new IOException("Error decoding Data: Code is incomplete");
+		}
+		return end;
+	}
+
+	private static List<AccessResultCode> toSetResults(SET_Response response, int expectedResults) {
+		List<AccessResultCode> result = new ArrayList<AccessResultCode>(expectedResults);
+		if (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_NORMAL) {
+			result.add(AccessResultCode.fromValue((int) response.set_response_normal.result.getValue()));
+		}
+		else if (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_WITH_LIST) {
+			for (AxdrEnum res : response.set_response_with_list.result.list()) {
+				result.add(AccessResultCode.fromValue((int) res.getValue()));
+			}
+		}
+		else if (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_LAST_DATABLOCK) {
+			result.add(AccessResultCode.fromValue((int) response.set_response_last_datablock.result.getValue()));
+		}
+		else if (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_LAST_DATABLOCK_WITH_LIST) {
+			for (AxdrEnum res : response.set_response_last_datablock_with_list.result.list()) {
+				result.add(AccessResultCode.fromValue((int) res.getValue()));
 			}
+		}
+		else {
+			throw new UnsupportedOperationException("Unknown response type");
+		}
+		return result;
+	}
 
-			result = new ArrayList<MethodResult>(params.length);
-			if (response.getChoiceIndex() == ACTION_Response.Choices.ACTION_RESPONSE_NORMAL) {
-				Action_Response_With_Optional_Data resp = response.action_response_normal.single_response;
+	private static List<MethodResult> toActionResults(ACTION_Response response, int expectedResults) {
+		List<MethodResult> result = new ArrayList<MethodResult>(expectedResults);
+		if (response.getChoiceIndex() == ACTION_Response.Choices.ACTION_RESPONSE_NORMAL) {
+			Action_Response_With_Optional_Data resp = response.action_response_normal.single_response;
+			Data resultData = null;
+			if (resp.return_parameters.isUsed()) {
+				resultData = DataConverter.toApi(resp.return_parameters.getValue().data);
+			}
+			result.add(new MethodResult(MethodResultCode.fromValue((int) resp.result.getValue()), resultData));
+		}
+		else if (response.getChoiceIndex() == ACTION_Response.Choices.ACTION_RESPONSE_WITH_LIST) {
+			for (Action_Response_With_Optional_Data resp : response.action_response_with_list.list_of_responses
+					.list()) {
 				Data resultData = null;
 				if (resp.return_parameters.isUsed()) {
 					resultData = DataConverter.toApi(resp.return_parameters.getValue().data);
 				}
 				result.add(new MethodResult(MethodResultCode.fromValue((int) resp.result.getValue()), resultData));
 			}
-			else if (response.getChoiceIndex() == ACTION_Response.Choices.ACTION_RESPONSE_WITH_LIST) {
-				for (Action_Response_With_Optional_Data resp : response.action_response_with_list.list_of_responses
-						.list()) {
-					Data resultData = null;
-					if (resp.return_parameters.isUsed()) {
-						resultData = DataConverter.toApi(resp.return_parameters.getValue().data);
-					}
-					result.add(new MethodResult(MethodResultCode.fromValue((int) resp.result.getValue()), resultData));
-				}
+		}
+		else {
+			throw new UnsupportedOperationException("Unknown response type");
+		}
+		return result;
+	}
+
+	/**
+	 * Decodes the reassembled raw data of an ACTION block transfer
+	 */
+	private static List<MethodResult> toActionResults(byte[] datablocks, int expectedResults) throws IOException {
+		List<MethodResult> result = new ArrayList<MethodResult>(expectedResults);
+		ByteBuffer data = ByteBuffer.wrap(datablocks);
+		while (data.hasRemaining()) {
+			Get_Data_Result dataResult = new Get_Data_Result();
+			dataResult.decode(data, true);
+			// If remote Method call returns a pdu that must be
+			// segmented into datablocks, we can assume that the call
+			// was successful.
+			Data resultData = DataConverter.toApi(dataResult.data);
+			result.add(new MethodResult(MethodResultCode.SUCCESS, resultData));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the PDU requesting the block following the given one
+	 */
+	private COSEMpdu createGetNextPdu(Get_Response_With_Datablock lastBlock) {
+		Get_Request_Next nextBlock = new Get_Request_Next();
+		nextBlock.invoke_id_and_priority = lastBlock.invoke_id_and_priority;
+		nextBlock.block_number = lastBlock.result.block_number;
+
+		GET_Request getRequest = new GET_Request();
+		getRequest.setget_request_next(nextBlock);
+		COSEMpdu pdu = new COSEMpdu();
+		pdu.setget_request(getRequest);
+		return pdu;
+	}
+
+	/**
+	 * Creates the PDU requesting the block following the given one
+	 */
+	private COSEMpdu createActionNextPdu(Action_Response_With_Pblock lastBlock) {
+		Action_Request_Next_Pblock nextBlock = new Action_Request_Next_Pblock();
+		nextBlock.invoke_id_and_priority = lastBlock.invoke_id_and_priority;
+		nextBlock.block_number = lastBlock.pblock.block_number;
+
+		ACTION_Request request = new ACTION_Request();
+		request.setaction_request_next_pblock(nextBlock);
+		COSEMpdu pdu = new COSEMpdu();
+		pdu.setaction_request(request);
+		return pdu;
+	}
+
+	/**
+	 * Base of all requests sent by the asynchronous API. The request waits in the backlog of this connection until an
+	 * invoke id is free, is then sent and afterwards driven by the responses handed in from {@link #processPdu}. The
+	 * invoke id is given back as soon as the request is completed, failed, cancelled or timed out.
+	 */
+	private abstract class AsyncRequest<T> extends ResponseFuture<T> implements Runnable {
+		protected final Invoke_Id_And_Priority id;
+		private final long timeout;
+
+		private volatile int invokeId = -1;
+		private final AtomicBoolean released = new AtomicBoolean(false);
+		private ScheduledFuture<?> timer;
+
+		/**
+		 * Last PDU sent for this request. Passed to the lower layer if the request times out
+		 */
+		protected volatile COSEMpdu lastPdu;
+
+		public AsyncRequest(long timeout, boolean highPriority, IResponseListener<T> listener) {
+			super(listener);
+			this.timeout = timeout == 0 ? DEFAULT_TIMEOUT : timeout;
+			// The invoke id is filled in as soon as this request leaves the backlog
+			id = getInvokeIdAndPriority(0, highPriority);
+		}
+
+		public void submit() {
+			timer = timeoutTimer.schedule(this, timeout, TimeUnit.MILLISECONDS);
+			asyncBacklog.add(this);
+			startAsyncBacklog();
+		}
+
+		public void start(int invokeId) {
+			id.getValues()[0] = (byte) ((invokeId << 4) | (id.getValues()[0] & 0x0F));
+			this.invokeId = invokeId;
+			if (publish() == false) {
+				// Timed out or cancelled while waiting in the backlog
+				releaseInvokeIdOnce();
+				return;
 			}
-			else if (response.getChoiceIndex() == ACTION_Response.Choices.ACTION_RESPONSE_WITH_PBLOCK) {
-				ByteArrayOutputStream datablocks = new ByteArrayOutputStream();
-				COSEMpdu pdu = new COSEMpdu();
-				ACTION_Request request = new ACTION_Request();
-				Action_Request_Next_Pblock nextBlock = new Action_Request_Next_Pblock();
-				nextBlock.invoke_id_and_priority = response.action_response_with_pblock.invoke_id_and_priority;
-				while (response.action_response_with_pblock.pblock.last_block.getValue() == false) {
-					datablocks.write(response.action_response_with_pblock.pblock.raw_data.getValue());
-
-					nextBlock.block_number = response.action_response_with_pblock.pblock.block_number;
-					request.setaction_request_next_pblock(nextBlock);
-					pdu.setaction_request(request);
-					send(pdu);
 
-					try {
-						response = actionResponseQueue.poll(invokeId, timeout);
-					} catch (InterruptedException e) {
-						//TODO LoggingHelper.logStackTrace(e, logger);
-						throw new IOException("Interrupted while waiting for incoming response");
-					}
-				}
-				datablocks.write(response.action_response_with_pblock.pblock.raw_data.getValue());
-				InputStream dataByteStream = new ByteArrayInputStream(datablocks.toByteArray());
-				while (dataByteStream.available() > 0) {
-					Get_Data_Result dataResult = new Get_Data_Result();
-					dataResult.decode(dataByteStream);
-					// If remote Method call returns a pdu that must be
-					// segmented into datablocks, we can assume that the call
-					// was successful.
-					Data resultData = DataConverter.toApi(dataResult.data);
-					result.add(new MethodResult(MethodResultCode.SUCCESS, resultData));
+			try {
+				lastPdu = firstPdu();
+				send(lastPdu);
+				if (isConfirmedMode() == false) {
+					complete(null);
 				}
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+
+		public void responseReceived(COSEMpdu pdu) {
+			try {
+				processResponse(pdu);
+			} catch (IOException e) {
+				fail(e);
+			} catch (RuntimeException e) {
+				fail(new IOException("Error on processing response", e));
+			}
+		}
+
+		/**
+		 * Sends a follow up PDU of this request, e.g. the request for the next datablock
+		 */
+		protected void sendNext(COSEMpdu pdu) throws IOException {
+			lastPdu = pdu;
+			send(pdu);
+		}
+
+		/**
+		 * Timeout of this request
+		 */
+		@Override
+		public void run() {
+			if (fail(new IOException("Device is not responding")) && lastPdu != null) {
+				receiveTimedOut(lastPdu);
+			}
+		}
+
+		@Override
+		protected void done() {
+			if (timer != null) {
+				timer.cancel(false);
+			}
+			if (invokeId == -1) {
+				asyncBacklog.remove(this);
 			}
 			else {
-				throw new UnsupportedOperationException("Unknown response type");
+				releaseInvokeIdOnce();
 			}
 		}
 
-		return result;
+		/**
+		 * Makes this request receive the responses to its invoke id. Guarded like the release of the id, so a timeout
+		 * can not release the id between the check and publishing this request
+		 * 
+		 * @return false if this request is already done
+		 */
+		private synchronized boolean publish() {
+			if (released.get() || isDone()) {
+				return false;
+			}
+			asyncRequests.set(invokeId, this);
+			return true;
+		}
+
+		private void releaseInvokeIdOnce() {
+			if (unpublish()) {
+				releaseInvokeId(invokeId);
+			}
+		}
+
+		/**
+		 * @return true if the invoke id has not been released before
+		 */
+		private synchronized boolean unpublish() {
+			if (released.compareAndSet(false, true)) {
+				asyncRequests.compareAndSet(invokeId, this, null);
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return The first PDU to send for this request
+		 */
+		protected abstract COSEMpdu firstPdu() throws IOException;
+
+		/**
+		 * Processes a response with the invoke id of this request. Implementations either send the next PDU of this
+		 * request or complete it
+		 */
+		protected abstract void processResponse(COSEMpdu pdu) throws IOException;
 	}
 
-	@Override
-	public void processPdu(COSEMpdu pdu) {
-		try {
-			if (pdu.getChoiceIndex() == COSEMpdu.Choices.GET_RESPONSE) {
-				getResponseQueue.put(PduHelper.getInvokeId(pdu.get_response), pdu.get_response);
+	private class AsyncGet extends AsyncRequest<List<GetResult>> {
+		private final COSEMpdu pdu;
+		private final int expectedResults;
+		private ByteArrayOutputStream datablocks;
+
+		public AsyncGet(long timeout, boolean highPriority, IResponseListener<List<GetResult>> listener,
+				GetRequest... params) {
+			super(timeout, highPriority, listener);
+			pdu = createGetPdu(id, params);
+			expectedResults = params.length;
+		}
+
+		@Override
+		protected COSEMpdu firstPdu() {
+			return pdu;
+		}
+
+		@Override
+		protected void processResponse(COSEMpdu pdu) throws IOException {
+			if (pdu.getChoiceIndex() != COSEMpdu.Choices.GET_RESPONSE) {
+				return;
+			}
+			GET_Response response = pdu.get_response;
+
+			if (response.getChoiceIndex() != GET_Response.Choices.GET_RESPONSE_WITH_DATABLOCK) {
+				complete(toGetResults(response, expectedResults));
+				return;
+			}
+
+			if (datablocks == null) {
+				datablocks = new ByteArrayOutputStream();
 			}
-			else if (pdu.getChoiceIndex() == COSEMpdu.Choices.SET_RESPONSE) {
-				setResponseQueue.put(PduHelper.getInvokeId(pdu.set_response), pdu.set_response);
+			appendRawData(datablocks, response.get_response_with_datablock.result.result.raw_data);
+
+			if (response.get_response_with_datablock.result.last_block.getValue()) {
+				complete(toGetResults(datablocks.toByteArray(), expectedResults));
+			}
+			else {
+				sendNext(createGetNextPdu(response.get_response_with_datablock));
+			}
+		}
+	}
+
+	private class AsyncSet extends AsyncRequest<List<AccessResultCode>> {
+		private final List<COSEMpdu> pdus;
+		private final int expectedResults;
+
+		public AsyncSet(long timeout, boolean highPriority, IResponseListener<List<AccessResultCode>> listener,
+				SetRequest... params) throws IOException {
+			super(timeout, highPriority, listener);
+			pdus = createSetPdu(id, params);
+			expectedResults = params.length;
+		}
+
+		@Override
+		protected COSEMpdu firstPdu() {
+			return pdus.remove(0);
+		}
+
+		@Override
+		protected void processResponse(COSEMpdu pdu) throws IOException {
+			if (pdu.getChoiceIndex() != COSEMpdu.Choices.SET_RESPONSE) {
+				return;
+			}
+			SET_Response response = pdu.set_response;
+
+			if (response.getChoiceIndex() == SET_Response.Choices.SET_RESPONSE_DATABLOCK) {
+				sendNext(pdus.remove(0));
+			}
+			else {
+				complete(toSetResults(response, expectedResults));
+			}
+		}
+	}
+
+	private class AsyncAction extends AsyncRequest<List<MethodResult>> {
+		private final List<COSEMpdu> pdus;
+		private final int expectedResults;
+		private ByteArrayOutputStream datablocks;
+
+		public AsyncAction(long timeout, boolean highPriority, IResponseListener<List<MethodResult>> listener,
+				MethodRequest... params) throws IOException {
+			super(timeout, highPriority, listener);
+			pdus = createActionPdu(id, params);
+			expectedResults = params.length;
+		}
+
+		@Override
+		protected COSEMpdu firstPdu() {
+			return pdus.remove(0);
+		}
+
+		@Override
+		protected void processResponse(COSEMpdu pdu) throws IOException {
+			if (pdu.getChoiceIndex() != COSEMpdu.Choices.ACTION_RESPONSE) {
+				return;
 			}
-			else if (pdu.getChoiceIndex() == COSEMpdu.Choices.ACTION_RESPONSE) {
-				actionResponseQueue.put(PduHelper.getInvokeId(pdu.action_response), pdu.action_response);
+			ACTION_Response response = pdu.action_response;
+
+			if (response.getChoiceIndex() == ACTION_Response.Choices.ACTION_RESPONSE_NEXT_PBLOCK) {
+				sendNext(pdus.remove(0));
 			}
-			else if (pdu.getChoiceIndex() == COSEMpdu.Choices.EVENT_NOTIFICATION_REQUEST) {
-				if (getEventListener() != null) {
-					EventNotification notification = DataConverter.toApi(pdu.event_notification_request);
-					getEventListener().eventReceived(notification);
+			else if (response.getChoiceIndex() == ACTION_Response.Choices.ACTION_RESPONSE_WITH_PBLOCK) {
+				if (datablocks == null) {
+					datablocks = new ByteArrayOutputStream();
+				}
+				appendRawData(datablocks, response.action_response_with_pblock.pblock.raw_data);
+
+				if (response.action_response_with_pblock.pblock.last_block.getValue()) {
+					complete(toActionResults(datablocks.toByteArray(), expectedResults));
+				}
+				else {
+					sendNext(createActionNextPdu(response.action_response_with_pblock));
 				}
 			}
-		} catch (InterruptedException e) {
-			//TODO LoggingHelper.logStackTrace(e, logger);
+			else {
+				complete(toActionResults(response, expectedResults));
+			}
 		}
 	}
 
@@ -476,15 +1358,7 @@ public class LNConnection extends Connection {
 			requestList.invoke_id_and_priority = id;
 			requestList.attribute_descriptor_list = new Get_Request_With_List.SubSeqOf_attribute_descriptor_list();
 			for (GetRequest p : params) {
-				Selective_Access_Descriptor access = null;
-				SelectiveAccessDescription accessSelection = p.getAccessSelection();
-				if (accessSelection != null) {
-					access = new Selective_Access_Descriptor(new Unsigned8(accessSelection.getSelector()),
-							DataConverter.toPdu(accessSelection.getParameter()));
-				}
-				requestList.attribute_descriptor_list.add(new Cosem_Attribute_Descriptor_With_Selection(
-						new Cosem_Attribute_Descriptor(new Unsigned16(p.getClassId()), new Cosem_Object_Instance_Id(p
-								.getObisCode()), new Integer8(p.getAttributeId())), access));
+				requestList.attribute_descriptor_list.add(createListElement(p));
 			}
 
 			getRequest.setget_request_with_list(requestList);
@@ -496,6 +1370,18 @@ public class LNConnection extends Connection {
 		return pdu;
 	}
 
+	private Cosem_Attribute_Descriptor_With_Selection createListElement(GetRequest param) {
+		Selective_Access_Descriptor access = null;
+		SelectiveAccessDescription accessSelection = param.getAccessSelection();
+		if (accessSelection != null) {
+			access = new Selective_Access_Descriptor(new Unsigned8(accessSelection.getSelector()),
+					DataConverter.toPdu(accessSelection.getParameter()));
+		}
+		return new Cosem_Attribute_Descriptor_With_Selection(new Cosem_Attribute_Descriptor(new Unsigned16(
+				param.getClassId()), new Cosem_Object_Instance_Id(param.getObisCode()), new Integer8(
+				param.getAttributeId())), access);
+	}
+
 	/**
 	 * Calculates the size of a PDU in bytes
 	 * 
@@ -504,12 +1390,36 @@ public class LNConnection extends Connection {
 	 */
 	private int getPduSize(AxdrType pdu) {
 		try {
-			return pdu.encode(new NullOutputStream());
+			return pdu.sizeOf();
 		} catch (IOException e) {
 			return 0;
 		}
 	}
 
+	/**
+	 * Cuts the raw data of the next block so that the PDU carrying it does not exceed the maximum send PDU size
+	 * 
+	 * @param data
+	 *            Encoded data that still has to be sent
+	 * @param pdu
+	 *            PDU of the next block, still carrying an empty raw data octet string
+	 * @return Raw data of the next block
+	 * @throws IOException
+	 *             if the maximum send PDU size does not leave room for any data
+	 */
+	private AxdrOctetString nextRawData(ByteBuffer data, COSEMpdu pdu) throws IOException {
+		// The empty octet string is encoded as one length byte
+		int available = getMaxSendPduSize() - (pdu.sizeOf() - 1);
+		int blockLength = Math.min(available - AxdrLength.sizeOf(available), data.remaining());
+		if (blockLength <= 0) {
+			throw new IOException("Max PDU size of " + getMaxSendPduSize() + " byte too small for block transfer");
+		}
+
+		byte[] rawData = new byte[blockLength];
+		data.get(rawData);
+		return new AxdrOctetString(rawData);
+	}
+
 	/**
 	 * Creates all PDUs needed to set all attributes on the smart meter given by params
 	 * 
@@ -534,7 +1444,6 @@ public class LNConnection extends Connection {
 
 		List<COSEMpdu> result = new LinkedList<COSEMpdu>();
 
-		ByteBuffer dataBuffer = null;
 		SET_Request request = new SET_Request();
 		COSEMpdu pdu = null;
 
@@ -544,11 +1453,11 @@ public class LNConnection extends Connection {
 			requestNormal.cosem_attribute_descriptor = new Cosem_Attribute_Descriptor(new Unsigned16(
 					params[0].getClassId()), new Cosem_Object_Instance_Id(params[0].getObisCode()), new Integer8(
 					params[0].getAttributeId()));
-			requestNormal.value = DataConverter.toPdu(params[0].data());
+			requestNormal.value = DataCodec.toPdu(params[0].data());
 			SelectiveAccessDescription accessSelection = params[0].getAccessSelection();
 			if (accessSelection != null) {
 				requestNormal.access_selection.setValue(new Selective_Access_Descriptor(new Unsigned8(accessSelection
-						.getSelector()), DataConverter.toPdu(accessSelection.getParameter())));
+						.getSelector()), DataCodec.toPdu(accessSelection.getParameter())));
 			}
 			request.setset_request_normal(requestNormal);
 		}
@@ -562,92 +1471,75 @@ public class LNConnection extends Connection {
 				SelectiveAccessDescription accessSelection = p.getAccessSelection();
 				if (accessSelection != null) {
 					access = new Selective_Access_Descriptor(new Unsigned8(accessSelection.getSelector()),
-							DataConverter.toPdu(accessSelection.getParameter()));
+							DataCodec.toPdu(accessSelection.getParameter()));
 				}
 				Cosem_Attribute_Descriptor desc = new Cosem_Attribute_Descriptor(new Unsigned16(p.getClassId()),
 						new Cosem_Object_Instance_Id(p.getObisCode()), new Integer8(p.getAttributeId()));
 				requestList.attribute_descriptor_list.add(new Cosem_Attribute_Descriptor_With_Selection(desc, access));
-				requestList.value_list.add(DataConverter.toPdu(p.data()));
+				requestList.value_list.add(DataCodec.toPdu(p.data()));
 			}
 			request.setset_request_with_list(requestList);
 		}
 
-		if (getPduSize(request) < getMaxSendPduSize()) {
-			pdu = new COSEMpdu();
-			pdu.setset_request(request);
+		pdu = new COSEMpdu();
+		pdu.setset_request(request);
+		if (pdu.sizeOf() <= getMaxSendPduSize()) {
 			result.add(pdu);
+			return result;
 		}
-		else {
-			AxdrByteArrayOutputStream os = new AxdrByteArrayOutputStream(getMaxSendPduSize() * 2, true);
+
+		// PDU is too large to send in one chunk to the meter, the encoded values are sent in several datablocks
+		// instead. The values are encoded once, every block is sliced to the space left by its header.
+		AxdrByteBufferOutputStream os = AxdrByteBufferOutputStream.obtain();
+		try {
+			DataBlock_SA datablock = new DataBlock_SA(new AxdrBoolean(false), new Unsigned32(1), new AxdrOctetString());
+			SET_Request blockRequest = new SET_Request();
 
 			if (params.length == 1) {
-				request.set_request_normal.value.encode(os);
-				dataBuffer = ByteBuffer.wrap(os.getArray());
+				Set_Request_Normal requestNormal = request.set_request_normal;
+				requestNormal.value.encode(os);
 
 				Set_Request_With_First_Datablock requestFirstBlock = new Set_Request_With_First_Datablock();
 				requestFirstBlock.invoke_id_and_priority = id;
-				requestFirstBlock.cosem_attribute_descriptor = request.set_request_normal.cosem_attribute_descriptor;
-				requestFirstBlock.access_selection = request.set_request_normal.access_selection;
-				requestFirstBlock.datablock = new DataBlock_SA(new AxdrBoolean(false), new Unsigned32(0),
-						new AxdrOctetString(0));
-
-				os = new AxdrByteArrayOutputStream(getMaxSendPduSize() - 2);
-				int length = requestFirstBlock.encode(os);
-				byte[] firstDataChunk = new byte[getMaxSendPduSize() - 2 - length];
-				dataBuffer.get(firstDataChunk, 0, firstDataChunk.length);
-				requestFirstBlock.datablock.raw_data = new AxdrOctetString(firstDataChunk);
-
-				request.setset_request_with_first_datablock(requestFirstBlock);
-				pdu = new COSEMpdu();
-				pdu.setset_request(request);
-				result.add(pdu);
+				requestFirstBlock.cosem_attribute_descriptor = requestNormal.cosem_attribute_descriptor;
+				requestFirstBlock.access_selection = requestNormal.access_selection;
+				requestFirstBlock.datablock = datablock;
+				blockRequest.setset_request_with_first_datablock(requestFirstBlock);
 			}
 			else {
-				for (int i = request.set_request_with_list.value_list.size() - 1; i >= 0; i--) {
-					request.set_request_with_list.value_list.get(i).encode(os);
-				}
-				dataBuffer = ByteBuffer.wrap(os.getArray());
+				Set_Request_With_List requestList = request.set_request_with_list;
+				requestList.value_list.encode(os);
 
 				Set_Request_With_List_And_First_Datablock requestListFirstBlock = new Set_Request_With_List_And_First_Datablock();
 				requestListFirstBlock.invoke_id_and_priority = id;
 				requestListFirstBlock.attribute_descriptor_list = new Set_Request_With_List_And_First_Datablock.SubSeqOf_attribute_descriptor_list();
-				requestListFirstBlock.datablock = new DataBlock_SA(new AxdrBoolean(false), new Unsigned32(1),
-						new AxdrOctetString(0));
-
-				for (Cosem_Attribute_Descriptor_With_Selection desc : request.set_request_with_list.attribute_descriptor_list
-						.list()) {
+				for (Cosem_Attribute_Descriptor_With_Selection desc : requestList.attribute_descriptor_list.list()) {
 					requestListFirstBlock.attribute_descriptor_list.add(desc);
 				}
-
-				os = new AxdrByteArrayOutputStream(getMaxSendPduSize() - 2);
-				int length = requestListFirstBlock.encode(os);
-				byte[] firstDataChunk = new byte[getMaxSendPduSize() - 2 - length];
-				dataBuffer.get(firstDataChunk, 0, firstDataChunk.length);
-				requestListFirstBlock.datablock.raw_data = new AxdrOctetString(firstDataChunk);
-
-				request.setset_request_with_list_and_first_datablock(requestListFirstBlock);
-				pdu = new COSEMpdu();
-				pdu.setset_request(request);
-				result.add(pdu);
+				requestListFirstBlock.datablock = datablock;
+				blockRequest.setset_request_with_list_and_first_datablock(requestListFirstBlock);
 			}
 
+			ByteBuffer dataBuffer = os.getByteBuffer();
 			int blockNr = 1;
-			while (dataBuffer.hasRemaining()) {
-				blockNr++;
-				int blockLength = Math.min(getMaxSendPduSize() - 9, dataBuffer.remaining());
-				byte[] dataBlock = new byte[blockLength];
-				dataBuffer.get(dataBlock, 0, dataBlock.length);
-
-				Set_Request_With_Datablock requestBlock = new Set_Request_With_Datablock();
-				requestBlock.invoke_id_and_priority = id;
-				requestBlock.datablock = new DataBlock_SA(new AxdrBoolean(dataBuffer.remaining() == 0), new Unsigned32(
-						blockNr), new AxdrOctetString(dataBlock));
-
-				request.setset_request_with_datablock(requestBlock);
+			while (true) {
 				pdu = new COSEMpdu();
-				pdu.setset_request(request);
+				pdu.setset_request(blockRequest);
+				datablock.raw_data = nextRawData(dataBuffer, pdu);
+				datablock.last_block = new AxdrBoolean(dataBuffer.hasRemaining() == false);
 				result.add(pdu);
+
+				if (dataBuffer.hasRemaining() == false) {
+					break;
+				}
+
+				blockNr++;
+				datablock = new DataBlock_SA(new AxdrBoolean(false), new Unsigned32(blockNr), new AxdrOctetString());
+				blockRequest = new SET_Request();
+				blockRequest.setset_request_with_datablock(new Set_Request_With_Datablock(id, datablock));
 			}
+		} finally {
+			os.release();
 		}
 
 		return result;
@@ -675,7 +1567,6 @@ public class LNConnection extends Connection {
 
 		List<COSEMpdu> result = new LinkedList<COSEMpdu>();
 
-		ByteBuffer dataBuffer = null;
 		ACTION_Request request = new ACTION_Request();
 		COSEMpdu pdu = null;
 
@@ -684,7 +1575,7 @@ public class LNConnection extends Connection {
 			requestNormal.invoke_id_and_priority = id;
 			requestNormal.cosem_method_descriptor = new Cosem_Method_Descriptor(new Unsigned16(params[0].getClassId()),
 					new Cosem_Object_Instance_Id(params[0].getObisCode()), new Integer8(params[0].getMethodId()));
-			requestNormal.method_invocation_parameters.setValue(DataConverter.toPdu(params[0].data()));
+			requestNormal.method_invocation_parameters.setValue(DataCodec.toPdu(params[0].data()));
 
 			request.setaction_request_normal(requestNormal);
 		}
@@ -697,79 +1588,69 @@ public class LNConnection extends Connection {
 				Cosem_Method_Descriptor desc = new Cosem_Method_Descriptor(new Unsigned16(param.getClassId()),
 						new Cosem_Object_Instance_Id(param.getObisCode()), new Integer8(param.getMethodId()));
 				requestList.cosem_method_descriptor_list.add(desc);
-				requestList.method_invocation_parameters.add(DataConverter.toPdu(param.data()));
+				requestList.method_invocation_parameters.add(DataCodec.toPdu(param.data()));
 			}
 			request.setaction_request_with_list(requestList);
 		}
 
-		if (getPduSize(request) < getMaxSendPduSize()) {
-			pdu = new COSEMpdu();
-			pdu.setaction_request(request);
+		pdu = new COSEMpdu();
+		pdu.setaction_request(request);
+		if (pdu.sizeOf() <= getMaxSendPduSize()) {
 			result.add(pdu);
+			return result;
 		}
-		else {
-			// PDU is too large to send in one chunk to the meter
-			// use of several Datablocks instead
-			AxdrByteArrayOutputStream os = new AxdrByteArrayOutputStream(getMaxSendPduSize() * 2, true);
+
+		// PDU is too large to send in one chunk to the meter, the encoded parameters are sent in several pblocks
+		// instead. The parameters are encoded once, every block is sliced to the space left by its header.
+		AxdrByteBufferOutputStream os = AxdrByteBufferOutputStream.obtain();
+		try {
+			DataBlock_SA pblock = new DataBlock_SA(new AxdrBoolean(false), new Unsigned32(1), new AxdrOctetString());
+			ACTION_Request blockRequest = new ACTION_Request();
 
 			if (params.length == 1) {
-				request.action_request_normal.method_invocation_parameters.encode(os);
-				dataBuffer = ByteBuffer.wrap(os.getArray());
+				Action_Request_Normal requestNormal = request.action_request_normal;
+				requestNormal.method_invocation_parameters.getValue().encode(os);
 
 				Action_Request_With_First_Pblock requestFirstBlock = new Action_Request_With_First_Pblock();
 				requestFirstBlock.invoke_id_and_priority = id;
-				requestFirstBlock.cosem_method_descriptor = request.action_request_normal.cosem_method_descriptor;
-
-				os = new AxdrByteArrayOutputStream(getMaxSendPduSize() - 2);
-				int length = requestFirstBlock.encode(os);
-				byte[] firstDataChunk = new byte[getMaxSendPduSize() - 2 - length];
-				dataBuffer.get(firstDataChunk, 0, firstDataChunk.length);
-				requestFirstBlock.pblock = new DataBlock_SA(new AxdrBoolean(false), new Unsigned32(0),
-						new AxdrOctetString(firstDataChunk));
-
-				request.setaction_request_with_first_pblock(requestFirstBlock);
-				pdu = new COSEMpdu();
-				pdu.setaction_request(request);
-				result.add(pdu);
+				requestFirstBlock.cosem_method_descriptor = requestNormal.cosem_method_descriptor;
+				requestFirstBlock.pblock = pblock;
+				blockRequest.setaction_request_with_first_pblock(requestFirstBlock);
 			}
 			else {
-				request.action_request_with_list.method_invocation_parameters.encode(os);
-				dataBuffer = ByteBuffer.wrap(os.getArray());
+				Action_Request_With_List requestList = request.action_request_with_list;
+				requestList.method_invocation_parameters.encode(os);
 
 				Action_Request_With_List_And_First_Pblock requestListFirstBlock = new Action_Request_With_List_And_First_Pblock();
 				requestListFirstBlock.invoke_id_and_priority = id;
 				requestListFirstBlock.cosem_method_descriptor_list = new Action_Request_With_List_And_First_Pblock.SubSeqOf_cosem_method_descriptor_list();
-
-				for (Cosem_Method_Descriptor desc : request.action_request_with_list.cosem_method_descriptor_list
-						.list()) {
+				for (Cosem_Method_Descriptor desc : requestList.cosem_method_descriptor_list.list()) {
 					requestListFirstBlock.cosem_method_descriptor_list.add(desc);
 				}
-
-				os = new AxdrByteArrayOutputStream(getMaxSendPduSize() - 2);
-				int length = requestListFirstBlock.encode(os);
-				byte[] firstDataChunk = new byte[getMaxSendPduSize() - 2 - length];
-				dataBuffer.get(firstDataChunk, 0, firstDataChunk.length);
-				requestListFirstBlock.pblock = new DataBlock_SA(new AxdrBoolean(false), new Unsigned32(0),
-						new AxdrOctetString(firstDataChunk));
-
-				request.setaction_request_with_list_and_first_pblock(requestListFirstBlock);
+				requestListFirstBlock.pblock = pblock;
+				blockRequest.setaction_request_with_list_and_first_pblock(requestListFirstBlock);
 			}
 
+			ByteBuffer dataBuffer = os.getByteBuffer();
 			int blockNr = 1;
-			while (dataBuffer.hasRemaining()) {
-				int blockLength = Math.min(getMaxSendPduSize() - 8, dataBuffer.remaining());
-				byte[] dataBlock = new byte[blockLength];
-				dataBuffer.get(dataBlock, 0, dataBlock.length);
-
-				Action_Request_With_Pblock requestBlock = new Action_Request_With_Pblock();
-				requestBlock.pBlock = new DataBlock_SA(new AxdrBoolean(dataBuffer.remaining() == 0), new Unsigned32(
-						blockNr), new AxdrOctetString(dataBlock));
-
-				request.setaction_request_with_pblock(requestBlock);
+			while (true) {
 				pdu = new COSEMpdu();
-				pdu.setaction_request(request);
+				pdu.setaction_request(blockRequest);
+				pblock.raw_data = nextRawData(dataBuffer, pdu);
+				pblock.last_block = new AxdrBoolean(dataBuffer.hasRemaining() == false);
 				result.add(pdu);
+
+				if (dataBuffer.hasRemaining() == false) {
+					break;
+				}
+
+				blockNr++;
+				pblock = new DataBlock_SA(new AxdrBoolean(false), new Unsigned32(blockNr), new AxdrOctetString());
+				blockRequest = new ACTION_Request();
+				blockRequest.setaction_request_with_pblock(new Action_Request_With_Pblock(id, pblock));
 			}
+		} finally {
+			os.release();
 		}
 
 		return result;
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import org.openmuc.jdlms.client.Data;
+
+/**
+ * Elements of an A-XDR encoded array or structure, decoded when they are accessed.
+ * 
+ * The list keeps a reference to the encoded bytes. The first access determines the offsets of all elements once by
+ * skipping over their code, afterwards an element is decoded the first time its index is read. Nested arrays and
+ * structures are lazy lists of their own, so reading a few columns of a large profile buffer only decodes these
+ * columns.
+ * 
+ * The encoded bytes must have been checked with {@link StreamingDataDecoder#scanData(byte[], int, int)} before.
+ */
+class LazyDataList extends AbstractList<Data> implements RandomAccess {
+
+	private static final int ARRAY_TAG = 1;
+	private static final int STRUCTURE_TAG = 2;
+
+	private final byte[] code;
+	private final int offset;
+	private final int limit;
+	private final int size;
+
+	/**
+	 * Index of the first byte of every element and of the end of the last one. Null until the first access
+	 */
+	private int[] offsets = null;
+	private Data[] elements = null;
+
+	private LazyDataList(byte[] code, int offset, int limit, int size) {
+		this.code = code;
+		this.offset = offset;
+		this.limit = limit;
+		this.size = size;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public synchronized Data get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		int[] offsets = index();
+		if (elements[index] == null) {
+			try {
+				elements[index] = toApi(code, offsets[index], offsets[index + 1]);
+			} catch (IOException e) {
+				// The framing has been checked by the creator of the list, only the content can be malformed
+				throw new IllegalStateException("Error decoding Data: " + e.getMessage());
+			}
+		}
+		return elements[index];
+	}
+
+	private synchronized int[] index() {
+		if (offsets == null) {
+			int[] result = new int[size + 1];
+			int position = offset;
+			try {
+				for (int i = 0; i < size; i++) {
+					result[i] = position;
+					position = StreamingDataDecoder.scanData(code, position, limit);
+					if (position == -1) {
+						throw new IllegalStateException("Error decoding Data: Code is incomplete");
+					}
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Error decoding Data: " + e.getMessage());
+			}
+			result[size] = position;
+
+			elements = new Data[size];
+			offsets = result;
+		}
+		return offsets;
+	}
+
+	/**
+	 * Converts an A-XDR encoded Data value. Arrays and structures are converted to lazy lists, their elements are
+	 * decoded on access.
+	 * 
+	 * @param code
+	 *            Encoded data. Must not be changed as long as the result is in use
+	 * @param offset
+	 *            Index of the first byte of the value
+	 * @param end
+	 *            Index behind the last byte of the value as determined by
+	 *            {@link StreamingDataDecoder#scanData(byte[], int, int)}
+	 * @return The converted value
+	 * @throws IOException
+	 *             If the value is malformed
+	 */
+	static Data toApi(byte[] code, int offset, int end) throws IOException {
+		int tag = code[offset] & 0xff;
+
+		if (tag == ARRAY_TAG || tag == STRUCTURE_TAG) {
+			long length = StreamingDataDecoder.readLength(code, offset + 1, end);
+			if (length == -1) {
+				throw new IOException("Error decoding Data: Code is incomplete");
+			}
+			LazyDataList list = new LazyDataList(code, (int) length, end, (int) (length >>> 32));
+
+			Data result = new Data();
+			if (tag == ARRAY_TAG) {
+				result.setArray(list);
+			}
+			else {
+				result.setStructure(list);
+			}
+			return result;
+		}
+
+		return DataCodec.decode(code, offset, end);
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a list of attribute references into as few requests as possible, so that no request exceeds the maximal PDU
+ * size accepted by the smart meter or the maximal number of list elements it is known to accept.
+ * 
+ * The references keep their order. Each request covers a contiguous range of the original list, so the results can be
+ * reassembled by concatenating the results of all requests.
+ */
+public class RequestPlanner {
+
+	/**
+	 * Tag of the PDU, tag of the request type and the invoke id
+	 */
+	private static final int HEADER_SIZE = 3;
+
+	/**
+	 * @param itemSizes
+	 *            Encoded size of each list element in bytes
+	 * @param maxPduSize
+	 *            Maximal size of a request in bytes. 0 if unlimited
+	 * @param maxListLength
+	 *            Maximal number of list elements per request. 0 if unlimited
+	 * @return Start index of each request, followed by the number of list elements as last entry
+	 */
+	public static int[] plan(int[] itemSizes, int maxPduSize, int maxListLength) {
+		List<Integer> starts = new ArrayList<Integer>();
+		starts.add(0);
+
+		int start = 0;
+		int size = 0;
+		for (int i = 0; i < itemSizes.length; i++) {
+			int count = i - start + 1;
+			int newSize = size + itemSizes[i];
+
+			boolean tooLong = maxListLength > 0 && count > maxListLength;
+			boolean tooBig = maxPduSize > 0 && HEADER_SIZE + lengthFieldSize(count) + newSize > maxPduSize;
+			if (count > 1 && (tooLong || tooBig)) {
+				// Start a new request with this element. A single element exceeding the limit is sent on its own
+				start = i;
+				starts.add(start);
+				newSize = itemSizes[i];
+			}
+			size = newSize;
+		}
+
+		int[] result = new int[starts.size() + 1];
+		for (int i = 0; i < starts.size(); i++) {
+			result[i] = starts.get(i);
+		}
+		result[starts.size()] = itemSizes.length;
+		return result;
+	}
+
+	/**
+	 * @return Number of bytes needed to encode the length of a list with the given number of elements
+	 */
+	private static int lengthFieldSize(int length) {
+		if (length < 128) {
+			return 1;
+		}
+		int result = 1;
+		while (length != 0) {
+			result++;
+			length >>= 8;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openmuc.jdlms.client.IResponseListener;
+
+/**
+ * {@link Future} of a request sent with an {@link org.openmuc.jdlms.client.IAsyncClientConnection}. The future is
+ * completed exactly once, either with a result, a failure or by cancellation. The registered
+ * {@link IResponseListener} is notified on the completing thread.
+ */
+public class ResponseFuture<T> implements Future<T> {
+
+	private final CountDownLatch doneSignal = new CountDownLatch(1);
+	private final AtomicBoolean completed = new AtomicBoolean(false);
+	private final IResponseListener<T> listener;
+
+	private T result;
+	private IOException error;
+	private boolean cancelled = false;
+
+	public ResponseFuture(IResponseListener<T> listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Completes this future with the given result
+	 * 
+	 * @return false if this future had already been completed
+	 */
+	public boolean complete(T value) {
+		if (completed.compareAndSet(false, true) == false) {
+			return false;
+		}
+		result = value;
+		doneSignal.countDown();
+		done();
+		if (listener != null) {
+			listener.responseReceived(value);
+		}
+		return true;
+	}
+
+	/**
+	 * Completes this future with the given failure
+	 * 
+	 * @return false if this future had already been completed
+	 */
+	public boolean fail(IOException cause) {
+		if (completed.compareAndSet(false, true) == false) {
+			return false;
+		}
+		error = cause;
+		doneSignal.countDown();
+		done();
+		if (listener != null) {
+			listener.requestFailed(cause);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (completed.compareAndSet(false, true) == false) {
+			return false;
+		}
+		cancelled = true;
+		doneSignal.countDown();
+		done();
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public boolean isDone() {
+		return completed.get();
+	}
+
+	@Override
+	public T get() throws InterruptedException, ExecutionException {
+		doneSignal.await();
+		return report();
+	}
+
+	@Override
+	public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (doneSignal.await(timeout, unit) == false) {
+			throw new TimeoutException();
+		}
+		return report();
+	}
+
+	/**
+	 * Called once after this future has been completed, before the listener is notified. Subclasses use this hook to
+	 * free resources bound to the request
+	 */
+	protected void done() {
+	}
+
+	private T report() throws ExecutionException {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+		if (error != null) {
+			throw new ExecutionException(error);
+		}
+		return result;
+	}
+}
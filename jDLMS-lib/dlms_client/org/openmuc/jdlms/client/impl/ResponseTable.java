@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands responses received from the smart meter to the threads waiting for them. The table has one slot per invoke id,
+ * so a waiting thread is only woken up by the response carrying its own invoke id.
+ * 
+ * A thread calls {@link #register(int)} before sending its request, {@link #poll(int, long)} to wait for the response
+ * and {@link #unregister(int)} once it is done. Responses for invoke ids nobody is waiting for are dropped and counted.
+ */
+public class ResponseTable<E> {
+
+	private final AtomicReferenceArray<Thread> waiters = new AtomicReferenceArray<Thread>(InvokeIdPool.NUMBER_OF_IDS);
+	private final AtomicReferenceArray<E> responses = new AtomicReferenceArray<E>(InvokeIdPool.NUMBER_OF_IDS);
+	private final AtomicLong droppedResponses = new AtomicLong();
+
+	/**
+	 * Registers the calling thread as receiver of all responses with the given invoke id. Any response still stored
+	 * for this invoke id is discarded.
+	 */
+	public void register(int invokeId) {
+		waiters.set(invokeId, Thread.currentThread());
+		if (responses.getAndSet(invokeId, null) != null) {
+			droppedResponses.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Stops receiving responses for the given invoke id. Responses arriving later are dropped.
+	 */
+	public void unregister(int invokeId) {
+		waiters.set(invokeId, null);
+		if (responses.getAndSet(invokeId, null) != null) {
+			droppedResponses.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Stores a received response and wakes up the thread waiting for it
+	 * 
+	 * @return false if nobody was waiting for this invoke id and the response has been dropped
+	 */
+	public boolean put(int invokeId, E data) {
+		if (invokeId < 0 || invokeId >= InvokeIdPool.NUMBER_OF_IDS) {
+			droppedResponses.incrementAndGet();
+			return false;
+		}
+
+		Thread waiter = waiters.get(invokeId);
+		if (waiter == null) {
+			droppedResponses.incrementAndGet();
+			return false;
+		}
+
+		if (responses.getAndSet(invokeId, data) != null) {
+			// Previous response has not been picked up yet. Only the latest one is kept
+			droppedResponses.incrementAndGet();
+		}
+		LockSupport.unpark(waiter);
+		return true;
+	}
+
+	/**
+	 * Waits for the response with the given invoke id. Must be called by the thread that registered the invoke id.
+	 * 
+	 * @param timeout
+	 *            Amount of milliseconds to wait. 0 waits indefinitely
+	 * @return The response or null if no response arrived in time
+	 * @throws InterruptedException
+	 */
+	public E poll(int invokeId, long timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+		while (true) {
+			E result = responses.getAndSet(invokeId, null);
+			if (result != null) {
+				return result;
+			}
+
+			if (timeout > 0) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return null;
+				}
+				LockSupport.parkNanos(this, remaining);
+			}
+			else {
+				LockSupport.park(this);
+			}
+
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+	}
+
+	/**
+	 * @return Number of responses dropped because nobody was waiting for them
+	 */
+	public long droppedResponses() {
+		return droppedResponses.get();
+	}
+}
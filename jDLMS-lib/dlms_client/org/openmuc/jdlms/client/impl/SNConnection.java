@@ -28,12 +28,13 @@ import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.openmuc.asn1.cosem.COSEMpdu;
 import org.openmuc.asn1.cosem.Conformance;
@@ -59,11 +60,14 @@ import org.openmuc.jdlms.client.GetRequest;
 import org.openmuc.jdlms.client.GetResult;
 import org.openmuc.jdlms.client.HlsSecretProcessor;
 import org.openmuc.jdlms.client.IAttributeRequest;
+import org.openmuc.jdlms.client.IShortNameMapStore;
+import org.openmuc.jdlms.client.IShortNameMapStore.StoredShortNameMap;
 import org.openmuc.jdlms.client.MethodRequest;
 import org.openmuc.jdlms.client.MethodResult;
 import org.openmuc.jdlms.client.MethodResultCode;
 import org.openmuc.jdlms.client.ObisCode;
 import org.openmuc.jdlms.client.SetRequest;
+import org.openmuc.jdlms.client.ShortNameMapping;
 import org.openmuc.jdlms.client.communication.ILowerLayer;
 import org.openmuc.jdlms.client.cosem.context.ApplicationContext;
 import org.openmuc.jdlms.client.cosem.context.MechanismName;
@@ -102,6 +106,16 @@ public class SNConnection extends Connection {
 		}
 	}
 
+	private static class VersionedIndex {
+		private final int mappingVersion;
+		private final ShortNameIndex index;
+
+		public VersionedIndex(int mappingVersion, ShortNameIndex index) {
+			this.mappingVersion = mappingVersion;
+			this.index = index;
+		}
+	}
+
 	// Allow read/write
 	// Allow unconfirmed write
 	// Allow information report
@@ -120,9 +134,28 @@ public class SNConnection extends Connection {
 	 */
 	private static Integer16 ASSOCIATION_OBJECT_LIST = new Integer16((short) 0xFA08);
 
-	private final Map<String, ObjectInfo> lnMapping = new LinkedHashMap<String, ObjectInfo>();
+	/**
+	 * Object holding the active firmware version. Used to check if stored short name mappings are still valid
+	 */
+	private static ObisCode FIRMWARE_VERSION = new ObisCode(1, 0, 0, 2, 0, 255);
+
+	private final Map<String, ObjectInfo> lnMapping = new ConcurrentHashMap<String, ObjectInfo>();
 	private volatile boolean isMapInitialized = false;
 
+	/**
+	 * Incremented after every change of lnMapping
+	 */
+	private final AtomicInteger mappingVersion = new AtomicInteger(0);
+
+	/**
+	 * Index over the short name ranges of all objects in lnMapping. Rebuilt if lnMapping has changed since the index
+	 * has been built
+	 */
+	private volatile VersionedIndex shortNameIndex = null;
+
+	private IShortNameMapStore mapStore = null;
+	private String meterIdentity = null;
+
 	private final BlockingQueue<ReadResponse> readResponseQueue = new ArrayBlockingQueue<ReadResponse>(3);
 	private final BlockingQueue<WriteResponse> writeResponseQueue = new ArrayBlockingQueue<WriteResponse>(3);
 
@@ -131,6 +164,19 @@ public class SNConnection extends Connection {
 		super(confirmedMode, authName, ApplicationContext.SHORT_NAME_NO_CIPHERING, lowerLayer, connectModule);
 	}
 
+	/**
+	 * Sets the store the short name mappings of this smart meter are persisted in
+	 * 
+	 * @param store
+	 *            The store to use or null to always read the association object list
+	 * @param meterIdentity
+	 *            Key of this smart meter in the store
+	 */
+	public void setShortNameMapStore(IShortNameMapStore store, String meterIdentity) {
+		mapStore = store;
+		this.meterIdentity = meterIdentity;
+	}
+
 	@Override
 	public void connect(long timeout) throws IOException {
 		connect(timeout, null, null);
@@ -159,12 +205,18 @@ public class SNConnection extends Connection {
 			disconnect(true);
 			throw new IOException("Wrong referencing method. Remote smart meter +" + "can't use SN referencing");
 		}
+
+		if (mapStore != null) {
+			loadStoredMap(timeout == 0 ? DEFAULT_TIMEOUT : timeout);
+		}
 	}
 
 	@Override
 	public List<GetResult> get(long timeout, boolean highPriority, GetRequest... params) throws IOException {
-		List<Variable_Access_Specification> shortNames = getVariableList(timeout, Arrays.asList(params));
+		return read(timeout, getVariableList(timeout, Arrays.asList(params)));
+	}
 
+	private List<GetResult> read(long timeout, List<Variable_Access_Specification> shortNames) throws IOException {
 		ReadRequest request = new ReadRequest();
 		for (Variable_Access_Specification name : shortNames) {
 			request.add(name);
@@ -217,7 +269,7 @@ public class SNConnection extends Connection {
 			request.variable_access_specification = new WriteRequest.SubSeqOf_variable_access_specification();
 			for (int i = 0; i < params.length; i++) {
 				request.variable_access_specification.add(shortNames.get(i));
-				request.list_of_data.add(DataConverter.toPdu(params[i].data()));
+				request.list_of_data.add(DataCodec.toPdu(params[i].data()));
 			}
 
 			COSEMpdu pdu = new COSEMpdu();
@@ -248,7 +300,7 @@ public class SNConnection extends Connection {
 			UnconfirmedWriteRequest request = new UnconfirmedWriteRequest();
 			for (int i = 0; i < params.length; i++) {
 				request.variable_access_specification.add(shortNames.get(i));
-				request.list_of_data.add(DataConverter.toPdu(params[i].data()));
+				request.list_of_data.add(DataCodec.toPdu(params[i].data()));
 			}
 
 			COSEMpdu pdu = new COSEMpdu();
@@ -299,7 +351,7 @@ public class SNConnection extends Connection {
 					}
 					else {
 						Variable_Access_Specification.SubSeq_parameterized_access accessParam = new Variable_Access_Specification.SubSeq_parameterized_access(
-								variableName, new Integer8(0), DataConverter.toPdu(param.data()));
+								variableName, new Integer8(0), DataCodec.toPdu(param.data()));
 						access.setparameterized_access(accessParam);
 					}
 
@@ -308,7 +360,7 @@ public class SNConnection extends Connection {
 				else {
 					access.setvariable_name(variableName);
 					methodsWithoutReturn.variable_access_specification.add(access);
-					methodsWithoutReturn.list_of_data.add(DataConverter.toPdu(param.data()));
+					methodsWithoutReturn.list_of_data.add(DataCodec.toPdu(param.data()));
 				}
 			}
 
@@ -393,7 +445,7 @@ public class SNConnection extends Connection {
 				access = new Variable_Access_Specification();
 				access.setvariable_name(variableName);
 				request.variable_access_specification.add(access);
-				request.list_of_data.add(DataConverter.toPdu(param.data()));
+				request.list_of_data.add(DataCodec.toPdu(param.data()));
 			}
 
 			COSEMpdu pdu = new COSEMpdu();
@@ -458,6 +510,7 @@ public class SNConnection extends Connection {
 				try {
 					ObjectInfo objectInfo = getVariableInfo(timeout, param);
 					lnMapping.put(obisCode, objectInfo);
+					mappingVersion.incrementAndGet();
 				} catch (IOException e) {
 					initializeLnMap(DEFAULT_TIMEOUT);
 				}
@@ -475,7 +528,7 @@ public class SNConnection extends Connection {
 					throw new IllegalArgumentException("Connection doesn't allow access selection");
 				}
 				accessSpec.setparameterized_access(new Variable_Access_Specification.SubSeq_parameterized_access(
-						variableName, new Integer8(param.getAccessSelection().getSelector()), DataConverter.toPdu(param
+						variableName, new Integer8(param.getAccessSelection().getSelector()), DataCodec.toPdu(param
 								.getAccessSelection().getParameter())));
 			}
 
@@ -529,6 +582,7 @@ public class SNConnection extends Connection {
 
 	private void initializeLnMap(long timeout) throws IOException {
 		if (isMapInitialized == false) {
+			boolean loaded = false;
 			synchronized (lnMapping) {
 				if (isMapInitialized == false) {
 					ReadRequest request = new ReadRequest();
@@ -560,13 +614,143 @@ public class SNConnection extends Connection {
 						lnMapping.put(key, value);
 					}
 
+					mappingVersion.incrementAndGet();
 					isMapInitialized = true;
+					loaded = true;
+				}
+			}
+
+			if (loaded) {
+				getShortNameIndex();
+				// Reads the firmware version from the smart meter, so it must not be called while holding lnMapping
+				if (mapStore != null) {
+					storeMap(timeout);
 				}
 			}
 		}
 		return;
 	}
 
+	/**
+	 * @return The index over the current short name mappings. Rebuilt if the mappings have changed
+	 */
+	private ShortNameIndex getShortNameIndex() {
+		VersionedIndex cached = shortNameIndex;
+		int version = mappingVersion.get();
+		if (cached != null && cached.mappingVersion == version) {
+			return cached.index;
+		}
+
+		// Changes made while copying increment the version again, so the index is rebuilt on the next call
+		List<Map.Entry<String, ObjectInfo>> entries = new ArrayList<Map.Entry<String, ObjectInfo>>(
+				lnMapping.entrySet());
+		ShortNameIndex result = new ShortNameIndex(entries.size());
+		for (Map.Entry<String, ObjectInfo> entry : entries) {
+			ObjectInfo info = entry.getValue();
+			result.add(entry.getKey(), info.getBaseName(), info.getClassId(), info.getVersion());
+		}
+		result.build();
+		shortNameIndex = new VersionedIndex(version, result);
+		return result;
+	}
+
+	/**
+	 * Loads the short name mappings stored for this smart meter. The mappings are only used if the firmware version of
+	 * the smart meter is still the same as at the time they were stored.
+	 */
+	private void loadStoredMap(long timeout) {
+		StoredShortNameMap stored;
+		try {
+			stored = mapStore.load(meterIdentity);
+		} catch (IOException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+			return;
+		}
+		if (stored == null) {
+			return;
+		}
+
+		ObjectInfo firmwareInfo = null;
+		for (ShortNameMapping mapping : stored.getMappings()) {
+			if (mapping.getObisCode().equals(FIRMWARE_VERSION.getHexCode())) {
+				firmwareInfo = new ObjectInfo(mapping.getBaseName(), mapping.getClassId(), mapping.getVersion());
+			}
+		}
+
+		try {
+			if (stored.getFirmware().equals(readFirmwareVersion(timeout, firmwareInfo)) == false) {
+				// Mappings are outdated, read the association object list on first use
+				return;
+			}
+		} catch (IOException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+			return;
+		}
+
+		synchronized (lnMapping) {
+			if (isMapInitialized) {
+				return;
+			}
+
+			for (ShortNameMapping mapping : stored.getMappings()) {
+				lnMapping.put(mapping.getObisCode(),
+						new ObjectInfo(mapping.getBaseName(), mapping.getClassId(), mapping.getVersion()));
+			}
+			mappingVersion.incrementAndGet();
+			isMapInitialized = true;
+		}
+		getShortNameIndex();
+	}
+
+	private void storeMap(long timeout) {
+		try {
+			List<ShortNameMapping> mappings = new ArrayList<ShortNameMapping>(lnMapping.size());
+			for (Map.Entry<String, ObjectInfo> entry : lnMapping.entrySet()) {
+				ObjectInfo info = entry.getValue();
+				mappings.add(new ShortNameMapping(entry.getKey(), info.getBaseName(), info.getClassId(), info
+						.getVersion()));
+			}
+			String firmware = readFirmwareVersion(timeout, lnMapping.get(FIRMWARE_VERSION.getHexCode()));
+			mapStore.store(meterIdentity, new StoredShortNameMap(firmware, mappings));
+		} catch (IOException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+		}
+	}
+
+	/**
+	 * Reads the firmware version using the given short name mapping of the firmware version object
+	 * 
+	 * @param firmwareInfo
+	 *            Mapping of the firmware version object. May be null if the smart meter has no such object
+	 * @return The firmware version as hex string. Empty if the smart meter does not provide a firmware version
+	 */
+	private String readFirmwareVersion(long timeout, ObjectInfo firmwareInfo) throws IOException {
+		if (firmwareInfo == null) {
+			return "";
+		}
+
+		// The version is held by attribute 2, the attribute following the base name
+		Variable_Access_Specification accessSpec = new Variable_Access_Specification();
+		accessSpec.setvariable_name(new Integer16(firmwareInfo.getBaseName() + 8));
+		GetResult result = read(timeout, Arrays.asList(accessSpec)).get(0);
+		if (result.isSuccess() == false) {
+			return "";
+		}
+
+		Data data = result.getResultData();
+		if (data.isByteArray()) {
+			StringBuilder sb = new StringBuilder();
+			for (byte b : data.getByteArray()) {
+				sb.append(String.format("%02x", b & 0xff));
+			}
+			return sb.toString();
+		}
+		else if (data.isNumber()) {
+			return data.getNumber().toString();
+		}
+		return "";
+	}
+
 	private String convertObjectId(byte[] objectId) {
 		if (objectId.length != 6) {
 			throw new IllegalArgumentException("ObjectId has wrong number of bytes. Should be 6, was "
@@ -575,7 +759,7 @@ public class SNConnection extends Connection {
 		StringBuilder sb = new StringBuilder();
 
 		for (byte b : objectId) {
-			String hex = Integer.toHexString(b % 0xff);
+			String hex = Integer.toHexString(b & 0xff);
 			if (hex.length() == 1) {
 				sb.append("0");
 			}
@@ -643,6 +827,8 @@ public class SNConnection extends Connection {
 			convertedTime = new Cosem_Date_Time(oStream.toByteArray());
 		}
 
+		ShortNameIndex index = getShortNameIndex();
+
 		Iterator<Variable_Access_Specification> eventIter;
 		Iterator<org.openmuc.asn1.cosem.Data> dataIter;
 
@@ -650,25 +836,23 @@ public class SNConnection extends Connection {
 				.iterator(); eventIter.hasNext() && dataIter.hasNext();) {
 			Variable_Access_Specification eventInfo = eventIter.next();
 			org.openmuc.asn1.cosem.Data eventData = dataIter.next();
-			for (String shortNameKey : lnMapping.keySet()) {
-				ObjectInfo shortNameInfo = lnMapping.get(shortNameKey);
-				if (InterfaceClassList.getClassInfo(shortNameInfo.getClassId(), shortNameInfo.getVersion()).isInRange(
-						(int) eventInfo.variable_name.getValue(), shortNameInfo.baseName)) {
-					Cosem_Attribute_Descriptor logicalNameInfo = new Cosem_Attribute_Descriptor(new Unsigned16(
-							shortNameInfo.classId), new Cosem_Object_Instance_Id(shortNameKey), new Integer8(
-							(eventInfo.variable_name.getValue() - shortNameInfo.baseName) / 8 + 1));
-
-					EVENT_NOTIFICATION_Request listItem = new EVENT_NOTIFICATION_Request();
-					listItem.cosem_attribute_descriptor = logicalNameInfo;
-					listItem.attribute_value = eventData;
-					if (event.current_time.isUsed()) {
-						listItem.time.setValue(convertedTime);
-					}
-					result.add(listItem);
+			int shortName = (int) eventInfo.variable_name.getValue() & 0xFFFF;
+			int position = index.find(shortName);
+			if (position == -1) {
+				continue outer;
+			}
 
-					continue outer;
-				}
+			Cosem_Attribute_Descriptor logicalNameInfo = new Cosem_Attribute_Descriptor(new Unsigned16(
+					index.getClassId(position)), new Cosem_Object_Instance_Id(index.getObisCode(position)),
+					new Integer8((shortName - index.getBaseName(position)) / 8 + 1));
+
+			EVENT_NOTIFICATION_Request listItem = new EVENT_NOTIFICATION_Request();
+			listItem.cosem_attribute_descriptor = logicalNameInfo;
+			listItem.attribute_value = eventData;
+			if (event.current_time.isUsed()) {
+				listItem.time.setValue(convertedTime);
 			}
+			result.add(listItem);
 		}
 
 		return result;
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.util.Arrays;
+
+/**
+ * Sorted index over the short name ranges of all objects of a smart meter using short name referencing. Finds the
+ * object owning a short name by binary search without allocating any objects.
+ * 
+ * The index is filled with {@link #add(String, int, int, int)} and is read only after {@link #build()} has been called.
+ * Short names are compared as unsigned 16 bit values.
+ */
+public class ShortNameIndex {
+
+	private final String[] obisCodes;
+	private final int[] classIds;
+	private final long[] ranges;
+	private int size = 0;
+	private boolean built = false;
+
+	/**
+	 * @param capacity
+	 *            Maximal number of objects added to this index
+	 */
+	public ShortNameIndex(int capacity) {
+		obisCodes = new String[capacity];
+		classIds = new int[capacity];
+		ranges = new long[capacity];
+	}
+
+	/**
+	 * Adds an object to the index. Objects of unknown interface classes are ignored
+	 * 
+	 * @param obisCode
+	 *            Logical name of the object
+	 * @param baseName
+	 *            Short name of the first attribute of the object
+	 */
+	public void add(String obisCode, int baseName, int classId, int version) {
+		InterfaceClass classInfo = InterfaceClassList.getClassInfo(classId, version);
+		if (classInfo == null) {
+			return;
+		}
+		baseName &= 0xFFFF;
+		int lastName = baseName + classInfo.getFirstOffset() + classInfo.getLastMethodIndex() * 8;
+
+		// Keep the position of the object in the lower bits, so the ranges can be sorted together with their objects
+		ranges[size] = ((long) baseName << 48) | ((long) (lastName & 0xFFFFFF) << 24) | size;
+		obisCodes[size] = obisCode;
+		classIds[size] = classId;
+		size++;
+	}
+
+	/**
+	 * Sorts the index. Must be called after the last object has been added
+	 */
+	public void build() {
+		Arrays.sort(ranges, 0, size);
+		built = true;
+	}
+
+	/**
+	 * Finds the object owning the given short name
+	 * 
+	 * @return Position of the object in this index or -1 if no object owns the short name
+	 */
+	public int find(int shortName) {
+		if (built == false) {
+			throw new IllegalStateException("Index has not been built");
+		}
+
+		shortName &= 0xFFFF;
+
+		int low = 0;
+		int high = size - 1;
+		int candidate = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (baseNameAt(mid) <= shortName) {
+				candidate = mid;
+				low = mid + 1;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+
+		if (candidate == -1 || lastNameAt(candidate) < shortName) {
+			return -1;
+		}
+		return candidate;
+	}
+
+	/**
+	 * @return Logical name of the object at the given position
+	 */
+	public String getObisCode(int position) {
+		return obisCodes[objectAt(position)];
+	}
+
+	/**
+	 * @return Class id of the object at the given position
+	 */
+	public int getClassId(int position) {
+		return classIds[objectAt(position)];
+	}
+
+	/**
+	 * @return Short name of the first attribute of the object at the given position, as unsigned value
+	 */
+	public int getBaseName(int position) {
+		return baseNameAt(position);
+	}
+
+	private int baseNameAt(int position) {
+		return (int) (ranges[position] >>> 48);
+	}
+
+	private int lastNameAt(int position) {
+		return (int) ((ranges[position] >>> 24) & 0xFFFFFF);
+	}
+
+	private int objectAt(int position) {
+		return (int) (ranges[position] & 0xFFFFFF);
+	}
+}
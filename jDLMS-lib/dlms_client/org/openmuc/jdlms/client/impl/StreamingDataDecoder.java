@@ -0,0 +1,306 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.openmuc.jdlms.client.IDataStreamListener;
+
+/**
+ * Incremental decoder for the raw data of a GET block transfer.
+ * 
+ * The datablocks are handed in as they arrive with {@link #write(ByteBuffer)}. If the transferred value is an array,
+ * each element is decoded and passed to the listener as soon as all of its bytes have been received. Only the bytes of
+ * the element that is currently incomplete are kept in memory. Any other value is passed to the listener as one
+ * element once it is complete.
+ */
+public class StreamingDataDecoder {
+
+	private static final int ARRAY_TAG = 1;
+	private static final int STRUCTURE_TAG = 2;
+	private static final int BIT_STRING_TAG = 4;
+	private static final int COMPACT_ARRAY_TAG = 19;
+
+	private final IDataStreamListener listener;
+
+	private byte[] buffer = new byte[256];
+	private int position = 0;
+	private int limit = 0;
+
+	/**
+	 * Number of array elements not yet passed to the listener. -1 as long as the array header has not been read
+	 */
+	private int remainingElements = -1;
+	private boolean finished = false;
+
+	public StreamingDataDecoder(IDataStreamListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Adds the next datablock and passes all elements completed by it to the listener
+	 * 
+	 * @throws IOException
+	 *             If the received data is malformed
+	 */
+	public void write(byte[] datablock) throws IOException {
+		write(ByteBuffer.wrap(datablock));
+	}
+
+	/**
+	 * Adds the next datablock and passes all elements completed by it to the listener. The remaining bytes of the
+	 * datablock are consumed.
+	 * 
+	 * @throws IOException
+	 *             If the received data is malformed
+	 */
+	public void write(ByteBuffer datablock) throws IOException {
+		append(datablock);
+
+		if (remainingElements == -1 && readHeader() == false) {
+			return;
+		}
+
+		while (finished == false) {
+			int end = scanData(buffer, position, limit);
+			if (end == -1) {
+				return;
+			}
+
+			// The buffer is reused for the following blocks, the element gets a copy of its code
+			byte[] element = Arrays.copyOfRange(buffer, position, end);
+			position = end;
+			remainingElements--;
+			finished = remainingElements == 0;
+
+			listener.elementReceived(LazyDataList.toApi(element, 0, element.length));
+		}
+	}
+
+	/**
+	 * Checks that all announced data has been received. To be called after the last datablock
+	 * 
+	 * @throws IOException
+	 *             If the data ended before the last element was complete
+	 */
+	public void finish() throws IOException {
+		if (finished == false) {
+			throw new IOException("Block transfer ended before all data has been received");
+		}
+	}
+
+	/**
+	 * Reads the tag and, if the value is an array, the number of its elements
+	 * 
+	 * @return false if more data is needed
+	 */
+	private boolean readHeader() throws IOException {
+		if (limit - position < 1) {
+			return false;
+		}
+
+		if ((buffer[position] & 0xff) != ARRAY_TAG) {
+			// No array. Pass the whole value as one element
+			remainingElements = 1;
+			return true;
+		}
+
+		long length = readLength(buffer, position + 1, limit);
+		if (length == -1) {
+			return false;
+		}
+		remainingElements = (int) (length >>> 32);
+		position = (int) length;
+		finished = remainingElements == 0;
+		return true;
+	}
+
+	private void append(ByteBuffer data) {
+		if (position > 0) {
+			// Drop all bytes that have already been decoded
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		}
+		int length = data.remaining();
+		if (limit + length > buffer.length) {
+			byte[] newBuffer = new byte[Math.max(buffer.length * 2, limit + length)];
+			System.arraycopy(buffer, 0, newBuffer, 0, limit);
+			buffer = newBuffer;
+		}
+		data.get(buffer, limit, length);
+		limit += length;
+	}
+
+	/**
+	 * Determines the end of the A-XDR encoded Data value starting at offset without decoding it
+	 * 
+	 * @return Index behind the last byte of the value or -1 if the value is not yet complete
+	 */
+	static int scanData(byte[] code, int offset, int limit) throws IOException {
+		if (offset >= limit) {
+			return -1;
+		}
+		int tag = code[offset] & 0xff;
+		offset++;
+
+		switch (tag) {
+		case 0: // null-data
+		case 255: // dont-care
+			return offset;
+		case 3: // boolean
+		case 13: // bcd
+		case 15: // integer
+		case 17: // unsigned
+		case 22: // enum
+			return checkedEnd(offset + 1, limit);
+		case 16: // long
+		case 18: // long-unsigned
+			return checkedEnd(offset + 2, limit);
+		case 5: // double-long
+		case 6: // double-long-unsigned
+			return checkedEnd(offset + 4, limit);
+		case 20: // long64
+		case 21: // long64-unsigned
+			return checkedEnd(offset + 8, limit);
+		case 9: // octet-string
+		case 10: // visible-string
+		case 23: // float32
+		case 24: // float64
+		case 25: // date-time
+		case 26: // date
+		case 27: // time
+			return scanOctetString(code, offset, limit);
+		case BIT_STRING_TAG: {
+			long length = readLength(code, offset, limit);
+			if (length == -1) {
+				return -1;
+			}
+			int bits = (int) (length >>> 32);
+			return checkedEnd((int) length + (bits + 7) / 8, limit);
+		}
+		case ARRAY_TAG:
+		case STRUCTURE_TAG: {
+			long length = readLength(code, offset, limit);
+			if (length == -1) {
+				return -1;
+			}
+			int elements = (int) (length >>> 32);
+			offset = (int) length;
+			for (int i = 0; i < elements; i++) {
+				offset = scanData(code, offset, limit);
+				if (offset == -1) {
+					return -1;
+				}
+			}
+			return offset;
+		}
+		case COMPACT_ARRAY_TAG:
+			offset = scanTypeDescription(code, offset, limit);
+			if (offset == -1) {
+				return -1;
+			}
+			return scanOctetString(code, offset, limit);
+		default:
+			throw new IOException("Error decoding Data: Unknown tag " + tag);
+		}
+	}
+
+	private static int scanTypeDescription(byte[] code, int offset, int limit) throws IOException {
+		if (offset >= limit) {
+			return -1;
+		}
+		int tag = code[offset] & 0xff;
+		offset++;
+
+		if (tag == ARRAY_TAG) {
+			// number of elements (unsigned16) followed by the element type
+			offset += 2;
+			if (offset > limit) {
+				return -1;
+			}
+			return scanTypeDescription(code, offset, limit);
+		}
+		else if (tag == STRUCTURE_TAG) {
+			long length = readLength(code, offset, limit);
+			if (length == -1) {
+				return -1;
+			}
+			int elements = (int) (length >>> 32);
+			offset = (int) length;
+			for (int i = 0; i < elements; i++) {
+				offset = scanTypeDescription(code, offset, limit);
+				if (offset == -1) {
+					return -1;
+				}
+			}
+			return offset;
+		}
+		return offset;
+	}
+
+	private static int scanOctetString(byte[] code, int offset, int limit) throws IOException {
+		long length = readLength(code, offset, limit);
+		if (length == -1) {
+			return -1;
+		}
+		return checkedEnd((int) length + (int) (length >>> 32), limit);
+	}
+
+	/**
+	 * Reads an A-XDR length field
+	 * 
+	 * @return The length in the upper and the index behind the length field in the lower 32 bits, or -1 if the length
+	 *         field is not yet complete
+	 */
+	static long readLength(byte[] code, int offset, int limit) throws IOException {
+		if (offset >= limit) {
+			return -1;
+		}
+		int first = code[offset] & 0xff;
+		offset++;
+		if ((first & 0x80) == 0) {
+			return ((long) first << 32) | offset;
+		}
+
+		int lengthOfLength = first & 0x7f;
+		if (lengthOfLength > 4) {
+			throw new IOException("Error decoding length: Length field too long");
+		}
+		if (offset + lengthOfLength > limit) {
+			return -1;
+		}
+		long length = 0;
+		for (int i = 0; i < lengthOfLength; i++) {
+			length = (length << 8) | (code[offset + i] & 0xff);
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Error decoding length: Length out of range");
+		}
+		return (length << 32) | (offset + lengthOfLength);
+	}
+
+	private static int checkedEnd(int end, int limit) {
+		return end > limit ? -1 : end;
+	}
+}
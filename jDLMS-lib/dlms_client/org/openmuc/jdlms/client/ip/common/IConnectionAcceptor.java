@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.ip.common;
+
+import org.openmuc.jdlms.client.communication.IUpperLayer;
+
+/**
+ * Creates the upper layers of incoming connections accepted by a {@link TcpServerListener}
+ */
+public interface IConnectionAcceptor {
+	/**
+	 * Called the first time a WPDU is received for a pair of WPorts on an accepted connection. Runs on a selector
+	 * thread and must not block.
+	 * 
+	 * @param identifier
+	 *            WPorts and address of the remote end point. The local WPort is the destination WPort of the WPDU
+	 * @param connection
+	 *            The connection the WPDU has been received on. Used to send responses
+	 * @return The upper layer receiving all WPDUs of this pair of WPorts or null to drop the WPDU
+	 */
+	IUpperLayer accept(ConnectionIdentifier identifier, ITcpLayer connection);
+}
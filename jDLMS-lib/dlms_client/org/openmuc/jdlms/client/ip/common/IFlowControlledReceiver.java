@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.ip.common;
+
+/**
+ * Upper layer that may hold back the delivery of further WPDUs, e.g. because it cannot pass the data on yet. See
+ * {@link ReceiveQueue#pause()}.
+ */
+public interface IFlowControlledReceiver {
+	/**
+	 * Called once by the queue delivering the WPDUs to this upper layer, before the first WPDU is delivered
+	 * 
+	 * @param queue
+	 *            The queue that may be paused and resumed by this upper layer
+	 */
+	void setReceiveQueue(ReceiveQueue queue);
+}
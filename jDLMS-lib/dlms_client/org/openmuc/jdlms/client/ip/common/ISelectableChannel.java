@@ -24,10 +24,19 @@ import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 
+/**
+ * Channel whose I/O events are handled by the {@link SelectController}
+ */
 public interface ISelectableChannel {
+	/**
+	 * Called by the selector thread the channel is assigned to if the channel is ready for I/O
+	 */
 	public void processSelection(SelectionKey key) throws IOException;
 
-	public void registerSelector(Selector selector) throws IOException;
-
-	public boolean isRightKey(SelectionKey key);
+	/**
+	 * Registers the underlying channel at the given selector
+	 * 
+	 * @return The key of the registration. The selector thread attaches the ISelectableChannel to it
+	 */
+	public SelectionKey registerSelector(Selector selector) throws IOException;
 }
@@ -21,6 +21,7 @@
 package org.openmuc.jdlms.client.ip.common;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.TooManyListenersException;
 
 import org.openmuc.jdlms.client.communication.IUpperLayer;
@@ -33,11 +34,20 @@ import org.openmuc.jdlms.client.communication.IUpperLayer;
 public interface ITcpLayer {
 
 	/**
-	 * Establishes an connection to the remote smart meter
+	 * Establishes an connection to the remote smart meter. The socket is connected by the selector thread, so any
+	 * number of connections may be established at the same time. If the socket is already connected or being
+	 * connected, this method only waits for the result.
 	 * 
+	 * @param timeout
+	 *            Time in milliseconds to wait for the connection. 0 waits indefinitely
 	 * @throws IOException
 	 */
-	public abstract void connect() throws IOException;
+	public abstract void connect(long timeout) throws IOException;
+
+	/**
+	 * @return true if at least one upper layer is connected over this layer
+	 */
+	public abstract boolean isConnected();
 
 	/**
 	 * Closes the connection to the remote smart meter
@@ -49,7 +59,7 @@ public interface ITcpLayer {
 	/**
 	 * Sends data to the remote smart meter
 	 * 
-	 * Prior to sending data, the connection needs to be successfully established using {@link ITcpLayer#connect()}
+	 * Prior to sending data, the connection needs to be successfully established using {@link ITcpLayer#connect(long)}
 	 * 
 	 * @param data
 	 *            Data to send
@@ -57,6 +67,42 @@ public interface ITcpLayer {
 	 */
 	public abstract void send(byte[] data) throws IOException;
 
+	/**
+	 * Sends a WPDU to the remote smart meter. The header is created by this layer and written together with the data,
+	 * without copying the data.
+	 * 
+	 * Data is queued if it can not be written immediately. If the send queue is full, this method blocks until enough
+	 * queued data has been written.
+	 * 
+	 * @param sourceWPort
+	 *            Local WPort of the sender
+	 * @param destinationWPort
+	 *            WPort of the receiver on the smart meter
+	 * @param data
+	 *            Payload of the WPDU
+	 * @throws IOException
+	 */
+	public abstract void send(int sourceWPort, int destinationWPort, byte[] data) throws IOException;
+
+	/**
+	 * Sends a WPDU to the remote smart meter like {@link #send(int, int, byte[])}. The data is only copied if it can not
+	 * be written immediately, it is no longer referenced once this method returns.
+	 * 
+	 * @param sourceWPort
+	 *            Local WPort of the sender
+	 * @param destinationWPort
+	 *            WPort of the receiver on the smart meter
+	 * @param data
+	 *            Payload of the WPDU, from its position to its limit
+	 * @throws IOException
+	 */
+	public abstract void send(int sourceWPort, int destinationWPort, ByteBuffer data) throws IOException;
+
+	/**
+	 * @return false if the send queue is full and the next call of a send method would block
+	 */
+	public abstract boolean isWritable();
+
 	/**
 	 * Register the given IReceivingListener as upper layer client, able to receive WPDUs from this connection.
 	 * 
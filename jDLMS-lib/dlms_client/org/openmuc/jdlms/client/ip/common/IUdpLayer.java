@@ -44,8 +44,11 @@ public interface IUdpLayer {
 	 *            The upper layer object to register
 	 * @throws TooManyListenersException
 	 *             If another listener is already registered with the given key
+	 * @throws IOException
+	 *             If the channel could not be registered for receiving datagrams
 	 */
-	public void registerUdpListener(ConnectionIdentifier key, IUpperLayer listener) throws TooManyListenersException;
+	public void registerUdpListener(ConnectionIdentifier key, IUpperLayer listener) throws TooManyListenersException,
+			IOException;
 
 	/**
 	 * Removes the IReceivingListener behind the given key from this connection. Further WPDUs with its WPort as
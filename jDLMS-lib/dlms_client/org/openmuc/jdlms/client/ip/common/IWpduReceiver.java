@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.ip.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Upper layer that is able to process received WPDUs without copying them into a byte array first
+ */
+public interface IWpduReceiver {
+	/**
+	 * Callback method, indicating that a complete WPDU has been received.
+	 * 
+	 * @param wpdu
+	 *            Read only view on the WPDU, header included. Only valid until this method returns, the content has to
+	 *            be copied if it is needed afterwards
+	 */
+	void wpduReceived(ByteBuffer wpdu);
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.ip.common;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference counted direct buffer that received bytes are read into. Complete WPDUs are handed to the upper layers as
+ * slices of this buffer, each slice holding a reference until it has been processed. The buffer returns to a shared
+ * pool as soon as the last reference has been released.
+ */
+public final class ReceiveBuffer {
+
+	/**
+	 * Room for two WPDUs of maximum size, header included
+	 */
+	public static final int CAPACITY = 2 * (0xFFFF + 8);
+
+	private static final int MAX_IDLE = 16;
+
+	private static final Queue<ReceiveBuffer> pool = new ConcurrentLinkedQueue<ReceiveBuffer>();
+	private static final AtomicInteger idle = new AtomicInteger(0);
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(CAPACITY);
+	private final AtomicInteger references = new AtomicInteger(0);
+
+	private ReceiveBuffer() {
+	}
+
+	/**
+	 * Takes a buffer out of the pool, or creates a new one if the pool is empty
+	 * 
+	 * @return A cleared buffer holding one reference for the caller
+	 */
+	public static ReceiveBuffer obtain() {
+		ReceiveBuffer result = pool.poll();
+		if (result == null) {
+			result = new ReceiveBuffer();
+		}
+		else {
+			idle.decrementAndGet();
+		}
+		result.buffer.clear();
+		result.references.set(1);
+		return result;
+	}
+
+	/**
+	 * @return The underlying direct buffer
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Creates a read only view on a part of this buffer and adds a reference for it, which has to be released once the
+	 * view is no longer used.
+	 * 
+	 * @param offset
+	 *            Index of the first byte of the view
+	 * @param length
+	 *            Number of bytes in the view
+	 */
+	public ByteBuffer slice(int offset, int length) {
+		ByteBuffer result = buffer.asReadOnlyBuffer();
+		result.limit(offset + length);
+		result.position(offset);
+		references.incrementAndGet();
+		return result.slice();
+	}
+
+	/**
+	 * @return true if no slices of this buffer are in use
+	 */
+	public boolean isExclusive() {
+		return references.get() == 1;
+	}
+
+	/**
+	 * Releases one reference. The buffer must not be used by the caller afterwards
+	 */
+	public void release() {
+		if (references.decrementAndGet() == 0) {
+			if (idle.incrementAndGet() <= MAX_IDLE) {
+				pool.add(this);
+			}
+			else {
+				idle.decrementAndGet();
+			}
+		}
+	}
+}
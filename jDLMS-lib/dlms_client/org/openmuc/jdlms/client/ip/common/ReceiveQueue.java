@@ -0,0 +1,284 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.ip.common;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openmuc.jdlms.client.communication.IUpperLayer;
+
+/**
+ * Hands the WPDUs received for one upper layer over to a shared pool of decoding threads, so decoding and user
+ * callbacks never run on a selector thread.
+ * 
+ * All WPDUs of one queue are delivered in the order they have been received and never concurrently. Different queues
+ * are processed in parallel.
+ * 
+ * An upper layer that cannot pass received data on must not block the decoding thread, as the threads are shared with
+ * all connections. It pauses its queue instead, see {@link IFlowControlledReceiver}.
+ */
+public class ReceiveQueue implements Runnable {
+
+	public static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * Maximum number of WPDUs delivered in one go before the worker thread is handed to the next queue
+	 */
+	private static final int BATCH_SIZE = 16;
+
+	private static final Object DISCONNECT = new Object();
+
+	private static ExecutorService workers;
+	private static int numberOfWorkers = Runtime.getRuntime().availableProcessors();
+
+	private final IUpperLayer listener;
+	private final int capacity;
+
+	private final Queue<Object> pending = new ConcurrentLinkedQueue<Object>();
+	private final AtomicInteger size = new AtomicInteger(0);
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	private final AtomicReference<Runnable> drainedHook = new AtomicReference<Runnable>();
+	private volatile boolean paused = false;
+
+	/**
+	 * @param listener
+	 *            Upper layer receiving the WPDUs
+	 * @param capacity
+	 *            Number of WPDUs that may wait for delivery
+	 */
+	public ReceiveQueue(IUpperLayer listener, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		}
+		this.listener = listener;
+		this.capacity = capacity;
+		if (listener instanceof IFlowControlledReceiver) {
+			((IFlowControlledReceiver) listener).setReceiveQueue(this);
+		}
+	}
+
+	/**
+	 * Sets the number of threads decoding received WPDUs. Has to be called before the first WPDU is received. Defaults
+	 * to the number of available processors.
+	 * 
+	 * @param number
+	 *            Number of decoding threads. Must be at least 1
+	 * @throws IllegalStateException
+	 *             If the decoding threads have already been started
+	 */
+	public static synchronized void setNumberOfWorkers(int number) {
+		if (number < 1) {
+			throw new IllegalArgumentException("At least one decoding thread is needed");
+		}
+		if (workers != null) {
+			throw new IllegalStateException("Decoding threads already started");
+		}
+		numberOfWorkers = number;
+	}
+
+	private static synchronized ExecutorService getWorkers() {
+		if (workers == null) {
+			workers = Executors.newFixedThreadPool(numberOfWorkers, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger(0);
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread result = new Thread(r, "PDU decoding Thread " + count.getAndIncrement());
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return workers;
+	}
+
+	/**
+	 * @return The upper layer receiving the WPDUs of this queue
+	 */
+	public IUpperLayer getListener() {
+		return listener;
+	}
+
+	/**
+	 * Queues a WPDU if the queue is not full
+	 * 
+	 * @param wpdu
+	 *            The complete WPDU, including its header
+	 * @return false if the queue is full and the WPDU has not been queued
+	 */
+	public boolean offer(byte[] wpdu) {
+		if (size.get() >= capacity) {
+			return false;
+		}
+		enqueue(wpdu);
+		return true;
+	}
+
+	/**
+	 * Queues a WPDU even if the queue is full. Callers have to stop receiving data until {@link #isFull()} returns
+	 * false again, see {@link #whenDrained(Runnable)}.
+	 * 
+	 * If the listener is an {@link IWpduReceiver}, the view is passed on as is. Otherwise it is copied into a byte
+	 * array first.
+	 * 
+	 * @param wpdu
+	 *            View on the complete WPDU, including its header
+	 * @param owner
+	 *            Buffer the view belongs to. One reference of it is released after the WPDU has been delivered
+	 */
+	public void put(ByteBuffer wpdu, ReceiveBuffer owner) {
+		enqueue(new Frame(wpdu, owner));
+	}
+
+	/**
+	 * Queues the notification that the remote end point closed the connection. It is delivered after all WPDUs queued
+	 * before.
+	 */
+	public void disconnect() {
+		enqueue(DISCONNECT);
+	}
+
+	/**
+	 * @return true if the queue is full or paused. The lower layer has to stop receiving data then
+	 */
+	public boolean isFull() {
+		return paused || size.get() >= capacity;
+	}
+
+	/**
+	 * Stops delivering WPDUs after the one currently delivered. Further WPDUs are queued and the queue reports to be
+	 * full until {@link #resume()} is called, so the lower layer stops reading from this connection.
+	 */
+	public void pause() {
+		paused = true;
+	}
+
+	/**
+	 * Continues the delivery of WPDUs after {@link #pause()}
+	 */
+	public void resume() {
+		paused = false;
+		if (size.get() <= capacity / 2) {
+			fireDrainedHook();
+		}
+		if (pending.isEmpty() == false) {
+			schedule();
+		}
+	}
+
+	/**
+	 * Registers a hook that is called once, as soon as the queue has been drained to half of its capacity. If the
+	 * queue is already below that mark, the hook is called immediately.
+	 * 
+	 * @param hook
+	 *            Hook to call. Is called on a decoding thread and must not block
+	 */
+	public void whenDrained(Runnable hook) {
+		drainedHook.set(hook);
+		if (paused == false && size.get() <= capacity / 2) {
+			fireDrainedHook();
+		}
+	}
+
+	private void enqueue(Object item) {
+		pending.add(item);
+		size.incrementAndGet();
+		schedule();
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			getWorkers().execute(this);
+		}
+	}
+
+	private void fireDrainedHook() {
+		Runnable hook = drainedHook.getAndSet(null);
+		if (hook != null) {
+			hook.run();
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			Object item;
+			int delivered = 0;
+			while (delivered < BATCH_SIZE && paused == false && (item = pending.poll()) != null) {
+				delivered++;
+				try {
+					if (item == DISCONNECT) {
+						listener.remoteDisconnect();
+					}
+					else if (item instanceof Frame) {
+						deliver((Frame) item);
+					}
+					else {
+						listener.dataReceived((byte[]) item);
+					}
+				} catch (RuntimeException e) {
+					//TODO LoggingHelper.logStackTrace(e, logger);
+				}
+
+				if (size.decrementAndGet() <= capacity / 2 && paused == false) {
+					fireDrainedHook();
+				}
+			}
+		} finally {
+			scheduled.set(false);
+			if (paused == false && pending.isEmpty() == false) {
+				schedule();
+			}
+		}
+	}
+
+	private void deliver(Frame frame) {
+		try {
+			if (listener instanceof IWpduReceiver) {
+				((IWpduReceiver) listener).wpduReceived(frame.wpdu);
+			}
+			else {
+				byte[] data = new byte[frame.wpdu.remaining()];
+				frame.wpdu.get(data);
+				listener.dataReceived(data);
+			}
+		} finally {
+			frame.owner.release();
+		}
+	}
+
+	private static class Frame {
+		private final ByteBuffer wpdu;
+		private final ReceiveBuffer owner;
+
+		public Frame(ByteBuffer wpdu, ReceiveBuffer owner) {
+			this.wpdu = wpdu;
+			this.owner = owner;
+		}
+	}
+}
@@ -21,88 +21,112 @@
 package org.openmuc.jdlms.client.ip.common;
 
 import java.io.IOException;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class SelectController extends Thread {
+/**
+ * Distributes all {@link ISelectableChannel} over a fixed number of selector threads.
+ * 
+ * New channels are assigned to the selector thread that currently handles the least channels. Every channel stays on
+ * its selector thread until it is removed, so the events of one channel are always processed in order.
+ */
+public class SelectController {
 
 	private static SelectController instance;
+	private static int numberOfSelectors = Runtime.getRuntime().availableProcessors();
 
-	private final List<ISelectableChannel> registeredChannel = new LinkedList<ISelectableChannel>();
-	private final List<ISelectableChannel> toRegister = new LinkedList<ISelectableChannel>();
+	private final SelectorThread[] selectors;
+	private final Map<ISelectableChannel, SelectorThread> assignments = new ConcurrentHashMap<ISelectableChannel, SelectorThread>();
 
-	private SelectController() {
-		setDaemon(true);
-		setName("IP listening Thread");
-		// TODO create TcpServerListener as ISelectableChannel and register an
-		// instance here to support incoming connection for server side code
+	private SelectController(int numberOfSelectors) throws IOException {
+		selectors = new SelectorThread[numberOfSelectors];
+		for (int i = 0; i < numberOfSelectors; i++) {
+			selectors[i] = new SelectorThread(i);
+		}
+		for (SelectorThread selector : selectors) {
+			selector.start();
+		}
 	}
 
-	public static SelectController getInstance() {
+	public static synchronized SelectController getInstance() throws IOException {
 		if (instance == null) {
-			instance = new SelectController();
-			instance.start();
+			instance = new SelectController(numberOfSelectors);
 		}
 		return instance;
 	}
 
+	/**
+	 * Sets the number of selector threads handling IP communication. Has to be called before the first connection is
+	 * established. Defaults to the number of available processors.
+	 * 
+	 * @param number
+	 *            Number of selector threads. Must be at least 1
+	 * @throws IllegalStateException
+	 *             If the selector threads have already been started
+	 */
+	public static synchronized void setNumberOfSelectors(int number) {
+		if (number < 1) {
+			throw new IllegalArgumentException("At least one selector thread is needed");
+		}
+		if (instance != null) {
+			throw new IllegalStateException("Selector threads already started");
+		}
+		numberOfSelectors = number;
+	}
+
 	public void registerChannel(ISelectableChannel channel) {
-		toRegister.add(channel);
+		SelectorThread selector = assignments.get(channel);
+		if (selector == null) {
+			selector = leastLoaded();
+			assignments.put(channel, selector);
+		}
+		selector.registerChannel(channel);
 	}
 
 	public void removeChannel(ISelectableChannel channel) {
-		toRegister.remove(channel);
-		registeredChannel.remove(channel);
+		SelectorThread selector = assignments.remove(channel);
+		if (selector != null) {
+			selector.removeChannel(channel);
+		}
 	}
 
-	@Override
-	public void run() {
-		Selector select;
-
-		try {
-			select = Selector.open();
-		} catch (IOException e) {
-			//TODO LoggingHelper.logStackTrace(e, logger);
-			instance = null;
-			return;
+	/**
+	 * Runs the given task on the selector thread of the channel, e.g. to change the interest set of its key. Selection
+	 * keys should only be modified there, as changing them while the selector is blocked may block the caller.
+	 * 
+	 * @param channel
+	 *            A registered channel
+	 * @param task
+	 *            Task to run. Must not block
+	 */
+	public void execute(ISelectableChannel channel, Runnable task) {
+		SelectorThread selector = assignments.get(channel);
+		if (selector != null) {
+			selector.execute(task);
 		}
+	}
 
-		while (Thread.interrupted() == false) {
-			try {
-				// Register channels added after last select
-				for (ISelectableChannel channel : toRegister) {
-					channel.registerSelector(select);
-					registeredChannel.add(channel);
-				}
-				toRegister.clear();
-
-				select.select(1000);
-				Set<SelectionKey> keys = select.selectedKeys();
-
-				Iterator<ISelectableChannel> channelIter = registeredChannel.iterator();
-
-				// Iterate until all channels have been checked or the set of
-				// selected keys is empty
-				while (channelIter.hasNext() && keys.isEmpty() == false) {
-					ISelectableChannel channel = channelIter.next();
-					Iterator<SelectionKey> iter = keys.iterator();
+	/**
+	 * @return Number of channels handled by each selector thread
+	 */
+	public int[] getLoad() {
+		int[] result = new int[selectors.length];
+		for (int i = 0; i < selectors.length; i++) {
+			result[i] = selectors[i].getLoad();
+		}
+		return result;
+	}
 
-					while (iter.hasNext()) {
-						SelectionKey key = iter.next();
-						if (channel.isRightKey(key)) {
-							iter.remove();
-							channel.processSelection(key);
-						}
-					}
-				}
-			} catch (IOException e) {
-				//TODO logger.debug("Error on select");
-				//TODO LoggingHelper.logStackTrace(e, logger);
+	private SelectorThread leastLoaded() {
+		SelectorThread result = selectors[0];
+		int minLoad = result.getLoad();
+		for (int i = 1; i < selectors.length; i++) {
+			int load = selectors[i].getLoad();
+			if (load < minLoad) {
+				result = selectors[i];
+				minLoad = load;
 			}
 		}
+		return result;
 	}
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.ip.common;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One selector of the {@link SelectController}. Handles all I/O events of the channels assigned to it.
+ * 
+ * Channels may be added and removed from any thread. The changes are queued and applied by the selector thread itself
+ * after waking it up, as registering a channel while the selector is blocked in select would block the caller.
+ */
+class SelectorThread extends Thread {
+
+	private final Selector selector;
+
+	private final Queue<ISelectableChannel> toRegister = new ConcurrentLinkedQueue<ISelectableChannel>();
+	private final Queue<ISelectableChannel> toRemove = new ConcurrentLinkedQueue<ISelectableChannel>();
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	/**
+	 * Keys of all registered channels. Only accessed by the selector thread
+	 */
+	private final Map<ISelectableChannel, SelectionKey> registeredChannels = new IdentityHashMap<ISelectableChannel, SelectionKey>();
+
+	/**
+	 * Number of channels assigned to this selector, including those not yet registered
+	 */
+	private final AtomicInteger load = new AtomicInteger(0);
+
+	SelectorThread(int number) throws IOException {
+		selector = Selector.open();
+		setDaemon(true);
+		setName("IP listening Thread " + number);
+	}
+
+	void registerChannel(ISelectableChannel channel) {
+		load.incrementAndGet();
+		toRegister.add(channel);
+		selector.wakeup();
+	}
+
+	void removeChannel(ISelectableChannel channel) {
+		toRemove.add(channel);
+		selector.wakeup();
+	}
+
+	void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	int getLoad() {
+		return load.get();
+	}
+
+	@Override
+	public void run() {
+		while (Thread.interrupted() == false) {
+			try {
+				applyRegistrations();
+				runTasks();
+
+				selector.select(1000);
+
+				Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+				while (iter.hasNext()) {
+					SelectionKey key = iter.next();
+					iter.remove();
+
+					ISelectableChannel channel = (ISelectableChannel) key.attachment();
+					try {
+						if (key.isValid()) {
+							channel.processSelection(key);
+						}
+					} catch (CancelledKeyException e) {
+						// Channel has been closed while processing the event
+					} catch (IOException e) {
+						//TODO LoggingHelper.logStackTrace(e, logger);
+					}
+				}
+			} catch (IOException e) {
+				//TODO logger.debug("Error on select");
+				//TODO LoggingHelper.logStackTrace(e, logger);
+			}
+		}
+
+		try {
+			selector.close();
+		} catch (IOException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+		}
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (CancelledKeyException e) {
+				// Channel has been closed in the meantime
+			} catch (RuntimeException e) {
+				//TODO LoggingHelper.logStackTrace(e, logger);
+			}
+		}
+	}
+
+	private void applyRegistrations() {
+		ISelectableChannel channel;
+		while ((channel = toRemove.poll()) != null) {
+			SelectionKey key = registeredChannels.remove(channel);
+			if (key != null) {
+				key.cancel();
+				load.decrementAndGet();
+			}
+			else if (toRegister.remove(channel)) {
+				load.decrementAndGet();
+			}
+		}
+
+		while ((channel = toRegister.poll()) != null) {
+			try {
+				SelectionKey key = channel.registerSelector(selector);
+				key.attach(channel);
+				SelectionKey oldKey = registeredChannels.put(channel, key);
+				if (oldKey != null) {
+					// Channel has been registered again, e.g. after a reconnect
+					load.decrementAndGet();
+				}
+			} catch (IOException e) {
+				load.decrementAndGet();
+				//TODO LoggingHelper.logStackTrace(e, logger);
+			} catch (CancelledKeyException e) {
+				// Old key of the channel has not been removed from the selector yet, retry on next round
+				toRegister.add(channel);
+				selector.wakeup();
+				break;
+			}
+		}
+	}
+}
@@ -26,9 +26,14 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.ListIterator;
 import java.util.TooManyListenersException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.openmuc.jdlms.client.communication.IUpperLayer;
 
@@ -40,66 +45,368 @@ import org.openmuc.jdlms.client.communication.IUpperLayer;
 public class TcpLayer implements ITcpLayer, ISelectableChannel {
 
 
+	private static final int HEADER_LENGTH = 8;
+
+	/**
+	 * Number of queued bytes at which senders start to block
+	 */
+	private static final int MAX_QUEUED_BYTES = 0x40000;
+
+	/**
+	 * Maximum number of buffers written with one gathering write
+	 */
+	private static final int MAX_GATHER = 64;
+
 	private final SocketAddress destination;
-	private SocketChannel client;
+	private volatile SocketChannel client;
+
+	private volatile boolean channelClosed = false;
+
+	/**
+	 * Guards the connection state: client, channelClosed, connectedUpperLayers and pendingConnect
+	 */
+	private final Object stateLock = new Object();
+
+	/**
+	 * Connection attempt in progress, null if the socket is connected or closed
+	 */
+	private ConnectAttempt pendingConnect = null;
 
-	private boolean channelClosed = false;
+	/**
+	 * Buffer the socket is currently read into. Null until the first bytes are received
+	 */
+	private ReceiveBuffer receiveBuffer = null;
 
-	ByteBuffer buffer = ByteBuffer.allocate(0xFFFF);
-	WpduHeader wpdu = new WpduHeader();
+	/**
+	 * Index of the first byte in receiveBuffer not belonging to an already dispatched WPDU
+	 */
+	private int frameStart = 0;
+
+	/**
+	 * Buffers waiting to be written, oldest first. Also guards queuedBytes and gather
+	 */
+	private final LinkedList<ByteBuffer> outbound = new LinkedList<ByteBuffer>();
+	private int queuedBytes = 0;
+	private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+	private volatile SelectionKey selectionKey = null;
+
+	/**
+	 * Sets OP_WRITE on the selection key while data is queued. Runs on the selector thread
+	 */
+	private final Runnable writeInterestUpdate = new Runnable() {
+		@Override
+		public void run() {
+			SelectionKey key = selectionKey;
+			if (key != null && key.isValid()) {
+				if (hasQueuedData()) {
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+				}
+				else {
+					key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+				}
+			}
+		}
+	};
 
-	private final Map<ConnectionIdentifier, IUpperLayer> listeners = new HashMap<ConnectionIdentifier, IUpperLayer>();
+	private final ConcurrentMap<ConnectionIdentifier, ReceiveQueue> listeners = new ConcurrentHashMap<ConnectionIdentifier, ReceiveQueue>();
 	private int connectedUpperLayers = 0;
 
+	/**
+	 * Creates the upper layers of WPorts nobody listens to yet. Null unless the connection has been accepted by a
+	 * {@link TcpServerListener}
+	 */
+	private final IConnectionAcceptor acceptor;
+
 	public TcpLayer(SocketChannel client, SocketAddress destination) {
 		this.client = client;
 		this.destination = destination;
+		acceptor = null;
+	}
+
+	/**
+	 * Creates the layer of an incoming connection. The connection stays open until {@link #disconnect()} is called
+	 * once or the remote end point closes it.
+	 * 
+	 * @param accepted
+	 *            Connected channel returned by the server socket
+	 * @param acceptor
+	 *            Creates the upper layer for each pair of WPorts addressed by the remote end point
+	 */
+	TcpLayer(SocketChannel accepted, IConnectionAcceptor acceptor) {
+		client = accepted;
+		destination = accepted.socket().getRemoteSocketAddress();
+		this.acceptor = acceptor;
+		connectedUpperLayers = 1;
+	}
+
+	/**
+	 * Starts receiving data on an accepted connection
+	 */
+	void startAccepted() throws IOException {
+		SelectController.getInstance().registerChannel(this);
 	}
 
 	@Override
-	public void connect() throws IOException {
-		if (connectedUpperLayers == 0) {
-			synchronized (client) {
-				if (connectedUpperLayers == 0) {
-					if (channelClosed) {
-						client = SocketChannel.open();
-						channelClosed = false;
-					}
+	public void connect(long timeout) throws IOException {
+		ConnectAttempt attempt;
+		synchronized (stateLock) {
+			if (pendingConnect == null && channelClosed == false && client.isConnected()) {
+				connectedUpperLayers++;
+				return;
+			}
+
+			if (pendingConnect == null) {
+				if (channelClosed || client.isOpen() == false) {
+					client = SocketChannel.open();
+					channelClosed = false;
+				}
+				releaseReceiveBuffer();
 
-					client.connect(destination);
+				pendingConnect = new ConnectAttempt();
+				try {
+					client.configureBlocking(false);
+					if (client.connect(destination)) {
+						pendingConnect.succeeded();
+						pendingConnect = null;
+						connectedUpperLayers++;
+						SelectController.getInstance().registerChannel(this);
+						return;
+					}
+					// Connection is finished by the selector thread as soon as
+					// OP_CONNECT is signalled
 					SelectController.getInstance().registerChannel(this);
+				} catch (IOException e) {
+					abortConnect(e);
+					throw e;
+				} catch (RuntimeException e) {
+					// e.g. UnresolvedAddressException
+					abortConnect(new IOException("Error on connecting: " + e.getMessage(), e));
+					throw e;
 				}
 			}
+			attempt = pendingConnect;
 		}
-		else {
+
+		try {
+			attempt.await(timeout);
+		} catch (IOException e) {
+			synchronized (stateLock) {
+				if (pendingConnect == attempt) {
+					// Let other upper layers waiting for this attempt fail as well
+					attempt.failed(e);
+					pendingConnect = null;
+					closeChannel();
+				}
+			}
+			throw e;
+		}
+
+		synchronized (stateLock) {
 			connectedUpperLayers++;
 		}
 	}
 
+	@Override
+	public boolean isConnected() {
+		synchronized (stateLock) {
+			return connectedUpperLayers > 0;
+		}
+	}
+
 	@Override
 	public void disconnect() throws IOException {
-		connectedUpperLayers--;
-		if (connectedUpperLayers == 0) {
-			synchronized (client) {
-				client.close();
-				SelectController.getInstance().removeChannel(this);
+		synchronized (stateLock) {
+			connectedUpperLayers--;
+			if (connectedUpperLayers <= 0) {
+				connectedUpperLayers = 0;
+				closeChannel();
 			}
 		}
 	}
 
+	/**
+	 * Fails the pending connect attempt, so upper layers waiting for it return at once. Has to be called while holding
+	 * stateLock
+	 */
+	private void abortConnect(IOException e) {
+		pendingConnect.failed(e);
+		pendingConnect = null;
+		try {
+			closeChannel();
+		} catch (IOException closeError) {
+			//TODO LoggingHelper.logStackTrace(closeError, logger);
+		}
+	}
+
+	/**
+	 * Closes the socket and drops all queued data. Has to be called while holding stateLock
+	 */
+	private void closeChannel() throws IOException {
+		channelClosed = true;
+		try {
+			client.close();
+		} finally {
+			SelectController.getInstance().removeChannel(this);
+			clearSendQueue();
+		}
+	}
+
 	@Override
 	public void send(byte[] data) throws IOException {
 		//TODO LoggingHelper.logBytes(data, data.length, "Sending", logger);
-		client.write(ByteBuffer.wrap(data));
+		enqueue(ByteBuffer.wrap(data), null);
+	}
+
+	@Override
+	public void send(int sourceWPort, int destinationWPort, byte[] data) throws IOException {
+		//TODO LoggingHelper.logBytes(data, data.length, "Sending", logger);
+		enqueue(createHeader(sourceWPort, destinationWPort, data.length), ByteBuffer.wrap(data));
+	}
+
+	@Override
+	public void send(int sourceWPort, int destinationWPort, ByteBuffer data) throws IOException {
+		ByteBuffer header = createHeader(sourceWPort, destinationWPort, data.remaining());
+		synchronized (outbound) {
+			enqueue(header, data);
+			if (data.hasRemaining()) {
+				// The caller may reuse the buffer, so the part that has not been written yet is copied
+				ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+				copy.put(data);
+				copy.flip();
+				replaceQueued(data, copy);
+			}
+		}
+	}
+
+	private static ByteBuffer createHeader(int sourceWPort, int destinationWPort, int length) {
+		if (length > 0xFFFF) {
+			throw new IllegalArgumentException("Length of data out of range [0, 65535]");
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putShort((short) 1);
+		header.putShort((short) sourceWPort);
+		header.putShort((short) destinationWPort);
+		header.putShort((short) length);
+		header.flip();
+		return header;
+	}
+
+	/**
+	 * Replaces a queued buffer by another one. Has to be called while holding the lock of outbound.
+	 */
+	private void replaceQueued(ByteBuffer queued, ByteBuffer replacement) {
+		ListIterator<ByteBuffer> iterator = outbound.listIterator(outbound.size());
+		while (iterator.hasPrevious()) {
+			// ByteBuffer.equals compares the content, so the identity is checked explicitly
+			if (iterator.previous() == queued) {
+				iterator.set(replacement);
+				return;
+			}
+		}
+	}
+
+	@Override
+	public boolean isWritable() {
+		synchronized (outbound) {
+			return queuedBytes < MAX_QUEUED_BYTES;
+		}
+	}
+
+	/**
+	 * Appends the buffers to the send queue. If nothing else is queued, the buffers are written right away and only
+	 * the part that did not fit into the socket buffer is left for the selector thread.
+	 */
+	private void enqueue(ByteBuffer first, ByteBuffer second) throws IOException {
+		synchronized (outbound) {
+			while (queuedBytes >= MAX_QUEUED_BYTES) {
+				if (channelClosed) {
+					throw new IOException("Connection closed");
+				}
+				try {
+					outbound.wait();
+				} catch (InterruptedException e) {
+					throw new IOException("Interrupted while waiting for free space in send queue");
+				}
+			}
+			if (channelClosed) {
+				throw new IOException("Connection closed");
+			}
+
+			boolean wasEmpty = outbound.isEmpty();
+			outbound.add(first);
+			queuedBytes += first.remaining();
+			if (second != null) {
+				outbound.add(second);
+				queuedBytes += second.remaining();
+			}
+
+			if (wasEmpty == false || flush()) {
+				// Selector thread is already waiting to write or everything
+				// has been sent
+				return;
+			}
+		}
+		SelectController.getInstance().execute(this, writeInterestUpdate);
+	}
+
+	/**
+	 * Writes as much queued data as the socket accepts. Queued buffers of all WPorts are written with one gathering
+	 * write. Has to be called while holding the lock of outbound.
+	 * 
+	 * @return true if the queue is empty afterwards
+	 */
+	private boolean flush() throws IOException {
+		while (outbound.isEmpty() == false) {
+			int count = 0;
+			for (ByteBuffer buffer : outbound) {
+				if (count == MAX_GATHER) {
+					break;
+				}
+				gather[count++] = buffer;
+			}
+
+			long written;
+			try {
+				written = client.write(gather, 0, count);
+			} finally {
+				Arrays.fill(gather, 0, count, null);
+			}
+			queuedBytes -= written;
+
+			while (outbound.isEmpty() == false && outbound.getFirst().hasRemaining() == false) {
+				outbound.removeFirst();
+			}
+			outbound.notifyAll();
+
+			if (written == 0) {
+				// Socket buffer is full
+				break;
+			}
+		}
+		return outbound.isEmpty();
+	}
+
+	private boolean hasQueuedData() {
+		synchronized (outbound) {
+			return outbound.isEmpty() == false;
+		}
+	}
+
+	private void clearSendQueue() {
+		synchronized (outbound) {
+			outbound.clear();
+			queuedBytes = 0;
+			outbound.notifyAll();
+		}
 	}
 
 	@Override
 	public void registerListener(ConnectionIdentifier key, IUpperLayer listener) throws TooManyListenersException {
-		if (listeners.containsKey(key)) {
+		if (listeners.putIfAbsent(key, new ReceiveQueue(listener, ReceiveQueue.DEFAULT_CAPACITY)) != null) {
 			throw new TooManyListenersException("Client WPort already registered");
 		}
-
-		listeners.put(key, listener);
 	}
 
 	@Override
@@ -107,75 +414,265 @@ public class TcpLayer implements ITcpLayer, ISelectableChannel {
 		listeners.remove(key);
 	}
 
-	private void connectionLost() {
-		synchronized (client) {
-			for (IUpperLayer listener : listeners.values()) {
-				listener.remoteDisconnect();
+	/**
+	 * Closes the connection after the given channel failed. Ignored if the channel has already been replaced by a new
+	 * connection, as events of a closed channel may still be processed after an upper layer has reconnected.
+	 */
+	private void connectionLost(SocketChannel channel) {
+		synchronized (stateLock) {
+			if (channel != client) {
+				return;
+			}
+
+			for (ReceiveQueue listener : listeners.values()) {
+				listener.disconnect();
 			}
 
 			listeners.clear();
 			connectedUpperLayers = 0;
+			releaseReceiveBuffer();
 			try {
 				channelClosed = true;
 				client.close();
 			} catch (IOException e) {
 			}
+			clearSendQueue();
 
+			if (pendingConnect != null) {
+				pendingConnect.failed(new IOException("Connection to " + destination + " lost"));
+				pendingConnect = null;
+			}
 		}
 	}
 
 	@Override
-	public void registerSelector(Selector selector) throws IOException {
-		client.configureBlocking(false);
-		client.register(selector, SelectionKey.OP_READ);
+	public SelectionKey registerSelector(Selector selector) throws IOException {
+		synchronized (outbound) {
+			client.configureBlocking(false);
+			int ops;
+			if (client.isConnectionPending()) {
+				ops = SelectionKey.OP_CONNECT;
+			}
+			else {
+				ops = SelectionKey.OP_READ;
+				if (outbound.isEmpty() == false) {
+					ops |= SelectionKey.OP_WRITE;
+				}
+			}
+			selectionKey = client.register(selector, ops);
+			return selectionKey;
+		}
 	}
 
 	@Override
-	public boolean isRightKey(SelectionKey key) {
-		return key.channel() == client;
+	public void processSelection(SelectionKey key) throws IOException {
+		SocketChannel channel = (SocketChannel) key.channel();
+		if (channel != client) {
+			// Key of a channel that has been closed and replaced in the meantime
+			return;
+		}
+
+		if (key.isConnectable()) {
+			finishConnect(key, channel);
+			return;
+		}
+
+		if (key.isWritable()) {
+			boolean empty;
+			synchronized (outbound) {
+				try {
+					empty = flush();
+				} catch (IOException e) {
+					connectionLost(channel);
+					return;
+				}
+			}
+			if (empty) {
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			}
+		}
+
+		if (key.isValid() && key.isReadable()) {
+			read(key, channel);
+		}
 	}
 
-	@Override
-	public void processSelection(SelectionKey key) throws IOException {
+	private void finishConnect(SelectionKey key, SocketChannel channel) {
 		try {
-			int bytesRead = client.read(buffer);
-			while (Thread.currentThread().isInterrupted() == false && bytesRead != -1) {
-				if (bytesRead != 0) {
-					//TODO LoggingHelper.logBytes(buffer.array(), buffer.position(), "Received", logger);
-					if (buffer.position() >= 8) {
-						buffer.flip();
-						wpdu.decode(buffer);
-						if (buffer.remaining() >= wpdu.length) {
-							ConnectionIdentifier upperLayerKey = new ConnectionIdentifier(wpdu.getDestinationWPort(),
-									wpdu.getSourceWPort(), destination);
-							listeners.get(upperLayerKey).dataReceived(buffer.array());
-
-							// If bytes are not parsed, assume that they
-							// belong to a new pdu. Remove the parsed pdu
-							// out of the buffer
-							buffer.position(buffer.position() + wpdu.length + 8);
-							buffer.compact();
-						}
-						else {
-							// Not all bytes for this pdu have been received
-							// wait for remaining part of pdu
-							buffer.position(buffer.limit());
-						}
-						buffer.limit(buffer.capacity());
-					}
-				}
-				else if (client.socket().getInputStream().available() > 0) {
-					// Zero bytes have been read, indicating that the buffer
-					// is full
-					ByteBuffer newbuf = ByteBuffer.allocate(buffer.capacity() * 2);
-					newbuf.put(buffer.array());
-					buffer = newbuf;
+			if (channel.finishConnect() == false) {
+				return;
+			}
+		} catch (IOException e) {
+			synchronized (stateLock) {
+				if (pendingConnect != null && channel == client) {
+					pendingConnect.failed(e);
+					pendingConnect = null;
 				}
+			}
+			connectionLost(channel);
+			return;
+		}
 
-				bytesRead = client.read(buffer);
+		key.interestOps(hasQueuedData() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		synchronized (stateLock) {
+			if (pendingConnect != null) {
+				pendingConnect.succeeded();
+				pendingConnect = null;
 			}
+		}
+	}
+
+	private void read(SelectionKey key, SocketChannel channel) {
+		if (receiveBuffer == null) {
+			receiveBuffer = ReceiveBuffer.obtain();
+			frameStart = 0;
+		}
+		ByteBuffer buffer = receiveBuffer.getBuffer();
+
+		int bytesRead;
+		try {
+			bytesRead = channel.read(buffer);
 		} catch (IOException e) {
-			connectionLost();
+			connectionLost(channel);
+			return;
+		}
+		if (bytesRead == -1) {
+			connectionLost(channel);
+			return;
+		}
+
+		//TODO LoggingHelper.logBytes(buffer, buffer.position(), "Received", logger);
+		int end = buffer.position();
+		int frameLength = -1;
+		while (end - frameStart >= HEADER_LENGTH) {
+			frameLength = HEADER_LENGTH + (buffer.getShort(frameStart + 6) & 0xFFFF);
+			if (end - frameStart < frameLength) {
+				// Not all bytes for this pdu have been received
+				// wait for remaining part of pdu
+				break;
+			}
+
+			ConnectionIdentifier upperLayerKey = new ConnectionIdentifier(buffer.getShort(frameStart + 4) & 0xFFFF,
+					buffer.getShort(frameStart + 2) & 0xFFFF, destination);
+			ReceiveQueue receiver = listeners.get(upperLayerKey);
+			if (receiver == null && acceptor != null) {
+				receiver = accept(upperLayerKey);
+			}
+			if (receiver != null) {
+				receiver.put(receiveBuffer.slice(frameStart, frameLength), receiveBuffer);
+				if (receiver.isFull()) {
+					suspendReading(key, receiver);
+				}
+			}
+
+			frameStart += frameLength;
+			frameLength = -1;
+		}
+
+		if (frameStart == end) {
+			if (receiveBuffer.isExclusive()) {
+				// All WPDUs have been processed, start over at the beginning
+				buffer.clear();
+				frameStart = 0;
+			}
+			else if (buffer.capacity() - end < HEADER_LENGTH) {
+				releaseReceiveBuffer();
+			}
+		}
+		else {
+			int needed = frameLength == -1 ? HEADER_LENGTH : frameLength;
+			if (frameStart + needed > buffer.capacity()) {
+				// Incomplete WPDU does not fit into the rest of the buffer. Move
+				// it to a fresh buffer, the WPDUs before may still be in use
+				ReceiveBuffer next = ReceiveBuffer.obtain();
+				ByteBuffer tail = buffer.duplicate();
+				tail.limit(end);
+				tail.position(frameStart);
+				next.getBuffer().put(tail);
+
+				receiveBuffer.release();
+				receiveBuffer = next;
+				frameStart = 0;
+			}
+		}
+	}
+
+	private ReceiveQueue accept(ConnectionIdentifier key) {
+		IUpperLayer upperLayer = acceptor.accept(key, this);
+		if (upperLayer == null) {
+			return null;
+		}
+		ReceiveQueue created = new ReceiveQueue(upperLayer, ReceiveQueue.DEFAULT_CAPACITY);
+		ReceiveQueue existing = listeners.putIfAbsent(key, created);
+		return existing == null ? created : existing;
+	}
+
+	private void releaseReceiveBuffer() {
+		if (receiveBuffer != null) {
+			receiveBuffer.release();
+			receiveBuffer = null;
+		}
+		frameStart = 0;
+	}
+
+	/**
+	 * Stops reading from the socket until the given queue has been drained. The remote end point is slowed down by TCP
+	 * flow control meanwhile.
+	 */
+	private void suspendReading(final SelectionKey key, ReceiveQueue receiver) {
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+		final Runnable resume = new Runnable() {
+			@Override
+			public void run() {
+				if (key.isValid()) {
+					key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+				}
+			}
+		};
+		receiver.whenDrained(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					SelectController.getInstance().execute(TcpLayer.this, resume);
+				} catch (IOException e) {
+					//TODO LoggingHelper.logStackTrace(e, logger);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Connection attempt that any number of upper layers may wait for
+	 */
+	private static class ConnectAttempt {
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile IOException error = null;
+
+		public void succeeded() {
+			done.countDown();
+		}
+
+		public void failed(IOException e) {
+			error = e;
+			done.countDown();
+		}
+
+		public void await(long timeout) throws IOException {
+			try {
+				if (timeout > 0) {
+					if (done.await(timeout, TimeUnit.MILLISECONDS) == false) {
+						throw new IOException("Timeout on connecting");
+					}
+				}
+				else {
+					done.await();
+				}
+			} catch (InterruptedException e) {
+				throw new IOException("Attempt to connect was interrupted");
+			}
+			if (error != null) {
+				throw new IOException("Error on connecting: " + error.getMessage(), error);
+			}
 		}
 	}
 }
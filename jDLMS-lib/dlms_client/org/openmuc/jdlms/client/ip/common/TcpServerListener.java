@@ -0,0 +1,178 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.ip.common;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts incoming TCP connections on one local port. Every accepted connection is handled by its own
+ * {@link TcpLayer}, the upper layers for the WPorts addressed on it are created by an {@link IConnectionAcceptor}.
+ */
+public class TcpServerListener implements ISelectableChannel {
+
+	/**
+	 * Number of accepted connections after which closed connections are dropped from the list of connections
+	 */
+	private static final int MIN_PRUNE_LIMIT = 64;
+
+	private final InetSocketAddress address;
+	private final IConnectionAcceptor acceptor;
+
+	private final Set<TcpLayer> connections = Collections.newSetFromMap(new ConcurrentHashMap<TcpLayer, Boolean>());
+	private int pruneLimit = MIN_PRUNE_LIMIT;
+
+	private volatile ServerSocketChannel server = null;
+
+	/**
+	 * @param address
+	 *            Local address to listen on. Port 0 picks a free port, see {@link #getPort()}
+	 * @param acceptor
+	 *            Creates the upper layers of the accepted connections
+	 */
+	public TcpServerListener(InetSocketAddress address, IConnectionAcceptor acceptor) {
+		this.address = address;
+		this.acceptor = acceptor;
+	}
+
+	/**
+	 * Binds the local port and starts accepting connections
+	 * 
+	 * @throws IOException
+	 *             If the port could not be bound
+	 */
+	public synchronized void start() throws IOException {
+		if (server != null) {
+			return;
+		}
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		try {
+			channel.socket().setReuseAddress(true);
+			channel.socket().bind(address, 1024);
+			channel.configureBlocking(false);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		server = channel;
+		SelectController.getInstance().registerChannel(this);
+	}
+
+	/**
+	 * Stops accepting connections and closes all connections accepted so far
+	 */
+	public synchronized void stop() throws IOException {
+		if (server == null) {
+			return;
+		}
+		SelectController.getInstance().removeChannel(this);
+		try {
+			server.close();
+		} finally {
+			server = null;
+			for (TcpLayer connection : connections) {
+				try {
+					connection.disconnect();
+				} catch (IOException e) {
+					//TODO LoggingHelper.logStackTrace(e, logger);
+				}
+			}
+			connections.clear();
+		}
+	}
+
+	/**
+	 * @return The local port connections are accepted on or -1 if the listener has not been started
+	 */
+	public int getPort() {
+		ServerSocketChannel channel = server;
+		if (channel == null) {
+			return -1;
+		}
+		return channel.socket().getLocalPort();
+	}
+
+	/**
+	 * @return Number of accepted connections that are still open
+	 */
+	public int getNumberOfConnections() {
+		int result = 0;
+		for (TcpLayer connection : connections) {
+			if (connection.isConnected()) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public SelectionKey registerSelector(Selector selector) throws IOException {
+		return server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	@Override
+	public void processSelection(SelectionKey key) throws IOException {
+		if (key.isAcceptable() == false) {
+			return;
+		}
+
+		ServerSocketChannel channel = (ServerSocketChannel) key.channel();
+		SocketChannel accepted;
+		while ((accepted = channel.accept()) != null) {
+			try {
+				accepted.configureBlocking(false);
+				accepted.socket().setTcpNoDelay(true);
+			} catch (IOException e) {
+				accepted.close();
+				continue;
+			}
+
+			TcpLayer connection = new TcpLayer(accepted, acceptor);
+			addConnection(connection);
+			connection.startAccepted();
+		}
+	}
+
+	/**
+	 * Remembers the connection to close it on {@link #stop()}. Connections closed in the meantime are dropped from the
+	 * set once it has doubled in size.
+	 */
+	private void addConnection(TcpLayer connection) {
+		connections.add(connection);
+		if (connections.size() >= pruneLimit) {
+			Iterator<TcpLayer> it = connections.iterator();
+			while (it.hasNext()) {
+				if (it.next().isConnected() == false) {
+					it.remove();
+				}
+			}
+			pruneLimit = Math.max(MIN_PRUNE_LIMIT, connections.size() * 2);
+		}
+	}
+}
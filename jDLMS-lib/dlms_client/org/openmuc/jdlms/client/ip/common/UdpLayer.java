@@ -28,9 +28,8 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.TooManyListenersException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.openmuc.jdlms.client.communication.IUpperLayer;
 
@@ -41,15 +40,40 @@ import org.openmuc.jdlms.client.communication.IUpperLayer;
  */
 public class UdpLayer implements IUdpLayer, ISelectableChannel {
 
+	/**
+	 * Largest datagram that can be received. A receive buffer needs this much free space before each datagram, any
+	 * excess bytes of a datagram would be discarded by the channel
+	 */
+	private static final int MAX_DATAGRAM_SIZE = 0xFFFF;
+
+	/**
+	 * Maximum number of datagrams received per selection, so other channels of the selector thread are not starved
+	 */
+	private static final int MAX_DATAGRAMS_PER_SELECTION = 256;
+
+	private static final int HEADER_LENGTH = 8;
+
+	/**
+	 * Requested size of the socket receive buffer, holding bursts of datagrams until the selector thread gets to them.
+	 * The operating system may grant less
+	 */
+	private static final int SOCKET_RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+
 	private final InetSocketAddress receivingPort;
 
 	private final ServerSocketChannel tcpListeningServer;
 	private final DatagramChannel udpServer;
 
-	private final ByteBuffer buffer = ByteBuffer.allocate(0xFFFF);
-	private final WpduHeader wpduHeader = new WpduHeader();
+	/**
+	 * Buffer the next datagrams are received into. Only accessed by the selector thread
+	 */
+	private ReceiveBuffer receiveBuffer = null;
 
-	private final Map<ConnectionIdentifier, IUpperLayer> listeners = new HashMap<ConnectionIdentifier, IUpperLayer>();
+	private final UdpListenerTable listeners = new UdpListenerTable();
+
+	private final AtomicLong receivedCount = new AtomicLong(0);
+	private final AtomicLong droppedCount = new AtomicLong(0);
+	private final AtomicLong overflowCount = new AtomicLong(0);
 
 	public UdpLayer(int port) throws IOException {
 		receivingPort = new InetSocketAddress(port);
@@ -57,16 +81,16 @@ public class UdpLayer implements IUdpLayer, ISelectableChannel {
 		udpServer = DatagramChannel.open();
 
 		tcpListeningServer.socket().bind(receivingPort);
+		udpServer.socket().setReceiveBufferSize(SOCKET_RECEIVE_BUFFER_SIZE);
 		udpServer.socket().bind(receivingPort);
 	}
 
 	@Override
-	public void registerUdpListener(ConnectionIdentifier key, IUpperLayer listener) throws TooManyListenersException {
-		if (listeners.containsKey(key)) {
+	public void registerUdpListener(ConnectionIdentifier key, IUpperLayer listener) throws TooManyListenersException,
+			IOException {
+		if (listeners.put(key, new ReceiveQueue(listener, ReceiveQueue.DEFAULT_CAPACITY)) == false) {
 			throw new TooManyListenersException("Client WPort already registered");
 		}
-
-		listeners.put(key, listener);
 		startListening();
 	}
 
@@ -83,8 +107,11 @@ public class UdpLayer implements IUdpLayer, ISelectableChannel {
 
 	/**
 	 * Starts this connection to listen for incoming datagrams
+	 * 
+	 * @throws IOException
+	 *             If the selector threads could not be started
 	 */
-	public void startListening() {
+	public void startListening() throws IOException {
 		SelectController.getInstance().registerChannel(this);
 	}
 
@@ -95,53 +122,111 @@ public class UdpLayer implements IUdpLayer, ISelectableChannel {
 		return receivingPort.getPort();
 	}
 
-	@Override
-	public void registerSelector(Selector selector) throws IOException {
-		udpServer.configureBlocking(false);
-		udpServer.register(selector, SelectionKey.OP_READ);
+	/**
+	 * @return Number of datagrams received since the creation of this layer
+	 */
+	public long getReceivedCount() {
+		return receivedCount.get();
+	}
+
+	/**
+	 * @return Number of received datagrams that have been dropped because they were no valid WPDU or no listener was
+	 *         registered for them
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return Number of received datagrams that have been dropped because their listener could not keep up
+	 */
+	public long getOverflowCount() {
+		return overflowCount.get();
 	}
 
 	@Override
-	public boolean isRightKey(SelectionKey key) {
-		return key.channel() == udpServer;
+	public SelectionKey registerSelector(Selector selector) throws IOException {
+		udpServer.configureBlocking(false);
+		return udpServer.register(selector, SelectionKey.OP_READ);
 	}
 
 	@Override
 	public void processSelection(SelectionKey key) throws IOException {
-		SocketAddress remoteHost = udpServer.receive(buffer);
-
-		//TODO LoggingHelper.logBytes(buffer.array(), buffer.position(), "Received", logger);
-		try {
-			buffer.flip();
-			wpduHeader.decode(buffer);
-
-			if (wpduHeader.getVersion() != 1) {
-				// WPDU head has wrong version. Probably received no WPDU at
-				// all, or a newer version of IEC 62056-47:2007 has been
-				// released
-				buffer.clear();
+		for (int i = 0; i < MAX_DATAGRAMS_PER_SELECTION; i++) {
+			ByteBuffer buffer = prepareReceiveBuffer();
+			int start = buffer.position();
+
+			SocketAddress remoteHost = udpServer.receive(buffer);
+			if (remoteHost == null) {
 				return;
 			}
+			receivedCount.incrementAndGet();
 
-			ConnectionIdentifier hashKey = new ConnectionIdentifier(wpduHeader.getDestinationWPort(),
-					wpduHeader.getSourceWPort(), remoteHost);
+			//TODO LoggingHelper.logBytes(buffer, start, buffer.position() - start, "Received", logger);
+			if (dispatch(remoteHost, start, buffer.position() - start) == false) {
+				// Reuse the space of the dropped datagram
+				buffer.position(start);
+			}
+		}
+	}
 
-			IUpperLayer receiver = listeners.get(hashKey);
+	/**
+	 * Makes sure that the current receive buffer has room for another datagram
+	 */
+	private ByteBuffer prepareReceiveBuffer() {
+		if (receiveBuffer == null) {
+			receiveBuffer = ReceiveBuffer.obtain();
+		}
+		else if (receiveBuffer.isExclusive()) {
+			// All datagrams received so far have been processed
+			receiveBuffer.getBuffer().clear();
+		}
+		else if (receiveBuffer.getBuffer().remaining() < MAX_DATAGRAM_SIZE) {
+			receiveBuffer.release();
+			receiveBuffer = ReceiveBuffer.obtain();
+		}
+		return receiveBuffer.getBuffer();
+	}
 
-			byte[] wpdu = new byte[wpduHeader.length + 8];
-			System.arraycopy(buffer.array(), 0, wpdu, 0, wpdu.length);
-			receiver.dataReceived(wpdu);
+	/**
+	 * Hands a received datagram to its listener
+	 * 
+	 * @return false if the datagram has been dropped
+	 */
+	private boolean dispatch(SocketAddress remoteHost, int start, int length) {
+		ByteBuffer buffer = receiveBuffer.getBuffer();
+		if (length < HEADER_LENGTH) {
+			droppedCount.incrementAndGet();
+			return false;
+		}
 
-			buffer.position(buffer.position() + wpduHeader.length);
+		int version = buffer.getShort(start) & 0xFFFF;
+		int sourceWPort = buffer.getShort(start + 2) & 0xFFFF;
+		int destinationWPort = buffer.getShort(start + 4) & 0xFFFF;
+		int frameLength = HEADER_LENGTH + (buffer.getShort(start + 6) & 0xFFFF);
 
-			if (buffer.hasRemaining()) {
-				// discard any excess bytes
-				buffer.clear();
-			}
-		} catch (IndexOutOfBoundsException e) {
-			// received not as much bytes as said in header
-			// discard bytes
-			buffer.clear();
+		// A WPDU head with a wrong version is probably no WPDU at all, or a newer version of IEC 62056-47:2007 has
+		// been released. Datagrams with less bytes than said in the header are discarded as well
+		if (version != 1 || length < frameLength) {
+			droppedCount.incrementAndGet();
+			return false;
 		}
+
+		ReceiveQueue receiver = listeners.get(remoteHost, destinationWPort, sourceWPort);
+		if (receiver == null) {
+			droppedCount.incrementAndGet();
+			return false;
+		}
+
+		// Datagrams may get lost anyway, so the datagram is dropped if the receiver can not keep up instead of
+		// blocking all other receivers. Only this thread adds to the queue, so it can not fill up in between
+		if (receiver.isFull()) {
+			overflowCount.incrementAndGet();
+			return false;
+		}
+
+		// Any excess bytes are discarded
+		receiver.put(receiveBuffer.slice(start, frameLength), receiveBuffer);
+		return true;
 	}
 }
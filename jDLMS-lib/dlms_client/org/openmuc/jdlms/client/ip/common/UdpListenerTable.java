@@ -0,0 +1,219 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.ip.common;
+
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps the WPorts and remote address of received datagrams to the queue of their listener without allocating objects
+ * per lookup.
+ * 
+ * Every remote address with at least one listener gets a small numeric id. The id and both WPorts are packed into a
+ * long, which is looked up in an open addressing hash table. Lookups never lock, registrations are synchronized and
+ * publish their changes through atomic arrays. The table is rebuilt when it gets too full.
+ */
+final class UdpListenerTable {
+
+	private static final long EMPTY = -1;
+	/**
+	 * Marks a removed entry, which has to be skipped instead of ending the search
+	 */
+	private static final long REMOVED = -2;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private final ConcurrentMap<SocketAddress, AddressId> addressIds = new ConcurrentHashMap<SocketAddress, AddressId>();
+	private final Deque<Integer> freeIds = new ArrayDeque<Integer>();
+	private int nextId = 0;
+
+	private volatile Table table = new Table(MIN_CAPACITY);
+	private int size = 0;
+	/**
+	 * Number of used slots of the table, including removed entries
+	 */
+	private int used = 0;
+
+	/**
+	 * @return The queue of the listener registered for the given datagram origin, or null if there is none
+	 */
+	ReceiveQueue get(SocketAddress remoteAddress, int localWPort, int remoteWPort) {
+		AddressId id = addressIds.get(remoteAddress);
+		if (id == null) {
+			return null;
+		}
+		return table.get(pack(id.value, localWPort, remoteWPort));
+	}
+
+	/**
+	 * @return false if a listener is already registered for the given identifier
+	 */
+	synchronized boolean put(ConnectionIdentifier identifier, ReceiveQueue queue) {
+		AddressId id = addressIds.get(identifier.getRemoteAddress());
+		if (id != null && table.get(pack(id.value, identifier)) != null) {
+			return false;
+		}
+		if (id == null) {
+			Integer free = freeIds.poll();
+			id = new AddressId(free != null ? free : nextId++);
+			addressIds.put(identifier.getRemoteAddress(), id);
+		}
+		id.listeners++;
+
+		if ((used + 1) * 2 > table.capacity()) {
+			rebuild(size + 1);
+		}
+		table.put(pack(id.value, identifier), queue);
+		size++;
+		used++;
+		return true;
+	}
+
+	/**
+	 * @return The queue that has been registered for the given identifier, or null if there was none
+	 */
+	synchronized ReceiveQueue remove(ConnectionIdentifier identifier) {
+		AddressId id = addressIds.get(identifier.getRemoteAddress());
+		if (id == null) {
+			return null;
+		}
+		ReceiveQueue result = table.remove(pack(id.value, identifier));
+		if (result == null) {
+			return null;
+		}
+		size--;
+
+		if (--id.listeners == 0) {
+			addressIds.remove(identifier.getRemoteAddress());
+			freeIds.add(id.value);
+		}
+		return result;
+	}
+
+	/**
+	 * Replaces the table by a new one without removed entries, large enough for the given number of entries
+	 */
+	private void rebuild(int entries) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < entries * 4) {
+			capacity <<= 1;
+		}
+
+		Table next = new Table(capacity);
+		Table current = table;
+		for (int i = 0; i < current.capacity(); i++) {
+			long key = current.keys.get(i);
+			if (key >= 0) {
+				next.put(key, current.values.get(i));
+			}
+		}
+		table = next;
+		used = size;
+	}
+
+	private static long pack(int addressId, ConnectionIdentifier identifier) {
+		return pack(addressId, identifier.getLocalWPort(), identifier.getRemoteWPort());
+	}
+
+	private static long pack(int addressId, int localWPort, int remoteWPort) {
+		return ((long) addressId << 32) | ((long) localWPort << 16) | remoteWPort;
+	}
+
+	private static class AddressId {
+		private final int value;
+		private int listeners = 0;
+
+		public AddressId(int value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Hash table with linear probing. A value is always written before its key, so a reader finding a key also sees
+	 * its value.
+	 */
+	private static class Table {
+		private final AtomicLongArray keys;
+		private final AtomicReferenceArray<ReceiveQueue> values;
+		private final int mask;
+
+		public Table(int capacity) {
+			keys = new AtomicLongArray(capacity);
+			for (int i = 0; i < capacity; i++) {
+				keys.set(i, EMPTY);
+			}
+			values = new AtomicReferenceArray<ReceiveQueue>(capacity);
+			mask = capacity - 1;
+		}
+
+		private int capacity() {
+			return mask + 1;
+		}
+
+		private static int hash(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+
+		private int indexOf(long key) {
+			int i = hash(key) & mask;
+			long current;
+			while ((current = keys.get(i)) != EMPTY) {
+				if (current == key) {
+					return i;
+				}
+				i = (i + 1) & mask;
+			}
+			return -1;
+		}
+
+		private ReceiveQueue get(long key) {
+			int i = indexOf(key);
+			if (i < 0) {
+				return null;
+			}
+			return values.get(i);
+		}
+
+		private void put(long key, ReceiveQueue value) {
+			int i = hash(key) & mask;
+			while (keys.get(i) != EMPTY) {
+				i = (i + 1) & mask;
+			}
+			values.set(i, value);
+			keys.set(i, key);
+		}
+
+		private ReceiveQueue remove(long key) {
+			int i = indexOf(key);
+			if (i < 0) {
+				return null;
+			}
+			keys.set(i, REMOVED);
+			return values.getAndSet(i, null);
+		}
+	}
+}
@@ -23,12 +23,14 @@ package org.openmuc.jdlms.client.ip.impl;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.TooManyListenersException;
 
 import org.openmuc.jdlms.client.communication.ILowerLayer;
 import org.openmuc.jdlms.client.communication.IUpperLayer;
 import org.openmuc.jdlms.client.ip.common.ConnectionIdentifier;
 import org.openmuc.jdlms.client.ip.common.ITcpLayer;
+import org.openmuc.jdlms.client.ip.common.IWpduReceiver;
 import org.openmuc.jdlms.client.ip.common.Wpdu;
 
 /**
@@ -36,7 +38,7 @@ import org.openmuc.jdlms.client.ip.common.Wpdu;
  * 
  * @author Karsten Mueller-Bier
  */
-public class TcpClientLayer implements IUpperLayer, ILowerLayer<Object> {
+public class TcpClientLayer implements IUpperLayer, IWpduReceiver, ILowerLayer<Object> {
 
 
 	private IUpperLayer upperLayer;
@@ -46,6 +48,13 @@ public class TcpClientLayer implements IUpperLayer, ILowerLayer<Object> {
 
 	private final Wpdu pdu = new Wpdu();
 
+	private volatile boolean connected = false;
+
+	/**
+	 * Set once the first connection attempt has succeeded
+	 */
+	private volatile boolean hasBeenConnected = false;
+
 	public TcpClientLayer(ITcpLayer lowerLayer, int clientWPort, int serverWPort, InetSocketAddress remoteAddress) {
 		identifier = new ConnectionIdentifier(clientWPort, serverWPort, remoteAddress);
 		this.lowerLayer = lowerLayer;
@@ -64,8 +73,27 @@ public class TcpClientLayer implements IUpperLayer, ILowerLayer<Object> {
 		}
 	}
 
+	@Override
+	public void wpduReceived(ByteBuffer wpdu) {
+		int version = wpdu.getShort(0) & 0xFFFF;
+		if (version != 1) {
+			//TODO logger.debug("Wpdu Header version unknown: " + version);
+			return;
+		}
+
+		// Only the payload is copied, as the upper layers keep the byte array
+		byte[] data = new byte[wpdu.getShort(6) & 0xFFFF];
+		wpdu.position(8);
+		wpdu.get(data);
+
+		if (upperLayer != null) {
+			upperLayer.dataReceived(data);
+		}
+	}
+
 	@Override
 	public void remoteDisconnect() {
+		connected = false;
 		if (upperLayer != null) {
 			upperLayer.remoteDisconnect();
 		}
@@ -73,26 +101,50 @@ public class TcpClientLayer implements IUpperLayer, ILowerLayer<Object> {
 
 	@Override
 	public void connect(long timeout) throws IOException {
-		lowerLayer.connect();
+		lowerLayer.connect(timeout);
 		try {
 			lowerLayer.registerListener(identifier, this);
 		} catch (TooManyListenersException e) {
 			throw new IOException("WPort already used locally: " + identifier.getLocalWPort(), e);
 		}
+		connected = true;
+		hasBeenConnected = true;
+	}
+
+	/**
+	 * @return Address of the remote smart meter
+	 */
+	public InetSocketAddress getRemoteAddress() {
+		return (InetSocketAddress) identifier.getRemoteAddress();
+	}
+
+	/**
+	 * @return true if this layer is connected to the remote smart meter
+	 */
+	public boolean isConnected() {
+		return connected;
+	}
+
+	/**
+	 * @return true if this layer has been connected at least once, even if it is disconnected now
+	 */
+	boolean hasBeenConnected() {
+		return hasBeenConnected;
 	}
 
 	@Override
 	public void send(byte[] data) throws IOException {
-		Wpdu pdu = new Wpdu();
-		pdu.setDestinationWPort(identifier.getRemoteWPort());
-		pdu.setSourceWPort(identifier.getLocalWPort());
-		pdu.setData(data);
+		lowerLayer.send(identifier.getLocalWPort(), identifier.getRemoteWPort(), data);
+	}
 
-		lowerLayer.send(pdu.encode());
+	@Override
+	public void send(ByteBuffer data) throws IOException {
+		lowerLayer.send(identifier.getLocalWPort(), identifier.getRemoteWPort(), data);
 	}
 
 	@Override
 	public void disconnect() throws IOException {
+		connected = false;
 		lowerLayer.disconnect();
 		lowerLayer.removeListener(identifier);
 	}
@@ -28,6 +28,7 @@ import java.util.Map;
 
 import org.openmuc.jdlms.client.ClientConnectionSettings;
 import org.openmuc.jdlms.client.communication.ILowerLayer;
+import org.openmuc.jdlms.client.impl.ConnectionPool;
 import org.openmuc.jdlms.client.impl.ILowerLayerFactory;
 import org.openmuc.jdlms.client.ip.TcpClientConnectionSettings;
 import org.openmuc.jdlms.client.ip.common.ITcpLayer;
@@ -36,22 +37,39 @@ import org.openmuc.jdlms.client.ip.common.TcpLayer;
 /**
  * Creates and pools all TCP sub-layers that are requested
  * 
+ * Idle {@link TcpClientLayer} objects are evicted from the pool once more than {@link #DEFAULT_MAX_IDLE_LAYERS} of them
+ * exist. A TcpClientLayer only counts as idle after it has been disconnected, layers that have not been connected yet
+ * are still about to be used by their callers. The {@link ITcpLayer} of a smart meter is kept as long as a pooled
+ * TcpClientLayer uses it.
+ * 
  * @author Karsten Mueller-Bier
  */
 public class TcpClientLayerFactory implements ILowerLayerFactory {
 
+	public static final int DEFAULT_MAX_IDLE_LAYERS = 1024;
+
 	private int tcpPort = -1;
 
 	/**
-	 * Pool of already established {@link ITcpLayer} connections.
+	 * Pool of already established {@link ITcpLayer} connections. Guarded by itself, together with tcpLayerUsers
 	 */
 	private final Map<InetSocketAddress, ITcpLayer> tcpLayers = new HashMap<InetSocketAddress, ITcpLayer>();
 
+	/**
+	 * Number of pooled {@link TcpClientLayer} objects using the ITcpLayer of an address
+	 */
+	private final Map<InetSocketAddress, Integer> tcpLayerUsers = new HashMap<InetSocketAddress, Integer>();
+
 	/**
 	 * Pool of already created {@link TcpClientLayer} objects. The {@link TcpClientConnectionSettings} object used to
 	 * create a TcpClientLayer is also its key in this pool
 	 */
-	private final Map<TcpClientConnectionSettings, TcpClientLayer> tcpClientLayers = new HashMap<TcpClientConnectionSettings, TcpClientLayer>();
+	private final ConnectionPool<TcpClientConnectionSettings, TcpClientLayer> tcpClientLayers = new ConnectionPool<TcpClientConnectionSettings, TcpClientLayer>(
+			new ClientLayerHandler());
+
+	public TcpClientLayerFactory() {
+		tcpClientLayers.setMaxIdle(DEFAULT_MAX_IDLE_LAYERS);
+	}
 
 	@Override
 	public ILowerLayer<Object> build(ClientConnectionSettings<?> setting) throws IOException {
@@ -64,40 +82,88 @@ public class TcpClientLayerFactory implements ILowerLayerFactory {
 			throw new IllegalArgumentException("Wrong sub layer builder");
 		}
 
-		TcpClientConnectionSettings settings = (TcpClientConnectionSettings) setting;
+		return tcpClientLayers.checkout((TcpClientConnectionSettings) setting);
+	}
 
-		TcpClientLayer result = null;
-		if (tcpClientLayers.containsKey(settings)) {
-			result = tcpClientLayers.get(settings);
-		}
-		else {
-			ITcpLayer lowerLayer;
-			if (tcpLayers.containsKey(settings.getServerAddress())) {
-				lowerLayer = tcpLayers.get(settings.getServerAddress());
-			}
-			else {
+	@Override
+	public boolean accepts(Class<?> clazz) {
+		return TcpClientConnectionSettings.class.isAssignableFrom(clazz);
+	}
+
+	/**
+	 * @return The pool of created TcpClientLayer objects, providing hit, miss and eviction counters
+	 */
+	public ConnectionPool<TcpClientConnectionSettings, TcpClientLayer> getLayerPool() {
+		return tcpClientLayers;
+	}
+
+	private ITcpLayer acquireTcpLayer(TcpClientConnectionSettings settings) throws IOException {
+		InetSocketAddress address = settings.getServerAddress();
+		synchronized (tcpLayers) {
+			ITcpLayer result = tcpLayers.get(address);
+			if (result == null) {
 				if (tcpPort != -1 && tcpPort != settings.getLocalPort()) {
 					throw new IllegalArgumentException("Port " + tcpPort + " already defined for TCP");
 				}
-				lowerLayer = new TcpLayer(SocketChannel.open(), settings.getServerAddress());
-				tcpLayers.put(settings.getServerAddress(), lowerLayer);
+				result = new TcpLayer(SocketChannel.open(), address);
+				tcpLayers.put(address, result);
 				if (tcpPort == -1) {
 					tcpPort = settings.getLocalPort();
 				}
 			}
 
-			result = new TcpClientLayer(lowerLayer, settings.getClientWPort(), settings.getServerWPort(),
+			Integer users = tcpLayerUsers.get(address);
+			tcpLayerUsers.put(address, users == null ? 1 : users + 1);
+			return result;
+		}
+	}
+
+	private void releaseTcpLayer(InetSocketAddress address) {
+		synchronized (tcpLayers) {
+			Integer users = tcpLayerUsers.get(address);
+			if (users == null || users <= 1) {
+				tcpLayerUsers.remove(address);
+				tcpLayers.remove(address);
+			}
+			else {
+				tcpLayerUsers.put(address, users - 1);
+			}
+		}
+	}
+
+	private class ClientLayerHandler implements
+			ConnectionPool.IResourceHandler<TcpClientConnectionSettings, TcpClientLayer> {
+		@Override
+		public TcpClientLayer create(TcpClientConnectionSettings settings) throws IOException {
+			ITcpLayer lowerLayer = acquireTcpLayer(settings);
+			return new TcpClientLayer(lowerLayer, settings.getClientWPort(), settings.getServerWPort(),
 					settings.getServerAddress());
+		}
 
-			tcpClientLayers.put(settings, result);
+		@Override
+		public boolean isIdle(TcpClientLayer resource) {
+			if (resource.hasBeenConnected() == false) {
+				// Just handed out, the caller has not had the chance to connect it yet
+				return false;
+			}
+			return resource.isConnected() == false;
 		}
 
-		return result;
-	}
+		@Override
+		public boolean isHealthy(TcpClientLayer resource) {
+			return true;
+		}
 
-	@Override
-	public boolean accepts(Class<?> clazz) {
-		return TcpClientConnectionSettings.class.isAssignableFrom(clazz);
+		@Override
+		public void evict(TcpClientLayer resource, boolean healthy) {
+			if (resource.isConnected()) {
+				try {
+					resource.disconnect();
+				} catch (IOException e) {
+					//TODO LoggingHelper.logStackTrace(e, logger);
+				}
+			}
+			releaseTcpLayer(resource.getRemoteAddress());
+		}
 	}
-
 }
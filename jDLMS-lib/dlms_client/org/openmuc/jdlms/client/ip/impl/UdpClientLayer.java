@@ -23,6 +23,7 @@ package org.openmuc.jdlms.client.ip.impl;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.TooManyListenersException;
 
 import org.openmuc.jdlms.client.communication.ILowerLayer;
@@ -45,9 +46,31 @@ public class UdpClientLayer implements ILowerLayer<Object>, IUpperLayer {
 
 	private final Wpdu pdu = new Wpdu();
 
+	/**
+	 * Resends lost requests, null if retransmission is disabled
+	 */
+	private final UdpRetransmitter retransmitter;
+
 	public UdpClientLayer(IUdpLayer lowerLayer, int clientWPort, int serverWPort, InetSocketAddress remoteAddress) {
+		this(lowerLayer, clientWPort, serverWPort, remoteAddress, 0, 0);
+	}
+
+	/**
+	 * @param maxRetransmissions
+	 *            Number of times an unanswered confirmed request is resent. 0 disables retransmission
+	 * @param initialTimeout
+	 *            Retransmission timeout in milliseconds used until the round trip time has been measured
+	 */
+	public UdpClientLayer(IUdpLayer lowerLayer, int clientWPort, int serverWPort, InetSocketAddress remoteAddress,
+			int maxRetransmissions, long initialTimeout) {
 		this.lowerLayer = lowerLayer;
 		identifier = new ConnectionIdentifier(clientWPort, serverWPort, remoteAddress);
+		if (maxRetransmissions > 0) {
+			retransmitter = new UdpRetransmitter(lowerLayer, remoteAddress, maxRetransmissions, initialTimeout);
+		}
+		else {
+			retransmitter = null;
+		}
 	}
 
 	@Override
@@ -55,6 +78,10 @@ public class UdpClientLayer implements ILowerLayer<Object>, IUpperLayer {
 		try {
 			pdu.decode(new ByteArrayInputStream(data));
 
+			if (retransmitter != null && retransmitter.received(pdu.getData()) == false) {
+				return;
+			}
+
 			if (upperLayer != null) {
 				upperLayer.dataReceived(pdu.getData());
 			}
@@ -65,6 +92,9 @@ public class UdpClientLayer implements ILowerLayer<Object>, IUpperLayer {
 
 	@Override
 	public void remoteDisconnect() {
+		if (retransmitter != null) {
+			retransmitter.clear();
+		}
 		lowerLayer.removeUdpListener(identifier);
 		if (upperLayer != null) {
 			upperLayer.remoteDisconnect();
@@ -87,11 +117,26 @@ public class UdpClientLayer implements ILowerLayer<Object>, IUpperLayer {
 		pdu.setSourceWPort(identifier.getLocalWPort());
 		pdu.setData(data);
 
-		lowerLayer.sendOverUdp(pdu.encode(), identifier.getRemoteAddress());
+		if (retransmitter != null) {
+			retransmitter.send(data, pdu.encode());
+		}
+		else {
+			lowerLayer.sendOverUdp(pdu.encode(), identifier.getRemoteAddress());
+		}
+	}
+
+	@Override
+	public void send(ByteBuffer data) throws IOException {
+		byte[] array = new byte[data.remaining()];
+		data.get(array);
+		send(array);
 	}
 
 	@Override
 	public void disconnect() throws IOException {
+		if (retransmitter != null) {
+			retransmitter.clear();
+		}
 		lowerLayer.removeUdpListener(identifier);
 	}
 
@@ -112,6 +157,9 @@ public class UdpClientLayer implements ILowerLayer<Object>, IUpperLayer {
 
 	@Override
 	public void discardMessage(byte[] data) {
-		// Messages are not buffered if UDP is used
+		// Messages are only buffered for retransmission
+		if (retransmitter != null) {
+			retransmitter.discard(data);
+		}
 	}
 }
@@ -63,7 +63,7 @@ public class UdpClientLayerFactory implements ILowerLayerFactory {
 			IUdpLayer lowerLayer = lowerLayerFactory.build(settings.getLocalPort());
 
 			result = new UdpClientLayer(lowerLayer, settings.getClientWPort(), settings.getServerWPort(),
-					settings.getServerAddress());
+					settings.getServerAddress(), settings.getMaxRetransmissions(), settings.getRetransmissionTimeout());
 
 			udpLayers.put(settings, result);
 		}
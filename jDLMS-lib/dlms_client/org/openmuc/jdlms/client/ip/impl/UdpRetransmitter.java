@@ -0,0 +1,338 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.client.ip.impl;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openmuc.jdlms.client.ip.common.IUdpLayer;
+
+/**
+ * Resends confirmed requests of one UDP association until their response arrives and drops duplicated responses.
+ * 
+ * Requests and responses are matched by their invoke id, so up to 16 requests may be outstanding at once. The
+ * association request and the release request have no invoke id and share one additional slot. The retransmission
+ * timeout is derived from the measured round trip time as described in RFC 6298 and doubled with every retry of the
+ * same request.
+ */
+class UdpRetransmitter {
+
+	private static final long MIN_TIMEOUT = 200;
+	private static final long MAX_TIMEOUT = 60000;
+	private static final long CLOCK_GRANULARITY = 10;
+
+	private static final int NUMBER_OF_INVOKE_IDS = 16;
+	/**
+	 * Slot of AARQ/AARE and RLRQ/RLRE
+	 */
+	private static final int ASSOCIATION_SLOT = NUMBER_OF_INVOKE_IDS;
+
+	private static final int AARQ_TAG = 0x60;
+	private static final int AARE_TAG = 0x61;
+	private static final int RLRQ_TAG = 0x62;
+	private static final int RLRE_TAG = 0x63;
+	private static final int GET_REQUEST_TAG = 0xC0;
+	private static final int SET_REQUEST_TAG = 0xC1;
+	private static final int ACTION_REQUEST_TAG = 0xC3;
+	private static final int GET_RESPONSE_TAG = 0xC4;
+	private static final int SET_RESPONSE_TAG = 0xC5;
+	private static final int ACTION_RESPONSE_TAG = 0xC7;
+
+	private static final int GET_REQUEST_NEXT = 2;
+	private static final int SET_REQUEST_WITH_DATABLOCK = 3;
+	private static final int ACTION_REQUEST_NEXT_PBLOCK = 2;
+	private static final int ACTION_REQUEST_WITH_PBLOCK = 6;
+
+	/**
+	 * Service class bit of the invoke-id-and-priority field, set for confirmed services
+	 */
+	private static final int CONFIRMED_FLAG = 0x02;
+
+	private static final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread result = new Thread(r, "UDP retransmission Thread");
+			result.setDaemon(true);
+			return result;
+		}
+	});
+
+	static {
+		timer.setRemoveOnCancelPolicy(true);
+	}
+
+	private final IUdpLayer lowerLayer;
+	private final SocketAddress destination;
+	private final int maxRetransmissions;
+
+	private final Pending[] pending = new Pending[NUMBER_OF_INVOKE_IDS + 1];
+	/**
+	 * Last response delivered for every slot while a block transfer is in progress, used to recognize duplicates of the
+	 * previous block once the next block has been requested
+	 */
+	private final byte[][] lastResponses = new byte[NUMBER_OF_INVOKE_IDS + 1][];
+
+	private long timeout;
+	private long smoothedRtt = -1;
+	private long rttVariation;
+
+	private long retransmissions = 0;
+	private long duplicates = 0;
+
+	/**
+	 * @param lowerLayer
+	 *            Layer the datagrams are sent with
+	 * @param destination
+	 *            Address of the smart meter
+	 * @param maxRetransmissions
+	 *            Number of times a request is resent before waiting is left to the upper layer
+	 * @param initialTimeout
+	 *            Retransmission timeout in milliseconds until the first round trip time has been measured
+	 */
+	UdpRetransmitter(IUdpLayer lowerLayer, SocketAddress destination, int maxRetransmissions, long initialTimeout) {
+		this.lowerLayer = lowerLayer;
+		this.destination = destination;
+		this.maxRetransmissions = maxRetransmissions;
+		timeout = initialTimeout;
+	}
+
+	/**
+	 * Sends a datagram and schedules its retransmission if it contains a confirmed request
+	 * 
+	 * @param apdu
+	 *            The COSEM APDU contained in the datagram
+	 * @param wpdu
+	 *            The complete datagram
+	 */
+	void send(byte[] apdu, byte[] wpdu) throws IOException {
+		int slot = requestSlot(apdu);
+		if (slot < 0) {
+			lowerLayer.sendOverUdp(wpdu, destination);
+			return;
+		}
+
+		synchronized (this) {
+			cancel(slot);
+			if (isContinuation(apdu) == false) {
+				// A new request may legitimately receive the same response as an earlier one with this invoke id
+				lastResponses[slot] = null;
+			}
+			Pending request = new Pending(slot, wpdu, System.currentTimeMillis());
+			pending[slot] = request;
+			request.schedule(timeout);
+		}
+		lowerLayer.sendOverUdp(wpdu, destination);
+	}
+
+	/**
+	 * Checks a received APDU against the outstanding requests
+	 * 
+	 * @return false if the APDU duplicates a response that has already been received and has to be dropped
+	 */
+	boolean received(byte[] apdu) {
+		int slot = responseSlot(apdu);
+		if (slot < 0) {
+			return true;
+		}
+
+		synchronized (this) {
+			Pending request = pending[slot];
+			if (request == null || Arrays.equals(apdu, lastResponses[slot])) {
+				duplicates++;
+				return false;
+			}
+
+			cancel(slot);
+			if (request.retries == 0) {
+				// Round trip times of retransmitted requests are ambiguous and are not measured (Karn's algorithm)
+				updateTimeout(System.currentTimeMillis() - request.sendTime);
+			}
+			lastResponses[slot] = apdu;
+			return true;
+		}
+	}
+
+	/**
+	 * Stops resending the request contained in the given APDU, because the upper layer stopped waiting for it
+	 */
+	void discard(byte[] apdu) {
+		int slot = requestSlot(apdu);
+		if (slot < 0) {
+			return;
+		}
+		synchronized (this) {
+			cancel(slot);
+		}
+	}
+
+	/**
+	 * Stops resending all outstanding requests
+	 */
+	synchronized void clear() {
+		for (int i = 0; i < pending.length; i++) {
+			cancel(i);
+			lastResponses[i] = null;
+		}
+	}
+
+	/**
+	 * @return The current retransmission timeout in milliseconds
+	 */
+	synchronized long getTimeout() {
+		return timeout;
+	}
+
+	synchronized long getRetransmissionCount() {
+		return retransmissions;
+	}
+
+	synchronized long getDuplicateCount() {
+		return duplicates;
+	}
+
+	private void cancel(int slot) {
+		Pending request = pending[slot];
+		if (request != null) {
+			pending[slot] = null;
+			request.task.cancel(false);
+		}
+	}
+
+	private void updateTimeout(long rtt) {
+		if (smoothedRtt < 0) {
+			smoothedRtt = rtt;
+			rttVariation = rtt / 2;
+		}
+		else {
+			rttVariation = (3 * rttVariation + Math.abs(smoothedRtt - rtt)) / 4;
+			smoothedRtt = (7 * smoothedRtt + rtt) / 8;
+		}
+		timeout = Math.min(MAX_TIMEOUT, Math.max(MIN_TIMEOUT, smoothedRtt
+				+ Math.max(CLOCK_GRANULARITY, 4 * rttVariation)));
+	}
+
+	private void retransmit(Pending request) {
+		synchronized (this) {
+			if (pending[request.slot] != request) {
+				return;
+			}
+			if (request.retries >= maxRetransmissions) {
+				// Stop resending, but keep the request until the upper layer receives the response or stops waiting.
+				// A late response is still valid and must not be taken for a duplicate.
+				return;
+			}
+			request.retries++;
+			retransmissions++;
+			request.schedule(Math.min(MAX_TIMEOUT, timeout << request.retries));
+		}
+
+		try {
+			lowerLayer.sendOverUdp(request.wpdu, destination);
+		} catch (IOException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+		}
+	}
+
+	private static int requestSlot(byte[] apdu) {
+		if (apdu.length == 0) {
+			return -1;
+		}
+		int tag = apdu[0] & 0xFF;
+		if (tag == AARQ_TAG || tag == RLRQ_TAG) {
+			return ASSOCIATION_SLOT;
+		}
+		if (tag == GET_REQUEST_TAG || tag == SET_REQUEST_TAG || tag == ACTION_REQUEST_TAG) {
+			if (apdu.length < 3 || (apdu[2] & CONFIRMED_FLAG) == 0) {
+				return -1;
+			}
+			return invokeId(apdu);
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if the request asks for the next block of a transfer started by an earlier request
+	 */
+	private static boolean isContinuation(byte[] apdu) {
+		if (apdu.length < 2) {
+			return false;
+		}
+		int tag = apdu[0] & 0xFF;
+		int choice = apdu[1] & 0xFF;
+		return (tag == GET_REQUEST_TAG && choice == GET_REQUEST_NEXT)
+				|| (tag == SET_REQUEST_TAG && choice == SET_REQUEST_WITH_DATABLOCK)
+				|| (tag == ACTION_REQUEST_TAG && (choice == ACTION_REQUEST_NEXT_PBLOCK
+						|| choice == ACTION_REQUEST_WITH_PBLOCK));
+	}
+
+	private static int responseSlot(byte[] apdu) {
+		if (apdu.length == 0) {
+			return -1;
+		}
+		int tag = apdu[0] & 0xFF;
+		if (tag == AARE_TAG || tag == RLRE_TAG) {
+			return ASSOCIATION_SLOT;
+		}
+		if (tag == GET_RESPONSE_TAG || tag == SET_RESPONSE_TAG || tag == ACTION_RESPONSE_TAG) {
+			if (apdu.length < 3) {
+				return -1;
+			}
+			return invokeId(apdu);
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads the invoke id of a request or response. The tag is followed by the choice index and the
+	 * invoke-id-and-priority field
+	 */
+	private static int invokeId(byte[] apdu) {
+		return (apdu[2] & 0xF0) >>> 4;
+	}
+
+	private class Pending implements Runnable {
+		private final int slot;
+		private final byte[] wpdu;
+		private final long sendTime;
+		private int retries = 0;
+		private ScheduledFuture<?> task;
+
+		public Pending(int slot, byte[] wpdu, long sendTime) {
+			this.slot = slot;
+			this.wpdu = wpdu;
+			this.sendTime = sendTime;
+		}
+
+		private void schedule(long delay) {
+			task = timer.schedule(this, delay, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void run() {
+			retransmit(this);
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.push;
+
+import java.util.List;
+
+/**
+ * Receives the notifications pushed by meters to a {@link PushListener}
+ */
+public interface IPushSink {
+	/**
+	 * Callback delivering the next batch of pushed notifications, oldest first. Only called by one thread at a time.
+	 * 
+	 * While this method runs, further notifications are queued. Once the queue of the listener is full, the meters are
+	 * slowed down by TCP flow control, so no notification is lost.
+	 * 
+	 * @param notifications
+	 *            Read only list of notifications. Never empty
+	 */
+	void notificationsReceived(List<PushNotification> notifications);
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.push;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmuc.jdlms.client.communication.IUpperLayer;
+import org.openmuc.jdlms.client.ip.common.ConnectionIdentifier;
+import org.openmuc.jdlms.client.ip.common.IConnectionAcceptor;
+import org.openmuc.jdlms.client.ip.common.ITcpLayer;
+import org.openmuc.jdlms.client.ip.common.TcpServerListener;
+
+/**
+ * Accepts TCP connections opened by meters and receives the EVENT-NOTIFICATION and DataNotification PDUs they push.
+ * 
+ * Connections are handled by the selector threads and decoded by the decoding threads shared with all client
+ * connections. Decoded notifications are collected in a bounded queue and handed to an {@link IPushSink} in batches by
+ * a single dispatching thread. If the sink cannot keep up and the queue is full, a session holds its notification back
+ * and reading from its socket is suspended until the dispatching thread has made room for it. Notifications are
+ * delayed but never dropped, and the decoding threads never wait for the sink.
+ */
+public class PushListener implements IConnectionAcceptor {
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 0x10000;
+	public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+	public static final long DEFAULT_MAX_BATCH_DELAY = 100;
+
+	/**
+	 * Milliseconds the dispatching thread waits for the first notification of a batch before checking if it has been
+	 * stopped
+	 */
+	private static final long IDLE_POLL_INTERVAL = 100;
+
+	private final TcpServerListener server;
+	private final IPushSink sink;
+
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private long maxBatchDelay = DEFAULT_MAX_BATCH_DELAY;
+
+	private BlockingQueue<PushNotification> queue = null;
+	private final Queue<PushSession> stalledSessions = new ConcurrentLinkedQueue<PushSession>();
+	private Thread dispatcher = null;
+	private volatile boolean running = false;
+
+	private final AtomicLong received = new AtomicLong(0);
+	private final AtomicLong delivered = new AtomicLong(0);
+	private final AtomicLong decodingErrors = new AtomicLong(0);
+
+	/**
+	 * @param address
+	 *            Local address and port meters connect to
+	 * @param sink
+	 *            Receives the pushed notifications
+	 */
+	public PushListener(InetSocketAddress address, IPushSink sink) {
+		server = new TcpServerListener(address, this);
+		this.sink = sink;
+	}
+
+	/**
+	 * Sets the number of notifications that may wait for the sink. Has to be called before {@link #start()}.
+	 * 
+	 * @param capacity
+	 *            Capacity of the queue. Must be at least 1
+	 */
+	public synchronized void setQueueCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be at least 1");
+		}
+		checkNotRunning();
+		queueCapacity = capacity;
+	}
+
+	/**
+	 * Sets the maximum number of notifications handed to the sink in one call. Has to be called before
+	 * {@link #start()}.
+	 * 
+	 * @param size
+	 *            Maximum size of a batch. Must be at least 1
+	 */
+	public synchronized void setMaxBatchSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+		checkNotRunning();
+		maxBatchSize = size;
+	}
+
+	/**
+	 * Sets how long the first notification of a batch may wait for further notifications to arrive. Has to be called
+	 * before {@link #start()}.
+	 * 
+	 * @param delay
+	 *            Delay in milliseconds. 0 hands every batch over as soon as the queue is empty
+	 */
+	public synchronized void setMaxBatchDelay(long delay) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Batch delay must not be negative");
+		}
+		checkNotRunning();
+		maxBatchDelay = delay;
+	}
+
+	private void checkNotRunning() {
+		if (running) {
+			throw new IllegalStateException("Push listener already started");
+		}
+	}
+
+	/**
+	 * Binds the local port and starts accepting connections
+	 * 
+	 * @throws IOException
+	 *             If the port could not be bound
+	 */
+	public synchronized void start() throws IOException {
+		if (running) {
+			return;
+		}
+
+		queue = new ArrayBlockingQueue<PushNotification>(queueCapacity);
+		running = true;
+		dispatcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				dispatch();
+			}
+		}, "Push dispatching Thread");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+
+		try {
+			server.start();
+		} catch (IOException e) {
+			stop();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes all connections and stops accepting new ones. Returns after all notifications received so far have been
+	 * handed to the sink.
+	 */
+	public synchronized void stop() {
+		if (running == false) {
+			return;
+		}
+
+		try {
+			server.stop();
+		} catch (IOException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+		}
+
+		running = false;
+		try {
+			dispatcher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		dispatcher = null;
+	}
+
+	/**
+	 * @return The local port meters connect to or -1 if the listener is not running
+	 */
+	public int getPort() {
+		return server.getPort();
+	}
+
+	/**
+	 * @return Number of meter connections currently open
+	 */
+	public int getNumberOfConnections() {
+		return server.getNumberOfConnections();
+	}
+
+	/**
+	 * @return Number of notifications received since the start
+	 */
+	public long getReceivedCount() {
+		return received.get();
+	}
+
+	/**
+	 * @return Number of notifications handed to the sink since the start
+	 */
+	public long getDeliveredCount() {
+		return delivered.get();
+	}
+
+	/**
+	 * @return Number of received PDUs that could not be decoded as notification
+	 */
+	public long getDecodingErrorCount() {
+		return decodingErrors.get();
+	}
+
+	@Override
+	public IUpperLayer accept(ConnectionIdentifier identifier, ITcpLayer connection) {
+		return new PushSession(this, identifier);
+	}
+
+	void notificationReceived() {
+		received.incrementAndGet();
+	}
+
+	/**
+	 * Queues a notification for the sink without waiting
+	 * 
+	 * @return false if the queue is full
+	 */
+	boolean offer(PushNotification notification) {
+		return queue.offer(notification);
+	}
+
+	/**
+	 * Registers a session that holds back a notification because the queue was full. The dispatching thread queues
+	 * the notification as soon as there is room again.
+	 */
+	void stalled(PushSession session) {
+		stalledSessions.add(session);
+	}
+
+	/**
+	 * Queues the notifications of stalled sessions in the order the sessions stalled, as long as there is room
+	 */
+	private void retryStalledSessions() {
+		PushSession session;
+		while ((session = stalledSessions.peek()) != null) {
+			if (session.retryStalled() == false) {
+				return;
+			}
+			stalledSessions.poll();
+		}
+	}
+
+	void decodingFailed() {
+		decodingErrors.incrementAndGet();
+	}
+
+	private void dispatch() {
+		List<PushNotification> batch = new ArrayList<PushNotification>(maxBatchSize);
+
+		try {
+			while (running || queue.isEmpty() == false || stalledSessions.isEmpty() == false) {
+				retryStalledSessions();
+				PushNotification first = queue.poll(IDLE_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+
+				long deadline = System.currentTimeMillis() + maxBatchDelay;
+				while (batch.size() < maxBatchSize) {
+					if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0 || running == false) {
+						break;
+					}
+					PushNotification next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+
+				deliver(batch);
+				retryStalledSessions();
+				batch = new ArrayList<PushNotification>(maxBatchSize);
+			}
+		} catch (InterruptedException e) {
+			// Listener is shut down
+		}
+	}
+
+	private void deliver(List<PushNotification> batch) {
+		try {
+			sink.notificationsReceived(Collections.unmodifiableList(batch));
+		} catch (RuntimeException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+		}
+		delivered.addAndGet(batch.size());
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.push;
+
+import java.net.SocketAddress;
+
+import org.openmuc.jdlms.client.EventNotification;
+
+/**
+ * Notification pushed by a meter, together with the end point it has been received from
+ */
+public final class PushNotification {
+	private final SocketAddress remoteAddress;
+	private final int meterWPort;
+	private final int localWPort;
+	private final long receiveTime;
+	private final EventNotification event;
+
+	public PushNotification(SocketAddress remoteAddress, int meterWPort, int localWPort, long receiveTime,
+			EventNotification event) {
+		this.remoteAddress = remoteAddress;
+		this.meterWPort = meterWPort;
+		this.localWPort = localWPort;
+		this.receiveTime = receiveTime;
+		this.event = event;
+	}
+
+	/**
+	 * @return IP address and port of the meter's TCP connection
+	 */
+	public SocketAddress getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	/**
+	 * @return WPort of the logical device that pushed the notification
+	 */
+	public int getMeterWPort() {
+		return meterWPort;
+	}
+
+	/**
+	 * @return WPort the notification has been addressed to
+	 */
+	public int getLocalWPort() {
+		return localWPort;
+	}
+
+	/**
+	 * @return Time the notification has been received in milliseconds since 1970-01-01 UTC
+	 */
+	public long getReceiveTime() {
+		return receiveTime;
+	}
+
+	/**
+	 * Returns the content of the notification. Data notifications do not reference an attribute, for them the class
+	 * id and attribute id are 0 and the OBIS code is null.
+	 */
+	public EventNotification getEvent() {
+		return event;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.push;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.openmuc.asn1.cosem.COSEMpdu;
+import org.openmuc.jasn1.axdr.types.AxdrOctetString;
+import org.openmuc.jdlms.client.EventNotification;
+import org.openmuc.jdlms.client.communication.IUpperLayer;
+import org.openmuc.jdlms.client.impl.DataConverter;
+import org.openmuc.jdlms.client.ip.common.ConnectionIdentifier;
+import org.openmuc.jdlms.client.ip.common.IFlowControlledReceiver;
+import org.openmuc.jdlms.client.ip.common.IWpduReceiver;
+import org.openmuc.jdlms.client.ip.common.ReceiveQueue;
+
+/**
+ * Decodes the PDUs pushed by one logical device of a meter, identified by the TCP connection and the pair of WPorts
+ */
+class PushSession implements IUpperLayer, IWpduReceiver, IFlowControlledReceiver {
+
+	private static final int HEADER_LENGTH = 8;
+
+	private static final int DATA_NOTIFICATION_TAG = 0x0F;
+	private static final int EVENT_NOTIFICATION_TAG = 0xC2;
+
+	/**
+	 * Tag and long-invoke-id-and-priority of a DataNotification
+	 */
+	private static final int DATA_NOTIFICATION_HEADER = 5;
+
+	private final PushListener listener;
+	private final ConnectionIdentifier identifier;
+
+	private ReceiveQueue receiveQueue;
+
+	/**
+	 * Notification that did not fit into the queue of the listener. The delivery of further PDUs of this session is
+	 * paused until it has been queued
+	 */
+	private PushNotification stalled = null;
+
+	PushSession(PushListener listener, ConnectionIdentifier identifier) {
+		this.listener = listener;
+		this.identifier = identifier;
+	}
+
+	@Override
+	public void wpduReceived(ByteBuffer wpdu) {
+		byte[] apdu = new byte[wpdu.remaining() - HEADER_LENGTH];
+		ByteBuffer payload = wpdu.duplicate();
+		payload.position(payload.position() + HEADER_LENGTH);
+		payload.get(apdu);
+		process(apdu);
+	}
+
+	@Override
+	public void dataReceived(byte[] data) {
+		byte[] apdu = new byte[data.length - HEADER_LENGTH];
+		System.arraycopy(data, HEADER_LENGTH, apdu, 0, apdu.length);
+		process(apdu);
+	}
+
+	@Override
+	public void remoteDisconnect() {
+	}
+
+	@Override
+	public void setReceiveQueue(ReceiveQueue queue) {
+		receiveQueue = queue;
+	}
+
+	/**
+	 * Tries to queue the notification held back by this session and continues the delivery of PDUs if it succeeds.
+	 * Called by the dispatching thread of the listener.
+	 * 
+	 * @return false if the queue of the listener is still full
+	 */
+	boolean retryStalled() {
+		synchronized (this) {
+			if (stalled != null && listener.offer(stalled) == false) {
+				return false;
+			}
+			stalled = null;
+		}
+		receiveQueue.resume();
+		return true;
+	}
+
+	private void process(byte[] apdu) {
+		long receiveTime = System.currentTimeMillis();
+
+		EventNotification event;
+		try {
+			event = decode(apdu);
+		} catch (IOException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+			event = null;
+		} catch (RuntimeException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+			event = null;
+		}
+
+		if (event == null) {
+			listener.decodingFailed();
+			return;
+		}
+
+		PushNotification notification = new PushNotification(identifier.getRemoteAddress(),
+				identifier.getRemoteWPort(), identifier.getLocalWPort(), receiveTime, event);
+		listener.notificationReceived();
+		if (listener.offer(notification) == false) {
+			// The decoding thread is shared with all connections and must not wait. Only this connection is slowed
+			// down instead, the lower layer stops reading from its socket while its receive queue is paused.
+			synchronized (this) {
+				stalled = notification;
+			}
+			receiveQueue.pause();
+			listener.stalled(this);
+		}
+	}
+
+	/**
+	 * @return The decoded notification or null if the PDU is no notification
+	 */
+	private static EventNotification decode(byte[] apdu) throws IOException {
+		if (apdu.length == 0) {
+			return null;
+		}
+
+		int tag = apdu[0] & 0xFF;
+		if (tag == EVENT_NOTIFICATION_TAG) {
+			COSEMpdu pdu = new COSEMpdu();
+			pdu.decode(ByteBuffer.wrap(apdu), true);
+			return DataConverter.toApi(pdu.event_notification_request);
+		}
+
+		if (tag == DATA_NOTIFICATION_TAG && apdu.length > DATA_NOTIFICATION_HEADER) {
+			ByteBuffer buffer = ByteBuffer.wrap(apdu, DATA_NOTIFICATION_HEADER, apdu.length - DATA_NOTIFICATION_HEADER);
+
+			// Optional date-time, sent as octet string of length 0 if omitted
+			AxdrOctetString dateTime = new AxdrOctetString();
+			dateTime.decode(buffer, true);
+			Long timestamp = null;
+			if (dateTime.getValue().length == 12) {
+				timestamp = DataConverter.toTimestamp(dateTime.getValue());
+			}
+
+			org.openmuc.asn1.cosem.Data body = new org.openmuc.asn1.cosem.Data();
+			body.decode(buffer, true);
+			return new EventNotification(0, null, 0, DataConverter.toApi(body), timestamp);
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,792 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.simulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openmuc.asn1.cosem.ACTION_Request;
+import org.openmuc.asn1.cosem.ACTION_Response;
+import org.openmuc.asn1.cosem.Action_Request_With_List;
+import org.openmuc.asn1.cosem.Action_Response_Next_Pblock;
+import org.openmuc.asn1.cosem.Action_Response_Normal;
+import org.openmuc.asn1.cosem.Action_Response_With_List;
+import org.openmuc.asn1.cosem.Action_Response_With_Optional_Data;
+import org.openmuc.asn1.cosem.COSEMpdu;
+import org.openmuc.asn1.cosem.Conformance;
+import org.openmuc.asn1.cosem.Cosem_Attribute_Descriptor;
+import org.openmuc.asn1.cosem.Cosem_Attribute_Descriptor_With_Selection;
+import org.openmuc.asn1.cosem.Cosem_Method_Descriptor;
+import org.openmuc.asn1.cosem.DataBlock_G;
+import org.openmuc.asn1.cosem.DataBlock_SA;
+import org.openmuc.asn1.cosem.EXCEPTION_Response;
+import org.openmuc.asn1.cosem.Enum;
+import org.openmuc.asn1.cosem.GET_Request;
+import org.openmuc.asn1.cosem.GET_Response;
+import org.openmuc.asn1.cosem.Get_Data_Result;
+import org.openmuc.asn1.cosem.Get_Request_Next;
+import org.openmuc.asn1.cosem.Get_Request_Normal;
+import org.openmuc.asn1.cosem.Get_Response_Normal;
+import org.openmuc.asn1.cosem.Get_Response_With_Datablock;
+import org.openmuc.asn1.cosem.Get_Response_With_List;
+import org.openmuc.asn1.cosem.InitiateRequest;
+import org.openmuc.asn1.cosem.InitiateResponse;
+import org.openmuc.asn1.cosem.Integer16;
+import org.openmuc.asn1.cosem.Invoke_Id_And_Priority;
+import org.openmuc.asn1.cosem.SET_Request;
+import org.openmuc.asn1.cosem.SET_Response;
+import org.openmuc.asn1.cosem.Selective_Access_Descriptor;
+import org.openmuc.asn1.cosem.Set_Request_Normal;
+import org.openmuc.asn1.cosem.Set_Request_With_List;
+import org.openmuc.asn1.cosem.Set_Response_Datablock;
+import org.openmuc.asn1.cosem.Set_Response_Last_Datablock;
+import org.openmuc.asn1.cosem.Set_Response_Last_Datablock_With_List;
+import org.openmuc.asn1.cosem.Set_Response_Normal;
+import org.openmuc.asn1.cosem.Set_Response_With_List;
+import org.openmuc.asn1.cosem.Unsigned16;
+import org.openmuc.asn1.cosem.Unsigned32;
+import org.openmuc.asn1.iso.acse.AARE_apdu;
+import org.openmuc.asn1.iso.acse.AARQ_apdu;
+import org.openmuc.asn1.iso.acse.Associate_source_diagnostic;
+import org.openmuc.asn1.iso.acse.Association_information;
+import org.openmuc.asn1.iso.acse.RLRE_apdu;
+import org.openmuc.jasn1.axdr.AxdrByteArrayOutputStream;
+import org.openmuc.jasn1.axdr.AxdrType;
+import org.openmuc.jasn1.axdr.types.AxdrBoolean;
+import org.openmuc.jasn1.axdr.types.AxdrEnum;
+import org.openmuc.jasn1.axdr.types.AxdrOctetString;
+import org.openmuc.jasn1.axdr.types.AxdrOptional;
+import org.openmuc.jasn1.ber.BerByteArrayOutputStream;
+import org.openmuc.jasn1.ber.types.BerInteger;
+import org.openmuc.jasn1.ber.types.BerOctetString;
+import org.openmuc.jdlms.client.AccessResultCode;
+import org.openmuc.jdlms.client.Data;
+import org.openmuc.jdlms.client.GetResult;
+import org.openmuc.jdlms.client.MethodResult;
+import org.openmuc.jdlms.client.MethodResultCode;
+import org.openmuc.jdlms.client.SelectiveAccessDescription;
+import org.openmuc.jdlms.client.communication.IUpperLayer;
+import org.openmuc.jdlms.client.impl.DataConverter;
+import org.openmuc.jdlms.client.ip.common.ITcpLayer;
+import org.openmuc.jdlms.client.ip.common.IWpduReceiver;
+
+/**
+ * Server side of one association between a client and a {@link SimulatedMeter}, identified by the TCP connection and
+ * the pair of WPorts.
+ * 
+ * Requests are processed in the order they are received, one at a time. Responses that exceed the negotiated PDU size
+ * are sent in data blocks. Only logical name referencing is supported.
+ */
+class MeterAssociation implements IUpperLayer, IWpduReceiver {
+
+	private static final int HEADER_LENGTH = 8;
+
+	private static final byte AARQ_TAG = 0x60;
+	private static final byte RLRQ_TAG = 0x62;
+
+	/**
+	 * Bytes of a Get_Response_With_Datablock besides the raw data: tag, invoke id, last block, block number, choice
+	 * and length of the raw data
+	 */
+	private static final int DATABLOCK_OVERHEAD = 12;
+
+	/**
+	 * Block transfer with get, set and action, multiple references, get, set, selective access and action
+	 */
+	private static final byte[] SUPPORTED_CONFORMANCE = { 0x00, 0x1E, 0x1D };
+
+	private static final int ACSE_RESULT_ACCEPTED = 0;
+	private static final int ACSE_RESULT_REJECTED_PERMANENT = 1;
+	private static final int DIAGNOSTIC_NULL = 0;
+	private static final int DIAGNOSTIC_NO_REASON_GIVEN = 1;
+	private static final int DIAGNOSTIC_AUTHENTICATION_FAILURE = 13;
+
+	private static ScheduledExecutorService delayedResponses;
+
+	private final SimulatedMeter meter;
+	private final ITcpLayer connection;
+	private final int localWPort;
+	private final int remoteWPort;
+
+	private boolean associated = false;
+	private int maxSendPduSize = SimulatedMeter.DEFAULT_MAX_PDU_SIZE;
+
+	/**
+	 * Long GET responses in progress, by invoke id
+	 */
+	private final Map<Integer, OutgoingBlocks> outgoing = new HashMap<Integer, OutgoingBlocks>();
+
+	/**
+	 * SET requests sent in blocks that are not complete yet, by invoke id
+	 */
+	private final Map<Integer, IncomingBlocks<Cosem_Attribute_Descriptor_With_Selection>> incomingSets = new HashMap<Integer, IncomingBlocks<Cosem_Attribute_Descriptor_With_Selection>>();
+
+	/**
+	 * ACTION requests sent in blocks that are not complete yet, by invoke id
+	 */
+	private final Map<Integer, IncomingBlocks<Cosem_Method_Descriptor>> incomingActions = new HashMap<Integer, IncomingBlocks<Cosem_Method_Descriptor>>();
+
+	MeterAssociation(SimulatedMeter meter, ITcpLayer connection, int localWPort, int remoteWPort) {
+		this.meter = meter;
+		this.connection = connection;
+		this.localWPort = localWPort;
+		this.remoteWPort = remoteWPort;
+	}
+
+	private static synchronized ScheduledExecutorService getDelayedResponses() {
+		if (delayedResponses == null) {
+			delayedResponses = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread result = new Thread(r, "Simulated meter response Thread");
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return delayedResponses;
+	}
+
+	@Override
+	public void wpduReceived(ByteBuffer wpdu) {
+		byte[] apdu = new byte[wpdu.remaining() - HEADER_LENGTH];
+		ByteBuffer payload = wpdu.duplicate();
+		payload.position(payload.position() + HEADER_LENGTH);
+		payload.get(apdu);
+		process(apdu);
+	}
+
+	@Override
+	public void dataReceived(byte[] data) {
+		byte[] apdu = new byte[data.length - HEADER_LENGTH];
+		System.arraycopy(data, HEADER_LENGTH, apdu, 0, apdu.length);
+		process(apdu);
+	}
+
+	@Override
+	public void remoteDisconnect() {
+		release();
+	}
+
+	private void process(byte[] apdu) {
+		if (apdu.length == 0) {
+			return;
+		}
+
+		try {
+			if (apdu[0] == AARQ_TAG) {
+				processAarq(apdu);
+				return;
+			}
+			if (apdu[0] == RLRQ_TAG) {
+				release();
+				BerByteArrayOutputStream oStream = new BerByteArrayOutputStream(20, true);
+				new RLRE_apdu(new BerInteger(0), null).encode(oStream, true);
+				send(oStream.getArray());
+				return;
+			}
+
+			COSEMpdu pdu = new COSEMpdu();
+			pdu.decode(ByteBuffer.wrap(apdu), true);
+			if (associated == false) {
+				sendException();
+				return;
+			}
+
+			COSEMpdu response;
+			switch (pdu.getChoiceIndex()) {
+			case GET_REQUEST:
+				response = processGet(pdu.get_request);
+				break;
+			case SET_REQUEST:
+				response = processSet(pdu.set_request);
+				break;
+			case ACTION_REQUEST:
+				response = processAction(pdu.action_request);
+				break;
+			default:
+				sendException();
+				return;
+			}
+			meter.countRequest();
+			send(encode(response));
+		} catch (IOException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+		} catch (RuntimeException e) {
+			// Faulty simulated object. Drop the request, the client runs into its timeout
+			//TODO LoggingHelper.logStackTrace(e, logger);
+		}
+	}
+
+	private void release() {
+		associated = false;
+		outgoing.clear();
+		incomingSets.clear();
+		incomingActions.clear();
+	}
+
+	private void processAarq(byte[] apdu) throws IOException {
+		release();
+
+		AARQ_apdu aarq = new AARQ_apdu();
+		aarq.decode(new ByteArrayInputStream(apdu), true);
+
+		InitiateRequest initiate = null;
+		if (aarq.user_information != null) {
+			COSEMpdu xdlms = new COSEMpdu();
+			xdlms.decode(ByteBuffer.wrap(aarq.user_information.axdr_frame.octetString), false);
+			initiate = xdlms.initiateRequest;
+		}
+
+		byte[] password = null;
+		if (aarq.calling_authentication_value != null && aarq.calling_authentication_value.charstring != null) {
+			password = aarq.calling_authentication_value.charstring.octetString;
+		}
+
+		AARE_apdu aare = new AARE_apdu();
+		aare.application_context_name = aarq.application_context_name;
+
+		if (initiate == null) {
+			reject(aare, DIAGNOSTIC_NO_REASON_GIVEN);
+		}
+		else if (meter.isPasswordAccepted(password) == false) {
+			reject(aare, DIAGNOSTIC_AUTHENTICATION_FAILURE);
+		}
+		else {
+			int clientMaxPduSize = (int) initiate.client_max_receive_pdu_size.getValue();
+			maxSendPduSize = meter.getMaxPduSize();
+			if (clientMaxPduSize > 0 && clientMaxPduSize < maxSendPduSize) {
+				maxSendPduSize = clientMaxPduSize;
+			}
+
+			byte[] proposed = initiate.proposed_conformance.bitString;
+			byte[] negotiated = new byte[SUPPORTED_CONFORMANCE.length];
+			for (int i = 0; i < negotiated.length && i < proposed.length; i++) {
+				negotiated[i] = (byte) (proposed[i] & SUPPORTED_CONFORMANCE[i]);
+			}
+
+			COSEMpdu xdlms = new COSEMpdu();
+			xdlms.setinitiateResponse(new InitiateResponse(null, initiate.proposed_dlms_version_number,
+					new Conformance(negotiated, negotiated.length * 8), new Unsigned16(meter.getMaxPduSize()),
+					new Integer16((short) 0x0007)));
+
+			aare.result = new BerInteger(ACSE_RESULT_ACCEPTED);
+			aare.result_source_diagnostic = new Associate_source_diagnostic(new BerInteger(DIAGNOSTIC_NULL), null);
+			aare.user_information = new Association_information(new BerOctetString(encode(xdlms)));
+
+			associated = true;
+			meter.countAssociation();
+		}
+
+		BerByteArrayOutputStream oStream = new BerByteArrayOutputStream(100, true);
+		aare.encode(oStream, true);
+		send(oStream.getArray());
+	}
+
+	private void reject(AARE_apdu aare, int diagnostic) {
+		aare.result = new BerInteger(ACSE_RESULT_REJECTED_PERMANENT);
+		aare.result_source_diagnostic = new Associate_source_diagnostic(new BerInteger(diagnostic), null);
+	}
+
+	private COSEMpdu processGet(GET_Request request) throws IOException {
+		GET_Response response = new GET_Response();
+
+		switch (request.getChoiceIndex()) {
+		case GET_REQUEST_NORMAL: {
+			Get_Request_Normal normal = request.get_request_normal;
+			GetResult result = get(normal.cosem_attribute_descriptor, normal.access_selection);
+			Get_Response_Normal responseNormal = new Get_Response_Normal(normal.invoke_id_and_priority,
+					toPdu(result));
+			response.setget_response_normal(responseNormal);
+
+			COSEMpdu pdu = toPdu(response);
+			if (result.isSuccess() && encode(pdu).length > maxSendPduSize) {
+				return startBlocks(normal.invoke_id_and_priority, encode(responseNormal.result.data));
+			}
+			return pdu;
+		}
+		case GET_REQUEST_WITH_LIST: {
+			Get_Response_With_List responseList = new Get_Response_With_List();
+			responseList.invoke_id_and_priority = request.get_request_with_list.invoke_id_and_priority;
+			responseList.result = new Get_Response_With_List.SubSeqOf_result();
+			for (Cosem_Attribute_Descriptor_With_Selection descriptor : request.get_request_with_list.attribute_descriptor_list
+					.list()) {
+				responseList.result.add(toPdu(get(descriptor.cosem_attribute_descriptor,
+						descriptor.access_selection)));
+			}
+			response.setget_response_with_list(responseList);
+
+			COSEMpdu pdu = toPdu(response);
+			if (encode(pdu).length > maxSendPduSize) {
+				return startBlocks(responseList.invoke_id_and_priority, encode(responseList.result));
+			}
+			return pdu;
+		}
+		case GET_REQUEST_NEXT:
+			return nextBlock(request.get_request_next);
+		default:
+			throw new IOException("Unknown GET request");
+		}
+	}
+
+	private GetResult get(Cosem_Attribute_Descriptor descriptor, AxdrOptional<Selective_Access_Descriptor> access) {
+		SimulatedObject object = meter.getObject(descriptor.instance_id.getValue());
+		if (object == null) {
+			return new GetResult(AccessResultCode.OBJECT_UNDEFINED);
+		}
+		if (object.getClassId() != descriptor.class_id.getValue()) {
+			return new GetResult(AccessResultCode.OBJECT_CLASS_INCONSISTENT);
+		}
+		return object.get((int) descriptor.attribute_id.getValue(), toApi(access));
+	}
+
+	private COSEMpdu startBlocks(Invoke_Id_And_Priority invokeId, byte[] rawData) {
+		OutgoingBlocks blocks = new OutgoingBlocks(rawData);
+		outgoing.put(toKey(invokeId), blocks);
+		return sendBlock(invokeId, blocks);
+	}
+
+	private COSEMpdu nextBlock(Get_Request_Next request) {
+		Integer key = toKey(request.invoke_id_and_priority);
+		OutgoingBlocks blocks = outgoing.get(key);
+		if (blocks == null || blocks.blockNumber != request.block_number.getValue()) {
+			// Unexpected block number aborts the transfer, see IEC 62056-53 section 7.4.1.8.2
+			outgoing.remove(key);
+			AccessResultCode result = blocks == null ? AccessResultCode.NO_LONG_GET_IN_PROGRESS
+					: AccessResultCode.LONG_GET_ABORTED;
+			DataBlock_G.SubChoice_result blockResult = new DataBlock_G.SubChoice_result();
+			blockResult.setdata_access_result(new AxdrEnum(result.getValue()));
+			return toPdu(request.invoke_id_and_priority, new DataBlock_G(new AxdrBoolean(true), new Unsigned32(
+					request.block_number.getValue()), blockResult));
+		}
+		return sendBlock(request.invoke_id_and_priority, blocks);
+	}
+
+	private COSEMpdu sendBlock(Invoke_Id_And_Priority invokeId, OutgoingBlocks blocks) {
+		int length = Math.min(Math.max(1, maxSendPduSize - DATABLOCK_OVERHEAD), blocks.data.length - blocks.offset);
+		byte[] chunk = new byte[length];
+		System.arraycopy(blocks.data, blocks.offset, chunk, 0, length);
+		blocks.offset += length;
+		blocks.blockNumber++;
+
+		boolean lastBlock = blocks.offset == blocks.data.length;
+		if (lastBlock) {
+			outgoing.remove(toKey(invokeId));
+		}
+
+		DataBlock_G.SubChoice_result blockResult = new DataBlock_G.SubChoice_result();
+		blockResult.setraw_data(new AxdrOctetString(chunk));
+		return toPdu(invokeId, new DataBlock_G(new AxdrBoolean(lastBlock), new Unsigned32(blocks.blockNumber),
+				blockResult));
+	}
+
+	private COSEMpdu processSet(SET_Request request) throws IOException {
+		SET_Response response = new SET_Response();
+
+		switch (request.getChoiceIndex()) {
+		case SET_REQUEST_NORMAL: {
+			Set_Request_Normal normal = request.set_request_normal;
+			AccessResultCode result = set(normal.cosem_attribute_descriptor, normal.access_selection,
+					DataConverter.toApi(normal.value));
+			response.setset_response_normal(new Set_Response_Normal(normal.invoke_id_and_priority, new AxdrEnum(result
+					.getValue())));
+			break;
+		}
+		case SET_REQUEST_WITH_LIST: {
+			Set_Request_With_List list = request.set_request_with_list;
+			List<Cosem_Attribute_Descriptor_With_Selection> descriptors = list.attribute_descriptor_list.list();
+			Set_Response_With_List.SubSeqOf_result results = new Set_Response_With_List.SubSeqOf_result();
+			for (int i = 0; i < descriptors.size(); i++) {
+				Cosem_Attribute_Descriptor_With_Selection descriptor = descriptors.get(i);
+				AccessResultCode result = set(descriptor.cosem_attribute_descriptor, descriptor.access_selection,
+						DataConverter.toApi(list.value_list.get(i)));
+				results.add(new AxdrEnum(result.getValue()));
+			}
+			response.setset_response_with_list(new Set_Response_With_List(list.invoke_id_and_priority, results));
+			break;
+		}
+		case SET_REQUEST_WITH_FIRST_DATABLOCK: {
+			List<Cosem_Attribute_Descriptor_With_Selection> descriptors = new ArrayList<Cosem_Attribute_Descriptor_With_Selection>(
+					1);
+			descriptors.add(new Cosem_Attribute_Descriptor_With_Selection(
+					request.set_request_with_first_datablock.cosem_attribute_descriptor,
+					request.set_request_with_first_datablock.access_selection.isUsed() ? request.set_request_with_first_datablock.access_selection
+							.getValue() : null));
+			return receiveSetBlock(request.set_request_with_first_datablock.invoke_id_and_priority,
+					request.set_request_with_first_datablock.datablock,
+					new IncomingBlocks<Cosem_Attribute_Descriptor_With_Selection>(descriptors, false));
+		}
+		case SET_REQUEST_WITH_LIST_AND_FIRST_DATABLOCK:
+			return receiveSetBlock(request.set_request_with_list_and_first_datablock.invoke_id_and_priority,
+					request.set_request_with_list_and_first_datablock.datablock,
+					new IncomingBlocks<Cosem_Attribute_Descriptor_With_Selection>(
+							request.set_request_with_list_and_first_datablock.attribute_descriptor_list.list(), true));
+		case SET_REQUEST_WITH_DATABLOCK:
+			return receiveSetBlock(request.set_request_with_datablock.invoke_id_and_priority,
+					request.set_request_with_datablock.datablock, null);
+		default:
+			throw new IOException("Unknown SET request");
+		}
+
+		return toPdu(response);
+	}
+
+	/**
+	 * Collects one block of a SET request and writes the attributes after the last block
+	 * 
+	 * @param first
+	 *            State of the new transfer if this is the first block, null otherwise
+	 */
+	private COSEMpdu receiveSetBlock(Invoke_Id_And_Priority invokeId, DataBlock_SA block,
+			IncomingBlocks<Cosem_Attribute_Descriptor_With_Selection> first) throws IOException {
+		SET_Response response = new SET_Response();
+		Unsigned32 blockNumber = new Unsigned32(block.block_number.getValue());
+
+		IncomingBlocks<Cosem_Attribute_Descriptor_With_Selection> blocks = collect(incomingSets, invokeId, block,
+				first);
+		if (blocks == null) {
+			response.setset_response_last_datablock(new Set_Response_Last_Datablock(invokeId, new AxdrEnum(
+					AccessResultCode.NO_LONG_SET_IN_PROGRESS.getValue()), blockNumber));
+			return toPdu(response);
+		}
+		if (block.last_block.getValue() == false) {
+			response.setset_response_datablock(new Set_Response_Datablock(invokeId, blockNumber));
+			return toPdu(response);
+		}
+
+		ByteBuffer rawData = ByteBuffer.wrap(blocks.data.toByteArray());
+		List<Data> values = new ArrayList<Data>(blocks.descriptors.size());
+		if (blocks.list) {
+			Set_Request_With_List.SubSeqOf_value_list valueList = new Set_Request_With_List.SubSeqOf_value_list();
+			valueList.decode(rawData, true);
+			for (org.openmuc.asn1.cosem.Data value : valueList.list()) {
+				values.add(DataConverter.toApi(value));
+			}
+		}
+		else {
+			org.openmuc.asn1.cosem.Data value = new org.openmuc.asn1.cosem.Data();
+			value.decode(rawData, true);
+			values.add(DataConverter.toApi(value));
+		}
+
+		List<AccessResultCode> results = new ArrayList<AccessResultCode>(blocks.descriptors.size());
+		for (int i = 0; i < blocks.descriptors.size(); i++) {
+			Cosem_Attribute_Descriptor_With_Selection descriptor = blocks.descriptors.get(i);
+			if (i < values.size()) {
+				results.add(set(descriptor.cosem_attribute_descriptor, descriptor.access_selection, values.get(i)));
+			}
+			else {
+				results.add(AccessResultCode.TYPE_UNMATCHED);
+			}
+		}
+
+		if (blocks.list) {
+			Set_Response_Last_Datablock_With_List.SubSeqOf_result resultList = new Set_Response_Last_Datablock_With_List.SubSeqOf_result();
+			for (AccessResultCode result : results) {
+				resultList.add(new AxdrEnum(result.getValue()));
+			}
+			response.setset_response_last_datablock_with_list(new Set_Response_Last_Datablock_With_List(invokeId,
+					resultList, blockNumber));
+		}
+		else {
+			response.setset_response_last_datablock(new Set_Response_Last_Datablock(invokeId, new AxdrEnum(results
+					.get(0).getValue()), blockNumber));
+		}
+		return toPdu(response);
+	}
+
+	private AccessResultCode set(Cosem_Attribute_Descriptor descriptor,
+			AxdrOptional<Selective_Access_Descriptor> access, Data value) {
+		SimulatedObject object = meter.getObject(descriptor.instance_id.getValue());
+		if (object == null) {
+			return AccessResultCode.OBJECT_UNDEFINED;
+		}
+		if (object.getClassId() != descriptor.class_id.getValue()) {
+			return AccessResultCode.OBJECT_CLASS_INCONSISTENT;
+		}
+		return object.set((int) descriptor.attribute_id.getValue(), toApi(access), value);
+	}
+
+	private COSEMpdu processAction(ACTION_Request request) throws IOException {
+		ACTION_Response response = new ACTION_Response();
+
+		switch (request.getChoiceIndex()) {
+		case ACTION_REQUEST_NORMAL: {
+			AxdrOptional<org.openmuc.asn1.cosem.Data> parameter = request.action_request_normal.method_invocation_parameters;
+			MethodResult result = invoke(request.action_request_normal.cosem_method_descriptor,
+					parameter.isUsed() ? DataConverter.toApi(parameter.getValue()) : null);
+			response.setaction_response_normal(new Action_Response_Normal(
+					request.action_request_normal.invoke_id_and_priority, toPdu(result)));
+			break;
+		}
+		case ACTION_REQUEST_WITH_LIST: {
+			Action_Request_With_List list = request.action_request_with_list;
+			List<Data> parameters = new ArrayList<Data>(list.method_invocation_parameters.size());
+			for (org.openmuc.asn1.cosem.Data parameter : list.method_invocation_parameters.list()) {
+				parameters.add(DataConverter.toApi(parameter));
+			}
+			return invokeList(list.invoke_id_and_priority, list.cosem_method_descriptor_list.list(), parameters);
+		}
+		case ACTION_REQUEST_WITH_FIRST_PBLOCK: {
+			List<Cosem_Method_Descriptor> descriptors = new ArrayList<Cosem_Method_Descriptor>(1);
+			descriptors.add(request.action_request_with_first_pblock.cosem_method_descriptor);
+			return receiveActionBlock(request.action_request_with_first_pblock.invoke_id_and_priority,
+					request.action_request_with_first_pblock.pblock,
+					new IncomingBlocks<Cosem_Method_Descriptor>(descriptors, false));
+		}
+		case ACTION_REQUEST_WITH_LIST_AND_FIRST_PBLOCK:
+			return receiveActionBlock(request.action_request_with_list_and_first_pblock.invoke_id_and_priority,
+					request.action_request_with_list_and_first_pblock.pblock,
+					new IncomingBlocks<Cosem_Method_Descriptor>(
+							request.action_request_with_list_and_first_pblock.cosem_method_descriptor_list.list(), true));
+		case ACTION_REQUEST_WITH_PBLOCK:
+			return receiveActionBlock(request.action_request_with_pblock.invoke_id_and_priority,
+					request.action_request_with_pblock.pBlock, null);
+		default:
+			throw new IOException("Unknown ACTION request");
+		}
+
+		return toPdu(response);
+	}
+
+	/**
+	 * Collects one block of an ACTION request and calls the methods after the last block
+	 * 
+	 * @param first
+	 *            State of the new transfer if this is the first block, null otherwise
+	 */
+	private COSEMpdu receiveActionBlock(Invoke_Id_And_Priority invokeId, DataBlock_SA block,
+			IncomingBlocks<Cosem_Method_Descriptor> first) throws IOException {
+		ACTION_Response response = new ACTION_Response();
+
+		IncomingBlocks<Cosem_Method_Descriptor> blocks = collect(incomingActions, invokeId, block, first);
+		if (blocks == null) {
+			response.setaction_response_normal(new Action_Response_Normal(invokeId,
+					toPdu(new MethodResult(MethodResultCode.NO_LONG_ACTION_IN_PROGRESS))));
+			return toPdu(response);
+		}
+		if (block.last_block.getValue() == false) {
+			response.setaction_response_next_pblock(new Action_Response_Next_Pblock(invokeId, new Unsigned32(
+					block.block_number.getValue())));
+			return toPdu(response);
+		}
+
+		ByteBuffer rawData = ByteBuffer.wrap(blocks.data.toByteArray());
+		List<Data> parameters = new ArrayList<Data>(blocks.descriptors.size());
+		if (blocks.list) {
+			Action_Request_With_List.SubSeqOf_method_invocation_parameters parameterList = new Action_Request_With_List.SubSeqOf_method_invocation_parameters();
+			parameterList.decode(rawData, true);
+			for (org.openmuc.asn1.cosem.Data parameter : parameterList.list()) {
+				parameters.add(DataConverter.toApi(parameter));
+			}
+			return invokeList(invokeId, blocks.descriptors, parameters);
+		}
+
+		org.openmuc.asn1.cosem.Data parameter = new org.openmuc.asn1.cosem.Data();
+		parameter.decode(rawData, true);
+		MethodResult result = invoke(blocks.descriptors.get(0),
+				DataConverter.toApi(parameter));
+		response.setaction_response_normal(new Action_Response_Normal(invokeId, toPdu(result)));
+		return toPdu(response);
+	}
+
+	private COSEMpdu invokeList(Invoke_Id_And_Priority invokeId, List<Cosem_Method_Descriptor> descriptors,
+			List<Data> parameters) {
+		Action_Response_With_List.SubSeqOf_list_of_responses results = new Action_Response_With_List.SubSeqOf_list_of_responses();
+		for (int i = 0; i < descriptors.size(); i++) {
+			Data parameter = i < parameters.size() ? parameters.get(i) : null;
+			results.add(toPdu(invoke(descriptors.get(i), parameter)));
+		}
+
+		ACTION_Response response = new ACTION_Response();
+		response.setaction_response_with_list(new Action_Response_With_List(invokeId, results));
+		return toPdu(response);
+	}
+
+	private MethodResult invoke(Cosem_Method_Descriptor descriptor, Data parameter) {
+		SimulatedObject object = meter.getObject(descriptor.instance_id.getValue());
+		if (object == null) {
+			return new MethodResult(MethodResultCode.OBJECT_UNDEFINED);
+		}
+		if (object.getClassId() != descriptor.class_id.getValue()) {
+			return new MethodResult(MethodResultCode.OBJECT_CLASS_INCONSISTENT);
+		}
+		return object.invoke((int) descriptor.method_id.getValue(), parameter);
+	}
+
+	/**
+	 * Appends the raw data of a SET or ACTION block to the transfer of its invoke id
+	 * 
+	 * @return The transfer or null if the block does not belong to a transfer in progress
+	 */
+	private <T> IncomingBlocks<T> collect(Map<Integer, IncomingBlocks<T>> transfers, Invoke_Id_And_Priority invokeId,
+			DataBlock_SA block, IncomingBlocks<T> first) throws IOException {
+		Integer key = toKey(invokeId);
+		IncomingBlocks<T> blocks;
+		if (first != null) {
+			blocks = first;
+			transfers.put(key, blocks);
+		}
+		else {
+			blocks = transfers.get(key);
+			if (blocks == null) {
+				return null;
+			}
+		}
+
+		blocks.data.write(block.raw_data.getValue());
+		if (block.last_block.getValue()) {
+			transfers.remove(key);
+		}
+		return blocks;
+	}
+
+	private void sendException() throws IOException {
+		COSEMpdu pdu = new COSEMpdu();
+		// service-not-allowed, operation-not-possible
+		pdu.setexception_response(new EXCEPTION_Response(new Enum(1), new Enum(1)));
+		send(encode(pdu));
+	}
+
+	private void send(final byte[] apdu) {
+		long delay = meter.getResponseDelay();
+		if (delay == 0) {
+			sendNow(apdu);
+			return;
+		}
+
+		getDelayedResponses().schedule(new Runnable() {
+			@Override
+			public void run() {
+				sendNow(apdu);
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void sendNow(byte[] apdu) {
+		try {
+			connection.send(localWPort, remoteWPort, apdu);
+		} catch (IOException e) {
+			//TODO LoggingHelper.logStackTrace(e, logger);
+		}
+	}
+
+	private static Integer toKey(Invoke_Id_And_Priority invokeId) {
+		return invokeId.getValues()[0] & 0x0F;
+	}
+
+	private static byte[] encode(AxdrType type) throws IOException {
+		AxdrByteArrayOutputStream oStream = new AxdrByteArrayOutputStream(256, true);
+		type.encode(oStream);
+		return oStream.getArray();
+	}
+
+	private static SelectiveAccessDescription toApi(AxdrOptional<Selective_Access_Descriptor> access) {
+		if (access == null || access.isUsed() == false) {
+			return null;
+		}
+		Selective_Access_Descriptor descriptor = access.getValue();
+		return new SelectiveAccessDescription((int) descriptor.access_selector.getValue(),
+				DataConverter.toApi(descriptor.access_parameters));
+	}
+
+	private static Get_Data_Result toPdu(GetResult result) {
+		Get_Data_Result pdu = new Get_Data_Result();
+		if (result.isSuccess()) {
+			pdu.setdata(DataConverter.toPdu(result.getResultData()));
+		}
+		else {
+			pdu.setdata_access_result(new AxdrEnum(result.getResultCode().getValue()));
+		}
+		return pdu;
+	}
+
+	private static Action_Response_With_Optional_Data toPdu(MethodResult result) {
+		Get_Data_Result returnParameters = null;
+		if (result.getResultData() != null) {
+			returnParameters = new Get_Data_Result();
+			returnParameters.setdata(DataConverter.toPdu(result.getResultData()));
+		}
+		return new Action_Response_With_Optional_Data(new AxdrEnum(result.getResultCode().getValue()),
+				returnParameters);
+	}
+
+	private static COSEMpdu toPdu(Invoke_Id_And_Priority invokeId, DataBlock_G block) {
+		GET_Response response = new GET_Response();
+		response.setget_response_with_datablock(new Get_Response_With_Datablock(invokeId, block));
+		return toPdu(response);
+	}
+
+	private static COSEMpdu toPdu(GET_Response response) {
+		COSEMpdu pdu = new COSEMpdu();
+		pdu.setget_response(response);
+		return pdu;
+	}
+
+	private static COSEMpdu toPdu(SET_Response response) {
+		COSEMpdu pdu = new COSEMpdu();
+		pdu.setset_response(response);
+		return pdu;
+	}
+
+	private static COSEMpdu toPdu(ACTION_Response response) {
+		COSEMpdu pdu = new COSEMpdu();
+		pdu.setaction_response(response);
+		return pdu;
+	}
+
+	/**
+	 * Raw data of a long GET response and the number of the block sent last
+	 */
+	private static class OutgoingBlocks {
+		private final byte[] data;
+		private int offset = 0;
+		private long blockNumber = 0;
+
+		public OutgoingBlocks(byte[] data) {
+			this.data = data;
+		}
+	}
+
+	/**
+	 * Raw data received so far for a SET or ACTION request sent in blocks
+	 */
+	private static class IncomingBlocks<T> {
+		private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+		private final List<T> descriptors;
+		private final boolean list;
+
+		public IncomingBlocks(List<T> descriptors, boolean list) {
+			this.descriptors = descriptors;
+			this.list = list;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.simulator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openmuc.jdlms.client.communication.IUpperLayer;
+import org.openmuc.jdlms.client.ip.common.ConnectionIdentifier;
+import org.openmuc.jdlms.client.ip.common.IConnectionAcceptor;
+import org.openmuc.jdlms.client.ip.common.ITcpLayer;
+import org.openmuc.jdlms.client.ip.common.TcpServerListener;
+
+/**
+ * In-process DLMS/COSEM server hosting any number of {@link SimulatedMeter}, e.g. to load test client applications
+ * without real devices.
+ * 
+ * Meters are reachable via TCP using the wrapper protocol (WPDU) and logical name referencing. Each meter is addressed
+ * by a local port and a WPort, one port may serve many meters. Connections are handled by the same selector and
+ * decoding threads as client connections, so thousands of meters can be simulated in one process.
+ */
+public class MeterSimulator {
+
+	private final InetAddress bindAddress;
+
+	private final Map<Integer, PortAcceptor> ports = new LinkedHashMap<Integer, PortAcceptor>();
+	private boolean running = false;
+
+	/**
+	 * Creates a simulator accepting connections on the loopback interface only
+	 */
+	public MeterSimulator() {
+		this(InetAddress.getLoopbackAddress());
+	}
+
+	/**
+	 * @param bindAddress
+	 *            Local address connections are accepted on
+	 */
+	public MeterSimulator(InetAddress bindAddress) {
+		this.bindAddress = bindAddress;
+	}
+
+	/**
+	 * Adds a meter to the simulator. Meters may be added while the simulator is running.
+	 * 
+	 * @param port
+	 *            Local TCP port the meter is reachable on
+	 * @param wPort
+	 *            WPort of the meter's logical device
+	 * @param meter
+	 *            The simulated meter. The same instance may be added several times
+	 * @throws IOException
+	 *             If the simulator is running and the port could not be bound
+	 * @throws IllegalArgumentException
+	 *             If another meter has already been added with the same port and WPort
+	 */
+	public synchronized void addMeter(int port, int wPort, SimulatedMeter meter) throws IOException {
+		if (port < 1 || port > 0xFFFF || wPort < 0 || wPort > 0xFFFF) {
+			throw new IllegalArgumentException("Port or WPort out of range");
+		}
+
+		PortAcceptor acceptor = ports.get(port);
+		if (acceptor == null) {
+			acceptor = new PortAcceptor(new InetSocketAddress(bindAddress, port));
+			if (running) {
+				acceptor.listener.start();
+			}
+			ports.put(port, acceptor);
+		}
+		if (acceptor.meters.putIfAbsent(wPort, meter) != null) {
+			throw new IllegalArgumentException("WPort " + wPort + " on port " + port + " is already in use");
+		}
+	}
+
+	/**
+	 * Removes a meter. Associations already established with it stay open.
+	 */
+	public synchronized void removeMeter(int port, int wPort) {
+		PortAcceptor acceptor = ports.get(port);
+		if (acceptor != null) {
+			acceptor.meters.remove(wPort);
+		}
+	}
+
+	/**
+	 * Binds all ports and starts accepting connections
+	 * 
+	 * @throws IOException
+	 *             If one of the ports could not be bound. Ports bound before are released again
+	 */
+	public synchronized void start() throws IOException {
+		if (running) {
+			return;
+		}
+		try {
+			for (PortAcceptor acceptor : ports.values()) {
+				acceptor.listener.start();
+			}
+		} catch (IOException e) {
+			stopListeners();
+			throw e;
+		}
+		running = true;
+	}
+
+	/**
+	 * Stops accepting connections and closes all open connections
+	 */
+	public synchronized void stop() {
+		running = false;
+		stopListeners();
+	}
+
+	private void stopListeners() {
+		for (PortAcceptor acceptor : ports.values()) {
+			try {
+				acceptor.listener.stop();
+			} catch (IOException e) {
+				//TODO LoggingHelper.logStackTrace(e, logger);
+			}
+		}
+	}
+
+	/**
+	 * @return Number of open client connections over all ports
+	 */
+	public synchronized int getNumberOfConnections() {
+		int result = 0;
+		for (PortAcceptor acceptor : ports.values()) {
+			result += acceptor.listener.getNumberOfConnections();
+		}
+		return result;
+	}
+
+	/**
+	 * Creates an association for every pair of WPorts addressed on a connection to one port
+	 */
+	private static class PortAcceptor implements IConnectionAcceptor {
+		private final ConcurrentMap<Integer, SimulatedMeter> meters = new ConcurrentHashMap<Integer, SimulatedMeter>();
+		private final TcpServerListener listener;
+
+		public PortAcceptor(InetSocketAddress address) {
+			listener = new TcpServerListener(address, this);
+		}
+
+		@Override
+		public IUpperLayer accept(ConnectionIdentifier identifier, ITcpLayer connection) {
+			SimulatedMeter meter = meters.get(identifier.getLocalWPort());
+			if (meter == null) {
+				return null;
+			}
+			return new MeterAssociation(meter, connection, identifier.getLocalWPort(), identifier.getRemoteWPort());
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.simulator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmuc.jdlms.client.Data;
+import org.openmuc.jdlms.client.ObisCode;
+
+/**
+ * Object model and behaviour of one simulated logical device. A meter may be added to a {@link MeterSimulator} under
+ * several ports and WPorts, all associations to it share the same objects.
+ */
+public class SimulatedMeter {
+
+	public static final int DEFAULT_MAX_PDU_SIZE = 0xFFFF;
+
+	private final Map<String, SimulatedObject> objects = new ConcurrentHashMap<String, SimulatedObject>();
+
+	private volatile long responseDelay = 0;
+	private volatile int maxPduSize = DEFAULT_MAX_PDU_SIZE;
+	private volatile byte[] password = null;
+
+	private final AtomicLong requests = new AtomicLong(0);
+	private final AtomicLong associations = new AtomicLong(0);
+
+	/**
+	 * Creates a meter with an active energy register 1.0.1.8.0.255 and a load profile 1.0.99.1.0.255 of 15 minute
+	 * periods
+	 * 
+	 * @param profileEntries
+	 *            Number of rows in the load profile
+	 * @return The new meter
+	 */
+	public static SimulatedMeter createDefault(int profileEntries) {
+		SimulatedMeter result = new SimulatedMeter();
+
+		Data energy = new Data();
+		energy.setUnsigned32(0);
+		// Wh
+		result.addObject(new SimulatedRegister(new ObisCode(1, 0, 1, 8, 0, 255), energy, 0, 30));
+		result.addObject(new SimulatedProfileGeneric(new ObisCode(1, 0, 99, 1, 0, 255), 900, profileEntries));
+
+		return result;
+	}
+
+	/**
+	 * Adds an object to the meter, replacing any object with the same logical name
+	 */
+	public void addObject(SimulatedObject object) {
+		objects.put(object.getInstanceId().getHexCode(), object);
+	}
+
+	public void removeObject(ObisCode instanceId) {
+		objects.remove(instanceId.getHexCode());
+	}
+
+	public Collection<SimulatedObject> getObjects() {
+		return objects.values();
+	}
+
+	/**
+	 * Looks up an object by the logical name sent by the client
+	 * 
+	 * @return The object or null if the meter has no object of that name
+	 */
+	SimulatedObject getObject(byte[] logicalName) {
+		StringBuilder sb = new StringBuilder(12);
+		for (byte b : logicalName) {
+			sb.append(String.format("%02x", b & 0xFF));
+		}
+		return objects.get(sb.toString());
+	}
+
+	public long getResponseDelay() {
+		return responseDelay;
+	}
+
+	/**
+	 * Delays every response of the meter, e.g. to simulate slow devices or long round trip times
+	 * 
+	 * @param responseDelay
+	 *            Delay in milliseconds. 0 responds as fast as possible
+	 */
+	public void setResponseDelay(long responseDelay) {
+		if (responseDelay < 0) {
+			throw new IllegalArgumentException("Response delay must not be negative");
+		}
+		this.responseDelay = responseDelay;
+	}
+
+	public int getMaxPduSize() {
+		return maxPduSize;
+	}
+
+	/**
+	 * Sets the largest PDU the meter sends or receives. Larger responses are sent in data blocks. The size negotiated
+	 * with the client may be smaller.
+	 * 
+	 * @param maxPduSize
+	 *            Maximum PDU size in bytes, between 32 and 65535
+	 */
+	public void setMaxPduSize(int maxPduSize) {
+		if (maxPduSize < 32 || maxPduSize > 0xFFFF) {
+			throw new IllegalArgumentException("Max PDU size out of range [32, 65535]");
+		}
+		this.maxPduSize = maxPduSize;
+	}
+
+	/**
+	 * Sets the password clients have to send using low level security. If no password is set, associations without
+	 * authentication are accepted as well.
+	 * 
+	 * @param password
+	 *            The password or null to accept all associations
+	 */
+	public void setPassword(byte[] password) {
+		this.password = password == null ? null : password.clone();
+	}
+
+	boolean isPasswordAccepted(byte[] received) {
+		byte[] expected = password;
+		return expected == null || Arrays.equals(expected, received);
+	}
+
+	/**
+	 * @return Number of GET, SET and ACTION requests processed by this meter
+	 */
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * @return Number of associations established with this meter
+	 */
+	public long getAssociationCount() {
+		return associations.get();
+	}
+
+	void countRequest() {
+		requests.incrementAndGet();
+	}
+
+	void countAssociation() {
+		associations.incrementAndGet();
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.simulator;
+
+import org.openmuc.jdlms.client.AccessResultCode;
+import org.openmuc.jdlms.client.Data;
+import org.openmuc.jdlms.client.GetResult;
+import org.openmuc.jdlms.client.MethodResult;
+import org.openmuc.jdlms.client.MethodResultCode;
+import org.openmuc.jdlms.client.ObisCode;
+import org.openmuc.jdlms.client.SelectiveAccessDescription;
+
+/**
+ * Base class of all COSEM interface class objects hosted by a {@link SimulatedMeter}.
+ * 
+ * Attribute 1, the logical name, is handled here. Subclasses provide the remaining attributes and methods. All
+ * operations may be called by several associations at the same time.
+ */
+public abstract class SimulatedObject {
+
+	private final int classId;
+	private final ObisCode instanceId;
+	private final Data logicalName;
+
+	/**
+	 * @param classId
+	 *            Interface class of the object
+	 * @param instanceId
+	 *            Logical name of the object
+	 */
+	protected SimulatedObject(int classId, ObisCode instanceId) {
+		this.classId = classId;
+		this.instanceId = instanceId;
+
+		logicalName = new Data();
+		logicalName.setOctetString(toBytes(instanceId));
+	}
+
+	public int getClassId() {
+		return classId;
+	}
+
+	public ObisCode getInstanceId() {
+		return instanceId;
+	}
+
+	/**
+	 * Reads an attribute of this object
+	 * 
+	 * @param attributeId
+	 *            Id of the attribute, starting at 1
+	 * @param access
+	 *            Selective access requested by the client, null if the whole attribute is read
+	 * @return The value of the attribute or the reason why it could not be read
+	 */
+	public GetResult get(int attributeId, SelectiveAccessDescription access) {
+		if (attributeId == 1) {
+			return new GetResult(logicalName);
+		}
+		return getAttribute(attributeId, access);
+	}
+
+	/**
+	 * Reads an attribute other than the logical name
+	 * 
+	 * @param attributeId
+	 *            Id of the attribute, starting at 2
+	 * @param access
+	 *            Selective access requested by the client, null if the whole attribute is read
+	 * @return The value of the attribute or the reason why it could not be read
+	 */
+	protected abstract GetResult getAttribute(int attributeId, SelectiveAccessDescription access);
+
+	/**
+	 * Writes an attribute of this object. All attributes are read only by default.
+	 * 
+	 * @param attributeId
+	 *            Id of the attribute, starting at 1
+	 * @param access
+	 *            Selective access requested by the client, null if the whole attribute is written
+	 * @param value
+	 *            The new value
+	 * @return The result of the operation
+	 */
+	public AccessResultCode set(int attributeId, SelectiveAccessDescription access, Data value) {
+		return AccessResultCode.READ_WRITE_DENIED;
+	}
+
+	/**
+	 * Calls a method of this object. No methods are defined by default.
+	 * 
+	 * @param methodId
+	 *            Id of the method, starting at 1
+	 * @param parameter
+	 *            Parameter of the method call, null if no parameter has been sent
+	 * @return The result of the method call
+	 */
+	public MethodResult invoke(int methodId, Data parameter) {
+		return new MethodResult(MethodResultCode.OBJECT_UNDEFINED);
+	}
+
+	static byte[] toBytes(ObisCode code) {
+		String hex = code.getHexCode();
+		byte[] result = new byte[hex.length() / 2];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.simulator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.openmuc.jdlms.client.AccessResultCode;
+import org.openmuc.jdlms.client.Data;
+import org.openmuc.jdlms.client.GetResult;
+import org.openmuc.jdlms.client.ObisCode;
+import org.openmuc.jdlms.client.SelectiveAccessDescription;
+
+/**
+ * Simulated object of interface class Profile generic (class id 7).
+ * 
+ * The buffer is not stored but generated on every read. It always holds profileEntries rows, the newest of them
+ * captured at the last multiple of the capture period. Range (selector 1) and entry (selector 2) descriptors are
+ * supported.
+ */
+public class SimulatedProfileGeneric extends SimulatedObject {
+
+	public static final int CLASS_ID = 7;
+
+	private static final int RANGE_DESCRIPTOR = 1;
+	private static final int ENTRY_DESCRIPTOR = 2;
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	/**
+	 * Creates the rows of a simulated profile
+	 */
+	public interface IRowGenerator {
+		/**
+		 * @param captureTime
+		 *            Capture time of the row in milliseconds since 1970-01-01 UTC
+		 * @param captureNumber
+		 *            Number of capture periods since 1970-01-01 UTC. Increases by one from row to row
+		 * @return One value for each capture object
+		 */
+		List<Data> createRow(long captureTime, long captureNumber);
+	}
+
+	/**
+	 * Default row generator, creating the capture time and a steadily growing counter value
+	 */
+	private static final IRowGenerator COUNTER_ROWS = new IRowGenerator() {
+		@Override
+		public List<Data> createRow(long captureTime, long captureNumber) {
+			List<Data> result = new ArrayList<Data>(2);
+			result.add(dateTime(captureTime));
+			Data counter = new Data();
+			counter.setUnsigned32((captureNumber * 10) & 0xFFFFFFFFL);
+			result.add(counter);
+			return result;
+		}
+	};
+
+	private final long capturePeriod;
+	private final int profileEntries;
+	private final Data captureObjects;
+	private final int numberOfColumns;
+	private final IRowGenerator generator;
+
+	/**
+	 * Creates a profile capturing the clock and the active energy register 1.0.1.8.0.255
+	 * 
+	 * @param instanceId
+	 *            Logical name of the profile
+	 * @param capturePeriod
+	 *            Seconds between two rows
+	 * @param profileEntries
+	 *            Number of rows in the buffer
+	 */
+	public SimulatedProfileGeneric(ObisCode instanceId, long capturePeriod, int profileEntries) {
+		this(instanceId, capturePeriod, profileEntries, defaultCaptureObjects(), COUNTER_ROWS);
+	}
+
+	/**
+	 * @param instanceId
+	 *            Logical name of the profile
+	 * @param capturePeriod
+	 *            Seconds between two rows
+	 * @param profileEntries
+	 *            Number of rows in the buffer
+	 * @param captureObjects
+	 *            Definition of the columns, see {@link #captureObject(int, ObisCode, int)}
+	 * @param generator
+	 *            Creates the rows of the buffer. Has to return one value per capture object
+	 */
+	public SimulatedProfileGeneric(ObisCode instanceId, long capturePeriod, int profileEntries,
+			List<Data> captureObjects, IRowGenerator generator) {
+		super(CLASS_ID, instanceId);
+		if (capturePeriod < 1) {
+			throw new IllegalArgumentException("Capture period must be at least 1 second");
+		}
+		if (profileEntries < 0) {
+			throw new IllegalArgumentException("Number of profile entries must not be negative");
+		}
+		this.capturePeriod = capturePeriod;
+		this.profileEntries = profileEntries;
+		this.captureObjects = new Data();
+		this.captureObjects.setArray(new ArrayList<Data>(captureObjects));
+		numberOfColumns = captureObjects.size();
+		this.generator = generator;
+	}
+
+	/**
+	 * Creates the definition of one column of the buffer
+	 * 
+	 * @param classId
+	 *            Interface class of the captured object
+	 * @param logicalName
+	 *            Logical name of the captured object
+	 * @param attributeId
+	 *            Captured attribute
+	 * @return The capture object definition as structure
+	 */
+	public static Data captureObject(int classId, ObisCode logicalName, int attributeId) {
+		List<Data> structure = new ArrayList<Data>(4);
+		structure.add(unsigned16(classId));
+		Data name = new Data();
+		name.setOctetString(toBytes(logicalName));
+		structure.add(name);
+		Data attribute = new Data();
+		attribute.setInteger8(attributeId);
+		structure.add(attribute);
+		structure.add(unsigned16(0));
+
+		Data result = new Data();
+		result.setStructure(structure);
+		return result;
+	}
+
+	private static List<Data> defaultCaptureObjects() {
+		List<Data> result = new ArrayList<Data>(2);
+		result.add(captureObject(8, new ObisCode(0, 0, 1, 0, 0, 255), 2));
+		result.add(captureObject(SimulatedRegister.CLASS_ID, new ObisCode(1, 0, 1, 8, 0, 255), 2));
+		return result;
+	}
+
+	@Override
+	protected GetResult getAttribute(int attributeId, SelectiveAccessDescription access) {
+		if (attributeId == 2) {
+			return readBuffer(access);
+		}
+		if (access != null) {
+			return new GetResult(AccessResultCode.OTHER_REASON);
+		}
+
+		Data result = new Data();
+		switch (attributeId) {
+		case 3:
+			return new GetResult(captureObjects);
+		case 4:
+			result.setUnsigned32(capturePeriod);
+			return new GetResult(result);
+		case 5:
+			// fifo
+			result.setEnumerate(1);
+			return new GetResult(result);
+		case 7:
+		case 8:
+			result.setUnsigned32(profileEntries);
+			return new GetResult(result);
+		default:
+			return new GetResult(AccessResultCode.OBJECT_UNDEFINED);
+		}
+	}
+
+	private GetResult readBuffer(SelectiveAccessDescription access) {
+		long period = capturePeriod * 1000;
+		long lastCapture = System.currentTimeMillis() / period * period;
+		long firstCapture = lastCapture - (profileEntries - 1) * period;
+
+		long fromEntry = 1;
+		long toEntry = profileEntries;
+		int fromColumn = 1;
+		int toColumn = numberOfColumns;
+
+		if (access != null) {
+			try {
+				List<Data> parameter = access.getParameter().getComplex();
+				if (access.getSelector() == RANGE_DESCRIPTOR && parameter.size() >= 3) {
+					long from = toMillis(parameter.get(1));
+					long to = toMillis(parameter.get(2));
+					fromEntry = Math.max(1, 1 + ceilDiv(from - firstCapture, period));
+					toEntry = Math.min(profileEntries, 1 + floorDiv(to - firstCapture, period));
+				}
+				else if (access.getSelector() == ENTRY_DESCRIPTOR && parameter.size() == 4) {
+					fromEntry = Math.max(1, parameter.get(0).getNumber().longValue());
+					long to = parameter.get(1).getNumber().longValue();
+					if (to != 0) {
+						toEntry = Math.min(profileEntries, to);
+					}
+					fromColumn = Math.min(numberOfColumns + 1, Math.max(1, parameter.get(2).getNumber().intValue()));
+					int column = parameter.get(3).getNumber().intValue();
+					if (column != 0) {
+						toColumn = Math.min(numberOfColumns, column);
+					}
+				}
+				else {
+					return new GetResult(AccessResultCode.OTHER_REASON);
+				}
+			} catch (IllegalStateException e) {
+				return new GetResult(AccessResultCode.TYPE_UNMATCHED);
+			}
+		}
+
+		List<Data> rows = new ArrayList<Data>((int) Math.max(0, toEntry - fromEntry + 1));
+		for (long entry = fromEntry; entry <= toEntry; entry++) {
+			long captureTime = firstCapture + (entry - 1) * period;
+			List<Data> row = generator.createRow(captureTime, captureTime / period);
+			Data rowData = new Data();
+			rowData.setStructure(new ArrayList<Data>(row.subList(fromColumn - 1, Math.max(fromColumn - 1, toColumn))));
+			rows.add(rowData);
+		}
+
+		Data result = new Data();
+		result.setArray(rows);
+		return new GetResult(result);
+	}
+
+	private static long floorDiv(long x, long y) {
+		long result = x / y;
+		if (x % y != 0 && (x < 0) != (y < 0)) {
+			result--;
+		}
+		return result;
+	}
+
+	private static long ceilDiv(long x, long y) {
+		return -floorDiv(-x, y);
+	}
+
+	private static Data unsigned16(int value) {
+		Data result = new Data();
+		result.setUnsigned16(value);
+		return result;
+	}
+
+	/**
+	 * Encodes a point in time as date-time octet string according to IEC 62056-62, in UTC
+	 * 
+	 * @param time
+	 *            Milliseconds since 1970-01-01 UTC
+	 * @return The octet string of 12 bytes
+	 */
+	public static Data dateTime(long time) {
+		Calendar cal = Calendar.getInstance(UTC);
+		cal.setTimeInMillis(time);
+
+		// DLMS counts the days of week from Monday (1) to Sunday (7)
+		int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK) - 1;
+		if (dayOfWeek == 0) {
+			dayOfWeek = 7;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(12);
+		buffer.putShort((short) cal.get(Calendar.YEAR));
+		buffer.put((byte) (cal.get(Calendar.MONTH) + 1));
+		buffer.put((byte) cal.get(Calendar.DAY_OF_MONTH));
+		buffer.put((byte) dayOfWeek);
+		buffer.put((byte) cal.get(Calendar.HOUR_OF_DAY));
+		buffer.put((byte) cal.get(Calendar.MINUTE));
+		buffer.put((byte) cal.get(Calendar.SECOND));
+		buffer.put((byte) (cal.get(Calendar.MILLISECOND) / 10));
+		buffer.putShort((short) 0);
+		buffer.put((byte) 0);
+
+		Data result = new Data();
+		result.setOctetString(buffer.array());
+		return result;
+	}
+
+	/**
+	 * Decodes a date-time, either sent as octet string or as Calendar
+	 */
+	private static long toMillis(Data dateTime) {
+		if (dateTime.isCalendar()) {
+			return dateTime.getCalendar().getTimeInMillis();
+		}
+
+		byte[] bytes = dateTime.getByteArray();
+		if (bytes.length != 12) {
+			throw new IllegalStateException("Date-time must be 12 bytes long");
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		Calendar cal = Calendar.getInstance(UTC);
+		cal.clear();
+		cal.set(Calendar.YEAR, buffer.getShort() & 0xFFFF);
+		cal.set(Calendar.MONTH, (buffer.get() & 0xFF) - 1);
+		cal.set(Calendar.DAY_OF_MONTH, buffer.get() & 0xFF);
+		buffer.get();
+		cal.set(Calendar.HOUR_OF_DAY, buffer.get() & 0xFF);
+		cal.set(Calendar.MINUTE, buffer.get() & 0xFF);
+		cal.set(Calendar.SECOND, buffer.get() & 0xFF);
+		int hundredths = buffer.get() & 0xFF;
+		if (hundredths != 0xFF) {
+			cal.set(Calendar.MILLISECOND, hundredths * 10);
+		}
+		// Deviation is sent in minutes ahead of UTC, 0x8000 if not specified
+		short deviation = buffer.getShort();
+		long result = cal.getTimeInMillis();
+		if (deviation != (short) 0x8000) {
+			result -= deviation * 60000L;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-13 Fraunhofer ISE
+ *
+ * This file is part of jDLMS.
+ * For more information visit http://www.openmuc.org
+ *
+ * jDLMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * jDLMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with jDLMS.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.jdlms.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openmuc.jdlms.client.AccessResultCode;
+import org.openmuc.jdlms.client.Data;
+import org.openmuc.jdlms.client.GetResult;
+import org.openmuc.jdlms.client.MethodResult;
+import org.openmuc.jdlms.client.MethodResultCode;
+import org.openmuc.jdlms.client.ObisCode;
+import org.openmuc.jdlms.client.SelectiveAccessDescription;
+
+/**
+ * Simulated object of interface class Register (class id 3). The value may be written by clients, method 1 (reset)
+ * restores the initial value.
+ */
+public class SimulatedRegister extends SimulatedObject {
+
+	public static final int CLASS_ID = 3;
+
+	private final Data initialValue;
+	private final Data scalerUnit;
+	private volatile Data value;
+
+	/**
+	 * @param instanceId
+	 *            Logical name of the register
+	 * @param value
+	 *            Initial value of the register
+	 * @param scaler
+	 *            Exponent to the base of 10 the value is multiplied with
+	 * @param unit
+	 *            Unit of the value as enumerated in IEC 62056-62
+	 */
+	public SimulatedRegister(ObisCode instanceId, Data value, int scaler, int unit) {
+		super(CLASS_ID, instanceId);
+		initialValue = new Data(value);
+		this.value = new Data(value);
+
+		Data scalerData = new Data();
+		scalerData.setInteger8(scaler);
+		Data unitData = new Data();
+		unitData.setEnumerate(unit);
+		List<Data> structure = new ArrayList<Data>(2);
+		structure.add(scalerData);
+		structure.add(unitData);
+		scalerUnit = new Data();
+		scalerUnit.setStructure(structure);
+	}
+
+	/**
+	 * @return The current value of the register
+	 */
+	public Data getValue() {
+		return value;
+	}
+
+	/**
+	 * Changes the value of the register, e.g. to simulate a growing energy counter
+	 * 
+	 * @param value
+	 *            The new value
+	 */
+	public void setValue(Data value) {
+		this.value = value;
+	}
+
+	@Override
+	protected GetResult getAttribute(int attributeId, SelectiveAccessDescription access) {
+		if (access != null) {
+			return new GetResult(AccessResultCode.OTHER_REASON);
+		}
+		if (attributeId == 2) {
+			return new GetResult(value);
+		}
+		if (attributeId == 3) {
+			return new GetResult(scalerUnit);
+		}
+		return new GetResult(AccessResultCode.OBJECT_UNDEFINED);
+	}
+
+	@Override
+	public AccessResultCode set(int attributeId, SelectiveAccessDescription access, Data newValue) {
+		if (attributeId != 2) {
+			return super.set(attributeId, access, newValue);
+		}
+		if (newValue.getChoiceIndex() != initialValue.getChoiceIndex()) {
+			return AccessResultCode.TYPE_UNMATCHED;
+		}
+		value = newValue;
+		return AccessResultCode.SUCCESS;
+	}
+
+	@Override
+	public MethodResult invoke(int methodId, Data parameter) {
+		if (methodId != 1) {
+			return super.invoke(methodId, parameter);
+		}
+		value = new Data(initialValue);
+		return new MethodResult(MethodResultCode.SUCCESS);
+	}
+}